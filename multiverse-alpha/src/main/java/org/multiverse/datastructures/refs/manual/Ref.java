@@ -3,11 +3,14 @@ package org.multiverse.datastructures.refs.manual;
 import org.multiverse.api.GlobalStmInstance;
 import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
 import org.multiverse.api.Stm;
+import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
 import static org.multiverse.api.StmUtils.retry;
 import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionStatus;
 import org.multiverse.api.exceptions.ReadonlyException;
 import org.multiverse.datastructures.refs.ManagedRef;
 import org.multiverse.stms.alpha.*;
+import static org.multiverse.stms.alpha.AlphaStmUtils.loadCommittedIfUnlocked;
 import org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin;
 import org.multiverse.templates.AtomicTemplate;
 
@@ -19,6 +22,10 @@ import static java.lang.String.format;
  * <p/>
  * It is added to get the Akka project up and running, but probably will removed when the instrumentation is 100% up and
  * running and this can be done compiletime instead of messing with javaagents.
+ * <p/>
+ * The {@link #get()} and {@link #isNull()} outside of a transaction don't create any objects (no template and no
+ * transaction are needed to read a single ref), so a Ref can be used for read mostly structures like caches. Only if
+ * the ref is locked by a committing transaction, a readonly transaction is started.
  *
  * @author Peter Veentjer
  */
@@ -112,6 +119,13 @@ public final class Ref<E> extends FastAtomicObjectMixin implements ManagedRef<E>
     }
 
     public E get() {
+        if (noActiveTransaction()) {
+            RefTranlocal<E> tranlocal = (RefTranlocal<E>) loadCommittedIfUnlocked(this);
+            if (tranlocal != null) {
+                return tranlocal.value;
+            }
+        }
+
         return new AtomicTemplate<E>(true) {
             @Override
             public E execute(Transaction t) {
@@ -121,7 +135,7 @@ public final class Ref<E> extends FastAtomicObjectMixin implements ManagedRef<E>
     }
 
     public E get(Transaction t) {
-        RefTranlocal<E> tranlocal = (RefTranlocal) ((AlphaTransaction) t).load(Ref.this);
+        RefTranlocal<E> tranlocal = (RefTranlocal) ((AlphaTransaction) t).loadReadonly(Ref.this);
         return tranlocal.value;
     }
 
@@ -136,7 +150,7 @@ public final class Ref<E> extends FastAtomicObjectMixin implements ManagedRef<E>
     }
 
     public E getOrAwait(Transaction t) {
-        RefTranlocal<E> tranlocal = (RefTranlocal) ((AlphaTransaction) t).load(Ref.this);
+        RefTranlocal<E> tranlocal = (RefTranlocal) ((AlphaTransaction) t).loadReadonly(Ref.this);
         if (tranlocal.value == null) {
             retry();
         }
@@ -169,6 +183,13 @@ public final class Ref<E> extends FastAtomicObjectMixin implements ManagedRef<E>
 
     @Override
     public boolean isNull() {
+        if (noActiveTransaction()) {
+            RefTranlocal<E> tranlocal = (RefTranlocal<E>) loadCommittedIfUnlocked(this);
+            if (tranlocal != null) {
+                return tranlocal.value == null;
+            }
+        }
+
         return new AtomicTemplate<Boolean>(true) {
             @Override
             public Boolean execute(Transaction t) throws Exception {
@@ -178,7 +199,7 @@ public final class Ref<E> extends FastAtomicObjectMixin implements ManagedRef<E>
     }
 
     public boolean isNull(Transaction t) {
-        RefTranlocal<E> tranlocal = (RefTranlocal) ((AlphaTransaction) t).load(Ref.this);
+        RefTranlocal<E> tranlocal = (RefTranlocal) ((AlphaTransaction) t).loadReadonly(Ref.this);
         return tranlocal.value == null;
     }
 
@@ -215,7 +236,7 @@ public final class Ref<E> extends FastAtomicObjectMixin implements ManagedRef<E>
     }
 
     public String toString(Transaction t) {
-        RefTranlocal<E> tranlocal = (RefTranlocal) ((AlphaTransaction) t).load(Ref.this);
+        RefTranlocal<E> tranlocal = (RefTranlocal) ((AlphaTransaction) t).loadReadonly(Ref.this);
         if (tranlocal.value == null) {
             return "Ref(reference=null)";
         } else {
@@ -223,6 +244,17 @@ public final class Ref<E> extends FastAtomicObjectMixin implements ManagedRef<E>
         }
     }
 
+    /**
+     * Checks if there is no active transaction in the {@link org.multiverse.api.ThreadLocalTransaction}. If there is
+     * one, the ref needs to be read through it (just like the {@link AtomicTemplate} does).
+     *
+     * @return true if there is no active transaction, false otherwise.
+     */
+    private static boolean noActiveTransaction() {
+        Transaction t = getThreadLocalTransaction();
+        return t == null || t.getStatus() != TransactionStatus.active;
+    }
+
     @Override
     public RefTranlocal<E> ___loadUpdatable(long readVersion) {
         RefTranlocal<E> origin = (RefTranlocal<E>) ___load(readVersion);
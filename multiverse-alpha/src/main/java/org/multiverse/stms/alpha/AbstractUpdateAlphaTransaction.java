@@ -0,0 +1,1375 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.*;
+import org.multiverse.stms.AbstractTransaction;
+import static org.multiverse.stms.alpha.AlphaStmUtils.toAtomicObjectString;
+import org.multiverse.utils.Listeners;
+import org.multiverse.utils.clock.Clock;
+import static org.multiverse.utils.commitlock.CommitLockUtils.nothingToLock;
+import static org.multiverse.utils.commitlock.CommitLockUtils.releaseLocks;
+import org.multiverse.utils.commitlock.IrrevocableCommitGate;
+import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.profiling.ProfileEventType;
+import org.multiverse.utils.profiling.ProfileEventWriter;
+
+import static java.lang.String.format;
+
+/**
+ * An abstract {@link AlphaTransaction} that contains all the logic for doing updates, except the storage of the
+ * attached tranlocals. This makes it possible to create different update transaction implementations that use a
+ * storage structure that is optimized for a specific transaction length. For small transactions an array is a lot
+ * cheaper than a map for example.
+ * <p/>
+ * A subclass needs to implement the 'attached' methods. The subclass also needs to call the {@link #init()} when it
+ * has completed its constructor (see {@link AbstractTransaction}).
+ * <p/>
+ * Comment about design: A state design pattern would have been a solution to reduce the switch statements, but to
+ * prevent object creation, this is not done.
+ *
+ * @author Peter Veentjer.
+ */
+public abstract class AbstractUpdateAlphaTransaction extends AbstractTransaction<UpdateTransactionDependencies>
+        implements AlphaTransaction {
+
+    protected final static AlphaTranlocal[] EMPTY_WRITESET = new AlphaTranlocal[0];
+
+    //is used to let the stm learn the size of transactions of this family. Could be null.
+    //is not final because a pooled transaction can be reused for a different family.
+    protected TransactionSizeStatistics sizeStatistics;
+
+    private SnapshotStack snapshotStack;
+
+    //contains the commuting functions of atomic objects that are not attached.
+    private CommuteNode commutes;
+
+    //contains the domains of other stms that have been touched, null if none. Is kept when the transaction restarts.
+    private ForeignDomains foreignDomains;
+
+    //the listeners of the stored atomic objects, they are opened after all locks have been released. Is kept when
+    //the transaction is reused, so it only grows until it fits the largest commit.
+    private Listeners[] listenersToOpen;
+    private int listenersToOpenSize;
+
+    //true if this transaction is irrevocable, see the IrrevocableCommitGate. Is kept when the transaction restarts.
+    private boolean irrevocable;
+
+    //the resolved profile counters of the family, null if there is no profiler. Is kept when the transaction is
+    //reused for the same family.
+    private UpdateTransactionCounters counters;
+
+    //records the profile events of the family, null if there is no profileEventRecorder. Is kept when the transaction
+    //is reused for the same family.
+    private ProfileEventWriter events;
+
+    public AbstractUpdateAlphaTransaction(UpdateTransactionDependencies dependencies, String familyName) {
+        this(dependencies, familyName, null);
+    }
+
+    /**
+     * Creates a new AbstractUpdateAlphaTransaction.
+     *
+     * @param dependencies   the UpdateTransactionDependencies.
+     * @param familyName     the familyName of the transaction.
+     * @param sizeStatistics the TransactionSizeStatistics of the family that is informed about the size of this
+     *                       transaction when it completes. Can be null.
+     */
+    public AbstractUpdateAlphaTransaction(UpdateTransactionDependencies dependencies, String familyName,
+                                          TransactionSizeStatistics sizeStatistics) {
+        super(dependencies, familyName);
+        this.sizeStatistics = sizeStatistics;
+    }
+
+    /**
+     * Reinitializes this finished transaction so that it can be reused, see the {@link AlphaTransactionPool}.
+     *
+     * @param familyName     the familyName of the transaction.
+     * @param sizeStatistics the TransactionSizeStatistics of the family. Can be null.
+     */
+    final void reuse(String familyName, TransactionSizeStatistics sizeStatistics) {
+        this.sizeStatistics = sizeStatistics;
+        this.foreignDomains = null;
+        this.irrevocable = false;
+        init(familyName);
+    }
+
+    /**
+     * Removes the references to the tranlocals and atomic objects of this finished transaction, so that a pooled
+     * transaction doesn't keep them (and their history) reachable. See the {@link AlphaTransactionPool}.
+     */
+    final void clearForPooling() {
+        this.snapshotStack = null;
+        this.commutes = null;
+        clearAttached();
+        clearWriteSet();
+    }
+
+    /**
+     * Makes this just started transaction irrevocable: it acquires the {@link IrrevocableCommitGate}, so no other
+     * transaction is able to commit until this transaction has committed or aborted. This call blocks until the gate
+     * has been acquired. When the transaction is restarted, it acquires the gate again.
+     */
+    final void startIrrevocable() {
+        irrevocable = true;
+        acquireIrrevocableCommitGate();
+        if (foreignDomains != null) {
+            foreignDomains.start();
+        }
+    }
+
+    /**
+     * Checks if this transaction is irrevocable.
+     *
+     * @return true if this transaction is irrevocable, false otherwise.
+     */
+    final boolean isIrrevocable() {
+        return irrevocable;
+    }
+
+    private void acquireIrrevocableCommitGate() {
+        dependencies.irrevocableCommitGate.acquire(this);
+        //commits could have been done between sampling the read version and acquiring the gate. Nothing is loaded yet,
+        //so the read version can be moved forward without validation.
+        extendReadVersion(dependencies.clock.getTime());
+
+        if (dependencies.profiler != null) {
+            dependencies.profiler.incCounter("updatetransaction.irrevocable.count", getFamilyName());
+        }
+    }
+
+    private void releaseIrrevocableCommitGate() {
+        if (irrevocable) {
+            dependencies.irrevocableCommitGate.release(this);
+        }
+    }
+
+    final UpdateTransactionDependencies getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Returns the attached tranlocal for the atomicObject.
+     *
+     * @param atomicObject the AlphaAtomicObject to look for. Will never be null.
+     * @return the found AlphaTranlocal, or null if none is attached for the atomicObject.
+     */
+    protected abstract AlphaTranlocal findAttached(AlphaAtomicObject atomicObject);
+
+    /**
+     * Attaches the tranlocal to this transaction. This method is only called when no tranlocal for the same
+     * atomicObject is attached.
+     *
+     * @param tranlocal the AlphaTranlocal to attach. Will never be null.
+     */
+    protected abstract void attach(AlphaTranlocal tranlocal);
+
+    /**
+     * Replaces the attached tranlocal of the same atomicObject by the tranlocal. This method is only called when a
+     * tranlocal for the same atomicObject is attached.
+     *
+     * @param tranlocal the AlphaTranlocal to attach. Will never be null.
+     */
+    protected abstract void replaceAttached(AlphaTranlocal tranlocal);
+
+    /**
+     * Returns the number of attached tranlocals.
+     *
+     * @return the number of attached tranlocals.
+     */
+    protected abstract int getAttachedCount();
+
+    /**
+     * Removes all attached tranlocals.
+     */
+    protected abstract void clearAttached();
+
+    /**
+     * Creates the writeset; a set of objects which state needs to be committed. The {@link #isDirty(AlphaTranlocal)}
+     * method can be used to determine if a tranlocal needs to be part of the writeset.
+     *
+     * @return the created WriteSet. The returned value will never be null.
+     * @throws org.multiverse.api.exceptions.WriteConflictException
+     *          if can be determined that another transaction did a conflicting write.
+     */
+    protected abstract AlphaTranlocal[] createWriteSet();
+
+    /**
+     * Removes the tranlocals from the writeset if it is kept between commits. The default implementation does nothing.
+     */
+    protected void clearWriteSet() {
+    }
+
+    /**
+     * Registers the latch on all atomic objects that are attached.
+     *
+     * @param latch          the Latch to register.
+     * @param minimalVersion the minimal version of the atomic objects to wake up on.
+     * @return true if at least one registration was done, false otherwise.
+     */
+    protected abstract boolean registerRetryLatch(Latch latch, long minimalVersion);
+
+    /**
+     * Creates a snapshot of all attached tranlocals. See {@link AlphaTranlocalSnapshot}. The snapshot of a single
+     * tranlocal needs to be created with {@link #takeSnapshot(AlphaTranlocal)}.
+     *
+     * @return the created snapshot, or null if nothing is attached.
+     */
+    protected abstract AlphaTranlocalSnapshot createSnapshot();
+
+    /**
+     * Checks if none of the attached tranlocals have been changed by other transactions since the readVersion. See
+     * {@link #isUnchangedSince(AlphaTranlocal, long)}.
+     *
+     * @param readVersion the read version the attached tranlocals have been loaded with.
+     * @return true if none of the attached tranlocals has been changed, false otherwise.
+     */
+    protected abstract boolean isAttachedUnchangedSince(long readVersion);
+
+    protected void doInit() {
+        if (dependencies.profiler != null &&
+                (counters == null || !counters.isResolvedFor(dependencies.profiler, familyName))) {
+            counters = new UpdateTransactionCounters(dependencies.profiler, familyName);
+        }
+
+        if (dependencies.profileEventRecorder != null &&
+                (events == null || !events.isResolvedFor(dependencies.profileEventRecorder, familyName))) {
+            events = dependencies.profileEventRecorder.createWriter("updatetransaction", familyName);
+        }
+
+        this.snapshotStack = null;
+        this.commutes = null;
+        clearAttached();
+        if (irrevocable) {
+            acquireIrrevocableCommitGate();
+        }
+        if (foreignDomains != null) {
+            foreignDomains.start();
+        }
+
+        if (dependencies.profiler != null) {
+            counters.started.inc();
+        }
+
+        if (dependencies.profileEventRecorder != null) {
+            events.record(ProfileEventType.started);
+        }
+    }
+
+    @Override
+    public AlphaTranlocal load(AlphaAtomicObject atomicObject) {
+        switch (getStatus()) {
+            case active:
+                if (atomicObject == null) {
+                    return null;
+                }
+
+                AlphaTranlocal tranlocal = findAttached(atomicObject);
+                if (tranlocal == null) {
+                    tranlocal = loadAttachable(atomicObject, true);
+                    attach(tranlocal);
+                    incKarma();
+
+                    if (commutes != null) {
+                        applyPendingCommutes(tranlocal);
+                    }
+
+                    if (dependencies.profiler != null) {
+                        counters.incAtomicObjectLoad(atomicObject);
+                        counters.load.inc();
+                    }
+
+                    if (dependencies.profileEventRecorder != null) {
+                        events.record(ProfileEventType.load, atomicObject.getClass());
+                    }
+                } else if (tranlocal.___writeVersion > 0) {
+                    //the committed tranlocal was attached by a loadReadonly, the first write needs a private copy.
+                    tranlocal = privatize(tranlocal);
+                } else {
+                    if (dependencies.profiler != null) {
+                        counters.incAtomicObjectUselessLoad(atomicObject);
+                        counters.uselessLoad.inc();
+                    }
+                }
+
+                return tranlocal;
+            case committed: {
+                String msg = format("Can't call load with atomicobject '%s' on committed transaction '%s'.",
+                                    toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            case aborted: {
+                String msg = format("Can't call load with atomicObject '%s' on aborted transaction '%s'.",
+                                    toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    @Override
+    public AlphaTranlocal loadReadonly(AlphaAtomicObject atomicObject) {
+        switch (getStatus()) {
+            case active:
+                if (atomicObject == null) {
+                    return null;
+                }
+
+                AlphaTranlocal tranlocal = findAttached(atomicObject);
+                if (tranlocal != null) {
+                    if (dependencies.profiler != null) {
+                        counters.incAtomicObjectUselessLoad(atomicObject);
+                        counters.uselessLoad.inc();
+                    }
+                    return tranlocal;
+                }
+
+                //pending commuting functions need to be applied on a private copy.
+                if (commutes != null) {
+                    return load(atomicObject);
+                }
+
+                tranlocal = loadAttachable(atomicObject, false);
+                if (tranlocal == null) {
+                    //nothing has been committed yet, so there is nothing to share.
+                    return load(atomicObject);
+                }
+
+                attach(tranlocal);
+                incKarma();
+
+                if (dependencies.profiler != null) {
+                    counters.incAtomicObjectLoad(atomicObject);
+                    counters.readonlyLoad.inc();
+                }
+
+                if (dependencies.profileEventRecorder != null) {
+                    events.record(ProfileEventType.load, atomicObject.getClass());
+                }
+
+                return tranlocal;
+            case committed: {
+                String msg = format("Can't call loadReadonly with atomicobject '%s' on committed transaction '%s'.",
+                                    toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            case aborted: {
+                String msg = format("Can't call loadReadonly with atomicObject '%s' on aborted transaction '%s'.",
+                                    toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    /**
+     * Replaces an attached committed tranlocal by a private copy that can be written. The copy is loaded with the
+     * current read version, so it has the same state as the committed tranlocal: if the atomicObject has been changed
+     * since the read version was extended, the load fails like any other load of a too new version.
+     *
+     * @param committed the attached committed tranlocal.
+     * @return the attached private copy.
+     */
+    private AlphaTranlocal privatize(AlphaTranlocal committed) {
+        AlphaTranlocal tranlocal = loadAttachable(committed.getAtomicObject(), true);
+        replaceAttached(tranlocal);
+
+        if (dependencies.profiler != null) {
+            counters.privatize.inc();
+        }
+
+        return tranlocal;
+    }
+
+    /**
+     * Loads a tranlocal for the atomicObject that can be attached. If the atomicObject is locked by another
+     * transaction, the {@link org.multiverse.utils.contentionmanager.ContentionManager} decides if the load is tried
+     * again.
+     *
+     * @param atomicObject the AlphaAtomicObject to load.
+     * @param updatable    true if a private copy that can be written is needed, false if the committed tranlocal can
+     *                     be used.
+     * @return the loaded tranlocal. If updatable is false and nothing has been committed, null is returned.
+     * @throws LoadException if the tranlocal could not be loaded.
+     */
+    private AlphaTranlocal loadAttachable(AlphaAtomicObject atomicObject, boolean updatable) {
+        boolean readVersionExtended = false;
+        int attempt = 0;
+        while (true) {
+            //if the atomicObject is bound to a domain during the load, the load is done again with the read version
+            //of that domain.
+            Clock domain = atomicObject.___getDomainClock();
+            long readVersion = enterDomain(domain);
+            try {
+                AlphaTranlocal tranlocal = updatable
+                        ? atomicObject.___loadUpdatable(readVersion)
+                        : atomicObject.___load(readVersion);
+                if (atomicObject.___getDomainClock() != domain) {
+                    continue;
+                }
+
+                if (foreignDomains != null) {
+                    ForeignDomains.ensureNotChangedSince(atomicObject, readVersion);
+                }
+                return tranlocal;
+            } catch (LoadTooOldVersionException e) {
+                if (atomicObject.___getDomainClock() != domain) {
+                    continue;
+                }
+
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter("atomicobject.snapshottooold.count",
+                                                     atomicObject.getClass().getName());
+                    dependencies.profiler.incCounter("updatetransaction.snapshottooold.count", getFamilyName());
+                }
+
+                //the read version is extended only once. If the atomicObject is still too new after that
+                //(another write was done in the meantime), the exception is propagated. The read version of a
+                //transaction that touches multiple domains is not extended, the domains would get out of sync.
+                if (readVersionExtended || !dependencies.readVersionExtensionEnabled || foreignDomains != null
+                        || !tryExtendReadVersion()) {
+                    throw e;
+                }
+
+                readVersionExtended = true;
+            } catch (LoadLockedException e) {
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter("atomicobject.lockedload.count",
+                                                     atomicObject.getClass().getName());
+                    dependencies.profiler.incCounter("updatetransaction.failedtolock.count", getFamilyName());
+                }
+
+                attempt++;
+                if (!resolveContention(atomicObject.___getLockOwner(), attempt)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public final long getReadVersion(Clock domain) {
+        if (domain == null || domain == dependencies.clock) {
+            return getReadVersion();
+        }
+
+        return foreignDomains == null ? -1 : foreignDomains.getReadVersion(domain);
+    }
+
+    /**
+     * Returns the read version for the domain of an atomic object that is going to be loaded. A domain that has not
+     * been touched before is added to the foreign domains. If atomic objects already have been loaded, the transaction
+     * has no read version for the new domain that is consistent with these loads, so it needs to be restarted. The
+     * next attempt knows the domain from the start. An irrevocable transaction doesn't need to be restarted; no commits
+     * are done in the domains sharing its IrrevocableCommitGate, so the sampled read version is consistent.
+     *
+     * @param domain the clock of the domain, or null if the atomic object is not bound to a domain yet.
+     * @return the read version for the domain.
+     * @throws LoadTooOldVersionException if the transaction needs to be restarted.
+     */
+    private long enterDomain(Clock domain) {
+        long readVersion = getReadVersion(domain);
+        if (readVersion >= 0) {
+            return readVersion;
+        }
+
+        if (foreignDomains == null) {
+            foreignDomains = new ForeignDomains();
+        }
+        foreignDomains.add(domain);
+
+        if (getAttachedCount() > 0 && !irrevocable) {
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("updatetransaction.newdomain.count", getFamilyName());
+            }
+
+            if (LoadTooOldVersionException.reuse) {
+                throw LoadTooOldVersionException.INSTANCE;
+            } else {
+                String msg = format("Transaction '%s' touched a new domain, it needs to be restarted",
+                                    getFamilyName());
+                throw new LoadTooOldVersionException(msg);
+            }
+        }
+
+        return foreignDomains.getReadVersion(domain);
+    }
+
+    @Override
+    public void commute(AlphaAtomicObject atomicObject, CommutingFunction function) {
+        switch (getStatus()) {
+            case active:
+                if (atomicObject == null || function == null) {
+                    throw new NullPointerException();
+                }
+
+                AlphaTranlocal tranlocal = findAttached(atomicObject);
+                if (tranlocal == null) {
+                    commutes = new CommuteNode(atomicObject, function, commutes);
+                } else {
+                    if (tranlocal.___writeVersion > 0) {
+                        tranlocal = privatize(tranlocal);
+                    }
+                    //the atomicObject already is loaded, so the function can be applied directly and the
+                    //normal conflict detection applies.
+                    function.apply(tranlocal);
+                    tranlocal.___dirty = true;
+                }
+
+                if (dependencies.profiler != null) {
+                    counters.commute.inc();
+                }
+                break;
+            case committed: {
+                String msg = format("Can't call commute with atomicobject '%s' on committed transaction '%s'.",
+                                    toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            case aborted: {
+                String msg = format("Can't call commute with atomicobject '%s' on aborted transaction '%s'.",
+                                    toAtomicObjectString(atomicObject), familyName);
+                throw new DeadTransactionException(msg);
+            }
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    /**
+     * Applies the pending commuting functions of the atomic object of a tranlocal that just has been loaded, and
+     * removes them from the pending commutes. The CommuteNodes are immutable (they are shared with the SnapshotStack)
+     * so the list is rebuild.
+     *
+     * @param tranlocal the tranlocal that just has been loaded.
+     */
+    private void applyPendingCommutes(AlphaTranlocal tranlocal) {
+        AlphaAtomicObject atomicObject = tranlocal.getAtomicObject();
+
+        CommuteNode remaining = null;
+        boolean found = false;
+        for (CommuteNode node = commutes; node != null; node = node.next) {
+            if (node.atomicObject == atomicObject) {
+                node.function.apply(tranlocal);
+                tranlocal.___dirty = true;
+                found = true;
+            } else {
+                remaining = new CommuteNode(node.atomicObject, node.function, remaining);
+            }
+        }
+
+        if (found) {
+            commutes = remaining;
+        }
+    }
+
+    /**
+     * Tries to move the read version of this transaction forward to the current time (the LSA/TL2 timestamp
+     * extension). This is only possible if none of the attached tranlocals has been changed since the current read
+     * version, otherwise the transaction would not be consistent anymore.
+     *
+     * @return true if the read version was extended, false otherwise.
+     */
+    private boolean tryExtendReadVersion() {
+        //the new read version needs to be read before the validation is done; a write that is done during the
+        //validation then has a larger version or is detected by the validation.
+        long newReadVersion = dependencies.clock.getTime();
+
+        if (!isAttachedUnchangedSince(getReadVersion())) {
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("updatetransaction.failedreadversionextension.count",
+                                                 getFamilyName());
+            }
+            return false;
+        }
+
+        extendReadVersion(newReadVersion);
+
+        if (dependencies.profiler != null) {
+            dependencies.profiler.incCounter("updatetransaction.readversionextension.count", getFamilyName());
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the atomic object of an attached tranlocal has not been changed by other transactions since the
+     * readVersion. If the atomic object is locked, it is seen as changed because the pending write could get a version
+     * below the new read version.
+     *
+     * @param tranlocal   the attached tranlocal to check.
+     * @param readVersion the read version the tranlocal has been loaded with.
+     * @return true if the atomic object has not been changed, false otherwise.
+     */
+    protected final boolean isUnchangedSince(AlphaTranlocal tranlocal, long readVersion) {
+        AlphaAtomicObject atomicObject = tranlocal.getAtomicObject();
+
+        //the lock needs to be checked before the current tranlocal is read.
+        if (atomicObject.___getLockOwner() != null) {
+            return false;
+        }
+
+        AlphaTranlocal current;
+        try {
+            current = atomicObject.___load();
+        } catch (LoadLockedException e) {
+            //a lock free commit is pending, it is treated like the lock.
+            return false;
+        }
+
+        if (current == null) {
+            return true;
+        }
+
+        Clock domain = atomicObject.___getDomainClock();
+        if (domain != null && domain != dependencies.clock) {
+            readVersion = getReadVersion(domain);
+        }
+        return current.___writeVersion <= readVersion;
+    }
+
+    @Override
+    protected long onCommit() {
+        long startNs = dependencies.profiler == null ? 0 : System.nanoTime();
+        long commitVersion = doCommit();
+        releaseIrrevocableCommitGate();
+        if (dependencies.profiler != null) {
+            counters.committed.inc();
+            counters.commitDuration.record(System.nanoTime() - startNs);
+        }
+
+        if (dependencies.profileEventRecorder != null) {
+            events.record(ProfileEventType.committed);
+        }
+
+        signalSize();
+        clearAttached();
+        return commitVersion;
+    }
+
+    private long doCommit() {
+        AlphaTranlocal[] writeSet = createWriteSet();
+        if (nothingToLock(writeSet) && commutes == null) {
+            //if there is nothing to commit, we are done.
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("updatetransaction.emptycommit.count", getFamilyName());
+            }
+            return getReadVersion();
+        }
+
+        //waits while another transaction is irrevocable.
+        IrrevocableCommitGate gate = dependencies.irrevocableCommitGate;
+        gate.enterCommit(this);
+        try {
+            return commitWriteSet(writeSet);
+        } finally {
+            gate.exitCommit();
+        }
+    }
+
+    private long commitWriteSet(AlphaTranlocal[] writeSet) {
+        if (commutes == null && dependencies.lockFreeSingleObjectCommitEnabled && isSingleton(writeSet)) {
+            return commitLockFree(writeSet[0]);
+        }
+
+        //the commuteSet is null terminated and contains the tranlocals of the commuted atomic objects.
+        AlphaTranlocal[] commuteSet = commutes == null ? null : new AlphaTranlocal[commutes.size()];
+        try {
+            acquireLocksAndCheckForConflicts(writeSet);
+            if (commuteSet != null) {
+                lockAndApplyCommutes(commuteSet);
+            }
+
+            long writeVersion = tickClocks(writeSet, commuteSet);
+            storeAllAndReleaseLocks(writeSet, commuteSet, writeVersion);
+            //if only foreign domains have been written, there is no write version of the own domain.
+            return writeVersion == 0 ? getReadVersion() : writeVersion;
+        } finally {
+            releaseLocks(writeSet, this);
+            releaseLocks(commuteSet, this);
+            commutes = null;
+            //the listeners are opened after all locks have been released, so that waking up the waiting transactions
+            //doesn't make the commit critical section longer.
+            openListeners();
+        }
+    }
+
+    /**
+     * Ticks the clocks of the domains of the locked atomic objects. Every clock is ticked once, and all clocks are
+     * ticked before anything is stored. Atomic objects that are not bound to a domain yet, are bound to the domain of
+     * this transaction when they are stored.
+     *
+     * @param writeSet   the null terminated writeset.
+     * @param commuteSet the null terminated commuteSet, could be null.
+     * @return the write version of the domain of this transaction, or 0 if nothing in it is written.
+     */
+    private long tickClocks(AlphaTranlocal[] writeSet, AlphaTranlocal[] commuteSet) {
+        if (foreignDomains == null && commuteSet == null) {
+            //a loaded atomic object of a foreign domain would have added the domain, so everything is in the own
+            //domain.
+            return tickClock();
+        }
+
+        long writeVersion = 0;
+        for (int set = 0; set < 2; set++) {
+            AlphaTranlocal[] tranlocals = set == 0 ? writeSet : commuteSet;
+            for (int k = 0; tranlocals != null && k < tranlocals.length && tranlocals[k] != null; k++) {
+                Clock domain = tranlocals[k].getAtomicObject().___getDomainClock();
+                if (domain == null || domain == dependencies.clock) {
+                    if (writeVersion == 0) {
+                        writeVersion = tickClock();
+                    }
+                } else {
+                    if (foreignDomains == null) {
+                        foreignDomains = new ForeignDomains();
+                    }
+                    foreignDomains.tick(domain);
+                }
+            }
+        }
+        return writeVersion;
+    }
+
+    private long tickClock() {
+        long writeVersion = dependencies.clock.tick();
+
+        if (SANITY_CHECKS_ENABLED) {
+            if (writeVersion <= getReadVersion()) {
+                throw new PanicError("The clock went back in time");
+            }
+        }
+
+        return writeVersion;
+    }
+
+    private static boolean isSingleton(AlphaTranlocal[] writeSet) {
+        return writeSet.length == 1 || writeSet[1] == null;
+    }
+
+    /**
+     * Commits a writeset that contains a single tranlocal without acquiring the lock of the atomic object. The
+     * tranlocal is published with a single cas, and the write version is determined after it has been published.
+     * Transactions that started before the publication have a smaller read version, so they don't see the tranlocal,
+     * and loads done while the write version is not set yet wait a bounded time for it. The window is short (a tick of
+     * the clock and linking the history), so a concurrent load normally doesn't fail where it would have failed on the
+     * lock. If the committer is descheduled, the load fails with a LoadLockedException instead of stalling with it.
+     * If the commit fails after the tranlocal has been published, the tranlocal is revoked, so the loads never wait
+     * for a commit that isn't going to complete.
+     *
+     * @param tranlocal the tranlocal to commit.
+     * @return the write version.
+     */
+    private long commitLockFree(AlphaTranlocal tranlocal) {
+        AlphaAtomicObject atomicObject = tranlocal.getAtomicObject();
+
+        AlphaTranlocal expected;
+        int attempt = 0;
+        while (true) {
+            expected = atomicObject.___load();
+            //the domain is bound before the first tranlocal is committed, so it needs to be read after the load.
+            boolean conflict = expected != null
+                    && expected.___writeVersion > getReadVersion(atomicObject.___getDomainClock())
+                    && !tranlocal.rebase(expected);
+
+            if (!conflict && atomicObject.___tryPublishPending(expected, tranlocal)) {
+                break;
+            }
+
+            Transaction lockOwner = conflict ? null : atomicObject.___getLockOwner();
+            if (lockOwner != null) {
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter("updatetransaction.failedtoacquirelocks.count",
+                                                     getFamilyName());
+                }
+
+                if (dependencies.profileEventRecorder != null) {
+                    events.record(ProfileEventType.failedtolock, atomicObject.getClass());
+                }
+
+                attempt++;
+                if (resolveContention(lockOwner, attempt)) {
+                    continue;
+                }
+
+                if (FailedToObtainLocksException.reuse) {
+                    throw FailedToObtainLocksException.INSTANCE;
+                } else {
+                    String msg = format(
+                            "Failed to commit atomicobject '%s' because it is locked, transaction '%s'",
+                            toAtomicObjectString(atomicObject), getFamilyName());
+                    throw new FailedToObtainLocksException(msg);
+                }
+            }
+
+            if (!conflict) {
+                //the publish failed because the lock has been released in the meantime, or because another
+                //transaction committed. The lock owner could have aborted, or its write could be rebased, so the
+                //conflict needs to be checked again.
+                continue;
+            }
+
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("updatetransaction.writeconflict.count", getFamilyName());
+            }
+
+            if (dependencies.profileEventRecorder != null) {
+                events.record(ProfileEventType.conflict, atomicObject.getClass());
+            }
+
+            if (WriteConflictException.reuse) {
+                throw WriteConflictException.INSTANCE;
+            } else {
+                String msg = format("There was a writeconflict in transaction with familyname '%s' on atomicobject '%s'",
+                                    getFamilyName(), toAtomicObjectString(atomicObject));
+                throw new WriteConflictException(msg);
+            }
+        }
+
+        Clock domain;
+        long writeVersion;
+        Listeners listeners;
+        boolean committed = false;
+        try {
+            //the pending tranlocal is published, so no other transaction can bind the domain in the meantime.
+            domain = atomicObject.___getDomainClock();
+            if (domain == null) {
+                domain = dependencies.clock;
+                atomicObject.___bindDomainClock(domain);
+            }
+
+            writeVersion = domain.tick();
+
+            if (SANITY_CHECKS_ENABLED) {
+                if (writeVersion <= getReadVersion(domain)) {
+                    throw new PanicError("The clock went back in time");
+                }
+            }
+
+            if (dependencies.maxHistoryDepth > 0) {
+                //the pending tranlocal is published, so no other transaction can commit in the meantime.
+                linkHistory(tranlocal, expected);
+            }
+
+            listeners = atomicObject.___commitPending(tranlocal, writeVersion);
+            committed = true;
+        } finally {
+            if (!committed) {
+                //loads of the atomic object wait for the pending tranlocal, so it never should be left behind. The
+                //tick of the clock is harmless, nobody has seen the write version.
+                tranlocal.___previous = null;
+                atomicObject.___revokePending(expected, tranlocal);
+            }
+        }
+
+        if (dependencies.profiler != null) {
+            counters.lockFreeCommit.inc();
+            counters.individualWrite.inc(getAttachedCount());
+        }
+
+        if (listeners != null) {
+            listeners.openAll();
+        }
+
+        return domain == dependencies.clock ? writeVersion : getReadVersion();
+    }
+
+    /**
+     * Locks the commuted atomic objects and applies the commuting functions on the most recently committed state. The
+     * commuteSet is filled with the updatable tranlocals, so that the locks can be released if something fails.
+     *
+     * @param commuteSet the array to store the tranlocals of the commuted atomic objects in.
+     */
+    private void lockAndApplyCommutes(AlphaTranlocal[] commuteSet) {
+        int size = 0;
+        for (CommuteNode node = commutes; node != null; node = node.next) {
+            AlphaTranlocal tranlocal = null;
+            for (int k = 0; k < size; k++) {
+                if (commuteSet[k].getAtomicObject() == node.atomicObject) {
+                    tranlocal = commuteSet[k];
+                    break;
+                }
+            }
+
+            if (tranlocal == null) {
+                tranlocal = lockForCommute(node.atomicObject);
+                commuteSet[size] = tranlocal;
+                size++;
+            }
+
+            node.function.apply(tranlocal);
+        }
+    }
+
+    /**
+     * Locks the atomicObject and returns an updatable tranlocal of the most recently committed state. Unlike normal
+     * loads, there is no conflict if the atomicObject has been changed after the read version of this transaction. If
+     * the atomicObject is locked by another transaction, the {@link
+     * org.multiverse.utils.contentionmanager.ContentionManager} decides if the lock is tried again.
+     *
+     * @param atomicObject the commuted atomicObject.
+     * @return the updatable tranlocal.
+     * @throws FailedToObtainLocksException if the lock could not be acquired.
+     */
+    private AlphaTranlocal lockForCommute(AlphaAtomicObject atomicObject) {
+        int attempt = 0;
+        while (true) {
+            //the updatable tranlocal needs to be created before the lock is acquired, because a load fails on
+            //a locked atomicObject.
+            AlphaTranlocal committed = atomicObject.___load();
+            long version = committed == null ? getReadVersion() : committed.___writeVersion;
+            AlphaTranlocal tranlocal;
+            try {
+                tranlocal = atomicObject.___loadUpdatable(version);
+            } catch (LoadTooOldVersionException e) {
+                //a write was done between reading the committed tranlocal and the load, lets try again.
+                continue;
+            }
+
+            if (!atomicObject.___tryLock(this)) {
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter("updatetransaction.failedtoacquirelocks.count", getFamilyName());
+                }
+
+                if (dependencies.profileEventRecorder != null) {
+                    events.record(ProfileEventType.failedtolock, atomicObject.getClass());
+                }
+
+                //a commuted atomic object typically is a hot spot, so the contention manager decides if the lock is
+                //tried again. The locks that already are hold are kept, the number of attempts of the contention
+                //manager is bounded, so two transactions waiting for each other's lock eventually give up.
+                attempt++;
+                if (resolveContention(atomicObject.___getLockOwner(), attempt)) {
+                    continue;
+                }
+
+                if (FailedToObtainLocksException.reuse) {
+                    throw FailedToObtainLocksException.INSTANCE;
+                } else {
+                    String msg = format(
+                            "Failed to obtain the lock on commuted atomicobject '%s' for transaction '%s'",
+                            toAtomicObjectString(atomicObject), getFamilyName());
+                    throw new FailedToObtainLocksException(msg);
+                }
+            }
+
+            if (atomicObject.___loadWhileLocked() == committed) {
+                return tranlocal;
+            }
+
+            //a write was done between creating the tranlocal and acquiring the lock, lets try again.
+            atomicObject.___releaseLock(this);
+        }
+    }
+
+    /**
+     * Checks if the tranlocal needs to be part of the writeset.
+     *
+     * @param tranlocal the AlphaTranlocal to check.
+     * @return true if the tranlocal needs to be written, false otherwise.
+     * @throws WriteConflictException if it already can be determined that the write can never happen.
+     */
+    protected final boolean isDirty(AlphaTranlocal tranlocal) {
+        //a committed tranlocal attached by a loadReadonly is shared and never written.
+        if (tranlocal.___writeVersion > 0) {
+            return false;
+        }
+
+        switch (tranlocal.getDirtinessStatus()) {
+            case clean:
+                //fall through
+            case readonly:
+                return false;
+            case fresh:
+                //fall through
+            case dirty:
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter(
+                            "atomicobject.dirty.count", tranlocal.getAtomicObject().getClass().getName());
+                }
+                return true;
+            case conflict:
+                //if we can already determine that the write can never happen, start a write conflict
+                //and fail immediately.
+                if (dependencies.profiler != null) {
+                    dependencies.profiler.incCounter("atomicobject.conflict.count",
+                                                     tranlocal.getAtomicObject().getClass().getName());
+                    dependencies.profiler.incCounter("updatetransaction.writeconflict.count", getFamilyName());
+                }
+
+                if (dependencies.profileEventRecorder != null) {
+                    events.record(ProfileEventType.conflict, tranlocal.getAtomicObject().getClass());
+                }
+
+                if (WriteConflictException.reuse) {
+                    throw WriteConflictException.INSTANCE;
+                } else {
+                    String msg = format(
+                            "There was a writeconflict in transaction with familyname '%s' on atomicobject '%s'",
+                            getFamilyName(),
+                            toAtomicObjectString(tranlocal));
+                    throw new WriteConflictException(msg);
+                }
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    private void acquireLocksAndCheckForConflicts(AlphaTranlocal[] writeSet) {
+        long startNs = dependencies.profiler == null ? 0 : System.nanoTime();
+        int attempt = 0;
+        while (true) {
+            switch (dependencies.commitLockPolicy.tryLockAllAndDetectConflicts(writeSet, this)) {
+                case success:
+                    //todo: problem is that if the locks are not acquired successfully, it isn't clear
+                    //how many locks were acquired.
+                    if (dependencies.profiler != null) {
+                        counters.acquireLocks.inc();
+                        //includes the time spent waiting on contended locks.
+                        counters.lockAcquisitionTime.record(System.nanoTime() - startNs);
+                    }
+                    return;
+                case failure:
+                    if (dependencies.profiler != null) {
+                        dependencies.profiler.incCounter("updatetransaction.failedtoacquirelocks.count",
+                                                         getFamilyName());
+                    }
+
+                    if (dependencies.profileEventRecorder != null) {
+                        events.record(ProfileEventType.failedtolock);
+                    }
+
+                    //the commit lock policy has released the locks it acquired, so waiting can't cause a deadlock.
+                    attempt++;
+                    if (resolveContention(findLockOwner(writeSet), attempt)) {
+                        continue;
+                    }
+
+                    if (FailedToObtainLocksException.reuse) {
+                        throw FailedToObtainLocksException.INSTANCE;
+                    } else {
+                        String msg = format(
+                                "Failed to obtain all locks needed for commit on transaction wuth familyname '%s'",
+                                getFamilyName());
+                        throw new FailedToObtainLocksException(msg);
+                    }
+                case conflict:
+                    if (dependencies.profiler != null) {
+                        dependencies.profiler.incCounter("updatetransaction.writeconflict.count", getFamilyName());
+                    }
+                    if (dependencies.profileEventRecorder != null) {
+                        events.record(ProfileEventType.conflict);
+                    }
+                    if (WriteConflictException.reuse) {
+                        throw WriteConflictException.INSTANCE;
+                    } else {
+                        String msg = format("There was a writeconflict in transaction with familyname '%s'",
+                                            getFamilyName());
+                        throw new WriteConflictException(msg);
+                    }
+
+                default:
+                    throw new RuntimeException();
+            }
+        }
+    }
+
+    /**
+     * Returns a transaction other than this transaction that owns the lock of one of the atomic objects in the
+     * writeset.
+     *
+     * @param writeSet the null terminated writeset.
+     * @return the found lock owner, or null if none of the atomic objects is locked by another transaction.
+     */
+    private Transaction findLockOwner(AlphaTranlocal[] writeSet) {
+        for (int k = 0; k < writeSet.length && writeSet[k] != null; k++) {
+            Transaction lockOwner = writeSet[k].getAtomicObject().___getLockOwner();
+            if (lockOwner != null && lockOwner != this) {
+                return lockOwner;
+            }
+        }
+        return null;
+    }
+
+    private void storeAllAndReleaseLocks(AlphaTranlocal[] writeSet, AlphaTranlocal[] commuteSet,
+                                         long commitVersion) {
+        try {
+            storeAll(writeSet, commitVersion);
+            if (commuteSet != null) {
+                storeAll(commuteSet, commitVersion);
+            }
+        } finally {
+            if (dependencies.profiler != null) {
+                counters.individualWrite.inc(getAttachedCount());
+            }
+        }
+    }
+
+    private void storeAll(AlphaTranlocal[] tranlocals, long commitVersion) {
+        for (int k = 0; k < tranlocals.length; k++) {
+            AlphaTranlocal tranlocal = tranlocals[k];
+            if (tranlocal == null) {
+                return;
+            } else {
+                AlphaAtomicObject atomicObject = tranlocal.getAtomicObject();
+                if (dependencies.maxHistoryDepth > 0) {
+                    //the lock is hold, so the current tranlocal can't change.
+                    linkHistory(tranlocal, atomicObject.___loadWhileLocked());
+                }
+
+                long writeVersion = commitVersion;
+                Clock domain = atomicObject.___getDomainClock();
+                if (domain == null) {
+                    //the domain needs to be bound before the tranlocal is committed.
+                    atomicObject.___bindDomainClock(dependencies.clock);
+                } else if (domain != dependencies.clock) {
+                    writeVersion = foreignDomains.getWriteVersion(domain);
+                }
+
+                Listeners listeners = atomicObject.___storeAndReleaseLock(tranlocal, writeVersion);
+                //the listeners are collected and opened when all locks have been released.
+                if (listeners != null) {
+                    addListenersToOpen(listeners);
+                }
+            }
+        }
+    }
+
+    private void addListenersToOpen(Listeners listeners) {
+        if (listenersToOpen == null) {
+            listenersToOpen = new Listeners[4];
+        } else if (listenersToOpenSize == listenersToOpen.length) {
+            Listeners[] newListenersToOpen = new Listeners[listenersToOpen.length * 2];
+            System.arraycopy(listenersToOpen, 0, newListenersToOpen, 0, listenersToOpenSize);
+            listenersToOpen = newListenersToOpen;
+        }
+
+        listenersToOpen[listenersToOpenSize] = listeners;
+        listenersToOpenSize++;
+    }
+
+    private void openListeners() {
+        if (listenersToOpenSize == 0) {
+            return;
+        }
+
+        if (dependencies.profiler != null) {
+            counters.openedListeners.inc(listenersToOpenSize);
+        }
+
+        //the references are removed, so that a pooled transaction doesn't prevent the latches from being gc'ed.
+        for (int k = 0; k < listenersToOpenSize; k++) {
+            Listeners listeners = listenersToOpen[k];
+            listenersToOpen[k] = null;
+            listeners.openAll();
+        }
+        listenersToOpenSize = 0;
+    }
+
+    /**
+     * Links the tranlocal that is going to be committed to the currently committed tranlocal, so that transactions
+     * with an older read version still are able to find it. The tranlocal that falls outside of the maxHistoryDepth is
+     * dropped from the history.
+     *
+     * @param tranlocal the tranlocal that is going to be committed.
+     * @param previous  the currently committed tranlocal (can be null).
+     */
+    private void linkHistory(AlphaTranlocal tranlocal, AlphaTranlocal previous) {
+        tranlocal.___previous = previous;
+
+        AlphaTranlocal oldest = previous;
+        for (int depth = 1; oldest != null && depth < dependencies.maxHistoryDepth; depth++) {
+            oldest = oldest.___previous;
+        }
+
+        if (oldest != null) {
+            oldest.___previous = null;
+        }
+    }
+
+    private void signalSize() {
+        if (sizeStatistics != null) {
+            sizeStatistics.signalSize(getAttachedCount());
+        }
+    }
+
+    /**
+     * Registers the retry latch on an attached atomic object. The minimalVersion is based on the read version of the
+     * domain of this transaction, so for an atomic object of a foreign domain the read version of that domain is used.
+     *
+     * @param atomicObject   the attached atomic object.
+     * @param latch          the latch to register.
+     * @param minimalVersion the minimal version for the domain of this transaction.
+     * @return true if the latch was registered on a committed atomic object, false otherwise.
+     */
+    protected final boolean registerRetryListener(AlphaAtomicObject atomicObject, Latch latch, long minimalVersion) {
+        Clock domain = atomicObject.___getDomainClock();
+        if (domain != null && domain != dependencies.clock) {
+            minimalVersion = getReadVersion(domain) + 1;
+        }
+
+        return atomicObject.___registerRetryListener(latch, minimalVersion);
+    }
+
+    @Override
+    protected void doAbort() {
+        releaseIrrevocableCommitGate();
+        signalSize();
+        clearAttached();
+        commutes = null;
+        if (dependencies.profiler != null) {
+            counters.aborted.inc();
+        }
+
+        if (dependencies.profileEventRecorder != null) {
+            events.record(ProfileEventType.aborted);
+        }
+    }
+
+    @Override
+    protected void doAbortAndRegisterRetryLatch(Latch latch) {
+        //the gate needs to be released, otherwise the commits that would open the latch can't be done.
+        releaseIrrevocableCommitGate();
+
+        if (getAttachedCount() == 0) {
+            String msg = format("Can't retry on transaction '%s' because it has not been used.", getFamilyName());
+            throw new NoRetryPossibleException(msg);
+        }
+
+        if (dependencies.profiler != null) {
+            dependencies.profiler.incCounter("updatetransaction.waiting.count", getFamilyName());
+        }
+
+        long minimalVersion = getReadVersion() + 1;
+
+        if (!registerRetryLatch(latch, minimalVersion)) {
+            String msg = format("Can't retry on transaction '%s' because it has no reads", getFamilyName());
+            throw new NoRetryPossibleException(msg);
+        }
+    }
+
+    @Override
+    protected void doStartOr() {
+        snapshotStack = new SnapshotStack(snapshotStack, createSnapshot(), commutes);
+    }
+
+    @Override
+    protected void doEndOr() {
+        if (snapshotStack == null) {
+            throw new IllegalStateException();
+        }
+        snapshotStack = snapshotStack.next;
+    }
+
+    @Override
+    protected void doEndOrAndStartElse() {
+        if (snapshotStack == null) {
+            throw new IllegalStateException();
+        }
+        AlphaTranlocalSnapshot snapshot = snapshotStack.snapshot;
+        commutes = snapshotStack.commutes;
+        snapshotStack = snapshotStack.next;
+        restoreSnapshot(snapshot);
+    }
+
+    @Override
+    protected void doStartNested() {
+        doStartOr();
+    }
+
+    @Override
+    protected void doCommitNested() {
+        doEndOr();
+    }
+
+    @Override
+    protected boolean doAbortNested() {
+        doEndOrAndStartElse();
+
+        if (dependencies.profiler != null) {
+            dependencies.profiler.incCounter("updatetransaction.nestedabort.count", getFamilyName());
+        }
+
+        //the read version of a transaction that touches multiple domains can't be extended, so the nested transaction
+        //would see the same state again.
+        return foreignDomains == null && tryExtendReadVersion();
+    }
+
+    /**
+     * Takes the snapshot of an attached tranlocal. A committed tranlocal attached by a {@link
+     * #loadReadonly(AlphaAtomicObject)} is shared with other transactions and can't have been changed, so its snapshot
+     * only attaches it again (and discards the private copy that could have been made in the meantime).
+     *
+     * @param tranlocal the attached tranlocal.
+     * @return the created snapshot.
+     */
+    protected static AlphaTranlocalSnapshot takeSnapshot(AlphaTranlocal tranlocal) {
+        if (tranlocal.___writeVersion > 0) {
+            return new CommittedTranlocalSnapshot(tranlocal);
+        }
+
+        return tranlocal.takeSnapshot();
+    }
+
+    private void restoreSnapshot(AlphaTranlocalSnapshot snapshot) {
+        clearAttached();
+
+        while (snapshot != null) {
+            AlphaTranlocal tranlocal = snapshot.getTranlocal();
+            attach(tranlocal);
+            snapshot.restore();
+            snapshot = snapshot.___next;
+        }
+    }
+
+    static final class SnapshotStack {
+
+        public final SnapshotStack next;
+        public final AlphaTranlocalSnapshot snapshot;
+        public final CommuteNode commutes;
+
+        SnapshotStack(SnapshotStack next, AlphaTranlocalSnapshot snapshot, CommuteNode commutes) {
+            this.next = next;
+            this.snapshot = snapshot;
+            this.commutes = commutes;
+        }
+    }
+
+    static final class CommittedTranlocalSnapshot extends AlphaTranlocalSnapshot {
+
+        private final AlphaTranlocal tranlocal;
+
+        CommittedTranlocalSnapshot(AlphaTranlocal tranlocal) {
+            this.tranlocal = tranlocal;
+        }
+
+        @Override
+        public AlphaTranlocal getTranlocal() {
+            return tranlocal;
+        }
+
+        @Override
+        public void restore() {
+            //a committed tranlocal is immutable, so there is nothing to restore.
+        }
+    }
+
+    static final class CommuteNode {
+
+        public final AlphaAtomicObject atomicObject;
+        public final CommutingFunction function;
+        public final CommuteNode next;
+
+        CommuteNode(AlphaAtomicObject atomicObject, CommutingFunction function, CommuteNode next) {
+            this.atomicObject = atomicObject;
+            this.function = function;
+            this.next = next;
+        }
+
+        int size() {
+            int size = 0;
+            for (CommuteNode node = this; node != null; node = node.next) {
+                size++;
+            }
+            return size;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.multiverse.stms.alpha;
 
 import org.multiverse.api.Transaction;
 import org.multiverse.utils.Listeners;
+import org.multiverse.utils.clock.Clock;
 import org.multiverse.utils.latches.Latch;
 
 /**
@@ -33,10 +34,21 @@ public interface AlphaAtomicObject {
      *
      * @return the most recently written AlphaTranlocal.
      * @throws org.multiverse.api.exceptions.LoadException
-     *          if the system wasn't able to load the Tranlocal.
+     *          if the system wasn't able to load the Tranlocal, for example because a lock free commit of the
+     *          AlphaTranlocal didn't complete in time.
      */
     AlphaTranlocal ___load();
 
+    /**
+     * Loads the most recently committed AlphaTranlocal while the lock is hold by the caller. Unlike {@link #___load()}
+     * this call doesn't fail on a pending lock free commit: once the lock is hold, a pending commit doesn't wait for
+     * anything anymore. It is revoked directly when the committer notices the lock, or it completes if it was
+     * published before the lock was acquired.
+     *
+     * @return the most recently written AlphaTranlocal.
+     */
+    AlphaTranlocal ___loadWhileLocked();
+
     AlphaTranlocal ___loadUpdatable(long readVersion);
 
     /**
@@ -71,6 +83,44 @@ public interface AlphaAtomicObject {
      */
     Listeners ___storeAndReleaseLock(AlphaTranlocal tranlocal, long writeVersion);
 
+    /**
+     * Publishes a tranlocal that has not been committed yet, without acquiring the lock. This is the first step of the
+     * lock free commit of a transaction that only writes to this AtomicObject. The tranlocal is only published if the
+     * expected tranlocal still is the most recently committed one and if the AtomicObject is not locked.
+     * <p/>
+     * Until the {@link #___commitPending(AlphaTranlocal, long)} or {@link #___revokePending(AlphaTranlocal,
+     * AlphaTranlocal)} is called, loads of this AtomicObject, and stores of a transaction that owns the lock, wait
+     * for the pending tranlocal. So the time between the calls should be as short as possible, and the caller needs
+     * to revoke the pending tranlocal when the commit fails.
+     *
+     * @param expected the tranlocal that is expected to be the most recently committed one. Could be null if nothing
+     *                 has been committed.
+     * @param pending  the tranlocal to publish.
+     * @return true if the tranlocal was published, false if another transaction did a write or owns the lock.
+     */
+    boolean ___tryPublishPending(AlphaTranlocal expected, AlphaTranlocal pending);
+
+    /**
+     * Commits a tranlocal that was published with {@link #___tryPublishPending(AlphaTranlocal, AlphaTranlocal)}. It
+     * also removes listeners that should be triggered by this commit. The caller is responsible for taking care of
+     * waking up the listeners.
+     *
+     * @param pending      the published tranlocal.
+     * @param writeVersion the version to commit the tranlocal with.
+     * @return the Listeners to wake up. Could be null if there are no listeners to wake up.
+     */
+    Listeners ___commitPending(AlphaTranlocal pending, long writeVersion);
+
+    /**
+     * Revokes a tranlocal that was published with {@link #___tryPublishPending(AlphaTranlocal, AlphaTranlocal)}, so
+     * the expected tranlocal is the most recently committed one again. If the pending tranlocal already has been
+     * revoked, the call is ignored.
+     *
+     * @param expected the tranlocal that was expected when the pending tranlocal was published.
+     * @param pending  the published tranlocal.
+     */
+    void ___revokePending(AlphaTranlocal expected, AlphaTranlocal pending);
+
     /**
      * Registers a listener for retrying (the condition variable version for STM's). The Latch is a
      * concurrency structure that can be used to let a thread (transaction) wait for a specific event.
@@ -82,10 +132,38 @@ public interface AlphaAtomicObject {
      */
     boolean ___registerRetryListener(Latch listener, long minimumWakeupVersion);
 
+    /**
+     * Returns the id of the lock of this AtomicObject, see {@link org.multiverse.utils.commitlock.CommitLock#getLockId()}.
+     * The id is assigned the first time it is needed and never changes.
+     *
+     * @return the id of the lock.
+     */
+    long ___getLockId();
+
     /**
      * Returns the current owner of the lock, or null if AtomicObject is not locked.
      *
      * @return the current owner, or null if lock is free.
      */
     Transaction ___getLockOwner();
+
+    /**
+     * Returns the clock of the domain this AtomicObject is bound to (see {@link AlphaStm#createDomain(Clock)}). The
+     * write versions of the committed tranlocals are times of this clock.
+     * <p/>
+     * The domain is bound before the first tranlocal is committed, so if a committed tranlocal has been loaded, the
+     * domain is bound as well.
+     *
+     * @return the clock of the domain, or null if nothing has been committed yet.
+     */
+    Clock ___getDomainClock();
+
+    /**
+     * Binds this AtomicObject to the domain of the clock. This is done by the transaction that does the first commit,
+     * while it owns the lock (or has published the pending tranlocal) and before the tranlocal is committed. Once bound,
+     * the domain never changes, so the call is ignored if the AtomicObject already is bound.
+     *
+     * @param clock the clock of the domain.
+     */
+    void ___bindDomainClock(Clock clock);
 }
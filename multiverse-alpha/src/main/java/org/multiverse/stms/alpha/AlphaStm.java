@@ -1,12 +1,18 @@
 package org.multiverse.stms.alpha;
 
 import org.multiverse.api.Stm;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionPool;
 import org.multiverse.utils.clock.Clock;
 import org.multiverse.utils.commitlock.CommitLockPolicy;
+import org.multiverse.utils.commitlock.IrrevocableCommitGate;
+import org.multiverse.utils.contentionmanager.ContentionManager;
 import org.multiverse.utils.profiling.ProfileRepository;
 import org.multiverse.utils.profiling.ProfilerAware;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -25,9 +31,38 @@ import java.util.logging.Logger;
  * </pre>
  * So if you are not using the profiler, you don't need to pay for it.
  * <p/>
+ * Instead of incrementing the counters of the profiler directly, the transactions can record events in a {@link
+ * org.multiverse.utils.profiling.ProfileEventRecorder} (see {@link AlphaStmConfig#profileEventRecorder}). The events
+ * are written to a buffer of the current thread and aggregated into the profiler by a background thread.
+ * <p/>
+ * <h3>Transaction length</h3> The AlphaStm learns the size of the update transactions per familyName. A family starts
+ * with the cheapest implementation (the {@link TinyUpdateAlphaTransaction}), and based on the size learned, the {@link
+ * ArrayUpdateAlphaTransaction} or the map based {@link UpdateAlphaTransaction} is selected. A transaction that outgrows
+ * its implementation grows in place, so it doesn't need to be aborted. This is only done if logging is not possible
+ * (see {@link AlphaStmConfig#loggingPossible}); with logging the logging transactions are used.
+ * <p/>
+ * <h3>Transaction pooling</h3> Transactions that are returned through the {@link TransactionPool#returnTransaction}
+ * are reused by the next transaction of the same kind on the same thread. So a thread that executes a lot of small
+ * transactions doesn't need to create new transaction objects all the time. The logging transactions are not pooled,
+ * so pooling only is active if logging is not possible. Pooling can be disabled with the {@link
+ * AlphaStmConfig#transactionPoolingEnabled}.
+ * <p/>
  * The instrumentation is added directly to the code. Although it is less pretty, adding some form of external mechanism
  * to add this functionality is going to complicate matters (not at least deployment issues).
  * <p/>
+ * <h3>Domains</h3> All transactions of an AlphaStm share a single {@link Clock}, so a commit in one part of the system
+ * can make the read version of a transaction in an unrelated part too old. With {@link #createDomain(Clock)} an
+ * AlphaStm for an independent domain with its own clock is created. An atomic object is bound to the domain of the
+ * transaction that commits it for the first time (so normally the transaction that created it). Transactions that only
+ * touch atomic objects of their own domain are not influenced by commits in other domains. A transaction can touch
+ * atomic objects of other domains, but this is slower: it needs a read version for each domain before it loads
+ * anything (so it is restarted when it encounters a new domain) and it can't use the history of the atomic objects.
+ * <p/>
+ * <h3>Irrevocable transactions</h3> A transaction started with {@link #startIrrevocableTransaction(String)} is
+ * guaranteed to commit, so it can do work that can't be undone. It acquires the {@link IrrevocableCommitGate} when it
+ * starts, and from that moment the commits of other update transactions wait until it has completed. The gate is shared
+ * with the domains created by {@link #createDomain(Clock)}.
+ * <p/>
  * <h3>Logging</h3> Logging to java.logging can be enabled through the constructor.
  * <p/>
  * The logging can be completely removed by the JIT if the loggingPossible flag is set to false. No additional checks
@@ -35,12 +70,15 @@ import java.util.logging.Logger;
  *
  * @author Peter Veentjer.
  */
-public final class AlphaStm implements Stm, ProfilerAware {
+public final class AlphaStm implements Stm, TransactionPool, ProfilerAware {
 
     private final static Logger logger = Logger.getLogger(AlphaStm.class.getName());
 
     private final Clock clock;
 
+    //a copy of the config, so that domains can be created with the same configuration.
+    private final AlphaStmConfig config;
+
     private final ProfileRepository profiler;
 
     private final boolean loggingPossible;
@@ -51,10 +89,21 @@ public final class AlphaStm implements Stm, ProfilerAware {
 
     private final RestartBackoffPolicy restartBackoffPolicy;
 
+    private final int maxArrayUpdateTransactionSize;
+
+    private final ConcurrentMap<String, TransactionSizeStatistics> sizeStatisticsMap =
+            new ConcurrentHashMap<String, TransactionSizeStatistics>();
+
+    //is used for transactions without a familyName.
+    private final TransactionSizeStatistics anonymousSizeStatistics = new TransactionSizeStatistics();
+
     private final UpdateTransactionDependencies updateTransactionDependencies;
 
     private final ReadonlyAlphaTransactionDependencies readonlyAlphaTransactionDependencies;
 
+    //is null if transaction pooling is disabled.
+    private final ThreadLocal<AlphaTransactionPool> transactionPoolThreadLocal;
+
     public static AlphaStm createFast() {
         return new AlphaStm(AlphaStmConfig.createFastConfig());
     }
@@ -78,12 +127,17 @@ public final class AlphaStm implements Stm, ProfilerAware {
      * @throws IllegalStateException if the provided config is invalid.
      */
     public AlphaStm(AlphaStmConfig config) {
+        this(config, new IrrevocableCommitGate());
+    }
+
+    private AlphaStm(AlphaStmConfig config, IrrevocableCommitGate irrevocableCommitGate) {
         if (config == null) {
             throw new NullPointerException();
         }
 
         config.ensureValid();
 
+        this.config = config.copy();
         this.profiler = config.profiler;
         this.clock = config.clock;
         //the abstracttransaction requires the clock to be at least 1, requirement from the
@@ -95,20 +149,73 @@ public final class AlphaStm implements Stm, ProfilerAware {
         this.logIdGenerator = loggingPossible ? new AtomicLong() : null;
         this.commitLockPolicy = config.commitLockPolicy;
         this.restartBackoffPolicy = config.restartBackoffPolicy;
+        this.maxArrayUpdateTransactionSize = config.maxArrayUpdateTransactionSize;
 
         this.updateTransactionDependencies = new UpdateTransactionDependencies(
                 clock,
                 restartBackoffPolicy,
                 commitLockPolicy,
-                profiler);
+                profiler,
+                config.maxHistoryDepth,
+                config.readVersionExtensionEnabled,
+                config.lockFreeSingleObjectCommitEnabled,
+                config.contentionManager,
+                irrevocableCommitGate,
+                config.profileEventRecorder);
         this.readonlyAlphaTransactionDependencies = new ReadonlyAlphaTransactionDependencies(
                 clock,
                 restartBackoffPolicy,
-                profiler);
+                profiler,
+                config.contentionManager,
+                config.profileEventRecorder);
+
+        if (config.transactionPoolingEnabled) {
+            this.transactionPoolThreadLocal = new ThreadLocal<AlphaTransactionPool>() {
+                @Override
+                protected AlphaTransactionPool initialValue() {
+                    return new AlphaTransactionPool(
+                            updateTransactionDependencies,
+                            readonlyAlphaTransactionDependencies);
+                }
+            };
+        } else {
+            this.transactionPoolThreadLocal = null;
+        }
 
         logger.info("Created a new AlphaStm instance");
     }
 
+    /**
+     * Creates an AlphaStm for a new domain. The AlphaStm has the same configuration as this AlphaStm, but it uses the
+     * provided clock. Atomic objects that are committed for the first time by a transaction of the created AlphaStm are
+     * bound to its domain. See the class documentation for more information about domains.
+     * <p/>
+     * The created AlphaStm shares the IrrevocableCommitGate with this AlphaStm, so an irrevocable transaction also can
+     * touch the atomic objects of the domain.
+     *
+     * @param clock the clock of the domain.
+     * @return the created AlphaStm.
+     * @throws NullPointerException if clock is null.
+     */
+    public AlphaStm createDomain(Clock clock) {
+        if (clock == null) {
+            throw new NullPointerException();
+        }
+
+        AlphaStmConfig domainConfig = config.copy();
+        domainConfig.clock = clock;
+        return new AlphaStm(domainConfig, updateTransactionDependencies.irrevocableCommitGate);
+    }
+
+    /**
+     * Returns the clock of the domain of this AlphaStm.
+     *
+     * @return the clock.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
     /**
      * Returns the current WriteSetLockPolicy. Returned value will never be null.
      *
@@ -128,6 +235,72 @@ public final class AlphaStm implements Stm, ProfilerAware {
         return restartBackoffPolicy;
     }
 
+    /**
+     * Returns the maximum number of tranlocals an update transaction stores in an array before it switches to a map. A
+     * value of 0 indicates that the map based update transaction is used.
+     *
+     * @return the maximum array size of an update transaction.
+     */
+    public int getMaxArrayUpdateTransactionSize() {
+        return maxArrayUpdateTransactionSize;
+    }
+
+    /**
+     * Returns the maximum number of previously committed tranlocals that are kept per atomic object. A value of 0
+     * indicates that no history is kept.
+     *
+     * @return the maximum history depth.
+     */
+    public int getMaxHistoryDepth() {
+        return updateTransactionDependencies.maxHistoryDepth;
+    }
+
+    /**
+     * Checks if update transactions try to extend their read version when they encounter a version that is too new,
+     * instead of failing directly.
+     *
+     * @return true if read version extension is enabled, false otherwise.
+     */
+    public boolean isReadVersionExtensionEnabled() {
+        return updateTransactionDependencies.readVersionExtensionEnabled;
+    }
+
+    /**
+     * Checks if update transactions that only write to a single atomic object commit without acquiring the lock.
+     *
+     * @return true if the lock free single object commit is enabled, false otherwise.
+     */
+    public boolean isLockFreeSingleObjectCommitEnabled() {
+        return updateTransactionDependencies.lockFreeSingleObjectCommitEnabled;
+    }
+
+    /**
+     * Returns the ContentionManager that is used when a transaction encounters a locked atomic object.
+     *
+     * @return the ContentionManager, or null if contention is not resolved.
+     */
+    public ContentionManager getContentionManager() {
+        return updateTransactionDependencies.contentionManager;
+    }
+
+    /**
+     * Returns the IrrevocableCommitGate that is acquired by irrevocable transactions.
+     *
+     * @return the IrrevocableCommitGate.
+     */
+    public IrrevocableCommitGate getIrrevocableCommitGate() {
+        return updateTransactionDependencies.irrevocableCommitGate;
+    }
+
+    /**
+     * Checks if this AlphaStm reuses the transactions that are returned to it.
+     *
+     * @return true if transaction pooling is enabled, false otherwise.
+     */
+    public boolean isTransactionPoolingEnabled() {
+        return transactionPoolThreadLocal != null;
+    }
+
     /**
      * Returns the DefaultStmStatistics or null if the Stm is running without statistics.
      *
@@ -145,13 +318,91 @@ public final class AlphaStm implements Stm, ProfilerAware {
                     familyName,
                     logIdGenerator.incrementAndGet(),
                     Level.FINE);
+        } else if (maxArrayUpdateTransactionSize > 0) {
+            TransactionSizeStatistics sizeStatistics = getSizeStatistics(familyName);
+            int size = sizeStatistics.getSize();
+            AlphaTransactionPool pool = getTransactionPool();
+            if (size <= 1) {
+                TinyUpdateAlphaTransaction t = pool == null ? null : pool.takeTiny();
+                if (t != null) {
+                    t.reuse(familyName, sizeStatistics);
+                    return t;
+                }
+
+                return new TinyUpdateAlphaTransaction(
+                        updateTransactionDependencies,
+                        familyName,
+                        maxArrayUpdateTransactionSize,
+                        sizeStatistics);
+            } else if (size <= maxArrayUpdateTransactionSize) {
+                ArrayUpdateAlphaTransaction t = pool == null ? null : pool.takeArray();
+                if (t != null) {
+                    t.reuse(familyName, sizeStatistics);
+                    return t;
+                }
+
+                return new ArrayUpdateAlphaTransaction(
+                        updateTransactionDependencies,
+                        familyName,
+                        maxArrayUpdateTransactionSize,
+                        size,
+                        sizeStatistics);
+            } else {
+                UpdateAlphaTransaction t = pool == null ? null : pool.takeMap();
+                if (t != null) {
+                    t.reuse(familyName, sizeStatistics);
+                    return t;
+                }
+
+                return new UpdateAlphaTransaction(
+                        updateTransactionDependencies,
+                        familyName,
+                        sizeStatistics);
+            }
         } else {
+            AlphaTransactionPool pool = getTransactionPool();
+            UpdateAlphaTransaction t = pool == null ? null : pool.takeMap();
+            if (t != null) {
+                t.reuse(familyName, null);
+                return t;
+            }
+
             return new UpdateAlphaTransaction(
                     updateTransactionDependencies,
                     familyName);
         }
     }
 
+    @Override
+    public AlphaTransaction startIrrevocableTransaction(String familyName) {
+        AbstractUpdateAlphaTransaction t = (AbstractUpdateAlphaTransaction) startUpdateTransaction(familyName);
+        t.startIrrevocable();
+        return t;
+    }
+
+    /**
+     * Returns the TransactionSizeStatistics for the familyName. If none exists, it is created.
+     *
+     * @param familyName the familyName of the transaction (can be null).
+     * @return the TransactionSizeStatistics. Returned value will never be null.
+     */
+    public TransactionSizeStatistics getSizeStatistics(String familyName) {
+        if (familyName == null) {
+            return anonymousSizeStatistics;
+        }
+
+        TransactionSizeStatistics sizeStatistics = sizeStatisticsMap.get(familyName);
+        if (sizeStatistics == null) {
+            sizeStatistics = new TransactionSizeStatistics();
+            TransactionSizeStatistics found = sizeStatisticsMap.putIfAbsent(familyName, sizeStatistics);
+            if (found != null) {
+                sizeStatistics = found;
+            }
+        }
+
+        return sizeStatistics;
+    }
+
     @Override
     public AlphaTransaction startReadOnlyTransaction(String familyName) {
         if (loggingPossible) {
@@ -161,12 +412,31 @@ public final class AlphaStm implements Stm, ProfilerAware {
                     logIdGenerator.incrementAndGet(),
                     Level.FINE);
         } else {
+            AlphaTransactionPool pool = getTransactionPool();
+            ReadonlyAlphaTransaction t = pool == null ? null : pool.takeReadonly();
+            if (t != null) {
+                t.reuse(familyName);
+                return t;
+            }
+
             return new ReadonlyAlphaTransaction(
                     readonlyAlphaTransactionDependencies,
                     familyName);
         }
     }
 
+    @Override
+    public void returnTransaction(Transaction t) {
+        AlphaTransactionPool pool = getTransactionPool();
+        if (pool != null && pool.put(t) && profiler != null) {
+            pool.getReturnedCounter(profiler, t.getFamilyName()).inc();
+        }
+    }
+
+    private AlphaTransactionPool getTransactionPool() {
+        return transactionPoolThreadLocal == null ? null : transactionPoolThreadLocal.get();
+    }
+
     @Override
     public long getTime() {
         return clock.getTime();
@@ -5,6 +5,8 @@ import org.multiverse.utils.clock.RelaxedClock;
 import org.multiverse.utils.clock.StrictClock;
 import org.multiverse.utils.commitlock.CommitLockPolicy;
 import org.multiverse.utils.commitlock.GenericCommitLockPolicy;
+import org.multiverse.utils.contentionmanager.ContentionManager;
+import org.multiverse.utils.profiling.ProfileEventRecorder;
 import org.multiverse.utils.profiling.ProfileRepository;
 import org.multiverse.utils.profiling.SimpleProfileRepository;
 import org.multiverse.utils.restartbackoff.ExponentialRestartBackoffPolicy;
@@ -45,16 +47,116 @@ public final class AlphaStmConfig {
         return config;
     }
 
+    /**
+     * The clock that provides the read and write versions of the transactions. Under a high commit rate on many cores
+     * the {@link org.multiverse.utils.clock.SharedTickClock} could be a better choice: concurrent committers share a
+     * tick instead of all updating the clock.
+     */
     public Clock clock = new StrictClock();
 
     public ProfileRepository profiler = new SimpleProfileRepository();
 
     public boolean loggingPossible = true;
 
+    /**
+     * The recorder the transactions write their profiling events to (start, load, conflict, commit, abort). Recording
+     * an event is a lot cheaper than incrementing a counter of the profiler, the events are aggregated in the
+     * background (see {@link ProfileEventRecorder#start(long)}). It can be used instead of the profiler (set the
+     * profiler to null) or next to it. If the value is null, no events are recorded.
+     */
+    public ProfileEventRecorder profileEventRecorder = null;
+
+    /**
+     * The policy used to acquire the locks of the write set when an update transaction commits. Under high contention
+     * the {@link org.multiverse.utils.commitlock.OrderedCommitLockPolicy} could be a better choice: it waits for locks
+     * instead of failing the commit.
+     */
     public CommitLockPolicy commitLockPolicy = GenericCommitLockPolicy.FAIL_FAST_BUT_RETRY;
 
+    /**
+     * The policy used to delay a transaction before it is restarted. The {@link ExponentialRestartBackoffPolicy} sleeps,
+     * so short delays are rounded up to the granularity of the scheduler. If restart latency is important, the {@link
+     * org.multiverse.utils.restartbackoff.AdaptiveRestartBackoffPolicy} could be a better choice.
+     */
     public RestartBackoffPolicy restartBackoffPolicy = ExponentialRestartBackoffPolicy.INSTANCE_10_MS_MAX;
 
+    /**
+     * The ContentionManager that decides if a transaction that encounters an atomic object locked by another
+     * transaction waits and tries again, or fails so that it is restarted. See the {@link
+     * org.multiverse.utils.contentionmanager.KarmaContentionManager} or the {@link
+     * org.multiverse.utils.contentionmanager.GreedyContentionManager} for example. If the value is null, the
+     * transaction fails directly.
+     */
+    public ContentionManager contentionManager = null;
+
+    /**
+     * The maximum number of tranlocals an update transaction stores in an array before it switches to a map. See the
+     * {@link ArrayUpdateAlphaTransaction}. If the value is 0, the map based {@link UpdateAlphaTransaction} is used and
+     * the stm doesn't learn the size of the transactions per family.
+     */
+    public int maxArrayUpdateTransactionSize = 8;
+
+    /**
+     * The maximum number of previously committed tranlocals that are kept per atomic object. A transaction with an
+     * older read version (e.g. a long running readonly transaction) can find the tranlocal it needs in this history,
+     * instead of failing with a {@link org.multiverse.api.exceptions.LoadTooOldVersionException}. The price is that
+     * the old tranlocals can't be garbage collected as soon. If the value is 0, no history is kept.
+     */
+    public int maxHistoryDepth = 0;
+
+    /**
+     * If an update transaction that encounters a version that is too new for its read version (normally a {@link
+     * org.multiverse.api.exceptions.LoadTooOldVersionException}), should try to extend its read version. If none of the
+     * already attached tranlocals have been changed, the read version is moved forward and the transaction can
+     * continue instead of being restarted.
+     */
+    public boolean readVersionExtensionEnabled = false;
+
+    /**
+     * If an update transaction that only writes to a single atomic object should commit without acquiring the lock of
+     * that atomic object. The new tranlocal is published with a single compare and swap, and its write version is set
+     * directly after the clock has been ticked. Concurrent loads wait a short, bounded time for the write version
+     * instead of failing directly on the lock. If the committer is descheduled in the meantime, the loads still fail
+     * with a {@link org.multiverse.api.exceptions.LoadLockedException}, so readers don't stall with the committer.
+     * A transaction that holds the lock of the atomic object waits until the pending tranlocal is committed or revoked.
+     * <p/>
+     * Is disabled by default.
+     */
+    public boolean lockFreeSingleObjectCommitEnabled = false;
+
+    /**
+     * If transaction objects returned to the stm (see {@link org.multiverse.api.TransactionPool}) should be reused by
+     * the next transaction on the same thread. See the {@link AlphaTransactionPool}.
+     * <p/>
+     * The logging transactions are never pooled, so this setting only has effect if {@link #loggingPossible} is false
+     * (like in the {@link #createFastConfig()}). The same goes for the {@link #maxArrayUpdateTransactionSize}: the
+     * array based transactions and the learning of the transaction size are not used when logging is possible.
+     */
+    public boolean transactionPoolingEnabled = true;
+
+    /**
+     * Creates a copy of this AlphaStmConfig. The policies, the clock, the profiler and the profileEventRecorder are
+     * shared with the copy.
+     *
+     * @return the created copy.
+     */
+    public AlphaStmConfig copy() {
+        AlphaStmConfig copy = new AlphaStmConfig();
+        copy.clock = clock;
+        copy.profiler = profiler;
+        copy.profileEventRecorder = profileEventRecorder;
+        copy.loggingPossible = loggingPossible;
+        copy.commitLockPolicy = commitLockPolicy;
+        copy.restartBackoffPolicy = restartBackoffPolicy;
+        copy.contentionManager = contentionManager;
+        copy.maxArrayUpdateTransactionSize = maxArrayUpdateTransactionSize;
+        copy.maxHistoryDepth = maxHistoryDepth;
+        copy.readVersionExtensionEnabled = readVersionExtensionEnabled;
+        copy.lockFreeSingleObjectCommitEnabled = lockFreeSingleObjectCommitEnabled;
+        copy.transactionPoolingEnabled = transactionPoolingEnabled;
+        return copy;
+    }
+
     /**
      * Check if the AlphaStmConfig has been configured correctly.
      *
@@ -72,5 +174,14 @@ public final class AlphaStmConfig {
         if(restartBackoffPolicy == null){
             throw new IllegalStateException("Invalid configuration, 'restartBackoffPolicy' can't be null");            
         }
+
+        if (maxArrayUpdateTransactionSize < 0) {
+            throw new IllegalStateException(
+                    "Invalid configuration, 'maxArrayUpdateTransactionSize' can't be smaller than 0");
+        }
+
+        if (maxHistoryDepth < 0) {
+            throw new IllegalStateException("Invalid configuration, 'maxHistoryDepth' can't be smaller than 0");
+        }
     }
 }
@@ -1,6 +1,7 @@
 package org.multiverse.stms.alpha;
 
 import static org.multiverse.api.ThreadLocalTransaction.getRequiredThreadLocalTransaction;
+import org.multiverse.api.exceptions.LoadLockedException;
 
 import static java.lang.String.format;
 
@@ -65,6 +66,37 @@ public final class AlphaStmUtils {
         return t.load((AlphaAtomicObject) atomicObject);
     }
 
+    /**
+     * Loads the most recently committed Tranlocal of an AtomicObject without a transaction. A read of a single
+     * AtomicObject doesn't need a transaction: the most recently committed tranlocal is a consistent snapshot. This
+     * method doesn't create any objects, so it can be used for a cheap read outside of a transaction.
+     * <p/>
+     * If the AtomicObject is locked, a transaction could be busy storing its write set. Other AtomicObjects of that
+     * write set could already show the new state, so to make sure the write of that transaction is seen atomically,
+     * null is returned. The lock is checked after the tranlocal is read: if it is free, the transaction that wrote the
+     * tranlocal has stored its complete write set.
+     * <p/>
+     * The returned tranlocal is committed, so it can't be used for updates.
+     *
+     * @param atomicObject the AtomicObject to load.
+     * @return the most recently committed tranlocal, or null if the atomicObject is locked or nothing has been
+     *         committed. In that case a transaction should be used.
+     */
+    public static AlphaTranlocal loadCommittedIfUnlocked(AlphaAtomicObject atomicObject) {
+        AlphaTranlocal tranlocal;
+        try {
+            tranlocal = atomicObject.___load();
+        } catch (LoadLockedException e) {
+            //a lock free commit is pending, it is treated like the lock.
+            return null;
+        }
+
+        if (tranlocal == null || atomicObject.___getLockOwner() != null) {
+            return null;
+        }
+        return tranlocal;
+    }
+
     //we don't want instances
     private AlphaStmUtils() {
     }
@@ -29,10 +29,30 @@ public abstract class AlphaTranlocal implements CommitLock, MultiverseConstants
     /**
      * Contains the write version
      * <p/>
-     * 0 indicates not committed. positive indicates committed (so readonly).
+     * 0 indicates not committed. positive indicates committed (so readonly). A tranlocal that is published by a lock
+     * free commit, still has 0 as version for a very short time (see {@link AlphaAtomicObject#___tryPublishPending}).
      */
     public long ___writeVersion = 0;
 
+    /**
+     * Contains the tranlocal that was committed before this tranlocal, so that transactions with an older read version
+     * still can find the tranlocal they need. See the {@link AlphaStmConfig#maxHistoryDepth}.
+     * <p/>
+     * It is set by the committing transaction (while it owns the lock or while this tranlocal is pending) before this
+     * tranlocal is committed, and is set to null when the previous tranlocal falls outside of the history depth. A
+     * reader that doesn't see the null value yet could still find an older tranlocal, but that is harmless: it is a
+     * committed tranlocal and it was correctly published.
+     */
+    public AlphaTranlocal ___previous;
+
+    /**
+     * Is set by the write barrier of an instrumented atomic object on every write of a managed field, so the generated
+     * {@link #getDirtinessStatus()} doesn't need to compare all fields of a tranlocal that has not been written. Code
+     * that changes the fields of an updatable tranlocal without the write barrier (like a {@link CommutingFunction})
+     * needs to set it as well.
+     */
+    public boolean ___dirty;
+
     /**
      * Is called just before this tranlocal commits. It allows the Tranlocal to do needed cleanup.
      * <p/>
@@ -76,6 +96,43 @@ public abstract class AlphaTranlocal implements CommitLock, MultiverseConstants
      */
     public abstract DirtinessStatus getDirtinessStatus();
 
+    /**
+     * Rebases this updatable tranlocal on a newer committed tranlocal of the same atomic object. This is used for
+     * field group conflict detection (see the {@link org.multiverse.api.annotations.FieldGroup}): if none of the field
+     * groups written by this tranlocal has been changed by the newer tranlocal, the field groups that are not written
+     * are copied from the newer tranlocal and the newer tranlocal becomes the origin. Otherwise there is a real
+     * conflict.
+     * <p/>
+     * This method is only called while the lock on the atomic object is hold, so the newer tranlocal can't change.
+     * <p/>
+     * The default implementation doesn't support field groups and always returns false.
+     *
+     * @param newer the most recently committed tranlocal of the atomic object.
+     * @return true if the tranlocal was rebased, false if there is a conflict.
+     */
+    public boolean rebase(AlphaTranlocal newer) {
+        return false;
+    }
+
+    /**
+     * Searches this committed tranlocal and its history for the tranlocal that was the committed one at the
+     * readVersion.
+     *
+     * @param readVersion the version of the transaction that wants to read.
+     * @return the found tranlocal, or null if it is not in the history (anymore).
+     */
+    public final AlphaTranlocal findCommittedAt(long readVersion) {
+        AlphaTranlocal tranlocal = this;
+        do {
+            if (tranlocal.___writeVersion <= readVersion) {
+                return tranlocal;
+            }
+            tranlocal = tranlocal.___previous;
+        } while (tranlocal != null);
+
+        return null;
+    }
+
     @Override
     public final CommitLockResult tryLockAndDetectConflicts(Transaction lockOwner) {
         if (SANITY_CHECKS_ENABLED) {
@@ -100,20 +157,33 @@ public abstract class AlphaTranlocal implements CommitLock, MultiverseConstants
             return CommitLockResult.failure;
         }
 
-        AlphaTranlocal mostRecentlyWritten = atomicObject.___load();
+        //the lock is hold, so a lock free commit that is pending is completed or revoked without waiting for anything.
+        AlphaTranlocal mostRecentlyWritten = atomicObject.___loadWhileLocked();
         if (mostRecentlyWritten == null) {
             return CommitLockResult.success;
         }
 
-        boolean noConflict = mostRecentlyWritten.___writeVersion <= lockOwner.getReadVersion();
+        //the lock owner of an alpha atomic object always is an alpha transaction, with a read version per domain.
+        long readVersion = ((AlphaTransaction) lockOwner).getReadVersion(atomicObject.___getDomainClock());
+        boolean noConflict = mostRecentlyWritten.___writeVersion <= readVersion;
         if (noConflict) {
             return CommitLockResult.success;
         }
 
+        //if the atomic object has field groups, it could be that another field group was written.
+        if (rebase(mostRecentlyWritten)) {
+            return CommitLockResult.success;
+        }
+
         atomicObject.___releaseLock(lockOwner);
         return CommitLockResult.conflict;
     }
 
+    @Override
+    public final long getLockId() {
+        return getAtomicObject().___getLockId();
+    }
+
     @Override
     public final void releaseLock(Transaction expectedLockOwner) {
         if (SANITY_CHECKS_ENABLED) {
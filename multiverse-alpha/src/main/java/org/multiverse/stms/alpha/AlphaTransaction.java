@@ -1,6 +1,7 @@
 package org.multiverse.stms.alpha;
 
 import org.multiverse.api.Transaction;
+import org.multiverse.utils.clock.Clock;
 
 /**
  * A {@link Transaction} interface tailored for the Alpha STM.
@@ -32,4 +33,49 @@ public interface AlphaTransaction extends Transaction {
      *          if this transaction isn't active.
      */
     AlphaTranlocal load(AlphaAtomicObject atomicObject);
+
+    /**
+     * Loads the Tranlocal for the specified atomicObject that is only going to be read. An update transaction doesn't
+     * need to make a private copy for it: if the atomicObject has not been loaded before, the committed tranlocal is
+     * returned (and attached, so the read is tracked). The private copy is made by the first {@link
+     * #load(AlphaAtomicObject)}, so all writes need to be done on a tranlocal returned by load. A committed tranlocal
+     * can be recognized by a ___writeVersion larger than 0.
+     * <p/>
+     * If atomicObject is null, the return value is null.
+     *
+     * @param atomicObject the atomicObject to get the tranlocal for.
+     * @return the loaded Tranlocal, it should not be written. If atomicObject is null, the returned value will be null.
+     * @throws org.multiverse.api.exceptions.LoadException
+     *          if something goes wrong while loading.
+     * @throws org.multiverse.api.exceptions.DeadTransactionException
+     *          if this transaction isn't active.
+     */
+    AlphaTranlocal loadReadonly(AlphaAtomicObject atomicObject);
+
+    /**
+     * Registers a {@link CommutingFunction} on the atomicObject. The function is applied at commit time, while the
+     * lock on the atomicObject is hold, to the most recently committed state of the atomicObject. So no read conflict
+     * can happen on the atomicObject, which makes commute very useful for counters, sizes and statistics.
+     * <p/>
+     * If the atomicObject already is loaded in this transaction, or if it is loaded later, the function is applied to
+     * the loaded tranlocal and the normal conflict detection applies.
+     *
+     * @param atomicObject the atomicObject to apply the function on.
+     * @param function     the CommutingFunction to apply.
+     * @throws NullPointerException if atomicObject or function is null.
+     * @throws org.multiverse.api.exceptions.ReadonlyException
+     *                              if this transaction is readonly.
+     * @throws org.multiverse.api.exceptions.DeadTransactionException
+     *                              if this transaction isn't active.
+     */
+    void commute(AlphaAtomicObject atomicObject, CommutingFunction function);
+
+    /**
+     * Returns the read version of this transaction for a domain. The atomic objects of a domain are versioned by the
+     * clock of that domain, so the read version of the transaction itself only is valid for its own domain.
+     *
+     * @param domain the clock of the domain, or null if the atomic object is not bound to a domain yet.
+     * @return the read version, or -1 if the domain has not been touched by this transaction.
+     */
+    long getReadVersion(Clock domain);
 }
@@ -0,0 +1,131 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionStatus;
+import org.multiverse.utils.profiling.ProfileCounter;
+import org.multiverse.utils.profiling.ProfileRepository;
+
+/**
+ * A pool of finished transactions of a single thread, so that transaction objects (and the arrays/maps they contain)
+ * can be reused instead of being created for every transaction. For every kind of transaction (readonly, tiny, array
+ * and map based) at most one transaction is pooled. That is enough because a thread only executes one transaction at
+ * a time; nested atomic methods/templates join the outer transaction.
+ * <p/>
+ * Logging transactions are never pooled, and neither are transactions that were created by a different stm.
+ * <p/>
+ * An AlphaTransactionPool is not thread-safe, so it should only be used by the thread it belongs to. The {@link
+ * AlphaStm} uses a ThreadLocal for that.
+ *
+ * @author Peter Veentjer.
+ */
+final class AlphaTransactionPool {
+
+    private final UpdateTransactionDependencies updateDependencies;
+    private final ReadonlyAlphaTransactionDependencies readonlyDependencies;
+
+    private ReadonlyAlphaTransaction readonly;
+    private TinyUpdateAlphaTransaction tiny;
+    private ArrayUpdateAlphaTransaction array;
+    private UpdateAlphaTransaction map;
+
+    //the counter of the returned transactions, resolved for the family of the last returned transaction.
+    private ProfileCounter returnedCounter;
+    private String returnedFamilyName;
+
+    AlphaTransactionPool(UpdateTransactionDependencies updateDependencies,
+                         ReadonlyAlphaTransactionDependencies readonlyDependencies) {
+        this.updateDependencies = updateDependencies;
+        this.readonlyDependencies = readonlyDependencies;
+    }
+
+    ReadonlyAlphaTransaction takeReadonly() {
+        ReadonlyAlphaTransaction t = readonly;
+        readonly = null;
+        return t;
+    }
+
+    TinyUpdateAlphaTransaction takeTiny() {
+        TinyUpdateAlphaTransaction t = tiny;
+        tiny = null;
+        return t;
+    }
+
+    ArrayUpdateAlphaTransaction takeArray() {
+        ArrayUpdateAlphaTransaction t = array;
+        array = null;
+        return t;
+    }
+
+    UpdateAlphaTransaction takeMap() {
+        UpdateAlphaTransaction t = map;
+        map = null;
+        return t;
+    }
+
+    /**
+     * Returns the counter of the transactions of a family that have been returned to the pool. The counter is resolved
+     * for the last family, a thread frequently returns transactions of the same family in a row.
+     *
+     * @param profiler   the ProfileRepository of the stm.
+     * @param familyName the familyName of the returned transaction, can be null.
+     * @return the resolved ProfileCounter.
+     */
+    ProfileCounter getReturnedCounter(ProfileRepository profiler, String familyName) {
+        if (returnedCounter == null ||
+                !(returnedFamilyName == null ? familyName == null : returnedFamilyName.equals(familyName))) {
+            returnedCounter = profiler.getCounter("transactionpool.returned.count", familyName);
+            returnedFamilyName = familyName;
+        }
+        return returnedCounter;
+    }
+
+    /**
+     * Puts a transaction in the pool. If the transaction can't be pooled, the call is ignored. The tranlocals and atomic
+     * objects the transaction still refers to are removed, so the pool doesn't keep them reachable until the
+     * transaction is reused.
+     *
+     * @param t the Transaction to pool.
+     * @return true if the transaction was pooled, false otherwise.
+     */
+    boolean put(Transaction t) {
+        if (t == null || t.getStatus() == TransactionStatus.active) {
+            return false;
+        }
+
+        //the exact classes are checked, so that subclasses (like the logging transactions) are not pooled.
+        Class<?> clazz = t.getClass();
+        if (clazz == TinyUpdateAlphaTransaction.class) {
+            TinyUpdateAlphaTransaction tinyTransaction = (TinyUpdateAlphaTransaction) t;
+            if (tinyTransaction.getDependencies() != updateDependencies) {
+                return false;
+            }
+            tinyTransaction.clearForPooling();
+            tiny = tinyTransaction;
+        } else if (clazz == ArrayUpdateAlphaTransaction.class) {
+            ArrayUpdateAlphaTransaction arrayTransaction = (ArrayUpdateAlphaTransaction) t;
+            if (arrayTransaction.getDependencies() != updateDependencies) {
+                return false;
+            }
+            arrayTransaction.clearForPooling();
+            array = arrayTransaction;
+        } else if (clazz == UpdateAlphaTransaction.class) {
+            UpdateAlphaTransaction mapTransaction = (UpdateAlphaTransaction) t;
+            if (mapTransaction.getDependencies() != updateDependencies) {
+                return false;
+            }
+            mapTransaction.clearForPooling();
+            map = mapTransaction;
+        } else if (clazz == ReadonlyAlphaTransaction.class) {
+            ReadonlyAlphaTransaction readonlyTransaction = (ReadonlyAlphaTransaction) t;
+            if (readonlyTransaction.getDependencies() != readonlyDependencies) {
+                return false;
+            }
+            readonlyTransaction.clearForPooling();
+            readonly = readonlyTransaction;
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,319 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.utils.latches.Latch;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An update {@link org.multiverse.api.Transaction} that stores the attached tranlocals in an array instead of a map.
+ * For short transactions a linear scan over a small array is a lot cheaper than hashing, and committing doesn't need to
+ * iterate over a map or create a new writeset array every time (the writeset array is reused).
+ * <p/>
+ * The array grows when needed. Once the number of attached tranlocals exceeds the maxArraySize, the tranlocals are
+ * moved to an IdentityHashMap and from that moment on the transaction behaves like the {@link UpdateAlphaTransaction}.
+ * When the transaction is restarted it begins with the array again.
+ *
+ * @author Peter Veentjer.
+ */
+public class ArrayUpdateAlphaTransaction extends AbstractUpdateAlphaTransaction {
+
+    private final static int INITIAL_CAPACITY = 2;
+
+    private final int maxArraySize;
+    private final int initialCapacity;
+
+    private AlphaTranlocal[] attachedArray;
+    private int attachedArraySize;
+
+    //is only used when the transaction has outgrown the maxArraySize.
+    private Map<AlphaAtomicObject, AlphaTranlocal> attachedMap;
+
+    //the writeset is reused so that committing doesn't need to create a new array.
+    private AlphaTranlocal[] writeSet;
+
+    /**
+     * Creates a new ArrayUpdateAlphaTransaction.
+     *
+     * @param dependencies the UpdateTransactionDependencies.
+     * @param familyName   the familyName of the transaction.
+     * @param maxArraySize the maximum number of tranlocals stored in the array before switching to a map.
+     * @throws IllegalArgumentException if maxArraySize smaller than 1.
+     */
+    public ArrayUpdateAlphaTransaction(UpdateTransactionDependencies dependencies, String familyName,
+                                       int maxArraySize) {
+        this(dependencies, familyName, maxArraySize, INITIAL_CAPACITY, null);
+    }
+
+    /**
+     * Creates a new ArrayUpdateAlphaTransaction.
+     * <p/>
+     * The array is created lazily, so a transaction that doesn't load anything doesn't pay for it.
+     *
+     * @param dependencies    the UpdateTransactionDependencies.
+     * @param familyName      the familyName of the transaction.
+     * @param maxArraySize    the maximum number of tranlocals stored in the array before switching to a map.
+     * @param initialCapacity the initial length of the array. If it is larger than maxArraySize, the maxArraySize is
+     *                        used.
+     * @param sizeStatistics  the TransactionSizeStatistics of the family. Can be null.
+     * @throws IllegalArgumentException if maxArraySize or initialCapacity smaller than 1.
+     */
+    public ArrayUpdateAlphaTransaction(UpdateTransactionDependencies dependencies, String familyName,
+                                       int maxArraySize, int initialCapacity,
+                                       TransactionSizeStatistics sizeStatistics) {
+        super(dependencies, familyName, sizeStatistics);
+
+        if (maxArraySize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxArraySize = maxArraySize;
+        this.initialCapacity = Math.min(initialCapacity, maxArraySize);
+        init();
+    }
+
+    /**
+     * Returns the maximum number of tranlocals that are stored in the array before the transaction switches to a map.
+     *
+     * @return the maximum array size.
+     */
+    public final int getMaxArraySize() {
+        return maxArraySize;
+    }
+
+    @Override
+    protected AlphaTranlocal findAttached(AlphaAtomicObject atomicObject) {
+        if (attachedMap != null) {
+            return attachedMap.get(atomicObject);
+        }
+
+        for (int k = 0; k < attachedArraySize; k++) {
+            AlphaTranlocal tranlocal = attachedArray[k];
+            if (tranlocal.getAtomicObject() == atomicObject) {
+                return tranlocal;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    protected void replaceAttached(AlphaTranlocal tranlocal) {
+        if (attachedMap != null) {
+            attachedMap.put(tranlocal.getAtomicObject(), tranlocal);
+            return;
+        }
+
+        for (int k = 0; k < attachedArraySize; k++) {
+            if (attachedArray[k].getAtomicObject() == tranlocal.getAtomicObject()) {
+                attachedArray[k] = tranlocal;
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected void attach(AlphaTranlocal tranlocal) {
+        if (attachedMap != null) {
+            attachedMap.put(tranlocal.getAtomicObject(), tranlocal);
+            return;
+        }
+
+        if (attachedArray == null) {
+            attachedArray = new AlphaTranlocal[initialCapacity];
+        } else if (attachedArraySize == attachedArray.length) {
+            if (attachedArraySize == maxArraySize) {
+                switchToMap();
+                attachedMap.put(tranlocal.getAtomicObject(), tranlocal);
+                return;
+            }
+
+            growArray();
+        }
+
+        attachedArray[attachedArraySize] = tranlocal;
+        attachedArraySize++;
+    }
+
+    private void growArray() {
+        int newLength = Math.min(attachedArray.length * 2, maxArraySize);
+        AlphaTranlocal[] newAttachedArray = new AlphaTranlocal[newLength];
+        System.arraycopy(attachedArray, 0, newAttachedArray, 0, attachedArraySize);
+        attachedArray = newAttachedArray;
+    }
+
+    private void switchToMap() {
+        attachedMap = new IdentityHashMap<AlphaAtomicObject, AlphaTranlocal>(attachedArraySize * 2);
+        for (int k = 0; k < attachedArraySize; k++) {
+            AlphaTranlocal tranlocal = attachedArray[k];
+            attachedMap.put(tranlocal.getAtomicObject(), tranlocal);
+            attachedArray[k] = null;
+        }
+        attachedArraySize = 0;
+
+        if (dependencies.profiler != null) {
+            dependencies.profiler.incCounter("updatetransaction.switchedtomap.count", getFamilyName());
+        }
+    }
+
+    @Override
+    protected int getAttachedCount() {
+        return attachedMap == null ? attachedArraySize : attachedMap.size();
+    }
+
+    @Override
+    protected void clearAttached() {
+        attachedMap = null;
+
+        for (int k = 0; k < attachedArraySize; k++) {
+            attachedArray[k] = null;
+        }
+        attachedArraySize = 0;
+    }
+
+    @Override
+    protected AlphaTranlocal[] createWriteSet() {
+        if (attachedMap != null) {
+            return createWriteSetFromMap();
+        }
+
+        if (attachedArraySize == 0) {
+            return EMPTY_WRITESET;
+        }
+
+        if (writeSet == null || writeSet.length < attachedArraySize) {
+            //the writeset gets the same length as the array, so that it doesn't need to grow with every commit.
+            writeSet = new AlphaTranlocal[attachedArray.length];
+        }
+
+        int index = 0;
+        for (int k = 0; k < attachedArraySize; k++) {
+            AlphaTranlocal tranlocal = attachedArray[k];
+            if (isDirty(tranlocal)) {
+                writeSet[index] = tranlocal;
+                index++;
+            }
+        }
+
+        if (index == 0) {
+            return EMPTY_WRITESET;
+        }
+
+        //the writeset is reused, so the end needs to be marked to prevent tranlocals from a previous
+        //commit being seen.
+        if (index < writeSet.length) {
+            writeSet[index] = null;
+        }
+
+        return writeSet;
+    }
+
+    @Override
+    protected void clearWriteSet() {
+        if (writeSet == null) {
+            return;
+        }
+
+        for (int k = 0; k < writeSet.length && writeSet[k] != null; k++) {
+            writeSet[k] = null;
+        }
+    }
+
+    private AlphaTranlocal[] createWriteSetFromMap() {
+        if (attachedMap.isEmpty()) {
+            return EMPTY_WRITESET;
+        }
+
+        AlphaTranlocal[] result = null;
+
+        int skipped = 0;
+        int index = 0;
+        for (AlphaTranlocal tranlocal : attachedMap.values()) {
+            if (isDirty(tranlocal)) {
+                if (result == null) {
+                    result = new AlphaTranlocal[attachedMap.size() - skipped];
+                }
+                result[index] = tranlocal;
+                index++;
+            } else {
+                skipped++;
+            }
+        }
+
+        return result == null ? EMPTY_WRITESET : result;
+    }
+
+    @Override
+    protected boolean registerRetryLatch(Latch latch, long minimalVersion) {
+        boolean atLeastOneRegistration = false;
+
+        if (attachedMap != null) {
+            for (AlphaAtomicObject atomicObject : attachedMap.keySet()) {
+                if (registerRetryListener(atomicObject, latch, minimalVersion)) {
+                    atLeastOneRegistration = true;
+
+                    if (latch.isOpen()) {
+                        break;
+                    }
+                }
+            }
+        } else {
+            for (int k = 0; k < attachedArraySize; k++) {
+                AlphaAtomicObject atomicObject = attachedArray[k].getAtomicObject();
+                if (registerRetryListener(atomicObject, latch, minimalVersion)) {
+                    atLeastOneRegistration = true;
+
+                    if (latch.isOpen()) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return atLeastOneRegistration;
+    }
+
+    @Override
+    protected boolean isAttachedUnchangedSince(long readVersion) {
+        if (attachedMap != null) {
+            for (AlphaTranlocal tranlocal : attachedMap.values()) {
+                if (!isUnchangedSince(tranlocal, readVersion)) {
+                    return false;
+                }
+            }
+        } else {
+            for (int k = 0; k < attachedArraySize; k++) {
+                if (!isUnchangedSince(attachedArray[k], readVersion)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    protected AlphaTranlocalSnapshot createSnapshot() {
+        AlphaTranlocalSnapshot result = null;
+
+        if (attachedMap != null) {
+            for (AlphaTranlocal tranlocal : attachedMap.values()) {
+                AlphaTranlocalSnapshot snapshot = takeSnapshot(tranlocal);
+                snapshot.___next = result;
+                result = snapshot;
+            }
+        } else {
+            for (int k = 0; k < attachedArraySize; k++) {
+                AlphaTranlocalSnapshot snapshot = takeSnapshot(attachedArray[k]);
+                snapshot.___next = result;
+                result = snapshot;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,24 @@
+package org.multiverse.stms.alpha;
+
+/**
+ * A function that can be registered on an {@link AlphaTransaction} using the {@link
+ * AlphaTransaction#commute(AlphaAtomicObject, CommutingFunction)}. The function is applied at commit time to the most
+ * recently committed state of an atomic object, so no read conflict can happen on that atomic object. Counters and
+ * sizes are typical examples.
+ * <p/>
+ * The function should be commutative: the result should not depend on the order in which functions of different
+ * transactions (or the functions within a single transaction) are applied. The function also should be quick and
+ * should not block, since it could be executed while locks are hold.
+ *
+ * @author Peter Veentjer.
+ */
+public interface CommutingFunction {
+
+    /**
+     * Applies the function on the tranlocal.
+     *
+     * @param tranlocal the updatable AlphaTranlocal of the atomic object the function was registered on. Will never be
+     *                  null.
+     */
+    void apply(AlphaTranlocal tranlocal);
+}
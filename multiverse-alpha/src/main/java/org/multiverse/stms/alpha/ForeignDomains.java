@@ -0,0 +1,135 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.api.exceptions.LoadTooOldVersionException;
+import static org.multiverse.stms.alpha.AlphaStmUtils.toAtomicObjectString;
+import org.multiverse.utils.clock.Clock;
+
+import static java.lang.String.format;
+
+/**
+ * The domains, other than the domain of its own stm, that a transaction has touched (see {@link
+ * AlphaStm#createDomain(Clock)}). A domain is identified by its clock, and for every domain the transaction needs a
+ * read version of its own.
+ * <p/>
+ * The domains are learned: they are kept when the transaction is restarted, so that the read versions of all domains
+ * can be sampled when the transaction starts, before anything is loaded. A transaction that encounters a new domain
+ * after it already has loaded atomic objects, has no consistent read version for it and needs to be restarted.
+ * <p/>
+ * ForeignDomains is not thread-safe, it is owned by a single transaction.
+ *
+ * @author Peter Veentjer.
+ */
+final class ForeignDomains {
+
+    /**
+     * Checks that an atomic object loaded by a transaction that touches foreign domains, has not been changed since the
+     * read version. Such a transaction can't use older tranlocals from the history: the clocks of the domains are not
+     * sampled at the same moment, so an older tranlocal of one domain could be combined with a newer tranlocal of
+     * another domain that was written by the same transaction. Because all clocks are sampled before anything is
+     * loaded, accepting only the most recently committed tranlocals gives a consistent view.
+     *
+     * @param atomicObject the loaded atomic object.
+     * @param readVersion  the read version for the domain of the atomic object.
+     * @throws LoadTooOldVersionException if the atomic object has been changed.
+     */
+    static void ensureNotChangedSince(AlphaAtomicObject atomicObject, long readVersion) {
+        AlphaTranlocal current = atomicObject.___load();
+        if (current == null || current.___writeVersion <= readVersion) {
+            return;
+        }
+
+        if (LoadTooOldVersionException.reuse) {
+            throw LoadTooOldVersionException.INSTANCE;
+        } else {
+            String msg = format("Atomicobject '%s' has been changed after read version '%s' of a cross domain load",
+                                toAtomicObjectString(atomicObject), readVersion);
+            throw new LoadTooOldVersionException(msg);
+        }
+    }
+
+    private Node head;
+
+    /**
+     * Samples the read versions of all domains and resets the write versions. Needs to be called when the owning
+     * transaction (re)starts.
+     */
+    void start() {
+        for (Node node = head; node != null; node = node.next) {
+            node.readVersion = node.clock.getTime();
+            node.writeVersion = 0;
+        }
+    }
+
+    /**
+     * Adds a domain and samples its read version.
+     *
+     * @param clock the clock of the domain.
+     */
+    void add(Clock clock) {
+        head = new Node(clock, head);
+        head.readVersion = clock.getTime();
+    }
+
+    /**
+     * Returns the read version of a domain.
+     *
+     * @param clock the clock of the domain.
+     * @return the read version, or -1 if the domain is unknown.
+     */
+    long getReadVersion(Clock clock) {
+        Node node = find(clock);
+        return node == null ? -1 : node.readVersion;
+    }
+
+    /**
+     * Ticks the clock of a domain, unless it already has been ticked since the last start. An unknown domain (e.g. of
+     * an atomic object that only is commuted) is added.
+     *
+     * @param clock the clock of the domain.
+     * @return the write version for the domain.
+     */
+    long tick(Clock clock) {
+        Node node = find(clock);
+        if (node == null) {
+            add(clock);
+            node = head;
+        }
+
+        if (node.writeVersion == 0) {
+            node.writeVersion = clock.tick();
+        }
+        return node.writeVersion;
+    }
+
+    /**
+     * Returns the write version of a domain that has been ticked.
+     *
+     * @param clock the clock of the domain.
+     * @return the write version, or 0 if the domain has not been ticked.
+     */
+    long getWriteVersion(Clock clock) {
+        Node node = find(clock);
+        return node == null ? 0 : node.writeVersion;
+    }
+
+    private Node find(Clock clock) {
+        for (Node node = head; node != null; node = node.next) {
+            if (node.clock == clock) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static final class Node {
+        final Clock clock;
+        final Node next;
+        long readVersion;
+        long writeVersion;
+
+        Node(Clock clock, Node next) {
+            this.clock = clock;
+            this.next = next;
+        }
+    }
+}
@@ -1,25 +1,37 @@
 package org.multiverse.stms.alpha;
 
 import org.multiverse.api.exceptions.DeadTransactionException;
+import org.multiverse.api.exceptions.LoadLockedException;
+import org.multiverse.api.exceptions.LoadTooOldVersionException;
 import org.multiverse.api.exceptions.LoadUncommittedException;
+import org.multiverse.api.exceptions.NoRetryPossibleException;
 import org.multiverse.api.exceptions.ReadonlyException;
 import org.multiverse.stms.AbstractTransaction;
 import static org.multiverse.stms.alpha.AlphaStmUtils.getLoadUncommittedMessage;
 import static org.multiverse.stms.alpha.AlphaStmUtils.toAtomicObjectString;
+import org.multiverse.utils.clock.Clock;
 import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.profiling.ProfileEventType;
+import org.multiverse.utils.profiling.ProfileEventWriter;
+
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 import static java.lang.String.format;
+import static java.util.Collections.newSetFromMap;
 
 /**
  * A readonly {@link org.multiverse.api.Transaction} implementation.
  * <p/>
- * Unlike the {@link UpdateAlphaTransaction} a readonly transaction doesn't need track any reads done. This has the
- * advantage that a readonly transaction consumes a lot less resources (so no collection needed to track all the reads)
- * and commits are also a lot quicker (no dirtyness checking).
+ * Unlike the {@link UpdateAlphaTransaction} a readonly transaction doesn't attach tranlocals, and commits are a lot
+ * quicker (no dirtyness checking). The only thing that is tracked is a compact read log: the distinct atomic objects
+ * that have been loaded. It is only used to register the retry latch on, so a blocking read stays a cheap readonly
+ * transaction. Because there is no record of the loaded tranlocals, the orelse functionality is not available in
+ * readonly transactions.
  * <p/>
- * A disadvantage of not tracking reads, is that the retry/orelse functionality is not available in reaodnly
- * transactions because the transaction has no clue which objects were loaded. So it also has no clue about the objects
- * to listen to on a retry.
+ * An atomic object that is loaded multiple times is logged once. A small read log is scanned for duplicates; once it
+ * grows beyond {@link #MAX_SCANNED_READLOG_SIZE} entries an identity set is used, so a transaction that reads the
+ * same atomic objects over and over (for example in a loop) doesn't make the read log grow.
  * <p/>
  * Although readonly transactions are isolated from update transactions from a correctness point of view, from a
  * practical point of view a readonly transaction could be obstructed by an update transaction:
@@ -30,23 +42,83 @@ import static java.lang.String.format;
  * T1 (ro):     |--load_X-----load_X--|
  * T2 (up): |---write_X----|
  * </pre>
- * In the future a version history will be added for previous committed data. So the chance that a old version is not
- * available is going to decrease.
+ * The chance that an old version is not available can be decreased by keeping a history of previously committed data,
+ * see the {@link AlphaStmConfig#maxHistoryDepth}.
+ * <p/>
+ * A readonly transaction that touches atomic objects of other domains (see {@link AlphaStm#createDomain}) needs a read
+ * version for each of these domains before anything is loaded. So if a new domain is encountered after atomic objects
+ * have been loaded, the transaction is restarted; the restarted transaction knows the domain from the start.
  *
  * @author Peter Veentjer.
  */
 public class ReadonlyAlphaTransaction extends AbstractTransaction<ReadonlyAlphaTransactionDependencies>
         implements AlphaTransaction {
 
+    //contains the domains of other stms that have been touched, null if none. Is kept when the transaction restarts.
+    private ForeignDomains foreignDomains;
+
+    //indicates if something has been loaded since the transaction (re)started.
+    private boolean loaded;
+
+    //the maximum number of read log entries that are scanned for a duplicate, beyond that the readLogSet is used.
+    final static int MAX_SCANNED_READLOG_SIZE = 8;
+
+    //contains the distinct loaded atomic objects, null if nothing has been loaded yet. The array is kept when the
+    //transaction restarts or is reused, so it only grows until it fits the largest transaction.
+    private AlphaAtomicObject[] readLog;
+    private int readLogSize;
+
+    //contains the same atomic objects as the readLog once it has grown beyond MAX_SCANNED_READLOG_SIZE, null otherwise.
+    private Set<AlphaAtomicObject> readLogSet;
+
+    //records the profile events of the family, null if there is no profileEventRecorder. Is kept when the transaction
+    //is reused for the same family.
+    private ProfileEventWriter events;
+
     public ReadonlyAlphaTransaction(ReadonlyAlphaTransactionDependencies dependencies, String familyName) {
         super(dependencies, familyName);
         init();
     }
 
+    /**
+     * Reinitializes this finished transaction so that it can be reused, see the {@link AlphaTransactionPool}.
+     *
+     * @param familyName the familyName of the transaction.
+     */
+    final void reuse(String familyName) {
+        this.foreignDomains = null;
+        init(familyName);
+    }
+
+    /**
+     * Removes the references to the atomic objects of this finished transaction, so that a pooled transaction doesn't
+     * keep them reachable. See the {@link AlphaTransactionPool}.
+     */
+    final void clearForPooling() {
+        clearReadLog();
+    }
+
+    final ReadonlyAlphaTransactionDependencies getDependencies() {
+        return dependencies;
+    }
+
     protected void doInit() {
+        this.loaded = false;
+        clearReadLog();
+        if (foreignDomains != null) {
+            foreignDomains.start();
+        }
+
         if (dependencies.profiler != null) {
             dependencies.profiler.incCounter("readonlytransaction.started.count", getFamilyName());
         }
+
+        if (dependencies.profileEventRecorder != null) {
+            if (events == null || !events.isResolvedFor(dependencies.profileEventRecorder, familyName)) {
+                events = dependencies.profileEventRecorder.createWriter("readonlytransaction", familyName);
+            }
+            events.record(ProfileEventType.started);
+        }
     }
 
     @Override
@@ -57,10 +129,17 @@ public class ReadonlyAlphaTransaction extends AbstractTransaction<ReadonlyAlphaT
                     return null;
                 }
 
-                AlphaTranlocal result = atomicObject.___load(getReadVersion());
+                AlphaTranlocal result = loadFromDomain(atomicObject);
                 if (result == null) {
                     throw new LoadUncommittedException(getLoadUncommittedMessage(atomicObject));
                 }
+                loaded = true;
+                addToReadLog(atomicObject);
+                incKarma();
+
+                if (dependencies.profileEventRecorder != null) {
+                    events.record(ProfileEventType.load, atomicObject.getClass());
+                }
                 return result;
             case committed: {
                 String msg = format("Can't load atomicObject '%s' from already committed transaction '%s'.",
@@ -77,12 +156,172 @@ public class ReadonlyAlphaTransaction extends AbstractTransaction<ReadonlyAlphaT
         }
     }
 
+    @Override
+    public AlphaTranlocal loadReadonly(AlphaAtomicObject atomicObject) {
+        //the loaded tranlocals already are the committed ones.
+        return load(atomicObject);
+    }
+
+    /**
+     * Loads the tranlocal of the atomicObject with the read version of the domain the atomicObject is bound to.
+     *
+     * @param atomicObject the AlphaAtomicObject to load.
+     * @return the loaded tranlocal, could be null if nothing has been committed.
+     */
+    private AlphaTranlocal loadFromDomain(AlphaAtomicObject atomicObject) {
+        while (true) {
+            Clock domain = atomicObject.___getDomainClock();
+            if (foreignDomains == null && (domain == null || domain == dependencies.clock)) {
+                //if the atomicObject is bound to a foreign domain during the load, the load is not usable.
+                AlphaTranlocal result = load(atomicObject, getReadVersion());
+                if (result == null || atomicObject.___getDomainClock() != null) {
+                    return result;
+                }
+                continue;
+            }
+
+            long readVersion = enterDomain(domain);
+            AlphaTranlocal result;
+            try {
+                result = load(atomicObject, readVersion);
+            } catch (LoadTooOldVersionException e) {
+                if (atomicObject.___getDomainClock() != domain) {
+                    continue;
+                }
+                throw e;
+            }
+
+            if (atomicObject.___getDomainClock() == domain) {
+                ForeignDomains.ensureNotChangedSince(atomicObject, readVersion);
+                return result;
+            }
+        }
+    }
+
+    private void addToReadLog(AlphaAtomicObject atomicObject) {
+        if (readLogSet != null) {
+            if (!readLogSet.add(atomicObject)) {
+                return;
+            }
+        } else {
+            for (int k = 0; k < readLogSize; k++) {
+                if (readLog[k] == atomicObject) {
+                    return;
+                }
+            }
+
+            if (readLogSize == MAX_SCANNED_READLOG_SIZE) {
+                readLogSet = newSetFromMap(new IdentityHashMap<AlphaAtomicObject, Boolean>(readLogSize * 4));
+                for (int k = 0; k < readLogSize; k++) {
+                    readLogSet.add(readLog[k]);
+                }
+                readLogSet.add(atomicObject);
+            }
+        }
+
+        if (readLog == null) {
+            readLog = new AlphaAtomicObject[4];
+        } else if (readLogSize == readLog.length) {
+            AlphaAtomicObject[] newReadLog = new AlphaAtomicObject[readLog.length * 2];
+            System.arraycopy(readLog, 0, newReadLog, 0, readLogSize);
+            readLog = newReadLog;
+        }
+
+        readLog[readLogSize] = atomicObject;
+        readLogSize++;
+    }
+
+    /**
+     * Returns the number of distinct atomic objects in the read log.
+     *
+     * @return the size of the read log.
+     */
+    final int getReadLogSize() {
+        return readLogSize;
+    }
+
+    private void clearReadLog() {
+        for (int k = 0; k < readLogSize; k++) {
+            readLog[k] = null;
+        }
+        readLogSize = 0;
+        readLogSet = null;
+    }
+
+    /**
+     * Returns the read version for a domain. A domain that has not been touched before is added to the foreign
+     * domains. If atomic objects already have been loaded, the transaction has no read version for the new domain that
+     * is consistent with these loads, so it needs to be restarted.
+     *
+     * @param domain the clock of the domain, or null if the atomic object is not bound to a domain yet.
+     * @return the read version for the domain.
+     * @throws LoadTooOldVersionException if the transaction needs to be restarted.
+     */
+    private long enterDomain(Clock domain) {
+        if (domain == null || domain == dependencies.clock) {
+            return getReadVersion();
+        }
+
+        if (foreignDomains == null) {
+            foreignDomains = new ForeignDomains();
+        }
+
+        long readVersion = foreignDomains.getReadVersion(domain);
+        if (readVersion >= 0) {
+            return readVersion;
+        }
+
+        foreignDomains.add(domain);
+
+        if (loaded) {
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("readonlytransaction.newdomain.count", getFamilyName());
+            }
+
+            if (LoadTooOldVersionException.reuse) {
+                throw LoadTooOldVersionException.INSTANCE;
+            } else {
+                String msg = format("Transaction '%s' touched a new domain, it needs to be restarted",
+                                    getFamilyName());
+                throw new LoadTooOldVersionException(msg);
+            }
+        }
+
+        return foreignDomains.getReadVersion(domain);
+    }
+
+    /**
+     * Loads the tranlocal of the atomicObject. If the atomicObject is locked by another transaction, the {@link
+     * org.multiverse.utils.contentionmanager.ContentionManager} decides if the load is tried again.
+     *
+     * @param atomicObject the AlphaAtomicObject to load.
+     * @param readVersion  the read version of this transaction.
+     * @return the loaded tranlocal, could be null if nothing has been committed.
+     */
+    private AlphaTranlocal load(AlphaAtomicObject atomicObject, long readVersion) {
+        int attempt = 0;
+        while (true) {
+            try {
+                return atomicObject.___load(readVersion);
+            } catch (LoadLockedException e) {
+                attempt++;
+                if (!resolveContention(atomicObject.___getLockOwner(), attempt)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
     @Override
     protected long onCommit() {
         long value = super.onCommit();
         if (dependencies.profiler != null) {
             dependencies.profiler.incCounter("readonlytransaction.committed.count", getFamilyName());
         }
+
+        if (dependencies.profileEventRecorder != null) {
+            events.record(ProfileEventType.committed);
+        }
         return value;
     }
 
@@ -93,10 +332,55 @@ public class ReadonlyAlphaTransaction extends AbstractTransaction<ReadonlyAlphaT
         if (dependencies.profiler != null) {
             dependencies.profiler.incCounter("readonlytransaction.aborted.count", getFamilyName());
         }
+
+        if (dependencies.profileEventRecorder != null) {
+            events.record(ProfileEventType.aborted);
+        }
+    }
+
+    @Override
+    public void commute(AlphaAtomicObject atomicObject, CommutingFunction function) {
+        String msg = format("Can't commute atomicObject '%s' in readonly transaction '%s'.",
+                            toAtomicObjectString(atomicObject), familyName);
+        throw new ReadonlyException(msg);
     }
 
     @Override
     public void doAbortAndRegisterRetryLatch(Latch latch) {
-        throw new ReadonlyException();
+        if (!loaded) {
+            String msg = format("Can't retry on transaction '%s' because it has not been used.", getFamilyName());
+            throw new NoRetryPossibleException(msg);
+        }
+
+        if (dependencies.profiler != null) {
+            dependencies.profiler.incCounter("readonlytransaction.waiting.count", getFamilyName());
+        }
+
+        boolean atLeastOneRegistration = false;
+        for (int k = 0; k < readLogSize; k++) {
+            AlphaAtomicObject atomicObject = readLog[k];
+            long minimalVersion = getReadVersion(atomicObject.___getDomainClock()) + 1;
+            if (atomicObject.___registerRetryListener(latch, minimalVersion)) {
+                atLeastOneRegistration = true;
+
+                if (latch.isOpen()) {
+                    break;
+                }
+            }
+        }
+
+        if (!atLeastOneRegistration) {
+            String msg = format("Can't retry on transaction '%s' because it has no reads", getFamilyName());
+            throw new NoRetryPossibleException(msg);
+        }
+    }
+
+    @Override
+    public final long getReadVersion(Clock domain) {
+        if (domain == null || domain == dependencies.clock) {
+            return getReadVersion();
+        }
+
+        return foreignDomains == null ? -1 : foreignDomains.getReadVersion(domain);
     }
 }
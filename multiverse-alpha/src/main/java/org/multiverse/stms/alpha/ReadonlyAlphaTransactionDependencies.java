@@ -2,15 +2,30 @@ package org.multiverse.stms.alpha;
 
 import org.multiverse.stms.AbstractTransactionDependencies;
 import org.multiverse.utils.clock.Clock;
+import org.multiverse.utils.contentionmanager.ContentionManager;
+import org.multiverse.utils.profiling.ProfileEventRecorder;
 import org.multiverse.utils.profiling.ProfileRepository;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
 
 public class ReadonlyAlphaTransactionDependencies extends AbstractTransactionDependencies{
 
     public final ProfileRepository profiler;
+    public final ProfileEventRecorder profileEventRecorder;
 
     public ReadonlyAlphaTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy, ProfileRepository profiler) {
-        super(clock, restartBackoffPolicy);
+        this(clock, restartBackoffPolicy, profiler, null);
+    }
+
+    public ReadonlyAlphaTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy,
+                                                ProfileRepository profiler, ContentionManager contentionManager) {
+        this(clock, restartBackoffPolicy, profiler, contentionManager, null);
+    }
+
+    public ReadonlyAlphaTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy,
+                                                ProfileRepository profiler, ContentionManager contentionManager,
+                                                ProfileEventRecorder profileEventRecorder) {
+        super(clock, restartBackoffPolicy, contentionManager);
         this.profiler = profiler;
+        this.profileEventRecorder = profileEventRecorder;
     }
 }
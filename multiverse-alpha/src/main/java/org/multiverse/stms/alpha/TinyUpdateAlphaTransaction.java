@@ -1,234 +1,145 @@
 package org.multiverse.stms.alpha;
 
-import org.multiverse.api.exceptions.*;
-import org.multiverse.stms.AbstractTransaction;
-import static org.multiverse.stms.alpha.AlphaStmUtils.toAtomicObjectString;
-import org.multiverse.utils.Listeners;
-import org.multiverse.utils.TodoException;
 import org.multiverse.utils.latches.Latch;
 
-import static java.lang.String.format;
-
 /**
+ * An update {@link org.multiverse.api.Transaction} optimized for transactions that only load a single atomic object,
+ * like a Ref.set. The tranlocal is stored in a field, so no array or map needs to be created.
+ * <p/>
+ * If a second atomic object is loaded, the transaction grows in place: it continues as an {@link
+ * ArrayUpdateAlphaTransaction} (and eventually as a map based transaction). So the transaction doesn't need to be
+ * aborted when it outgrows the single field. When the transaction is restarted, it begins with the field again.
+ *
  * @author Peter Veentjer
  */
-public class TinyUpdateAlphaTransaction extends AbstractTransaction<UpdateTransactionDependencies>
-        implements AlphaTransaction {
-
-    private final static AlphaTranlocal[] EMPTY_WRITESET = new AlphaTranlocal[0];
+public class TinyUpdateAlphaTransaction extends ArrayUpdateAlphaTransaction {
 
+    //no field initializers are allowed, because the constructor of the ArrayUpdateAlphaTransaction calls the
+    //init before they are executed.
     private AlphaTranlocal attached;
-
-    public TinyUpdateAlphaTransaction(UpdateTransactionDependencies params, String familyName) {
-        super(params, familyName);
-        init();
-    }
-
-    protected void doInit() {
-        this.attached = null;
+    private boolean grown;
+    private AlphaTranlocal[] writeSet;
+
+    /**
+     * Creates a new TinyUpdateAlphaTransaction.
+     *
+     * @param dependencies   the UpdateTransactionDependencies.
+     * @param familyName     the familyName of the transaction.
+     * @param maxArraySize   the maximum number of tranlocals stored in an array once the transaction has grown, before
+     *                       switching to a map.
+     * @param sizeStatistics the TransactionSizeStatistics of the family. Can be null.
+     * @throws IllegalArgumentException if maxArraySize smaller than 1.
+     */
+    public TinyUpdateAlphaTransaction(UpdateTransactionDependencies dependencies, String familyName,
+                                      int maxArraySize, TransactionSizeStatistics sizeStatistics) {
+        super(dependencies, familyName, maxArraySize, 2, sizeStatistics);
     }
 
     @Override
-    public AlphaTranlocal load(AlphaAtomicObject atomicObject) {
-        switch (getStatus()) {
-            case active:
-                if (atomicObject == null) {
-                    return null;
-                }
-
-                if (attached != null) {
-                    if (attached.getAtomicObject() != atomicObject) {
-                        throw new RuntimeException();
-                    }
-
-                    return attached;
-                } else {
-                    attached = atomicObject.___loadUpdatable(getReadVersion());
-                    return attached;
-                }
-            case committed: {
-                String msg = format("Can't call load with atomicobject '%s' on committed transaction '%s'.",
-                                    toAtomicObjectString(atomicObject), familyName);
-                throw new DeadTransactionException(msg);
-            }
-            case aborted: {
-                String msg = format("Can't call load with atomicObject '%s' on aborted transaction '%s'.",
-                                    toAtomicObjectString(atomicObject), familyName);
-                throw new DeadTransactionException(msg);
-            }
-            default:
-                throw new RuntimeException();
+    protected AlphaTranlocal findAttached(AlphaAtomicObject atomicObject) {
+        if (grown) {
+            return super.findAttached(atomicObject);
         }
+
+        return attached != null && attached.getAtomicObject() == atomicObject ? attached : null;
     }
 
     @Override
-    protected long onCommit() {
-        long commitVersion = doCommit();
-        if (dependencies.profiler != null) {
-            dependencies.profiler.incCounter("updatetransaction.committed.count", getFamilyName());
+    protected void replaceAttached(AlphaTranlocal tranlocal) {
+        if (grown) {
+            super.replaceAttached(tranlocal);
+        } else {
+            attached = tranlocal;
         }
-
-        attached = null;
-        return commitVersion;
     }
 
-    private long doCommit() {
-        if (attached == null) {
-            return getReadVersion();
-        }
-
-        switch (attached.getDirtinessStatus()) {
-            case clean:
-                return getReadVersion();
-            case readonly:
-                return getReadVersion();
-            case fresh:
-                //fall through
-            case dirty:
-                break;
-            case conflict:
-                if (WriteConflictException.reuse) {
-                    throw WriteConflictException.INSTANCE;
-                } else {
-                    String msg = format(
-                            "There was a writeconflict in transaction with familyname '%s' on atomicobject '%s'",
-                            getFamilyName(),
-                            toAtomicObjectString(attached));
-                    throw new WriteConflictException(msg);
-                }
-            default:
-                throw new RuntimeException();
-        }
-
-        boolean locksNeedToBeReleased = true;
-        try {
-            acquireLocksAndCheckForConflicts();
-            long writeVersion = dependencies.clock.tick();
-
-            if (SANITY_CHECKS_ENABLED) {
-                if (writeVersion <= getReadVersion()) {
-                    throw new PanicError("The clock went back in time");
-                }
-            }
-
-            storeAllAndReleaseLocks(writeVersion);
-            locksNeedToBeReleased = false;
-            return writeVersion;
-        } finally {
-            if (locksNeedToBeReleased) {
-                attached.getAtomicObject().___releaseLock(this);
+    @Override
+    protected void attach(AlphaTranlocal tranlocal) {
+        if (grown) {
+            super.attach(tranlocal);
+        } else if (attached == null) {
+            attached = tranlocal;
+        } else {
+            grown = true;
+            super.attach(attached);
+            super.attach(tranlocal);
+            attached = null;
+
+            if (dependencies.profiler != null) {
+                dependencies.profiler.incCounter("updatetransaction.grown.count", getFamilyName());
             }
         }
     }
 
-
-    private void acquireLocksAndCheckForConflicts() {
-        switch (dependencies.commitLockPolicy.tryLockAndDetectConflict(attached, this)) {
-            case success:
-                //todo: problem is that if the locks are not acquired successfully, it isn't clear
-                //how many locks were acquired.
-                if (dependencies.profiler != null) {
-                    dependencies.profiler.incCounter("updatetransaction.acquirelocks.count", getFamilyName());
-                }
-                break;
-            case failure:
-                if (dependencies.profiler != null) {
-                    dependencies.profiler.incCounter("updatetransaction.failedtoacquirelocks.count", getFamilyName());
-                }
-
-                if (FailedToObtainLocksException.reuse) {
-                    throw FailedToObtainLocksException.INSTANCE;
-                } else {
-                    String msg = format(
-                            "Failed to obtain all locks needed for commit on transaction wuth familyname '%s'",
-                            getFamilyName());
-                    throw new FailedToObtainLocksException(msg);
-                }
-            case conflict:
-                if (dependencies.profiler != null) {
-                    dependencies.profiler.incCounter("updatetransaction.writeconflict.count", getFamilyName());
-                }
-                if (WriteConflictException.reuse) {
-                    throw WriteConflictException.INSTANCE;
-                } else {
-                    String msg = format("There was a writeconflict in transaction with familyname '%s'",
-                                        getFamilyName());
-                    throw new WriteConflictException(msg);
-                }
-
-            default:
-                throw new RuntimeException();
+    @Override
+    protected int getAttachedCount() {
+        if (grown) {
+            return super.getAttachedCount();
         }
-    }
 
-    private void storeAllAndReleaseLocks(long commitVersion) {
-        AlphaAtomicObject atomicObject = attached.getAtomicObject();
-        Listeners listeners = atomicObject.___storeAndReleaseLock(attached, commitVersion);
-        if (listeners != null) {
-            listeners.openAll();
-        }
+        return attached == null ? 0 : 1;
     }
 
     @Override
-    protected void doAbort() {
+    protected void clearAttached() {
+        if (grown) {
+            super.clearAttached();
+            grown = false;
+        }
+
         attached = null;
     }
 
     @Override
-    protected void doAbortAndRegisterRetryLatch(Latch latch) {
-        if (attached == null) {
-            String msg = format("Can't retry on transaction '%s' because it has not been used.", getFamilyName());
-            throw new NoRetryPossibleException(msg);
+    protected AlphaTranlocal[] createWriteSet() {
+        if (grown) {
+            return super.createWriteSet();
         }
 
-        if (dependencies.profiler != null) {
-            dependencies.profiler.incCounter("updatetransaction.waiting.count", getFamilyName());
+        if (attached == null || !isDirty(attached)) {
+            return EMPTY_WRITESET;
         }
 
-        long minimalVersion = getReadVersion() + 1;
-
-        boolean atLeastOneRegistration = false;
-        if (attached.getAtomicObject().___registerRetryListener(latch, minimalVersion)) {
-            atLeastOneRegistration = true;
+        if (writeSet == null) {
+            writeSet = new AlphaTranlocal[1];
         }
 
-        if (!atLeastOneRegistration) {
-            String msg = format("Can't retry on transaction '%s' because it has no reads", getFamilyName());
-            throw new NoRetryPossibleException(msg);
-        }
+        writeSet[0] = attached;
+        return writeSet;
     }
 
     @Override
-    protected void doStartOr() {
-        throw new TodoException();
-    }
-
-    private AlphaTranlocalSnapshot createSnapshot() {
-        throw new TodoException();
+    protected void clearWriteSet() {
+        super.clearWriteSet();
+        if (writeSet != null) {
+            writeSet[0] = null;
+        }
     }
 
     @Override
-    protected void doEndOr() {
-        throw new TodoException();
+    protected boolean registerRetryLatch(Latch latch, long minimalVersion) {
+        if (grown) {
+            return super.registerRetryLatch(latch, minimalVersion);
+        }
+
+        return attached != null && registerRetryListener(attached.getAtomicObject(), latch, minimalVersion);
     }
 
     @Override
-    protected void doEndOrAndStartElse() {
-        throw new TodoException();
-    }
+    protected boolean isAttachedUnchangedSince(long readVersion) {
+        if (grown) {
+            return super.isAttachedUnchangedSince(readVersion);
+        }
 
-    private void restoreSnapshot(AlphaTranlocalSnapshot snapshot) {
-        throw new TodoException();
+        return attached == null || isUnchangedSince(attached, readVersion);
     }
 
-    static final class SnapshotStack {
-
-        public final SnapshotStack next;
-        public final AlphaTranlocalSnapshot snapshot;
-
-        SnapshotStack(SnapshotStack next, AlphaTranlocalSnapshot snapshot) {
-            this.next = next;
-            this.snapshot = snapshot;
+    @Override
+    protected AlphaTranlocalSnapshot createSnapshot() {
+        if (grown) {
+            return super.createSnapshot();
         }
+
+        return attached == null ? null : takeSnapshot(attached);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package org.multiverse.stms.alpha;
+
+import static java.lang.String.format;
+
+/**
+ * Contains the learned size (the number of attached tranlocals) of the update transactions of a single family. Based
+ * on this size the {@link AlphaStm} is able to select the cheapest update transaction implementation for the family.
+ * <p/>
+ * The size only grows, so once a family has needed a map, it will keep getting a map based transaction. The size is
+ * only written when it increases, so in the steady state signalling the size only causes reads; no contention on the
+ * memory bus.
+ * <p/>
+ * TransactionSizeStatistics is thread-safe to use. Updates could be lost when concurrent transactions signal a
+ * different size at the same moment, but that is harmless: a transaction that outgrows its implementation grows in
+ * place and signals its size again on the next execution.
+ *
+ * @author Peter Veentjer.
+ */
+public final class TransactionSizeStatistics {
+
+    private volatile int size;
+
+    /**
+     * Returns the largest size signalled so far.
+     *
+     * @return the largest size signalled so far. Will always be equal or larger than zero.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Signals the size of an executed transaction.
+     *
+     * @param size the number of attached tranlocals of the executed transaction.
+     */
+    public void signalSize(int size) {
+        if (size > this.size) {
+            this.size = size;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return format("TransactionSizeStatistics(size=%s)", size);
+    }
+}
@@ -0,0 +1,102 @@
+package org.multiverse.stms.alpha;
+
+import org.multiverse.utils.profiling.LatencyHistogram;
+import org.multiverse.utils.profiling.ProfileCounter;
+import org.multiverse.utils.profiling.ProfileRepository;
+import org.multiverse.utils.profiling.TransactionHistograms;
+
+/**
+ * The {@link ProfileCounter}s of the update transactions of a single family that are incremented for every
+ * transaction, every load or every commit, and the {@link LatencyHistogram}s of the commit. They are resolved once, so the {@link
+ * AbstractUpdateAlphaTransaction} doesn't need to look them up in the {@link ProfileRepository} on every increment.
+ * <p/>
+ * The counters of an atomic object class are resolved for the last class that has been loaded; transactions
+ * frequently load multiple objects of the same class in a row.
+ * <p/>
+ * UpdateTransactionCounters is not thread-safe; it is owned by a single transaction (the counters themselves are
+ * thread-safe).
+ *
+ * @author Peter Veentjer.
+ */
+final class UpdateTransactionCounters {
+
+    final String familyName;
+
+    final ProfileCounter started;
+    final ProfileCounter load;
+    final ProfileCounter readonlyLoad;
+    final ProfileCounter uselessLoad;
+    final ProfileCounter privatize;
+    final ProfileCounter committed;
+    final ProfileCounter aborted;
+    final ProfileCounter commute;
+    final ProfileCounter acquireLocks;
+    final ProfileCounter lockFreeCommit;
+    final ProfileCounter individualWrite;
+    final ProfileCounter openedListeners;
+
+    final LatencyHistogram commitDuration;
+    final LatencyHistogram lockAcquisitionTime;
+
+    private final ProfileRepository profiler;
+
+    private Class<?> atomicObjectClass;
+    private ProfileCounter atomicObjectLoad;
+    private ProfileCounter atomicObjectUselessLoad;
+
+    /**
+     * Creates UpdateTransactionCounters by resolving the counters of the family.
+     *
+     * @param profiler   the ProfileRepository to resolve the counters in.
+     * @param familyName the familyName of the transactions, can be null.
+     */
+    UpdateTransactionCounters(ProfileRepository profiler, String familyName) {
+        this.profiler = profiler;
+        this.familyName = familyName;
+        this.started = profiler.getCounter("updatetransaction.started.count", familyName);
+        this.load = profiler.getCounter("updatetransaction.load.count", familyName);
+        this.readonlyLoad = profiler.getCounter("updatetransaction.readonlyload.count", familyName);
+        this.uselessLoad = profiler.getCounter("updatetransaction.uselessload.count", familyName);
+        this.privatize = profiler.getCounter("updatetransaction.privatize.count", familyName);
+        this.committed = profiler.getCounter("updatetransaction.committed.count", familyName);
+        this.aborted = profiler.getCounter("updatetransaction.aborted.count", familyName);
+        this.commute = profiler.getCounter("updatetransaction.commute.count", familyName);
+        this.acquireLocks = profiler.getCounter("updatetransaction.acquirelocks.count", familyName);
+        this.lockFreeCommit = profiler.getCounter("updatetransaction.lockfreecommit.count", familyName);
+        this.individualWrite = profiler.getCounter("updatetransaction.individualwrite.count", familyName);
+        this.openedListeners = profiler.getCounter("updatetransaction.openedlisteners.count", familyName);
+        this.commitDuration = profiler.getHistogram(TransactionHistograms.COMMIT_DURATION, familyName);
+        this.lockAcquisitionTime = profiler.getHistogram(TransactionHistograms.LOCK_ACQUISITION_TIME, familyName);
+    }
+
+    /**
+     * Checks if these UpdateTransactionCounters can be used by a transaction.
+     *
+     * @param profiler   the ProfileRepository of the transaction.
+     * @param familyName the familyName of the transaction.
+     * @return true if the counters have been resolved for the profiler and familyName, false otherwise.
+     */
+    boolean isResolvedFor(ProfileRepository profiler, String familyName) {
+        return this.profiler == profiler &&
+                (this.familyName == null ? familyName == null : this.familyName.equals(familyName));
+    }
+
+    void incAtomicObjectLoad(AlphaAtomicObject atomicObject) {
+        resolveAtomicObjectCounters(atomicObject.getClass());
+        atomicObjectLoad.inc();
+    }
+
+    void incAtomicObjectUselessLoad(AlphaAtomicObject atomicObject) {
+        resolveAtomicObjectCounters(atomicObject.getClass());
+        atomicObjectUselessLoad.inc();
+    }
+
+    private void resolveAtomicObjectCounters(Class<?> clazz) {
+        if (clazz != atomicObjectClass) {
+            String className = clazz.getName();
+            atomicObjectLoad = profiler.getCounter("atomicobject.load.count", className);
+            atomicObjectUselessLoad = profiler.getCounter("atomicobject.uselessload.count", className);
+            atomicObjectClass = clazz;
+        }
+    }
+}
@@ -3,6 +3,9 @@ package org.multiverse.stms.alpha;
 import org.multiverse.stms.AbstractTransactionDependencies;
 import org.multiverse.utils.clock.Clock;
 import org.multiverse.utils.commitlock.CommitLockPolicy;
+import org.multiverse.utils.commitlock.IrrevocableCommitGate;
+import org.multiverse.utils.contentionmanager.ContentionManager;
+import org.multiverse.utils.profiling.ProfileEventRecorder;
 import org.multiverse.utils.profiling.ProfileRepository;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
 
@@ -25,12 +28,53 @@ public class UpdateTransactionDependencies extends AbstractTransactionDependenci
 
     public final ProfileRepository profiler;
     public final CommitLockPolicy commitLockPolicy;
+    public final int maxHistoryDepth;
+    public final boolean readVersionExtensionEnabled;
+    public final boolean lockFreeSingleObjectCommitEnabled;
+    public final IrrevocableCommitGate irrevocableCommitGate;
+    public final ProfileEventRecorder profileEventRecorder;
 
     public UpdateTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy,
                                          CommitLockPolicy commitLockPolicy, ProfileRepository profiler) {
-        super(clock, restartBackoffPolicy);
+        this(clock, restartBackoffPolicy, commitLockPolicy, profiler, 0, false, true, null);
+    }
+
+    public UpdateTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy,
+                                         CommitLockPolicy commitLockPolicy, ProfileRepository profiler,
+                                         int maxHistoryDepth, boolean readVersionExtensionEnabled,
+                                         boolean lockFreeSingleObjectCommitEnabled,
+                                         ContentionManager contentionManager) {
+        this(clock, restartBackoffPolicy, commitLockPolicy, profiler, maxHistoryDepth, readVersionExtensionEnabled,
+             lockFreeSingleObjectCommitEnabled, contentionManager, new IrrevocableCommitGate());
+    }
+
+    public UpdateTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy,
+                                         CommitLockPolicy commitLockPolicy, ProfileRepository profiler,
+                                         int maxHistoryDepth, boolean readVersionExtensionEnabled,
+                                         boolean lockFreeSingleObjectCommitEnabled,
+                                         ContentionManager contentionManager,
+                                         IrrevocableCommitGate irrevocableCommitGate) {
+        this(clock, restartBackoffPolicy, commitLockPolicy, profiler, maxHistoryDepth, readVersionExtensionEnabled,
+             lockFreeSingleObjectCommitEnabled, contentionManager, irrevocableCommitGate, null);
+    }
+
+    public UpdateTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy,
+                                         CommitLockPolicy commitLockPolicy, ProfileRepository profiler,
+                                         int maxHistoryDepth, boolean readVersionExtensionEnabled,
+                                         boolean lockFreeSingleObjectCommitEnabled,
+                                         ContentionManager contentionManager,
+                                         IrrevocableCommitGate irrevocableCommitGate,
+                                         ProfileEventRecorder profileEventRecorder) {
+        super(clock, restartBackoffPolicy, contentionManager);
         assert commitLockPolicy != null;
+        assert maxHistoryDepth >= 0;
+        assert irrevocableCommitGate != null;
         this.profiler = profiler;
         this.commitLockPolicy = commitLockPolicy;
+        this.maxHistoryDepth = maxHistoryDepth;
+        this.readVersionExtensionEnabled = readVersionExtensionEnabled;
+        this.lockFreeSingleObjectCommitEnabled = lockFreeSingleObjectCommitEnabled;
+        this.irrevocableCommitGate = irrevocableCommitGate;
+        this.profileEventRecorder = profileEventRecorder;
     }
 }
@@ -3,6 +3,7 @@ package org.multiverse.stms.alpha.instrumentation.asm;
 import org.multiverse.api.annotations.AtomicMethod;
 import org.multiverse.api.annotations.AtomicObject;
 import org.multiverse.api.annotations.Exclude;
+import org.multiverse.api.annotations.FieldGroup;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
@@ -121,6 +122,27 @@ public final class AsmUtils implements Opcodes {
         return hasVisibleAnnotation(field, Exclude.class);
     }
 
+    /**
+     * Returns the name of the field group of the field, or null if the field has no {@link FieldGroup} annotation.
+     *
+     * @param field the FieldNode to check.
+     * @return the name of the field group, or null.
+     */
+    public static String getFieldGroup(FieldNode field) {
+        AnnotationNode annotation = getVisibleAnnotation(field, FieldGroup.class);
+        if (annotation == null || annotation.values == null) {
+            return null;
+        }
+
+        for (int k = 0; k < annotation.values.size(); k += 2) {
+            if ("value".equals(annotation.values.get(k))) {
+                return (String) annotation.values.get(k + 1);
+            }
+        }
+
+        return null;
+    }
+
     public static boolean hasAtomicMethodAnnotation(MethodNode methodNode) {
         return hasVisibleAnnotation(methodNode, AtomicMethod.class);
     }
@@ -2,22 +2,28 @@ package org.multiverse.stms.alpha.instrumentation.asm;
 
 import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
 import static org.multiverse.api.ThreadLocalTransaction.*;
+import org.multiverse.api.Stm;
 import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionPool;
 import org.multiverse.api.TransactionStatus;
 import org.multiverse.api.exceptions.RecoverableThrowable;
 import org.multiverse.api.exceptions.RetryError;
 import org.multiverse.api.exceptions.TooManyRetriesException;
 import org.multiverse.templates.AbortedException;
-import org.multiverse.utils.latches.CheapLatch;
 import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.latches.ParkingLatch;
+import org.multiverse.utils.profiling.ProfileRepository;
+import org.multiverse.utils.profiling.TransactionHistograms;
 
 import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The donor class that can be used while instrumenting atomic methods and adding the transaction management
  * donorMethod.
  * <p/>
- * Donor method must be static Donor method must have 3 arguments: readonly:boolean, familyName:string, retryCount:int
+ * Donor method must be static Donor method must have 5 arguments: readonly:boolean, familyName:string, retryCount:int,
+ * nested:boolean, irrevocable:boolean
  * Donor method must be called 'donorMethod' Donor method must return void. Donor method may not have argument arguments
  * called arg$ with $ being some number.
  *
@@ -34,6 +40,8 @@ public class AtomicLogicDonor {
     public static boolean readOnly = false;
     public static String familyName = null;
     public static int retryCount = 10;
+    public static boolean nested = false;
+    public static boolean irrevocable = false;
 
     public static void donorConstructor() throws Exception {
         Transaction t = getThreadLocalTransaction();
@@ -41,7 +49,7 @@ public class AtomicLogicDonor {
         if (isActiveTransaction(t)) {
             execute();
         } else {
-            t = createTransaction(readOnly, familyName);
+            t = createTransaction(readOnly, irrevocable, familyName);
             setThreadLocalTransaction(t);
             try {
                 execute();
@@ -49,6 +57,7 @@ public class AtomicLogicDonor {
                     throw new AbortedException();
                 }
                 t.commit();
+                returnTransaction(t);
                 t = null;
             } catch (Throwable throwable) {
                 t.abort();
@@ -69,11 +78,34 @@ public class AtomicLogicDonor {
         Transaction t = getThreadLocalTransaction();
 
         if (isActiveTransaction(t)) {
-            execute();
-            return;
+            if (!nested) {
+                execute();
+                return;
+            }
+
+            int nestedAttempt = 1;
+            do {
+                t.startNested();
+                try {
+                    execute();
+                    t.commitNested();
+                    return;
+                } catch (Throwable throwable) {
+                    if (!abortNested(t, throwable, nestedAttempt, retryCount)) {
+                        if (throwable instanceof Exception) {
+                            throw (Exception) throwable;
+                        } else {
+                            throw (Error) throwable;
+                        }
+                    }
+                }
+                nestedAttempt++;
+            } while (true);
         }
 
-        t = createTransaction(readOnly, familyName);
+        ProfileRepository profiler = TransactionHistograms.getProfiler(getGlobalStmInstance());
+        long startNs = profiler == null ? 0 : System.nanoTime();
+        t = createTransaction(readOnly, irrevocable, familyName);
 
         int attempt = 1;
         do {
@@ -85,12 +117,12 @@ public class AtomicLogicDonor {
                     throw new AbortedException();
                 }
                 t.commit();
+                TransactionHistograms.recordCommitted(profiler, familyName, startNs, attempt);
+                returnTransaction(t);
                 return;
             } catch (Throwable throwable) {
                 if (throwable instanceof RetryError) {
-                    Latch latch = new CheapLatch();
-                    t.abortAndRegisterRetryLatch(latch);
-                    latch.awaitUninterruptible();
+                    awaitRetry(t);
                 } else if (throwable instanceof RecoverableThrowable) {
                     t.getRestartBackoffPolicy().delayUninterruptible(t, attempt);
                     //backoff(attempt);
@@ -117,9 +149,11 @@ public class AtomicLogicDonor {
         throw new TooManyRetriesException(msg);
     }
 
-    public static Transaction createTransaction(boolean readonly, String familyName) {
+    public static Transaction createTransaction(boolean readonly, boolean irrevocable, String familyName) {
         Transaction t;
-        if (readonly) {
+        if (irrevocable) {
+            t = getGlobalStmInstance().startIrrevocableTransaction(familyName);
+        } else if (readonly) {
             t = getGlobalStmInstance().startReadOnlyTransaction(familyName);
         } else {
             t = getGlobalStmInstance().startUpdateTransaction(familyName);
@@ -127,6 +161,65 @@ public class AtomicLogicDonor {
         return t;
     }
 
+    /**
+     * Aborts the transaction and waits until one of the atomic objects it has read, has been changed. If the retry
+     * timeout of the transaction has been started, it waits at most the remaining timeout, and the wait is
+     * interruptible; the InterruptedException leaves the atomic method without restarting the transaction. The time
+     * blocked is recorded in the histograms of the family if the stm has a profiler.
+     *
+     * @param t the transaction that did the retry.
+     * @throws InterruptedException if the thread is interrupted while doing a timed wait.
+     */
+    public static void awaitRetry(Transaction t) throws InterruptedException {
+        ProfileRepository profiler = TransactionHistograms.getProfiler(getGlobalStmInstance());
+        long startNs = profiler == null ? 0 : System.nanoTime();
+        long timeoutNs = t.getRetryTimeoutNs();
+        Latch latch = new ParkingLatch();
+        t.abortAndRegisterRetryLatch(latch);
+        if (timeoutNs == Long.MAX_VALUE) {
+            latch.awaitUninterruptible();
+        } else {
+            latch.tryAwait(timeoutNs, TimeUnit.NANOSECONDS);
+        }
+        TransactionHistograms.recordRetryBlockTime(profiler, t.getFamilyName(), startNs);
+    }
+
+    /**
+     * Rolls back the changes of a failed nested transaction, and decides if it can be retried on its own.
+     *
+     * @param t          the transaction the nested transaction is part of.
+     * @param throwable  the cause of the failure.
+     * @param attempt    the attempt of the nested transaction that failed, starting at 1.
+     * @param retryCount the maximum number of retries.
+     * @return true if the nested transaction should be retried, false if the throwable needs to be propagated.
+     */
+    public static boolean abortNested(Transaction t, Throwable throwable, int attempt, int retryCount) {
+        if (t.getStatus() != TransactionStatus.active) {
+            return false;
+        }
+
+        if (throwable instanceof RetryError) {
+            //the reads of the nested transaction are needed to register the retry latch.
+            t.commitNested();
+            return false;
+        }
+
+        boolean retryPossible = t.abortNested();
+        if (!retryPossible || !(throwable instanceof RecoverableThrowable) || attempt > retryCount) {
+            return false;
+        }
+
+        t.getRestartBackoffPolicy().delayUninterruptible(t, attempt);
+        return true;
+    }
+
+    public static void returnTransaction(Transaction t) {
+        Stm stm = getGlobalStmInstance();
+        if (stm instanceof TransactionPool) {
+            ((TransactionPool) stm).returnTransaction(t);
+        }
+    }
+
     public static void abortIfActive(final Transaction t) {
         if (t.getStatus() == TransactionStatus.active) {
             t.abort();
@@ -16,4 +16,6 @@ public class AtomicMethodParams {
     public int retryCount;
 
     public PropagationLevel propagationLevel;
+
+    public boolean irrevocable;
 }
@@ -1,5 +1,6 @@
 package org.multiverse.stms.alpha.instrumentation.asm;
 
+import org.multiverse.api.PropagationLevel;
 import org.multiverse.api.Transaction;
 import static org.multiverse.stms.alpha.instrumentation.asm.AsmUtils.*;
 import org.objectweb.asm.Opcodes;
@@ -426,6 +427,18 @@ public class AtomicMethodTransformer implements Opcodes {
                         result.instructions.add(new LdcInsnNode(retryCount));
                     } else if (donorIsOwner && donorFieldInsnNode.name.equals("familyName")) {
                         result.instructions.add(new LdcInsnNode(params.familyName));
+                    } else if (donorIsOwner && donorFieldInsnNode.name.equals("nested")) {
+                        if (params.propagationLevel == PropagationLevel.nested) {
+                            result.instructions.add(new InsnNode(ICONST_1));
+                        } else {
+                            result.instructions.add(new InsnNode(ICONST_0));
+                        }
+                    } else if (donorIsOwner && donorFieldInsnNode.name.equals("irrevocable")) {
+                        if (params.irrevocable) {
+                            result.instructions.add(new InsnNode(ICONST_1));
+                        } else {
+                            result.instructions.add(new InsnNode(ICONST_0));
+                        }
                     } else {
                         result.instructions.add(donorInsn.clone(cloneMap));
                     }
@@ -19,7 +19,11 @@ import static java.lang.String.format;
  * <p/>
  * person.firstname -> person.persontranlocal.firstname
  * <p/>
- * Where the persontranlocal is retrieved from the current transaction.
+ * Where the persontranlocal is retrieved from the current transaction. A read is done on the tranlocal returned by
+ * {@link AlphaTransaction#loadReadonly(AlphaAtomicObject)}, so an update transaction that only reads an atomic object
+ * doesn't copy its state. A write acts as write barrier: it is done on the tranlocal returned by {@link
+ * AlphaTransaction#load(AlphaAtomicObject)}, which makes the private copy on the first write, and it marks the
+ * tranlocal as dirty (see {@link AlphaTranlocal#___dirty}).
  */
 public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements Opcodes {
 
@@ -37,7 +41,7 @@ public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements
         if (metadataService.isManagedInstanceField(owner, name)) {
             switch (opcode) {
                 case GETFIELD:
-                    atomicObjectOnTopToTranlocal(owner);
+                    atomicObjectOnTopToTranlocal(owner, "loadReadonly");
                     mv.visitFieldInsn(GETFIELD, tranlocalName, name, valueDesc);
                     break;
                 case PUTFIELD:
@@ -55,7 +59,7 @@ public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements
                         //[owner(atomicobject), value(category1),..
                     }
 
-                    atomicObjectOnTopToTranlocal(owner);
+                    atomicObjectOnTopToTranlocal(owner, "load");
 
                     Label continueWithPut = new Label();
                     mv.visitInsn(DUP);
@@ -83,6 +87,11 @@ public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements
                     mv.visitInsn(ATHROW);
                     mv.visitLabel(continueWithPut);
 
+                    //the write barrier marks the tranlocal as dirty.
+                    mv.visitInsn(DUP);
+                    mv.visitInsn(ICONST_1);
+                    mv.visitFieldInsn(PUTFIELD, tranlocalName, "___dirty", "Z");
+
                     //[value(atomicobject), owner(tranlocal),..
 
                     if (isCategory2(valueDesc)) {
@@ -117,7 +126,7 @@ public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements
         //System.out.println("end "+owner+"."+name+" opcode="+opcode);
     }
 
-    private void atomicObjectOnTopToTranlocal(String atomicObjectName) {
+    private void atomicObjectOnTopToTranlocal(String atomicObjectName, String loadMethod) {
         if (atomicObjectName.contains("__")) {
             throw new RuntimeException("No generated classes are allowed: " + atomicObjectName);
         }
@@ -135,7 +144,7 @@ public class AtomicObjectRemappingMethodAdapter extends MethodAdapter implements
         super.visitMethodInsn(
                 INVOKEINTERFACE,
                 getInternalName(AlphaTransaction.class),
-                "load",
+                loadMethod,
                 format("(%s)%s", getDescriptor(AlphaAtomicObject.class), getDescriptor(AlphaTranlocal.class)));
 
         String tranlocalName = metadataService.getTranlocalName(atomicObjectName);
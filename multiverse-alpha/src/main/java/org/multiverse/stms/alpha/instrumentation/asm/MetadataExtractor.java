@@ -26,6 +26,7 @@ public final class MetadataExtractor implements Opcodes {
     private boolean isRealAtomicObject = false;
     private boolean isAtomicObject = false;
     private boolean hasAtomicMethods = false;
+    private boolean hasFieldGroups = false;
     private ClassNode classNode;
     private MetadataRepository metadataRepository;
 
@@ -47,6 +48,7 @@ public final class MetadataExtractor implements Opcodes {
         metadataRepository.setIsAtomicObject(classNode, isAtomicObject);
         metadataRepository.setIsRealAtomicObject(classNode, isRealAtomicObject);
         metadataRepository.setHasAtomicMethods(classNode, hasAtomicMethods);
+        metadataRepository.setHasFieldGroups(classNode, hasFieldGroups);
 
         if (isRealAtomicObject) {
             metadataRepository.setTranlocalName(classNode, classNode.name + "__Tranlocal");
@@ -73,6 +75,14 @@ public final class MetadataExtractor implements Opcodes {
         }
 
         metadataRepository.setIsManagedInstanceField(classNode, field, isManagedField);
+
+        if (isManagedField) {
+            String fieldGroup = getFieldGroup(field);
+            if (fieldGroup != null) {
+                hasFieldGroups = true;
+                metadataRepository.setFieldGroup(classNode, field, fieldGroup);
+            }
+        }
     }
 
     /**
@@ -139,6 +149,7 @@ public final class MetadataExtractor implements Opcodes {
         AtomicMethodParams params = new AtomicMethodParams();
         params.retryCount = 1000;
         params.familyName = createDefaultFamilyName(method);
+        params.propagationLevel = PropagationLevel.requires;
         return params;
     }
 
@@ -150,8 +161,12 @@ public final class MetadataExtractor implements Opcodes {
         params.familyName = (String) getValue(atomicMethodAnnotation, "familyName", createDefaultFamilyName(method));
         params.retryCount = (Integer) getValue(atomicMethodAnnotation, "retryCount", 1000);
 
-        params.propagationLevel = (PropagationLevel) getValue(
-                atomicMethodAnnotation, "propagationLevel", params.propagationLevel);
+        //asm stores an enum value as a {descriptor, name} array.
+        String[] propagationLevel = (String[]) getValue(atomicMethodAnnotation, "propagationLevel", null);
+        params.propagationLevel = propagationLevel == null
+                ? PropagationLevel.requires
+                : PropagationLevel.valueOf(propagationLevel[1]);
+        params.irrevocable = (Boolean) getValue(atomicMethodAnnotation, "irrevocable", false);
         return params;
     }
 
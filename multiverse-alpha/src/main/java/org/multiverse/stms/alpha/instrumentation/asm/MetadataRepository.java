@@ -136,6 +136,43 @@ public final class MetadataRepository {
         putBoolean(managedField, key);
     }
 
+    public void setFieldGroup(ClassNode atomicObject, FieldNode field, String fieldGroup) {
+        String key = "FieldGroup#" + atomicObject.name + "." + field.name;
+        infoMap.put(key, fieldGroup);
+    }
+
+    /**
+     * Returns the name of the field group of a managed field, or null if the field is part of the default field
+     * group.
+     *
+     * @param atomicObjectName the name of the atomic object.
+     * @param fieldName        the name of the field.
+     * @return the name of the field group.
+     */
+    public String getFieldGroup(String atomicObjectName, String fieldName) {
+        ensureMetadataExtracted(atomicObjectName);
+        String key = "FieldGroup#" + atomicObjectName + "." + fieldName;
+        return (String) infoMap.get(key);
+    }
+
+    public void setHasFieldGroups(ClassNode atomicObject, boolean hasFieldGroups) {
+        String key = "HasFieldGroups#" + atomicObject.name;
+        putBoolean(hasFieldGroups, key);
+    }
+
+    /**
+     * Checks if conflicts on the atomic object are detected per field group instead of per object. See the {@link
+     * org.multiverse.api.annotations.FieldGroup}.
+     *
+     * @param atomicObject the atomic object.
+     * @return true if the atomic object has field groups, false otherwise.
+     */
+    public boolean hasFieldGroups(ClassNode atomicObject) {
+        ensureMetadataExtracted(atomicObject.name);
+        String key = "HasFieldGroups#" + atomicObject.name;
+        return getPrepareInfoAsBoolean(key);
+    }
+
     public boolean hasManagedInstanceFields(ClassNode atomicObject) {
         return isRealAtomicObject(atomicObject.name);
     }
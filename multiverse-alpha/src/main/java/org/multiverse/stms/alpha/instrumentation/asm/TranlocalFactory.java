@@ -15,8 +15,11 @@ import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
 import static java.lang.String.format;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A factory responsible for creating the {@link AlphaTranlocal} class based on an {@link AlphaAtomicObject}.
@@ -59,6 +62,10 @@ public final class TranlocalFactory implements Opcodes {
         result.methods.add(createTakeSnapshotMethod());
         result.methods.add(createInitialConstructor());
 
+        if (metadataService.hasFieldGroups(atomicObject)) {
+            result.methods.add(createRebaseMethod());
+        }
+
         return result;
     }
 
@@ -210,7 +217,7 @@ public final class TranlocalFactory implements Opcodes {
         m.visitJumpInsn(IFEQ, failure);
         m.visitFieldInsn(GETSTATIC,
                          getInternalName(DirtinessStatus.class),
-                         "committed",
+                         "readonly",
                          getDescriptor(DirtinessStatus.class));
         m.visitInsn(ARETURN);
 
@@ -226,7 +233,20 @@ public final class TranlocalFactory implements Opcodes {
                          getDescriptor(DirtinessStatus.class));
         m.visitInsn(ARETURN);
 
-        //check on arguments
+        //check on the dirty flag set by the write barrier, a tranlocal that has not been written is clean without
+        //comparing the fields.
+        m.visitLabel(failure);
+        m.visitVarInsn(ALOAD, 0);
+        m.visitFieldInsn(GETFIELD, tranlocalName, "___dirty", "Z");
+        failure = new Label();
+        m.visitJumpInsn(IFNE, failure);
+        m.visitFieldInsn(GETSTATIC,
+                         getInternalName(DirtinessStatus.class),
+                         "clean",
+                         getDescriptor(DirtinessStatus.class));
+        m.visitInsn(ARETURN);
+
+        //check on arguments, a field that has been written back to its original value is not seen as a change.
         for (FieldNode managedField : metadataService.getManagedInstanceFields(atomicObject)) {
             m.visitLabel(failure);
             m.visitVarInsn(ALOAD, 0);
@@ -236,38 +256,11 @@ public final class TranlocalFactory implements Opcodes {
             m.visitFieldInsn(GETFIELD, tranlocalName, managedField.name, managedField.desc);
 
             failure = new Label();
-            switch (getType(managedField.desc).getSort()) {
-                case Type.BOOLEAN:
-                case Type.BYTE:
-                case Type.CHAR:
-                case Type.SHORT:
-                case Type.INT:
-                    m.visitJumpInsn(IF_ICMPEQ, failure);
-                    break;
-                case Type.FLOAT:
-                    m.visitInsn(FCMPL);
-                    m.visitJumpInsn(IFEQ, failure);
-                    break;
-                case Type.LONG:
-                    m.visitInsn(LCMP);
-                    m.visitJumpInsn(IFEQ, failure);
-                    break;
-                case Type.DOUBLE:
-                    m.visitInsn(DCMPL);
-                    m.visitJumpInsn(IFEQ, failure);
-                    break;
-                case Type.OBJECT:
-                    //fall through
-                case Type.ARRAY:
-                    m.visitJumpInsn(IF_ACMPEQ, failure);
-                    break;
-                default:
-                    throw new RuntimeException("Unhandled type: " + managedField.desc);
-            }
+            visitJumpIfEqual(m, managedField, failure);
 
             m.visitFieldInsn(GETSTATIC,
                              getInternalName(DirtinessStatus.class),
-                             "fresh",
+                             "dirty",
                              getDescriptor(DirtinessStatus.class));
             m.visitInsn(ARETURN);
         }
@@ -284,6 +277,187 @@ public final class TranlocalFactory implements Opcodes {
         return m;
     }
 
+    /**
+     * Adds the instructions that compare the 2 values of the field on top of the stack, and jump to the label if they
+     * are equal.
+     *
+     * @param m     the MethodNode to add the instructions to.
+     * @param field the field that is compared.
+     * @param equal the Label to jump to if the values are equal.
+     */
+    private static void visitJumpIfEqual(MethodNode m, FieldNode field, Label equal) {
+        switch (getType(field.desc).getSort()) {
+            case Type.BOOLEAN:
+            case Type.BYTE:
+            case Type.CHAR:
+            case Type.SHORT:
+            case Type.INT:
+                m.visitJumpInsn(IF_ICMPEQ, equal);
+                break;
+            case Type.FLOAT:
+                m.visitInsn(FCMPL);
+                m.visitJumpInsn(IFEQ, equal);
+                break;
+            case Type.LONG:
+                m.visitInsn(LCMP);
+                m.visitJumpInsn(IFEQ, equal);
+                break;
+            case Type.DOUBLE:
+                m.visitInsn(DCMPL);
+                m.visitJumpInsn(IFEQ, equal);
+                break;
+            case Type.OBJECT:
+                //fall through
+            case Type.ARRAY:
+                m.visitJumpInsn(IF_ACMPEQ, equal);
+                break;
+            default:
+                throw new RuntimeException("Unhandled type: " + field.desc);
+        }
+    }
+
+    /**
+     * Groups the managed fields on field group. The fields without field group together form the default group.
+     *
+     * @return the field groups.
+     */
+    private Collection<List<FieldNode>> getFieldGroups() {
+        Map<String, List<FieldNode>> groups = new LinkedHashMap<String, List<FieldNode>>();
+        for (FieldNode managedField : metadataService.getManagedInstanceFields(atomicObject)) {
+            String groupName = metadataService.getFieldGroup(atomicObject.name, managedField.name);
+            if (groupName == null) {
+                groupName = "";
+            }
+
+            List<FieldNode> group = groups.get(groupName);
+            if (group == null) {
+                group = new LinkedList<FieldNode>();
+                groups.put(groupName, group);
+            }
+            group.add(managedField);
+        }
+        return groups.values();
+    }
+
+    /**
+     * Creates the {@link AlphaTranlocal#rebase(AlphaTranlocal)} method for an atomic object with field groups. The
+     * generated code looks like this:
+     * <pre>
+     * public boolean rebase(AlphaTranlocal newerTranlocal){
+     *     Tranlocal newer = (Tranlocal)newerTranlocal;
+     *     Tranlocal origin = ___origin;
+     *     if(origin == null) return false;
+     *
+     *     //for every field group
+     *     boolean groupWritten = field1!=origin.field1 || field2!=origin.field2 ...;
+     *     if(groupWritten && (newer.field1!=origin.field1 || newer.field2!=origin.field2 ...)) return false;
+     *
+     *     //for every field group
+     *     if(!groupWritten){ field1 = newer.field1; field2 = newer.field2 ...}
+     *
+     *     ___origin = newer;
+     *     return true;
+     * }
+     * </pre>
+     *
+     * @return the created MethodNode.
+     */
+    private MethodNode createRebaseMethod() {
+        MethodNode m = new MethodNode(
+                ACC_PUBLIC + ACC_SYNTHETIC,
+                "rebase",
+                format("(%s)Z", getDescriptor(AlphaTranlocal.class)),
+                null,
+                new String[]{});
+
+        String tranlocalDesc = internalFormToDescriptor(tranlocalName);
+        int newerVar = 2;
+        int originVar = 3;
+        int firstGroupVar = 4;
+
+        m.visitVarInsn(ALOAD, 1);
+        m.visitTypeInsn(CHECKCAST, tranlocalName);
+        m.visitVarInsn(ASTORE, newerVar);
+
+        m.visitVarInsn(ALOAD, 0);
+        m.visitFieldInsn(GETFIELD, tranlocalName, "___origin", tranlocalDesc);
+        m.visitVarInsn(ASTORE, originVar);
+
+        //a fresh tranlocal can't be rebased.
+        Label hasOrigin = new Label();
+        m.visitVarInsn(ALOAD, originVar);
+        m.visitJumpInsn(IFNONNULL, hasOrigin);
+        m.visitInsn(ICONST_0);
+        m.visitInsn(IRETURN);
+        m.visitLabel(hasOrigin);
+
+        Collection<List<FieldNode>> groups = getFieldGroups();
+
+        //detect the written groups and fail if a written group also has been changed by the newer tranlocal.
+        int groupVar = firstGroupVar;
+        for (List<FieldNode> group : groups) {
+            m.visitInsn(ICONST_0);
+            m.visitVarInsn(ISTORE, groupVar);
+
+            Label groupWritten = new Label();
+            Label groupDone = new Label();
+            for (FieldNode field : group) {
+                Label fieldEqual = new Label();
+                m.visitVarInsn(ALOAD, 0);
+                m.visitFieldInsn(GETFIELD, tranlocalName, field.name, field.desc);
+                m.visitVarInsn(ALOAD, originVar);
+                m.visitFieldInsn(GETFIELD, tranlocalName, field.name, field.desc);
+                visitJumpIfEqual(m, field, fieldEqual);
+                m.visitJumpInsn(GOTO, groupWritten);
+                m.visitLabel(fieldEqual);
+            }
+            m.visitJumpInsn(GOTO, groupDone);
+
+            m.visitLabel(groupWritten);
+            m.visitInsn(ICONST_1);
+            m.visitVarInsn(ISTORE, groupVar);
+            for (FieldNode field : group) {
+                Label fieldEqual = new Label();
+                m.visitVarInsn(ALOAD, newerVar);
+                m.visitFieldInsn(GETFIELD, tranlocalName, field.name, field.desc);
+                m.visitVarInsn(ALOAD, originVar);
+                m.visitFieldInsn(GETFIELD, tranlocalName, field.name, field.desc);
+                visitJumpIfEqual(m, field, fieldEqual);
+                m.visitInsn(ICONST_0);
+                m.visitInsn(IRETURN);
+                m.visitLabel(fieldEqual);
+            }
+
+            m.visitLabel(groupDone);
+            groupVar++;
+        }
+
+        //copy the groups that are not written from the newer tranlocal.
+        groupVar = firstGroupVar;
+        for (List<FieldNode> group : groups) {
+            Label skip = new Label();
+            m.visitVarInsn(ILOAD, groupVar);
+            m.visitJumpInsn(IFNE, skip);
+            for (FieldNode field : group) {
+                m.visitVarInsn(ALOAD, 0);
+                m.visitVarInsn(ALOAD, newerVar);
+                m.visitFieldInsn(GETFIELD, tranlocalName, field.name, field.desc);
+                m.visitFieldInsn(PUTFIELD, tranlocalName, field.name, field.desc);
+            }
+            m.visitLabel(skip);
+            groupVar++;
+        }
+
+        m.visitVarInsn(ALOAD, 0);
+        m.visitVarInsn(ALOAD, newerVar);
+        m.visitFieldInsn(PUTFIELD, tranlocalName, "___origin", tranlocalDesc);
+        m.visitInsn(ICONST_1);
+        m.visitInsn(IRETURN);
+        m.visitMaxs(0, 0);//value's don't matter, will be reculculated, but call is needed
+        m.visitEnd();
+        return m;
+    }
+
     private MethodNode createTakeSnapshotMethod() {
         MethodNode m = new MethodNode(
                 ACC_PUBLIC + ACC_SYNTHETIC,
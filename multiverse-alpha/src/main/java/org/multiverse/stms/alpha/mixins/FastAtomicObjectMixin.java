@@ -9,10 +9,14 @@ import org.multiverse.stms.alpha.AlphaAtomicObject;
 import static org.multiverse.stms.alpha.AlphaStmUtils.toAtomicObjectString;
 import org.multiverse.stms.alpha.AlphaTranlocal;
 import org.multiverse.utils.Listeners;
+import org.multiverse.utils.clock.Clock;
+import static org.multiverse.utils.commitlock.CommitLockUtils.nextLockId;
 import org.multiverse.utils.latches.Latch;
 
 import static java.lang.String.format;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Base AlphaAtomicObject implementation that also can be used to transplant methods from during instrumentation.
@@ -34,13 +38,73 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
     private final static AtomicReferenceFieldUpdater<FastAtomicObjectMixin, Listeners> ___LISTENERS_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(FastAtomicObjectMixin.class, Listeners.class, "___listeners");
 
+    private final static AtomicLongFieldUpdater<FastAtomicObjectMixin> ___LOCKID_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(FastAtomicObjectMixin.class, "___lockId");
+
+    //the maximum number of times a load yields while a pending tranlocal of a lock free commit is completed.
+    private final static int ___MAX_PENDING_YIELDS = 16;
+
+    //the time a lock owner parks while a pending tranlocal still is not completed after ___MAX_PENDING_YIELDS yields.
+    private final static long ___PENDING_PARK_NS = 10000;
+
     private volatile Transaction ___lockOwner;
     private volatile AlphaTranlocal ___tranlocal;
     private volatile Listeners ___listeners;
+    //0 indicates that no lock id has been assigned yet.
+    private volatile long ___lockId;
+    //null indicates that the atomic object is not bound to a domain yet (nothing has been committed).
+    private volatile Clock ___domainClock;
 
     @Override
     public AlphaTranlocal ___load() {
-        return ___TRANLOCAL_UPDATER.get(this);
+        AlphaTranlocal tranlocal = ___awaitPending();
+
+        if (tranlocal != null && tranlocal.___writeVersion == 0) {
+            //the lock free commit didn't complete in time, so the atomic object is treated like it is locked.
+            if (LoadLockedException.reuse) {
+                throw LoadLockedException.INSTANCE;
+            } else {
+                String msg = format("Failed to load atomicobject '%s' with a pending commit",
+                                    toAtomicObjectString(this));
+                throw new LoadLockedException(msg);
+            }
+        }
+
+        return tranlocal;
+    }
+
+    @Override
+    public final AlphaTranlocal ___loadWhileLocked() {
+        //a pending tranlocal that is seen while the lock is hold, is revoked as soon as the committer notices the lock,
+        //or completed if it was published before the lock was acquired. Either way the committer doesn't wait for
+        //anything, so lets wait for it. If the committer is descheduled, the waiting thread parks instead of burning
+        //cpu that the committer could use.
+        AlphaTranlocal tranlocal = ___awaitPending();
+        while (tranlocal != null && tranlocal.___writeVersion == 0) {
+            LockSupport.parkNanos(___PENDING_PARK_NS);
+            tranlocal = ___TRANLOCAL_UPDATER.get(this);
+        }
+
+        return tranlocal;
+    }
+
+    /**
+     * Returns the current tranlocal. A tranlocal without a write version is published by a lock free commit that has
+     * not completed yet (see ___tryPublishPending). The committer still needs to tick the clock and link the history
+     * before it completes or revokes it, so the pending tranlocal is waited for, but only a bounded number of times:
+     * if the committer is descheduled, the readers should not stall with it.
+     *
+     * @return the current tranlocal, it has no write version if the pending commit didn't complete in time.
+     */
+    private AlphaTranlocal ___awaitPending() {
+        AlphaTranlocal tranlocal = ___TRANLOCAL_UPDATER.get(this);
+
+        for (int k = 0; k < ___MAX_PENDING_YIELDS && tranlocal != null && tranlocal.___writeVersion == 0; k++) {
+            Thread.yield();
+            tranlocal = ___TRANLOCAL_UPDATER.get(this);
+        }
+
+        return tranlocal;
     }
 
     @Override
@@ -49,7 +113,7 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
             throw LoadLockedException.INSTANCE;
         }
 
-        AlphaTranlocal tranlocalTime1 = ___TRANLOCAL_UPDATER.get(this);
+        AlphaTranlocal tranlocalTime1 = ___load();
 
         if (tranlocalTime1 == null) {
             //a read is done, but there is no committed data. Lets return null.
@@ -73,8 +137,14 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
             //we are lucky, the tranlocal is exactly the one we are looking for.
             return tranlocalTime1;
         } else if (tranlocalTime1.___writeVersion > readVersion) {
-            //the current tranlocal it too new to return, so we fail. In the future this would
-            //be the location to search for tranlocal with the correct version.
+            //the current tranlocal it too new to return, so lets search the history for the tranlocal
+            //with the correct version. The lock doesn't matter here: a pending write is going to be
+            //even newer than the current tranlocal.
+            AlphaTranlocal found = tranlocalTime1.findCommittedAt(readVersion);
+            if (found != null) {
+                return found;
+            }
+
             if (LoadTooOldVersionException.reuse) {
                 throw LoadTooOldVersionException.INSTANCE;
             } else {
@@ -97,7 +167,7 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
                 }
             }
 
-            AlphaTranlocal tranlocalTime2 = ___TRANLOCAL_UPDATER.get(this);
+            AlphaTranlocal tranlocalTime2 = ___load();
             boolean otherWritesHaveBeenExecuted = tranlocalTime2 != tranlocalTime1;
             if (otherWritesHaveBeenExecuted) {
                 //if the tranlocal has changed, lets check if the new tranlocal has exactly the
@@ -106,6 +176,15 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
                     return tranlocalTime2;
                 }
 
+                //if tranlocalT2 is too new, the history of tranlocalT2 contains the writes we didn't notice.
+                //So if the version is still in the history, it can be used.
+                if (tranlocalTime2.___writeVersion > readVersion) {
+                    AlphaTranlocal found = tranlocalTime2.findCommittedAt(readVersion);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+
                 //we were not able to find the version we are looking for. It could be tranlocalT1
                 //or tranlocalT2 but it could also have been a write we didn't notice. So lets
                 //fails to indicate that we didn't find it.
@@ -124,6 +203,32 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
         }
     }
 
+    @Override
+    public final long ___getLockId() {
+        long lockId = ___LOCKID_UPDATER.get(this);
+        if (lockId != 0) {
+            return lockId;
+        }
+
+        //the id is assigned lazily because the constructor of the mixin is not copied. If another thread assigns an
+        //id concurrently, the cas fails and its id is used.
+        ___LOCKID_UPDATER.compareAndSet(this, 0, nextLockId());
+        return ___LOCKID_UPDATER.get(this);
+    }
+
+    @Override
+    public final Clock ___getDomainClock() {
+        return ___domainClock;
+    }
+
+    @Override
+    public final void ___bindDomainClock(Clock clock) {
+        //only the committer that owns the lock (or the published pending tranlocal) binds, so no cas is needed.
+        if (___domainClock == null) {
+            ___domainClock = clock;
+        }
+    }
+
     @Override
     public final Transaction ___getLockOwner() {
         return ___lockOwner;
@@ -177,7 +282,13 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
         //tranlocal, and the read on the tranlocal.
         tranlocal.prepareForCommit(writeVersion);
 
-        ___TRANLOCAL_UPDATER.set(this, tranlocal);
+        //the lock prevents other commits, except a lock free commit that published its pending tranlocal before it
+        //noticed the lock. That one is going to be revoked, so the store can't overwrite it: the ___loadWhileLocked
+        //waits for the revoke and the cas only succeeds on the committed tranlocal that was validated.
+        AlphaTranlocal expected;
+        do {
+            expected = ___loadWhileLocked();
+        } while (!___TRANLOCAL_UPDATER.compareAndSet(this, expected, tranlocal));
 
         //it is important that the listeners are removed after the tranlocal write en before the lockrelease.
         Listeners listeners = ___LISTENERS_UPDATER.getAndSet(this, null);
@@ -188,9 +299,64 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
         return listeners;
     }
 
+    @Override
+    public final boolean ___tryPublishPending(AlphaTranlocal expected, AlphaTranlocal pending) {
+        if (SANITY_CHECKS_ENABLED) {
+            if (pending.___writeVersion != 0) {
+                String msg = format("The pending tranlocal of atomicObject '%s' already is committed",
+                                    toAtomicObjectString(this));
+                throw new PanicError(msg);
+            }
+        }
+
+        //a locked atomic object is not disturbed with a pending tranlocal the lock owner would need to wait for.
+        if (___LOCKOWNER_UPDATER.get(this) != null) {
+            return false;
+        }
+
+        if (!___TRANLOCAL_UPDATER.compareAndSet(this, expected, pending)) {
+            return false;
+        }
+
+        //the lock needs to be checked after the pending tranlocal is published. A transaction that acquires the
+        //lock after this check is going to see the pending tranlocal when it checks for conflicts. A transaction
+        //that acquired the lock before, could already have done its conflict check, so we need to back off. Its
+        //store waits until the pending tranlocal is revoked, so the lock still is hold.
+        if (___LOCKOWNER_UPDATER.get(this) != null) {
+            ___revokePending(expected, pending);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public final void ___revokePending(AlphaTranlocal expected, AlphaTranlocal pending) {
+        //only the committer that published the pending tranlocal revokes it, and nobody can replace it, so the cas
+        //only fails if it already has been revoked.
+        ___TRANLOCAL_UPDATER.compareAndSet(this, pending, expected);
+    }
+
+    @Override
+    public final Listeners ___commitPending(AlphaTranlocal pending, long writeVersion) {
+        pending.prepareForCommit(writeVersion);
+
+        //the tranlocal is written again, so that the write version is visible to the loads waiting for it. It is a
+        //cas so that a tranlocal that replaced the pending one never is overwritten: as soon as the write version is
+        //set, the tranlocal is committed, and a transaction that has read it could already have stored a newer one.
+        ___TRANLOCAL_UPDATER.compareAndSet(this, pending, pending);
+
+        return ___LISTENERS_UPDATER.getAndSet(this, null);
+    }
+
     @Override
     public final boolean ___registerRetryListener(Latch listener, long minimumWakeupVersion) {
-        AlphaTranlocal tranlocalT1 = ___TRANLOCAL_UPDATER.get(this);
+        AlphaTranlocal tranlocalT1 = ___awaitPending();
+        if (tranlocalT1 != null && tranlocalT1.___writeVersion == 0) {
+            //a lock free commit is in progress. If it is revoked instead, the transaction only is restarted too early.
+            listener.open();
+            return true;
+        }
 
         //could it be that a locked value is read? (YES, can happen) A value that will be updated,
         //but isn't updated yet.. consequence: the listener tries to register a listener.
@@ -222,8 +388,14 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
                 if (!placedListener) {
                     //it could be that another transaction did a register, but it also could mean
                     //that a write occurred.
-                    AlphaTranlocal tranlocalT2 = ___TRANLOCAL_UPDATER.get(this);
+                    AlphaTranlocal tranlocalT2 = ___awaitPending();
                     if (tranlocalT1 != tranlocalT2) {
+                        if (tranlocalT2.___writeVersion == 0) {
+                            //a lock free commit is in progress.
+                            listener.open();
+                            return true;
+                        }
+
                         //we are not sure when the registration took place, but a new version is available.
 
                         if (SANITY_CHECKS_ENABLED) {
@@ -255,9 +427,9 @@ public abstract class FastAtomicObjectMixin implements AlphaAtomicObject, Multiv
                 }
             } while (!placedListener);
 
-            AlphaTranlocal tranlocalT2 = ___TRANLOCAL_UPDATER.get(this);
+            AlphaTranlocal tranlocalT2 = ___awaitPending();
             if (tranlocalT1 != tranlocalT2) {
-                if (SANITY_CHECKS_ENABLED) {
+                if (SANITY_CHECKS_ENABLED && tranlocalT2.___writeVersion != 0) {
                     //we are not sure when the registration took place, but a new version is available.
                     if (tranlocalT2.___writeVersion < minimumWakeupVersion) {
                         String msg = format(
@@ -0,0 +1,114 @@
+package org.multiverse.benchmarks;
+
+import org.benchy.TestCaseResult;
+import org.benchy.executor.AbstractBenchmarkDriver;
+import org.benchy.executor.TestCase;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.clock.Clock;
+import org.multiverse.utils.clock.RelaxedClock;
+import org.multiverse.utils.clock.SharedTickClock;
+import org.multiverse.utils.clock.StrictClock;
+
+/**
+ * A {@link org.benchy.executor.BenchmarkDriver} that measures how well update transactions scale when the only thing
+ * they share is the clock: every thread increments its own IntRef. Without the clock, the throughput would grow
+ * linearly with the number of threads (as long as there are enough cores), so the difference between the clocks shows
+ * the cost of the clock cache line.
+ * <p/>
+ * The following testcase properties are used:
+ * <ol>
+ * <li>threadCount: the number of threads</li>
+ * <li>transactionCount: the number of transactions per thread</li>
+ * <li>clock: strict, relaxed or sharedtick</li>
+ * </ol>
+ * Example benchmark (run it for 1 up to the number of cores):
+ * <pre>
+ * {"benchmarkName":"clock_scalability",
+ *  "driverClass":"org.multiverse.benchmarks.ClockScalabilityDriver",
+ *  "testcases":[
+ *      {"runCount":"3", "warmupRunCount":"1", "threadCount":"16", "transactionCount":"5000000", "clock":"strict"},
+ *      {"runCount":"3", "warmupRunCount":"1", "threadCount":"16", "transactionCount":"5000000", "clock":"sharedtick"}
+ *  ]}
+ * </pre>
+ *
+ * @author Peter Veentjer
+ */
+public class ClockScalabilityDriver extends AbstractBenchmarkDriver {
+
+    private AlphaStm stm;
+    private int threadCount;
+    private int transactionCount;
+    private IncThread[] threads;
+
+    @Override
+    public void preRun(TestCase testCase) {
+        threadCount = testCase.getIntProperty("threadCount");
+        transactionCount = testCase.getIntProperty("transactionCount");
+
+        AlphaStmConfig config = AlphaStmConfig.createFastConfig();
+        config.clock = createClock(testCase.getProperty("clock"));
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+
+        threads = new IncThread[threadCount];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new IncThread(k);
+        }
+    }
+
+    private static Clock createClock(String name) {
+        if ("strict".equals(name)) {
+            return new StrictClock();
+        } else if ("relaxed".equals(name)) {
+            return new RelaxedClock();
+        } else if ("sharedtick".equals(name)) {
+            return new SharedTickClock();
+        } else {
+            throw new IllegalArgumentException("unknown clock " + name);
+        }
+    }
+
+    @Override
+    public void run() {
+        startAll(threads);
+        joinAll(threads);
+    }
+
+    @Override
+    public void postRun(TestCaseResult caseResult) {
+        long transactions = (long) threadCount * transactionCount;
+        long durationNs = caseResult.getLongProperty("duration(ns)");
+        double transactionsPerSecond = (transactions * 1000d * 1000 * 1000) / durationNs;
+        caseResult.put("transactions/second", transactionsPerSecond);
+        caseResult.put("transactions/second/thread", transactionsPerSecond / threadCount);
+        //the number of ticks that were not shared.
+        caseResult.put("clockTime", stm.getTime());
+    }
+
+    class IncThread extends TestThread {
+
+        private final IntRef ref = new IntRef(0);
+
+        IncThread(int id) {
+            super("IncThread-" + id);
+        }
+
+        @Override
+        public void doRun() {
+            for (int k = 0; k < transactionCount; k++) {
+                AlphaTransaction t = stm.startUpdateTransaction("inc");
+                IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+                ref.inc(tranlocal);
+                t.commit();
+            }
+        }
+    }
+}
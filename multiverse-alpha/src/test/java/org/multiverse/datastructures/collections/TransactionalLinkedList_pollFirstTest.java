@@ -1,7 +1,9 @@
 package org.multiverse.datastructures.collections;
 
 import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
@@ -9,6 +11,7 @@ import org.multiverse.api.Stm;
 import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
 
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.TimeUnit;
 
 public class TransactionalLinkedList_pollFirstTest {
 
@@ -58,4 +61,58 @@ public class TransactionalLinkedList_pollFirstTest {
         assertEquals(1, deque.size());
         assertEquals("[2]", deque.toString());
     }
+
+    @Test
+    public void pollFirstWithTimeoutFromEmptyDequeTimesOut() throws InterruptedException {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+
+        long version = stm.getTime();
+        long startNs = System.nanoTime();
+        String result = deque.pollFirst(100, TimeUnit.MILLISECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+
+        assertNull(result);
+        assertTrue(elapsedMs >= 100);
+        assertEquals(version, stm.getTime());
+        assertEquals(0, deque.size());
+    }
+
+    @Test
+    public void pollFirstWithTimeoutFromDequeWithItems() throws InterruptedException {
+        BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+        deque.add("1");
+        deque.add("2");
+
+        long version = stm.getTime();
+        String result = deque.pollFirst(1, TimeUnit.SECONDS);
+        assertEquals("1", result);
+        assertEquals(version + 1, stm.getTime());
+        assertEquals("[2]", deque.toString());
+    }
+
+    @Test
+    public void pollFirstWithTimeoutIsInterruptible() throws InterruptedException {
+        final BlockingDeque<String> deque = new TransactionalLinkedList<String>();
+        final Throwable[] found = new Throwable[1];
+
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    deque.pollFirst(10, TimeUnit.SECONDS);
+                } catch (Throwable ex) {
+                    found[0] = ex;
+                }
+            }
+        };
+        thread.start();
+        thread.join(200);
+        assertTrue(thread.isAlive());
+
+        thread.interrupt();
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(found[0] instanceof InterruptedException);
+        assertEquals(0, deque.size());
+    }
 }
@@ -0,0 +1,90 @@
+package org.multiverse.datastructures.refs.manual;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that reading a Ref outside of a transaction doesn't create any objects (0 bytes per operation). The allocated
+ * bytes are measured with the allocation counter of the current thread, so the tests are skipped on a jvm that doesn't
+ * support it.
+ *
+ * @author Peter Veentjer
+ */
+public class Ref_allocationTest {
+
+    private static final int OPERATIONS = 100000;
+
+    //is null if the jvm doesn't support the allocation counter.
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    @Before
+    public void setUp() {
+        setGlobalStmInstance(new AlphaStm(AlphaStmConfig.createFastConfig()));
+        setThreadLocalTransaction(null);
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadMXBean = (com.sun.management.ThreadMXBean) bean;
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void getDoesNotAllocate() {
+        if (threadMXBean == null) {
+            return;
+        }
+
+        final Ref<String> ref = new Ref<String>("foo");
+
+        assertEquals(0, bytesPerOperation(new Runnable() {
+            public void run() {
+                ref.get();
+            }
+        }));
+    }
+
+    @Test
+    public void isNullDoesNotAllocate() {
+        if (threadMXBean == null) {
+            return;
+        }
+
+        final Ref<String> ref = new Ref<String>("foo");
+
+        assertEquals(0, bytesPerOperation(new Runnable() {
+            public void run() {
+                ref.isNull();
+            }
+        }));
+    }
+
+    private long bytesPerOperation(Runnable operation) {
+        //warm up, so that lazy initialization (e.g. of threadlocals) is not measured.
+        for (int k = 0; k < OPERATIONS; k++) {
+            operation.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int k = 0; k < OPERATIONS; k++) {
+            operation.run();
+        }
+        long after = threadMXBean.getThreadAllocatedBytes(threadId);
+        return (after - before) / OPERATIONS;
+    }
+}
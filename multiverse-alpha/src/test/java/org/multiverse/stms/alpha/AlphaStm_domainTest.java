@@ -0,0 +1,202 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.LoadTooOldVersionException;
+import org.multiverse.api.exceptions.WriteConflictException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.clock.Clock;
+import org.multiverse.utils.clock.StrictClock;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AlphaStm_domainTest {
+
+    private AlphaStm stm;
+    private Clock domainClock;
+    private AlphaStm domain;
+
+    @Before
+    public void setUp() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.maxHistoryDepth = 2;
+        stm = new AlphaStm(config);
+        domainClock = new StrictClock();
+        domain = stm.createDomain(domainClock);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void createDomainWithNullClockFails() {
+        stm.createDomain(null);
+    }
+
+    @Test
+    public void createDomain() {
+        assertSame(domainClock, domain.getClock());
+        assertNotSame(stm.getClock(), domain.getClock());
+        assertEquals(2, domain.getMaxHistoryDepth());
+        assertSame(stm.getProfiler(), domain.getProfiler());
+    }
+
+    @Test
+    public void atomicObjectIsBoundToDomainOfFirstCommit() {
+        IntRef ref = createRef(domain, 10);
+        assertSame(domainClock, ref.___getDomainClock());
+
+        IntRef uncommitted = IntRef.createUncommitted();
+        assertNull(uncommitted.___getDomainClock());
+    }
+
+    @Test
+    public void commitDoesNotTickClockOfOtherDomain() {
+        IntRef ref = createRef(domain, 10);
+        long version = stm.getTime();
+        long domainVersion = domain.getTime();
+
+        inc(domain, ref);
+
+        assertEquals(version, stm.getTime());
+        assertEquals(domainVersion + 1, domain.getTime());
+        assertEquals(domain.getTime(), ref.___load().___writeVersion);
+    }
+
+    @Test
+    public void readonlyTransactionIsNotInvalidatedByCommitInOtherDomain() {
+        IntRef ref = createRef(stm, 10);
+        IntRef domainRef = createRef(domain, 20);
+        IntRef otherDomainRef = createRef(domain, 30);
+
+        AlphaTransaction t = domain.startReadOnlyTransaction(null);
+        assertEquals(20, ((IntRefTranlocal) t.load(domainRef)).value);
+        inc(stm, ref);
+        assertEquals(30, ((IntRefTranlocal) t.load(otherDomainRef)).value);
+        t.commit();
+    }
+
+    @Test
+    public void crossDomainUpdateTransactionIsRestartedOnNewDomain() {
+        IntRef ref = createRef(stm, 10);
+        IntRef domainRef = createRef(domain, 20);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref);
+        try {
+            t.load(domainRef);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        IntRefTranlocal domainTranlocal = (IntRefTranlocal) t.load(domainRef);
+        tranlocal.value++;
+        domainTranlocal.value++;
+
+        long version = stm.getTime();
+        long domainVersion = domain.getTime();
+        long commitVersion = t.commit();
+
+        assertEquals(version + 1, commitVersion);
+        assertEquals(version + 1, ref.___load().___writeVersion);
+        assertEquals(domainVersion + 1, domainRef.___load().___writeVersion);
+        assertEquals(11, ((IntRefTranlocal) ref.___load()).value);
+        assertEquals(21, ((IntRefTranlocal) domainRef.___load()).value);
+    }
+
+    @Test
+    public void foreignDomainAsFirstLoadDoesNotRestart() {
+        IntRef ref = createRef(stm, 10);
+        IntRef domainRef = createRef(domain, 20);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t.load(domainRef)).value++;
+        t.load(ref);
+        t.commit();
+
+        assertEquals(21, ((IntRefTranlocal) domainRef.___load()).value);
+    }
+
+    @Test
+    public void crossDomainReadonlyTransactionIsRestartedOnNewDomain() {
+        IntRef ref = createRef(stm, 10);
+        IntRef domainRef = createRef(domain, 20);
+
+        AlphaTransaction t = stm.startReadOnlyTransaction(null);
+        t.load(ref);
+        try {
+            t.load(domainRef);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        assertEquals(10, ((IntRefTranlocal) t.load(ref)).value);
+        assertEquals(20, ((IntRefTranlocal) t.load(domainRef)).value);
+        t.commit();
+    }
+
+    @Test
+    public void crossDomainLoadDoesNotUseHistory() {
+        IntRef domainRef = createRef(domain, 20);
+        IntRef otherDomainRef = createRef(domain, 30);
+
+        //a transaction of the domain itself finds the old version in the history.
+        AlphaTransaction t = domain.startReadOnlyTransaction(null);
+        t.load(domainRef);
+        inc(domain, otherDomainRef);
+        assertEquals(30, ((IntRefTranlocal) t.load(otherDomainRef)).value);
+
+        t = stm.startReadOnlyTransaction(null);
+        t.load(domainRef);
+        inc(domain, otherDomainRef);
+        try {
+            t.load(otherDomainRef);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+    }
+
+    @Test
+    public void crossDomainWriteConflictIsDetected() {
+        IntRef domainRef = createRef(domain, 20);
+        IntRef otherDomainRef = createRef(domain, 30);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t.load(domainRef)).value++;
+        ((IntRefTranlocal) t.load(otherDomainRef)).value++;
+
+        inc(domain, domainRef);
+
+        try {
+            t.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+
+        assertEquals(21, ((IntRefTranlocal) domainRef.___load()).value);
+        assertEquals(30, ((IntRefTranlocal) otherDomainRef.___load()).value);
+    }
+
+    private IntRef createRef(AlphaStm stm, int value) {
+        setGlobalStmInstance(stm);
+        return new IntRef(value);
+    }
+
+    private void inc(AlphaStm stm, IntRef ref) {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t.load(ref)).value++;
+        t.commit();
+    }
+}
@@ -0,0 +1,186 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.clock.StrictClock;
+import org.multiverse.utils.commitlock.IrrevocableCommitGate;
+import org.multiverse.utils.latches.ParkingLatch;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AlphaStm_irrevocableTest {
+
+    private AlphaStm stm;
+    private IrrevocableCommitGate gate;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        gate = stm.getIrrevocableCommitGate();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void startIrrevocableTransactionAcquiresGate() {
+        AlphaTransaction t = stm.startIrrevocableTransaction(null);
+
+        assertIsActive(t);
+        assertTrue(gate.isOwner(t));
+        assertTrue(((AbstractUpdateAlphaTransaction) t).isIrrevocable());
+    }
+
+    @Test
+    public void readVersionIsSampledAfterGateIsAcquired() {
+        IntRef ref = new IntRef(0);
+        AlphaTransaction t = stm.startIrrevocableTransaction(null);
+
+        assertEquals(stm.getTime(), t.getReadVersion());
+        inc(t, ref);
+        t.commit();
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void commitReleasesGate() {
+        IntRef ref = new IntRef(0);
+        AlphaTransaction t = stm.startIrrevocableTransaction(null);
+        inc(t, ref);
+        t.commit();
+
+        assertIsCommitted(t);
+        assertNull(gate.getOwner());
+    }
+
+    @Test
+    public void abortReleasesGate() {
+        AlphaTransaction t = stm.startIrrevocableTransaction(null);
+        t.abort();
+
+        assertIsAborted(t);
+        assertNull(gate.getOwner());
+    }
+
+    @Test
+    public void abortAndRegisterRetryLatchReleasesGate() {
+        IntRef ref = new IntRef(0);
+        AlphaTransaction t = stm.startIrrevocableTransaction(null);
+        t.load(ref);
+        t.abortAndRegisterRetryLatch(new ParkingLatch());
+
+        assertIsAborted(t);
+        assertNull(gate.getOwner());
+    }
+
+    @Test
+    public void restartKeepsTransactionIrrevocable() {
+        AlphaTransaction t = stm.startIrrevocableTransaction(null);
+        t.abort();
+
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        assertIsActive(t);
+        assertTrue(gate.isOwner(t));
+    }
+
+    @Test
+    public void reusedTransactionIsNotIrrevocable() {
+        AlphaTransaction t = stm.startIrrevocableTransaction(null);
+        t.commit();
+        stm.returnTransaction(t);
+
+        AlphaTransaction reused = stm.startUpdateTransaction(null);
+        assertFalse(((AbstractUpdateAlphaTransaction) reused).isIrrevocable());
+        assertNull(gate.getOwner());
+    }
+
+    @Test
+    public void transactionWithoutWritesIsNotBlocked() {
+        IntRef ref = new IntRef(0);
+        AlphaTransaction irrevocable = stm.startIrrevocableTransaction(null);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref);
+        t.commit();
+
+        irrevocable.commit();
+    }
+
+    @Test
+    public void commitOfOtherTransactionWaitsUntilIrrevocableTransactionCompletes() {
+        IntRef ref = new IntRef(0);
+        AlphaTransaction irrevocable = stm.startIrrevocableTransaction(null);
+
+        IncThread thread = new IncThread(ref);
+        thread.start();
+
+        sleepMs(300);
+        assertTrue(thread.isAlive());
+        //the irrevocable transaction is not influenced by the waiting commit.
+        inc(irrevocable, ref);
+        irrevocable.commit();
+
+        joinAll(thread);
+        assertEquals(2, ref.get());
+    }
+
+    @Test
+    public void irrevocableTransactionCanTouchNewDomainAfterLoad() {
+        AlphaStm domain = stm.createDomain(new StrictClock());
+        assertSame(gate, domain.getIrrevocableCommitGate());
+
+        IntRef ref = new IntRef(0);
+        setGlobalStmInstance(domain);
+        IntRef domainRef = new IntRef(0);
+        setGlobalStmInstance(stm);
+
+        AlphaTransaction t = stm.startIrrevocableTransaction(null);
+        inc(t, ref);
+        inc(t, domainRef);
+        t.commit();
+
+        assertEquals(1, ref.get());
+        assertEquals(1, domainRef.get());
+    }
+
+    private void inc(AlphaTransaction t, IntRef ref) {
+        ((IntRefTranlocal) t.load(ref)).value++;
+    }
+
+    class IncThread extends TestThread {
+
+        private final IntRef ref;
+
+        IncThread(IntRef ref) {
+            super("IncThread");
+            this.ref = ref;
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            //the value is read with a transaction that is not irrevocable, it is restarted after the conflict.
+            while (true) {
+                AlphaTransaction t = stm.startUpdateTransaction(null);
+                inc(t, ref);
+                try {
+                    t.commit();
+                    return;
+                } catch (RuntimeException ignore) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.WriteConflictException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.profiling.ProfileEventRecorder;
+import org.multiverse.utils.profiling.SimpleProfileRepository;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AlphaStm_profileEventsTest {
+
+    private AlphaStm stm;
+    private SimpleProfileRepository repository;
+    private ProfileEventRecorder recorder;
+
+    @Before
+    public void setUp() {
+        repository = new SimpleProfileRepository();
+        recorder = new ProfileEventRecorder(repository);
+
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.loggingPossible = false;
+        config.profiler = null;
+        config.profileEventRecorder = recorder;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void updateTransactionEvents() {
+        IntRef ref = new IntRef(0);
+        recorder.drain();
+        repository.reset();
+
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        inc(t, ref);
+        t.commit();
+
+        t = stm.startUpdateTransaction("family");
+        t.load(ref);
+        t.abort();
+
+        assertEquals(5 + 1, recorder.drain());
+        assertEquals(2, repository.getCount("updatetransaction.started.count", "family"));
+        assertEquals(2, repository.getCount("updatetransaction.load.count", "family"));
+        assertEquals(1, repository.getCount("updatetransaction.committed.count", "family"));
+        assertEquals(1, repository.getCount("updatetransaction.aborted.count", "family"));
+        assertEquals(2, repository.getCount("atomicobject.load.count", IntRef.class.getName()));
+    }
+
+    @Test
+    public void readonlyTransactionEvents() {
+        IntRef ref = new IntRef(0);
+        recorder.drain();
+
+        AlphaTransaction t = stm.startReadOnlyTransaction("family");
+        t.load(ref);
+        t.commit();
+
+        assertEquals(3, recorder.drain());
+        assertEquals(1, repository.getCount("readonlytransaction.started.count", "family"));
+        assertEquals(1, repository.getCount("readonlytransaction.load.count", "family"));
+        assertEquals(1, repository.getCount("readonlytransaction.committed.count", "family"));
+    }
+
+    @Test
+    public void writeConflictEvent() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        inc(t, ref);
+
+        AlphaTransaction other = stm.startUpdateTransaction("other");
+        inc(other, ref);
+        other.commit();
+
+        try {
+            t.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+
+        recorder.drain();
+        assertEquals(1, repository.getCount("updatetransaction.writeconflict.count", "family"));
+        assertEquals(1, repository.getCount("updatetransaction.aborted.count", "family"));
+    }
+
+    @Test
+    public void noCountersAreIncrementedWithoutDrain() {
+        IntRef ref = new IntRef(0);
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        inc(t, ref);
+        t.commit();
+
+        assertEquals(0, repository.getCount("updatetransaction.committed.count", "family"));
+    }
+
+    private void inc(AlphaTransaction t, IntRef ref) {
+        ((IntRefTranlocal) t.load(ref)).value++;
+    }
+}
@@ -0,0 +1,180 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.assertIsActive;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.templates.AtomicTemplate;
+import org.multiverse.utils.latches.CheapLatch;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AlphaTransactionPoolTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.loggingPossible = false;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void committedTransactionIsReused() {
+        AlphaTransaction t1 = stm.startUpdateTransaction("t1");
+        t1.commit();
+        stm.returnTransaction(t1);
+
+        AlphaTransaction t2 = stm.startUpdateTransaction("t2");
+        assertSame(t1, t2);
+        assertIsActive(t2);
+        assertEquals("t2", t2.getFamilyName());
+    }
+
+    @Test
+    public void abortedTransactionIsReused() {
+        AlphaTransaction t1 = stm.startReadOnlyTransaction("t1");
+        t1.abort();
+        stm.returnTransaction(t1);
+
+        AlphaTransaction t2 = stm.startReadOnlyTransaction("t2");
+        assertSame(t1, t2);
+        assertIsActive(t2);
+    }
+
+    @Test
+    public void activeTransactionIsNotPooled() {
+        AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        stm.returnTransaction(t1);
+
+        AlphaTransaction t2 = stm.startUpdateTransaction(null);
+        assertNotSame(t1, t2);
+        assertIsActive(t1);
+    }
+
+    @Test
+    public void transactionIsOnlyReusedForSameKind() {
+        AlphaTransaction readonly = stm.startReadOnlyTransaction(null);
+        readonly.commit();
+        stm.returnTransaction(readonly);
+
+        AlphaTransaction update = stm.startUpdateTransaction(null);
+        assertNotSame(readonly, update);
+        assertSame(readonly, stm.startReadOnlyTransaction(null));
+    }
+
+    @Test
+    public void transactionOfOtherStmIsNotPooled() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.loggingPossible = false;
+        AlphaStm otherStm = new AlphaStm(config);
+
+        AlphaTransaction t1 = otherStm.startUpdateTransaction(null);
+        t1.commit();
+        stm.returnTransaction(t1);
+
+        assertNotSame(t1, stm.startUpdateTransaction(null));
+    }
+
+    @Test
+    public void transactionIsNotReusedWhenPoolingDisabled() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.loggingPossible = false;
+        config.transactionPoolingEnabled = false;
+        stm = new AlphaStm(config);
+
+        AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        t1.commit();
+        stm.returnTransaction(t1);
+
+        assertNotSame(t1, stm.startUpdateTransaction(null));
+    }
+
+    @Test
+    public void reusedTransactionDoesNotSeeOldState() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t1.load(ref1)).value = 1;
+        t1.abort();
+        stm.returnTransaction(t1);
+
+        AlphaTransaction t2 = stm.startUpdateTransaction(null);
+        assertSame(t1, t2);
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t2.load(ref1);
+        assertEquals(0, tranlocal.value);
+        ((IntRefTranlocal) t2.load(ref2)).value = 2;
+        t2.commit();
+
+        assertEquals(0, ref1.get());
+        assertEquals(2, ref2.get());
+    }
+
+    @Test
+    public void pooledUpdateTransactionDoesNotKeepTranlocals() {
+        IntRef ref = new IntRef(0);
+
+        AbstractUpdateAlphaTransaction t = (AbstractUpdateAlphaTransaction) stm.startUpdateTransaction(null);
+        t.load(ref);
+        t.abortAndRegisterRetryLatch(new CheapLatch());
+        assertEquals(1, t.getAttachedCount());
+
+        stm.returnTransaction(t);
+        assertEquals(0, t.getAttachedCount());
+    }
+
+    @Test
+    public void pooledReadonlyTransactionDoesNotKeepReadLog() {
+        IntRef ref = new IntRef(0);
+
+        ReadonlyAlphaTransaction t = (ReadonlyAlphaTransaction) stm.startReadOnlyTransaction(null);
+        t.load(ref);
+        t.commit();
+        assertEquals(1, t.getReadLogSize());
+
+        stm.returnTransaction(t);
+        assertEquals(0, t.getReadLogSize());
+    }
+
+    @Test
+    public void returnedTransactionsAreCountedPerFamily() {
+        for (int k = 0; k < 3; k++) {
+            AlphaTransaction t = stm.startUpdateTransaction(k == 1 ? "other" : "family");
+            t.commit();
+            stm.returnTransaction(t);
+        }
+
+        assertEquals(2, stm.getProfiler().getCount("transactionpool.returned.count", "family"));
+        assertEquals(1, stm.getProfiler().getCount("transactionpool.returned.count", "other"));
+    }
+
+    @Test
+    public void atomicTemplateReturnsTransaction() {
+        final Transaction[] used = new Transaction[1];
+        new AtomicTemplate(stm) {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                used[0] = t;
+                return null;
+            }
+        }.execute();
+
+        assertSame(used[0], stm.startUpdateTransaction(null));
+    }
+}
@@ -0,0 +1,155 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.LoadLockedException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.contentionmanager.GreedyContentionManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AlphaTransaction_contentionManagerTest {
+
+    private AlphaStm stm;
+
+    public void createStm(boolean lockFreeSingleObjectCommitEnabled) {
+        AlphaStmConfig config = new AlphaStmConfig();
+        //a DummyTransaction is not a Contender, so it has the lowest priority and is always waited for.
+        config.contentionManager = new GreedyContentionManager(10000, TimeUnit.MICROSECONDS.toNanos(100));
+        config.lockFreeSingleObjectCommitEnabled = lockFreeSingleObjectCommitEnabled;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void contentionManagerIsConfigured() {
+        assertNull(new AlphaStm().getContentionManager());
+        createStm(true);
+        assertTrue(stm.getContentionManager() instanceof GreedyContentionManager);
+    }
+
+    @Test
+    public void updateLoadWaitsForLockOwner() throws InterruptedException {
+        createStm(true);
+        IntRef ref = new IntRef(10);
+        Thread releaseThread = lockAndReleaseLater(ref);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        releaseThread.join();
+
+        assertEquals(10, tranlocal.value);
+        assertEquals(1, ((AbstractUpdateAlphaTransaction) t).getKarma());
+    }
+
+    @Test
+    public void readonlyLoadWaitsForLockOwner() throws InterruptedException {
+        createStm(true);
+        IntRef ref = new IntRef(10);
+        Thread releaseThread = lockAndReleaseLater(ref);
+
+        AlphaTransaction t = stm.startReadOnlyTransaction(null);
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        releaseThread.join();
+
+        assertEquals(10, tranlocal.value);
+    }
+
+    @Test
+    public void lockFreeCommitWaitsForLockOwner() throws InterruptedException {
+        createStm(true);
+        assertCommitWaitsForLockOwner();
+    }
+
+    @Test
+    public void lockingCommitWaitsForLockOwner() throws InterruptedException {
+        createStm(false);
+        assertCommitWaitsForLockOwner();
+    }
+
+    private void assertCommitWaitsForLockOwner() throws InterruptedException {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ref.inc((IntRefTranlocal) t.load(ref));
+
+        Thread releaseThread = lockAndReleaseLater(ref);
+        t.commit();
+        releaseThread.join();
+
+        assertEquals(11, ref.get());
+        assertNull(ref.___getLockOwner());
+    }
+
+    @Test
+    public void commuteWaitsForLockOwner() throws InterruptedException {
+        createStm(false);
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.commute(ref, INC);
+
+        Thread releaseThread = lockAndReleaseLater(ref);
+        t.commit();
+        releaseThread.join();
+
+        assertEquals(11, ref.get());
+        assertNull(ref.___getLockOwner());
+    }
+
+    @Test
+    public void loadFailsWithoutContentionManager() {
+        stm = new AlphaStm();
+        IntRef ref = new IntRef(10);
+        Transaction owner = new DummyTransaction();
+        ref.___tryLock(owner);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        try {
+            t.load(ref);
+            fail();
+        } catch (LoadLockedException expected) {
+        }
+
+        ref.___releaseLock(owner);
+    }
+
+    private static final CommutingFunction INC = new CommutingFunction() {
+        @Override
+        public void apply(AlphaTranlocal tranlocal) {
+            ((IntRefTranlocal) tranlocal).value++;
+        }
+    };
+
+    private static Thread lockAndReleaseLater(final IntRef ref) {
+        final Transaction owner = new DummyTransaction();
+        assertTrue(ref.___tryLock(owner));
+
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignore) {
+                }
+                ref.___releaseLock(owner);
+            }
+        };
+        thread.start();
+        return thread;
+    }
+}
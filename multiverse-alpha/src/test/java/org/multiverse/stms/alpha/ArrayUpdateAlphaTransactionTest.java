@@ -0,0 +1,181 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.assertIsAborted;
+import static org.multiverse.TestUtils.assertIsActive;
+import static org.multiverse.TestUtils.assertIsCommitted;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.WriteConflictException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class ArrayUpdateAlphaTransactionTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.loggingPossible = false;
+        config.maxArrayUpdateTransactionSize = 2;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void stmHandsOutArrayTransaction() {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        assertTrue(t instanceof ArrayUpdateAlphaTransaction);
+        assertEquals(2, ((ArrayUpdateAlphaTransaction) t).getMaxArraySize());
+    }
+
+    @Test
+    public void stmHandsOutMapTransactionIfArrayDisabled() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.loggingPossible = false;
+        config.maxArrayUpdateTransactionSize = 0;
+        stm = new AlphaStm(config);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        assertTrue(t instanceof UpdateAlphaTransaction);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void negativeMaxArraySizeIsRejected() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.maxArrayUpdateTransactionSize = -1;
+        new AlphaStm(config);
+    }
+
+    @Test
+    public void repeatedLoadReturnsSameTranlocal() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        AlphaTranlocal found1 = t.load(ref);
+        AlphaTranlocal found2 = t.load(ref);
+
+        assertSame(found1, found2);
+        assertIsActive(t);
+    }
+
+    @Test
+    public void commitBeyondMaxArraySize() {
+        IntRef ref1 = new IntRef(1);
+        IntRef ref2 = new IntRef(2);
+        IntRef ref3 = new IntRef(3);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntRefTranlocal tranlocal1 = (IntRefTranlocal) t.load(ref1);
+        IntRefTranlocal tranlocal2 = (IntRefTranlocal) t.load(ref2);
+        IntRefTranlocal tranlocal3 = (IntRefTranlocal) t.load(ref3);
+
+        //after the switch to the map the tranlocals still need to be found.
+        assertSame(tranlocal1, t.load(ref1));
+        assertSame(tranlocal3, t.load(ref3));
+
+        tranlocal1.value++;
+        tranlocal2.value++;
+        tranlocal3.value++;
+        long version = stm.getTime();
+        t.commit();
+
+        assertIsCommitted(t);
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(2, ref1.get());
+        assertEquals(3, ref2.get());
+        assertEquals(4, ref3.get());
+    }
+
+    @Test
+    public void reusedWriteSetDoesNotContainOldTranlocals() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t.load(ref1)).value++;
+        ((IntRefTranlocal) t.load(ref2)).value++;
+        t.commit();
+
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        t.load(ref1);
+        ((IntRefTranlocal) t.load(ref2)).value++;
+        long version = stm.getTime();
+        t.commit();
+
+        assertEquals(version + 1, ref2.___load().___writeVersion);
+        assertEquals(version, ref1.___load().___writeVersion);
+        assertEquals(1, ref1.get());
+        assertEquals(2, ref2.get());
+    }
+
+    @Test
+    public void commitWithoutChanges() {
+        IntRef ref = new IntRef(0);
+
+        long version = stm.getTime();
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref);
+        long commitVersion = t.commit();
+
+        assertEquals(version, commitVersion);
+        assertEquals(version, stm.getTime());
+        assertIsCommitted(t);
+    }
+
+    @Test
+    public void writeConflictIsDetected() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t1.load(ref)).value++;
+
+        AlphaTransaction t2 = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t2.load(ref)).value++;
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+
+        assertIsAborted(t1);
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void restartedTransactionBeginsEmpty() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+        IntRef ref3 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref1);
+        t.load(ref2);
+        t.load(ref3);
+        t.abort();
+
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref1);
+        tranlocal.value = 10;
+        t.commit();
+
+        assertEquals(10, ref1.get());
+        assertEquals(0, ref2.get());
+        assertEquals(0, ref3.get());
+    }
+}
@@ -1,8 +1,7 @@
 package org.multiverse.stms.alpha;
 
 import org.junit.After;
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.fail;
+import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
 import static org.multiverse.TestUtils.assertIsAborted;
@@ -11,7 +10,10 @@ import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
 import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
 import org.multiverse.api.Transaction;
 import org.multiverse.api.exceptions.DeadTransactionException;
-import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.api.exceptions.NoRetryPossibleException;
+import org.multiverse.datastructures.refs.manual.Ref;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
 import org.multiverse.utils.latches.CheapLatch;
 import org.multiverse.utils.latches.Latch;
 
@@ -41,20 +43,110 @@ public class ReadonlyAlphaTransaction_abortAndRegisterRetryLatchTest {
     }
 
     @Test
-    public void callFailsIfTransactionIsStarted() {
+    public void callFailsIfNothingHasBeenLoaded() {
         Transaction t = startReadonlyTransaction();
         Latch latch = new CheapLatch();
 
         try {
             t.abortAndRegisterRetryLatch(latch);
             fail();
-        } catch (ReadonlyException ex) {
+        } catch (NoRetryPossibleException ex) {
         }
 
         assertFalse(latch.isOpen());
         assertIsAborted(t);
     }
 
+    @Test
+    public void firstRetryRegistersLatch() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startReadonlyTransaction();
+        t.load(ref);
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        assertFalse(latch.isOpen());
+        assertIsAborted(t);
+
+        inc(ref);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void firstRetryOnChangedReadSetOpensLatchDirectly() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = startReadonlyTransaction();
+        t.load(ref1);
+        t.load(ref1);
+        t.load(ref2);
+        inc(ref2);
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void retryOfRestartedTransactionRegistersLatch() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startReadonlyTransaction();
+        t.load(ref);
+        t.abortAndRegisterRetryLatch(new CheapLatch());
+
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        t.load(ref);
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        assertIsAborted(t);
+        assertFalse(latch.isOpen());
+
+        inc(ref);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void retryOnOlderVersionOpensLatchDirectly() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = startReadonlyTransaction();
+        t.load(ref);
+        t.abortAndRegisterRetryLatch(new CheapLatch());
+
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        t.load(ref);
+        inc(ref);
+        Latch latch = new CheapLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void blockingReadonlyRead() throws InterruptedException {
+        final Ref<String> ref = new Ref<String>();
+        final String[] found = new String[1];
+
+        Thread thread = new Thread() {
+            public void run() {
+                found[0] = ref.getOrAwait();
+            }
+        };
+        thread.start();
+
+        Thread.sleep(200);
+        assertTrue(thread.isAlive());
+        ref.set("foo");
+        thread.join(10000);
+
+        assertFalse(thread.isAlive());
+        assertEquals("foo", found[0]);
+    }
+
     @Test
     public void callFailsIfTransactionIsCommitted() {
         Transaction t = startReadonlyTransaction();
@@ -86,4 +178,10 @@ public class ReadonlyAlphaTransaction_abortAndRegisterRetryLatchTest {
         assertIsAborted(t);
         assertFalse(latch.isOpen());
     }
+
+    private void inc(IntRef ref) {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t.load(ref)).value++;
+        t.commit();
+    }
 }
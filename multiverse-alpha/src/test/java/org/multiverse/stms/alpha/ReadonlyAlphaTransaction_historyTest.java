@@ -0,0 +1,108 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.LoadTooOldVersionException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class ReadonlyAlphaTransaction_historyTest {
+
+    private AlphaStm stm;
+
+    public void createStm(int maxHistoryDepth) {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.maxHistoryDepth = maxHistoryDepth;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void withoutHistoryOldVersionCantBeLoaded() {
+        createStm(0);
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startReadOnlyTransaction(null);
+        ref.inc();
+
+        try {
+            t.load(ref);
+            fail();
+        } catch (LoadTooOldVersionException ex) {
+        }
+    }
+
+    @Test
+    public void oldVersionIsFoundInHistory() {
+        createStm(2);
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startReadOnlyTransaction(null);
+        ref.inc();
+        ref.inc();
+
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        assertEquals(0, tranlocal.value);
+        assertEquals(2, ref.get());
+    }
+
+    @Test
+    public void versionOutsideOfHistoryCantBeLoaded() {
+        createStm(2);
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startReadOnlyTransaction(null);
+        ref.inc();
+        ref.inc();
+        ref.inc();
+
+        try {
+            t.load(ref);
+            fail();
+        } catch (LoadTooOldVersionException ex) {
+        }
+    }
+
+    @Test
+    public void historyIsBounded() {
+        createStm(2);
+        IntRef ref = new IntRef(0);
+        for (int k = 0; k < 10; k++) {
+            ref.inc();
+        }
+
+        AlphaTranlocal tranlocal = ref.___load();
+        int depth = 0;
+        while (tranlocal.___previous != null) {
+            depth++;
+            tranlocal = tranlocal.___previous;
+        }
+
+        assertEquals(2, depth);
+    }
+
+    @Test
+    public void ensureValidRejectsNegativeDepth() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.maxHistoryDepth = -1;
+
+        try {
+            config.ensureValid();
+            fail();
+        } catch (IllegalStateException ex) {
+        }
+    }
+}
@@ -155,4 +155,36 @@ public class ReadonlyAlphaTransaction_loadTest {
 
         assertIsAborted(t);
     }
+
+    @Test
+    public void repeatedLoadsAreLoggedOnce() {
+        IntRef ref1 = new IntRef(1);
+        IntRef ref2 = new IntRef(2);
+
+        ReadonlyAlphaTransaction t = (ReadonlyAlphaTransaction) startReadonlyTransaction();
+        for (int k = 0; k < 100; k++) {
+            t.load(ref1);
+            t.load(ref2);
+        }
+
+        assertEquals(2, t.getReadLogSize());
+    }
+
+    @Test
+    public void repeatedLoadsOfLargeReadLogAreLoggedOnce() {
+        int refCount = ReadonlyAlphaTransaction.MAX_SCANNED_READLOG_SIZE * 4;
+        IntRef[] refs = new IntRef[refCount];
+        for (int k = 0; k < refs.length; k++) {
+            refs[k] = new IntRef(k);
+        }
+
+        ReadonlyAlphaTransaction t = (ReadonlyAlphaTransaction) startReadonlyTransaction();
+        for (int i = 0; i < 10; i++) {
+            for (IntRef ref : refs) {
+                t.load(ref);
+            }
+        }
+
+        assertEquals(refCount, t.getReadLogSize());
+    }
 }
@@ -0,0 +1,149 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.assertIsActive;
+import static org.multiverse.TestUtils.assertIsCommitted;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class TinyUpdateAlphaTransactionTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.loggingPossible = false;
+        config.maxArrayUpdateTransactionSize = 2;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void newFamilyStartsWithTinyTransaction() {
+        AlphaTransaction t = stm.startUpdateTransaction("newFamily");
+        assertTrue(t instanceof TinyUpdateAlphaTransaction);
+    }
+
+    @Test
+    public void singleObjectCommit() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction("singleObjectCommit");
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        assertSame(tranlocal, t.load(ref));
+        tranlocal.value = 10;
+        long version = stm.getTime();
+        long commitVersion = t.commit();
+
+        assertIsCommitted(t);
+        assertEquals(version + 1, commitVersion);
+        assertEquals(10, ref.get());
+        //the lock should have been released
+        assertNull(ref.___getLockOwner());
+        assertEquals(1, stm.getSizeStatistics("singleObjectCommit").getSize());
+    }
+
+    @Test
+    public void transactionGrowsInPlaceWithoutAborting() {
+        IntRef ref1 = new IntRef(1);
+        IntRef ref2 = new IntRef(2);
+        IntRef ref3 = new IntRef(3);
+
+        AlphaTransaction t = stm.startUpdateTransaction("grows");
+        IntRefTranlocal tranlocal1 = (IntRefTranlocal) t.load(ref1);
+        IntRefTranlocal tranlocal2 = (IntRefTranlocal) t.load(ref2);
+        assertIsActive(t);
+        IntRefTranlocal tranlocal3 = (IntRefTranlocal) t.load(ref3);
+        assertIsActive(t);
+
+        assertSame(tranlocal1, t.load(ref1));
+        assertSame(tranlocal2, t.load(ref2));
+        assertSame(tranlocal3, t.load(ref3));
+
+        tranlocal1.value++;
+        tranlocal2.value++;
+        tranlocal3.value++;
+        t.commit();
+
+        assertEquals(2, ref1.get());
+        assertEquals(3, ref2.get());
+        assertEquals(4, ref3.get());
+        assertEquals(3, stm.getSizeStatistics("grows").getSize());
+    }
+
+    @Test
+    public void restartedTransactionBeginsWithSingleFieldAgain() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction("restart");
+        t.load(ref1);
+        t.load(ref2);
+
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        ((IntRefTranlocal) t.load(ref2)).value = 5;
+        t.commit();
+
+        assertEquals(0, ref1.get());
+        assertEquals(5, ref2.get());
+    }
+
+    @Test
+    public void stmLearnsTransactionSizePerFamily() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+        IntRef ref3 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction("array");
+        t.load(ref1);
+        t.load(ref2);
+        t.commit();
+
+        t = stm.startUpdateTransaction("array");
+        assertFalse(t instanceof TinyUpdateAlphaTransaction);
+        assertTrue(t instanceof ArrayUpdateAlphaTransaction);
+
+        t = stm.startUpdateTransaction("map");
+        t.load(ref1);
+        t.load(ref2);
+        t.load(ref3);
+        t.abort();
+
+        t = stm.startUpdateTransaction("map");
+        assertTrue(t instanceof UpdateAlphaTransaction);
+
+        //other families are not influenced
+        t = stm.startUpdateTransaction("other");
+        assertTrue(t instanceof TinyUpdateAlphaTransaction);
+    }
+
+    @Test
+    public void orElseIsSupported() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction("orelse");
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        tranlocal.value = 1;
+        t.startOr();
+        tranlocal.value = 2;
+        t.endOrAndStartElse();
+        t.commit();
+
+        assertEquals(1, ref.get());
+    }
+}
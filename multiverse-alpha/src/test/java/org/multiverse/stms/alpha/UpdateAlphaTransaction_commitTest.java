@@ -18,6 +18,10 @@ import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
 import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
 import org.multiverse.templates.AbortedException;
 import org.multiverse.templates.AtomicTemplate;
+import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.latches.ParkingLatch;
+
+import java.util.concurrent.TimeUnit;
 
 public class UpdateAlphaTransaction_commitTest {
 
@@ -268,4 +272,78 @@ public class UpdateAlphaTransaction_commitTest {
         assertEquals(version, stm.getTime());
         assertEquals(1, value.get());
     }
+
+    @Test
+    public void listenersAreOpenedAfterAllLocksAreReleased() {
+        final IntRef ref1 = new IntRef(1);
+        final IntRef ref2 = new IntRef(1);
+
+        LockCheckingLatch latch1 = new LockCheckingLatch(ref1, ref2);
+        LockCheckingLatch latch2 = new LockCheckingLatch(ref1, ref2);
+        registerRetryLatch(ref1, latch1);
+        registerRetryLatch(ref2, latch2);
+
+        AlphaTransaction t = startUpdateTransaction();
+        ref1.inc();
+        ref2.inc();
+        t.commit();
+
+        assertTrue(latch1.isOpen());
+        assertTrue(latch2.isOpen());
+        assertFalse(latch1.lockedWhenOpened);
+        assertFalse(latch2.lockedWhenOpened);
+    }
+
+    private void registerRetryLatch(IntRef ref, Latch latch) {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t);
+        ref.get();
+        t.abortAndRegisterRetryLatch(latch);
+        setThreadLocalTransaction(null);
+    }
+
+    static class LockCheckingLatch implements Latch {
+        private final Latch latch = new ParkingLatch();
+        private final AlphaAtomicObject[] atomicObjects;
+        private volatile boolean lockedWhenOpened;
+
+        LockCheckingLatch(AlphaAtomicObject... atomicObjects) {
+            this.atomicObjects = atomicObjects;
+        }
+
+        @Override
+        public void open() {
+            for (AlphaAtomicObject atomicObject : atomicObjects) {
+                if (atomicObject.___getLockOwner() != null) {
+                    lockedWhenOpened = true;
+                }
+            }
+            latch.open();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return latch.isOpen();
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            latch.await();
+        }
+
+        @Override
+        public void awaitUninterruptible() {
+            latch.awaitUninterruptible();
+        }
+
+        @Override
+        public boolean tryAwait(long timeout, TimeUnit unit) throws InterruptedException {
+            return latch.tryAwait(timeout, unit);
+        }
+
+        @Override
+        public boolean tryAwaitUninterruptible(long timeout, TimeUnit unit) {
+            return latch.tryAwaitUninterruptible(timeout, unit);
+        }
+    }
 }
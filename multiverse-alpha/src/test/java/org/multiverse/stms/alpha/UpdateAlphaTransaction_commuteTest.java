@@ -0,0 +1,170 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.assertIsActive;
+import static org.multiverse.TestUtils.assertIsCommitted;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.DeadTransactionException;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_commuteTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    private static final CommutingFunction INC = new CommutingFunction() {
+        @Override
+        public void apply(AlphaTranlocal tranlocal) {
+            ((IntRefTranlocal) tranlocal).value++;
+        }
+    };
+
+    @Test
+    public void commuteIsAppliedOnCommit() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.commute(ref, INC);
+        t.commute(ref, INC);
+        assertEquals(10, ref.get());
+
+        long version = stm.getTime();
+        t.commit();
+
+        assertIsCommitted(t);
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(12, ref.get());
+        assertNull(ref.___getLockOwner());
+    }
+
+    @Test
+    public void commuteDoesNotConflictWithConcurrentWrite() {
+        IntRef ref = new IntRef(0);
+        IntRef other = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t.load(other)).value = 1;
+        t.commute(ref, INC);
+
+        //a concurrent write on the commuted atomic object.
+        ref.inc();
+
+        t.commit();
+        assertEquals(2, ref.get());
+        assertEquals(1, other.get());
+    }
+
+    @Test
+    public void commuteOnLoadedAtomicObjectIsAppliedDirectly() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        t.commute(ref, INC);
+        assertEquals(1, tranlocal.value);
+        assertTrue(tranlocal.___dirty);
+        t.commit();
+
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void pendingCommuteIsAppliedWhenLoaded() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.commute(ref, INC);
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.load(ref);
+        assertEquals(1, tranlocal.value);
+        assertTrue(tranlocal.___dirty);
+        t.commit();
+
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void commuteIsDiscardedOnAbort() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.commute(ref, INC);
+        t.abort();
+
+        assertEquals(0, ref.get());
+    }
+
+    @Test
+    public void commuteIsRolledBackInOrElse() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.commute(ref, INC);
+        t.startOr();
+        t.commute(ref, INC);
+        t.endOrAndStartElse();
+        assertIsActive(t);
+        t.commit();
+
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void commuteOnReadonlyTransactionFails() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startReadOnlyTransaction(null);
+        try {
+            t.commute(ref, INC);
+            fail();
+        } catch (ReadonlyException ex) {
+        }
+    }
+
+    @Test
+    public void commuteOnCommittedTransactionFails() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.commit();
+
+        try {
+            t.commute(ref, INC);
+            fail();
+        } catch (DeadTransactionException ex) {
+        }
+
+        assertEquals(0, ref.get());
+    }
+
+    @Test
+    public void commuteWithNullFunctionFails() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        try {
+            t.commute(ref, null);
+            fail();
+        } catch (NullPointerException ex) {
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.DeadTransactionException;
+import org.multiverse.api.exceptions.LoadTooOldVersionException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.latches.ParkingLatch;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_loadReadonlyTest {
+
+    private static final CommutingFunction INC = new CommutingFunction() {
+        @Override
+        public void apply(AlphaTranlocal tranlocal) {
+            ((IntRefTranlocal) tranlocal).value++;
+        }
+    };
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void loadReadonlyWithNullReturnsNull() {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        assertNull(t.loadReadonly(null));
+    }
+
+    @Test
+    public void loadReadonlyReturnsCommittedTranlocal() {
+        IntRef ref = new IntRef(10);
+        AlphaTranlocal committed = ref.___load();
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        assertSame(committed, t.loadReadonly(ref));
+        assertSame(committed, t.loadReadonly(ref));
+    }
+
+    @Test
+    public void loadReadonlyOfUncommittedReturnsFreshTranlocal() {
+        IntRef ref = IntRef.createUncommitted();
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntRefTranlocal tranlocal = (IntRefTranlocal) t.loadReadonly(ref);
+        assertEquals(0, tranlocal.___writeVersion);
+        assertSame(tranlocal, t.load(ref));
+    }
+
+    @Test
+    public void loadReadonlyReturnsAttachedPrivateCopy() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        AlphaTranlocal updatable = t.load(ref);
+        assertSame(updatable, t.loadReadonly(ref));
+    }
+
+    @Test
+    public void loadAfterLoadReadonlyMakesPrivateCopy() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntRefTranlocal committed = (IntRefTranlocal) t.loadReadonly(ref);
+        IntRefTranlocal updatable = (IntRefTranlocal) t.load(ref);
+
+        assertNotSame(committed, updatable);
+        assertEquals(0, updatable.___writeVersion);
+        assertSame(updatable, t.loadReadonly(ref));
+
+        updatable.value++;
+        t.commit();
+
+        assertEquals(10, committed.value);
+        assertEquals(11, ref.get());
+    }
+
+    @Test
+    public void privateCopyIsMadeForEveryAttachedStructure() {
+        IntRef ref1 = new IntRef(1);
+        IntRef ref2 = new IntRef(2);
+        IntRef ref3 = new IntRef(3);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.loadReadonly(ref1);
+        t.loadReadonly(ref2);
+        t.loadReadonly(ref3);
+        ((IntRefTranlocal) t.load(ref2)).value++;
+        t.commit();
+
+        assertEquals(1, ref1.get());
+        assertEquals(3, ref2.get());
+        assertEquals(3, ref3.get());
+    }
+
+    @Test
+    public void transactionWithOnlyReadonlyLoadsWritesNothing() {
+        IntRef ref = new IntRef(10);
+        AlphaTranlocal committed = ref.___load();
+        long version = stm.getTime();
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.loadReadonly(ref);
+        t.commit();
+
+        assertEquals(version, stm.getTime());
+        assertSame(committed, ref.___load());
+    }
+
+    @Test
+    public void privatizeFailsIfAtomicObjectHasBeenChanged() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.loadReadonly(ref);
+        incInOtherTransaction(ref);
+
+        try {
+            t.load(ref);
+            fail();
+        } catch (LoadTooOldVersionException expected) {
+        }
+    }
+
+    @Test
+    public void retryRegistersOnReadonlyLoadedAtomicObject() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.loadReadonly(ref);
+        Latch latch = new ParkingLatch();
+        t.abortAndRegisterRetryLatch(latch);
+
+        assertFalse(latch.isOpen());
+        incInOtherTransaction(ref);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void abortNestedRestoresCommittedTranlocal() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        AlphaTranlocal committed = t.loadReadonly(ref);
+        t.startNested();
+        ((IntRefTranlocal) t.load(ref)).value++;
+        t.abortNested();
+
+        assertSame(committed, t.loadReadonly(ref));
+        t.commit();
+        assertEquals(10, ref.get());
+    }
+
+    @Test
+    public void commuteOnReadonlyLoadedAtomicObjectMakesPrivateCopy() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntRefTranlocal committed = (IntRefTranlocal) t.loadReadonly(ref);
+        t.commute(ref, INC);
+        t.commit();
+
+        assertEquals(10, committed.value);
+        assertEquals(11, ref.get());
+    }
+
+    @Test
+    public void loadReadonlyOnAbortedTransactionFails() {
+        IntRef ref = new IntRef(10);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.abort();
+
+        try {
+            t.loadReadonly(ref);
+            fail();
+        } catch (DeadTransactionException expected) {
+        }
+
+        assertIsAborted(t);
+    }
+
+    private void incInOtherTransaction(IntRef ref) {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t.load(ref)).value++;
+        t.commit();
+    }
+}
@@ -0,0 +1,304 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.assertIsAborted;
+import static org.multiverse.TestUtils.assertIsCommitted;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.startAll;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.CommitFailureException;
+import org.multiverse.api.exceptions.FailedToObtainLocksException;
+import org.multiverse.api.exceptions.LoadException;
+import org.multiverse.api.exceptions.WriteConflictException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.profiling.SimpleProfileRepository;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_lockFreeCommitTest {
+
+    private static final String FAMILY = "lockfree";
+
+    private AlphaStm stm;
+    private SimpleProfileRepository profiler;
+
+    public void createStm(boolean lockFreeSingleObjectCommitEnabled, int maxHistoryDepth) {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.lockFreeSingleObjectCommitEnabled = lockFreeSingleObjectCommitEnabled;
+        config.maxHistoryDepth = maxHistoryDepth;
+        profiler = new SimpleProfileRepository();
+        config.profiler = profiler;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    private long lockFreeCommitCount() {
+        return profiler.getCount("updatetransaction.lockfreecommit.count", FAMILY);
+    }
+
+    @Test
+    public void singleObjectWriteIsCommittedWithoutLock() {
+        createStm(true, 0);
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref.inc((IntRefTranlocal) t.load(ref));
+
+        long version = stm.getTime();
+        t.commit();
+
+        assertIsCommitted(t);
+        assertEquals(version + 1, stm.getTime());
+        assertEquals(version + 1, ref.___load().___writeVersion);
+        assertNull(ref.___getLockOwner());
+        assertEquals(1, ref.get());
+        assertEquals(1, lockFreeCommitCount());
+    }
+
+    @Test
+    public void multipleObjectWriteIsCommittedWithLocks() {
+        createStm(true, 0);
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref1.inc((IntRefTranlocal) t.load(ref1));
+        ref2.inc((IntRefTranlocal) t.load(ref2));
+        t.commit();
+
+        assertEquals(1, ref1.get());
+        assertEquals(1, ref2.get());
+        assertEquals(0, lockFreeCommitCount());
+    }
+
+    @Test
+    public void singleObjectWriteWithReadsIsCommittedWithoutLock() {
+        createStm(true, 0);
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref1.inc((IntRefTranlocal) t.load(ref1));
+        t.load(ref2);
+        t.commit();
+
+        assertEquals(1, ref1.get());
+        assertEquals(1, lockFreeCommitCount());
+    }
+
+    @Test
+    public void disabledLockFreeCommitUsesLock() {
+        createStm(false, 0);
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref.inc((IntRefTranlocal) t.load(ref));
+        t.commit();
+
+        assertEquals(1, ref.get());
+        assertEquals(0, lockFreeCommitCount());
+    }
+
+    @Test
+    public void writeConflictIsDetected() {
+        createStm(true, 0);
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref.inc((IntRefTranlocal) t.load(ref));
+
+        ref.inc();
+        long version = stm.getTime();
+        AlphaTranlocal committed = ref.___load();
+
+        try {
+            t.commit();
+            fail();
+        } catch (WriteConflictException expected) {
+        }
+
+        assertIsAborted(t);
+        assertEquals(version, stm.getTime());
+        assertSame(committed, ref.___load());
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void lockedAtomicObjectCausesFailure() {
+        createStm(true, 0);
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref.inc((IntRefTranlocal) t.load(ref));
+
+        Transaction otherOwner = new DummyTransaction();
+        ref.___tryLock(otherOwner);
+        long version = stm.getTime();
+
+        try {
+            t.commit();
+            fail();
+        } catch (FailedToObtainLocksException expected) {
+        }
+
+        ref.___releaseLock(otherOwner);
+        assertIsAborted(t);
+        assertEquals(version, stm.getTime());
+        assertEquals(0, ref.get());
+    }
+
+    @Test
+    public void lockedCommitWaitsForRevokeOfPendingLockFreeCommit() throws InterruptedException {
+        createStm(true, 0);
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        final AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref1.inc((IntRefTranlocal) t.load(ref1));
+        ref2.inc((IntRefTranlocal) t.load(ref2));
+
+        //a lock free commit that published its pending tranlocal, but didn't check the lock yet.
+        IntRefTranlocal committed = (IntRefTranlocal) ref1.___load();
+        IntRefTranlocal pending = new IntRefTranlocal(committed);
+        pending.value = 100;
+        assertTrue(ref1.___tryPublishPending(committed, pending));
+
+        TestThread commitThread = new TestThread("LockedCommitThread") {
+            @Override
+            public void doRun() throws Exception {
+                t.commit();
+            }
+        };
+        commitThread.start();
+        commitThread.join(100);
+        assertTrue(commitThread.isAlive());
+
+        ref1.___revokePending(committed, pending);
+        joinAll(commitThread);
+
+        assertIsCommitted(t);
+        assertEquals(1, ref1.get());
+        assertEquals(1, ref2.get());
+    }
+
+    @Test
+    public void lockedCommitConflictsWithCompletedLockFreeCommit() throws InterruptedException {
+        createStm(true, 0);
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        final AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref1.inc((IntRefTranlocal) t.load(ref1));
+        ref2.inc((IntRefTranlocal) t.load(ref2));
+
+        //a lock free commit that published its pending tranlocal before the lock was acquired.
+        IntRefTranlocal committed = (IntRefTranlocal) ref1.___load();
+        IntRefTranlocal pending = new IntRefTranlocal(committed);
+        pending.value = 100;
+        assertTrue(ref1.___tryPublishPending(committed, pending));
+
+        final Throwable[] failure = new Throwable[1];
+        TestThread commitThread = new TestThread("LockedCommitThread") {
+            @Override
+            public void doRun() throws Exception {
+                try {
+                    t.commit();
+                } catch (WriteConflictException expected) {
+                    failure[0] = expected;
+                }
+            }
+        };
+        commitThread.start();
+        commitThread.join(100);
+        assertTrue(commitThread.isAlive());
+
+        ref1.___commitPending(pending, stm.getClock().tick());
+        joinAll(commitThread);
+
+        assertNotNull(failure[0]);
+        assertIsAborted(t);
+        assertEquals(100, ref1.get());
+        assertEquals(0, ref2.get());
+        assertNull(ref1.___getLockOwner());
+        assertNull(ref2.___getLockOwner());
+    }
+
+    @Test
+    public void historyIsKept() {
+        createStm(true, 1);
+        IntRef ref = new IntRef(0);
+        AlphaTranlocal old = ref.___load();
+        long readVersion = stm.getTime();
+
+        AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+        ref.inc((IntRefTranlocal) t.load(ref));
+        t.commit();
+
+        assertEquals(1, lockFreeCommitCount());
+        assertSame(old, ref.___load(readVersion));
+    }
+
+    @Test
+    public void lockFreeAndLockedCommitsDontLoseUpdates() {
+        createStm(true, 0);
+        IntRef shared = new IntRef(0);
+        IntRef other = new IntRef(0);
+
+        IncThread lockFreeThread = new IncThread("LockFreeIncThread", shared, null);
+        IncThread lockedThread = new IncThread("LockedIncThread", shared, other);
+        startAll(lockFreeThread, lockedThread);
+        joinAll(lockFreeThread, lockedThread);
+
+        assertEquals(2 * IncThread.INCREMENTS, shared.get());
+        assertEquals(IncThread.INCREMENTS, other.get());
+    }
+
+    class IncThread extends TestThread {
+
+        static final int INCREMENTS = 20000;
+
+        private final IntRef ref1;
+        private final IntRef ref2;
+
+        IncThread(String name, IntRef ref1, IntRef ref2) {
+            super(name);
+            this.ref1 = ref1;
+            this.ref2 = ref2;
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            for (int k = 0; k < INCREMENTS; k++) {
+                //a write set of a single object is committed lock free, with 2 objects the locks are acquired.
+                while (true) {
+                    AlphaTransaction t = stm.startUpdateTransaction(FAMILY);
+                    try {
+                        ref1.inc((IntRefTranlocal) t.load(ref1));
+                        if (ref2 != null) {
+                            ref2.inc((IntRefTranlocal) t.load(ref2));
+                        }
+                        t.commit();
+                        break;
+                    } catch (CommitFailureException retry) {
+                    } catch (LoadException retry) {
+                        t.abort();
+                    }
+                }
+            }
+        }
+    }
+}
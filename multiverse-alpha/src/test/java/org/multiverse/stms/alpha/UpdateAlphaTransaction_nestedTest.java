@@ -0,0 +1,172 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.DeadTransactionException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_nestedTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void commitNestedMergesChanges() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        inc(t, ref1);
+        t.startNested();
+        inc(t, ref1);
+        inc(t, ref2);
+        t.commitNested();
+        t.commit();
+
+        assertEquals(2, ((IntRefTranlocal) ref1.___load()).value);
+        assertEquals(1, ((IntRefTranlocal) ref2.___load()).value);
+    }
+
+    @Test
+    public void abortNestedOnlyDiscardsNestedChanges() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        inc(t, ref1);
+        t.startNested();
+        inc(t, ref1);
+        inc(t, ref2);
+        assertTrue(t.abortNested());
+
+        assertIsActive(t);
+        assertEquals(1, ((IntRefTranlocal) t.load(ref1)).value);
+        assertEquals(0, ((IntRefTranlocal) t.load(ref2)).value);
+
+        t.commit();
+        assertEquals(1, ((IntRefTranlocal) ref1.___load()).value);
+        assertEquals(0, ((IntRefTranlocal) ref2.___load()).value);
+    }
+
+    @Test
+    public void nestedTransactionsCanBeNested() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.startNested();
+        inc(t, ref);
+        t.startNested();
+        inc(t, ref);
+        t.abortNested();
+        t.commitNested();
+        t.commit();
+
+        assertEquals(1, ((IntRefTranlocal) ref.___load()).value);
+    }
+
+    @Test
+    public void abortNestedMovesReadVersionForwardIfNothingReadHasChanged() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref1);
+        incInOtherTransaction(ref2);
+
+        t.startNested();
+        assertTrue(t.abortNested());
+        assertEquals(stm.getTime(), t.getReadVersion());
+
+        //the nested transaction can be retried and sees the change.
+        t.startNested();
+        assertEquals(1, ((IntRefTranlocal) t.load(ref2)).value);
+        t.commitNested();
+        t.commit();
+    }
+
+    @Test
+    public void abortNestedFailsIfSomethingReadHasChanged() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref1);
+        incInOtherTransaction(ref1);
+
+        t.startNested();
+        t.load(ref2);
+        long readVersion = t.getReadVersion();
+        assertFalse(t.abortNested());
+        assertEquals(readVersion, t.getReadVersion());
+        assertIsActive(t);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void commitNestedWithoutStartFails() {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.commitNested();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void abortNestedWithoutStartFails() {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.abortNested();
+    }
+
+    @Test
+    public void startNestedOnAbortedTransactionFails() {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.abort();
+
+        try {
+            t.startNested();
+            fail();
+        } catch (DeadTransactionException expected) {
+        }
+
+        assertIsAborted(t);
+    }
+
+    @Test
+    public void restartRemovesNestedTransactions() {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.startNested();
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+
+        try {
+            t.commitNested();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private void inc(AlphaTransaction t, IntRef ref) {
+        ((IntRefTranlocal) t.load(ref)).value++;
+    }
+
+    private void incInOtherTransaction(IntRef ref) {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        inc(t, ref);
+        t.commit();
+    }
+}
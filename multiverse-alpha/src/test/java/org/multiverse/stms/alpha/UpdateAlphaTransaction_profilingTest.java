@@ -0,0 +1,143 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.profiling.SimpleProfileRepository;
+import org.multiverse.utils.profiling.TransactionHistograms;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_profilingTest {
+
+    private AlphaStm stm;
+    private SimpleProfileRepository profiler;
+
+    @Before
+    public void setUp() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.loggingPossible = false;
+        profiler = new SimpleProfileRepository();
+        config.profiler = profiler;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void loadsAreCounted() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+        profiler.reset();
+
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        t.load(ref1);
+        t.load(ref1);
+        t.loadReadonly(ref2);
+        t.load(ref2);
+        t.commit();
+
+        assertEquals(1, profiler.getCount("updatetransaction.started.count", "family"));
+        assertEquals(1, profiler.getCount("updatetransaction.load.count", "family"));
+        assertEquals(1, profiler.getCount("updatetransaction.uselessload.count", "family"));
+        assertEquals(1, profiler.getCount("updatetransaction.readonlyload.count", "family"));
+        assertEquals(1, profiler.getCount("updatetransaction.privatize.count", "family"));
+        assertEquals(1, profiler.getCount("updatetransaction.committed.count", "family"));
+        assertEquals(2, profiler.getCount("atomicobject.load.count", IntRef.class.getName()));
+        assertEquals(1, profiler.getCount("atomicobject.uselessload.count", IntRef.class.getName()));
+    }
+
+    @Test
+    public void abortIsCounted() {
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        t.abort();
+
+        assertEquals(1, profiler.getCount("updatetransaction.aborted.count", "family"));
+    }
+
+    @Test
+    public void restartIsCountedForSameFamily() {
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        t.abort();
+        t = (AlphaTransaction) t.abortAndReturnRestarted();
+        t.commit();
+
+        assertEquals(2, profiler.getCount("updatetransaction.started.count", "family"));
+        assertEquals(1, profiler.getCount("updatetransaction.aborted.count", "family"));
+        assertEquals(1, profiler.getCount("updatetransaction.committed.count", "family"));
+    }
+
+    @Test
+    public void reusedTransactionCountsForNewFamily() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction("family1");
+        inc(t, ref);
+        t.commit();
+        stm.returnTransaction(t);
+
+        AlphaTransaction reused = stm.startUpdateTransaction("family2");
+        assertSame(t, reused);
+        inc(reused, ref);
+        reused.commit();
+
+        assertEquals(1, profiler.getCount("updatetransaction.load.count", "family1"));
+        assertEquals(1, profiler.getCount("updatetransaction.load.count", "family2"));
+        assertEquals(1, profiler.getCount("updatetransaction.committed.count", "family2"));
+    }
+
+    @Test
+    public void resetDoesNotDisconnectRunningTransaction() {
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        profiler.reset();
+        inc(t, ref);
+        t.commit();
+
+        assertEquals(1, profiler.getCount("updatetransaction.load.count", "family"));
+        assertEquals(1, profiler.getCount("updatetransaction.committed.count", "family"));
+    }
+
+    private void inc(AlphaTransaction t, IntRef ref) {
+        ((IntRefTranlocal) t.load(ref)).value++;
+    }
+
+    @Test
+    public void commitDurationAndLockAcquisitionTimeAreRecorded() {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+        profiler.reset();
+
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        ref1.inc((IntRefTranlocal) t.load(ref1));
+        ref2.inc((IntRefTranlocal) t.load(ref2));
+        t.commit();
+
+        assertEquals(1, profiler.getHistogram(TransactionHistograms.COMMIT_DURATION, "family").getCount());
+        assertEquals(1, profiler.getHistogram(TransactionHistograms.LOCK_ACQUISITION_TIME, "family").getCount());
+    }
+
+    @Test
+    public void readonlyCommitDoesNotRecordLockAcquisitionTime() {
+        IntRef ref = new IntRef(0);
+        profiler.reset();
+
+        AlphaTransaction t = stm.startUpdateTransaction("family");
+        t.load(ref);
+        t.commit();
+
+        assertEquals(0, profiler.getHistogram(TransactionHistograms.LOCK_ACQUISITION_TIME, "family").getCount());
+    }
+}
@@ -0,0 +1,102 @@
+package org.multiverse.stms.alpha;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.multiverse.TestUtils.assertIsActive;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.LoadTooOldVersionException;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class UpdateAlphaTransaction_readVersionExtensionTest {
+
+    private AlphaStm stm;
+
+    public void createStm(boolean readVersionExtensionEnabled, int maxArrayUpdateTransactionSize) {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.readVersionExtensionEnabled = readVersionExtensionEnabled;
+        config.maxArrayUpdateTransactionSize = maxArrayUpdateTransactionSize;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void withoutExtensionTooNewVersionFails() {
+        createStm(false, 8);
+        IntRef ref = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ref.inc();
+
+        try {
+            t.load(ref);
+            fail();
+        } catch (LoadTooOldVersionException ex) {
+        }
+    }
+
+    @Test
+    public void readVersionIsExtendedIfNothingReadHasChanged() {
+        createStm(true, 8);
+        readVersionIsExtendedIfNothingReadHasChanged(stm);
+    }
+
+    @Test
+    public void readVersionIsExtendedIfNothingReadHasChangedWithMap() {
+        createStm(true, 0);
+        readVersionIsExtendedIfNothingReadHasChanged(stm);
+    }
+
+    public void readVersionIsExtendedIfNothingReadHasChanged(AlphaStm stm) {
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntRefTranlocal tranlocal1 = (IntRefTranlocal) t.load(ref1);
+        ref2.inc();
+
+        IntRefTranlocal tranlocal2 = (IntRefTranlocal) t.load(ref2);
+        assertIsActive(t);
+        assertEquals(stm.getTime(), t.getReadVersion());
+        assertEquals(1, tranlocal2.value);
+
+        tranlocal1.value++;
+        tranlocal2.value++;
+        t.commit();
+
+        assertEquals(1, ref1.get());
+        assertEquals(2, ref2.get());
+    }
+
+    @Test
+    public void readVersionIsNotExtendedIfSomethingReadHasChanged() {
+        createStm(true, 8);
+        IntRef ref1 = new IntRef(0);
+        IntRef ref2 = new IntRef(0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        t.load(ref1);
+        long readVersion = t.getReadVersion();
+        ref1.inc();
+        ref2.inc();
+
+        try {
+            t.load(ref2);
+            fail();
+        } catch (LoadTooOldVersionException ex) {
+        }
+
+        assertEquals(readVersion, t.getReadVersion());
+    }
+}
@@ -0,0 +1,122 @@
+package org.multiverse.stms.alpha.instrumentation.asm;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.api.annotations.AtomicObject;
+import org.multiverse.api.annotations.FieldGroup;
+import org.multiverse.api.exceptions.WriteConflictException;
+import org.multiverse.stms.alpha.AlphaStm;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AtomicObject_FieldGroupTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void writesOnDifferentFieldGroupsDontConflict() {
+        Pair pair = new Pair();
+
+        Transaction t = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t);
+        pair.incHead();
+        setThreadLocalTransaction(null);
+
+        pair.incTail();
+
+        t.commit();
+        assertEquals(1, pair.getHead());
+        assertEquals(1, pair.getTail());
+    }
+
+    @Test
+    public void writesOnSameFieldGroupConflict() {
+        Pair pair = new Pair();
+
+        Transaction t = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t);
+        pair.incHead();
+        setThreadLocalTransaction(null);
+
+        pair.incHead();
+
+        try {
+            t.commit();
+            fail();
+        } catch (WriteConflictException ex) {
+        }
+
+        assertEquals(1, pair.getHead());
+        assertEquals(0, pair.getTail());
+    }
+
+    @Test
+    public void writesOnDefaultFieldGroupConflict() {
+        Pair pair = new Pair();
+
+        Transaction t = stm.startUpdateTransaction(null);
+        setThreadLocalTransaction(t);
+        pair.incHead();
+        pair.incSize();
+        setThreadLocalTransaction(null);
+
+        pair.incTail();
+        pair.incSize();
+
+        try {
+            t.commit();
+            fail();
+        } catch (WriteConflictException ex) {
+        }
+    }
+
+    @AtomicObject
+    public static class Pair {
+
+        @FieldGroup("head")
+        int head;
+
+        @FieldGroup("tail")
+        int tail;
+
+        int size;
+
+        public int getHead() {
+            return head;
+        }
+
+        public int getTail() {
+            return tail;
+        }
+
+        public void incHead() {
+            head++;
+        }
+
+        public void incTail() {
+            tail++;
+        }
+
+        public void incSize() {
+            size++;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.multiverse.stms.alpha.manualinstrumentation;
+
+import org.multiverse.api.Transaction;
+import org.multiverse.api.exceptions.ReadonlyException;
+import org.multiverse.stms.alpha.AlphaAtomicObject;
+import org.multiverse.stms.alpha.AlphaTranlocal;
+import org.multiverse.stms.alpha.AlphaTranlocalSnapshot;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.DirtinessStatus;
+import org.multiverse.stms.alpha.mixins.FastAtomicObjectMixin;
+import org.multiverse.templates.AtomicTemplate;
+
+/**
+ * The manual instrumented version of:
+ * <pre>
+ * &#064;AtomicObject
+ * class IntPair{
+ *     &#064;FieldGroup("left") int left;
+ *     &#064;FieldGroup("right") int right;
+ * }
+ * </pre>
+ * So a write on the left and a write on the right don't conflict.
+ */
+public final class IntPair extends FastAtomicObjectMixin {
+
+    public IntPair(final int left, final int right) {
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) {
+                IntPairTranlocal tranlocal = (IntPairTranlocal) ((AlphaTransaction) t).load(IntPair.this);
+                tranlocal.left = left;
+                tranlocal.right = right;
+                return null;
+            }
+        }.execute();
+    }
+
+    public int getLeft() {
+        return new AtomicTemplate<Integer>(true) {
+            @Override
+            public Integer execute(Transaction t) {
+                IntPairTranlocal tranlocal = (IntPairTranlocal) ((AlphaTransaction) t).load(IntPair.this);
+                return tranlocal.left;
+            }
+        }.execute();
+    }
+
+    public int getRight() {
+        return new AtomicTemplate<Integer>(true) {
+            @Override
+            public Integer execute(Transaction t) {
+                IntPairTranlocal tranlocal = (IntPairTranlocal) ((AlphaTransaction) t).load(IntPair.this);
+                return tranlocal.right;
+            }
+        }.execute();
+    }
+
+    public void incLeft() {
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) {
+                IntPairTranlocal tranlocal = (IntPairTranlocal) ((AlphaTransaction) t).load(IntPair.this);
+                incLeft(tranlocal);
+                return null;
+            }
+        }.execute();
+    }
+
+    public void incRight() {
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) {
+                IntPairTranlocal tranlocal = (IntPairTranlocal) ((AlphaTransaction) t).load(IntPair.this);
+                incRight(tranlocal);
+                return null;
+            }
+        }.execute();
+    }
+
+    public void incLeft(IntPairTranlocal tranlocal) {
+        if (tranlocal.___writeVersion > 0) {
+            throw new ReadonlyException();
+        }
+        tranlocal.left++;
+    }
+
+    public void incRight(IntPairTranlocal tranlocal) {
+        if (tranlocal.___writeVersion > 0) {
+            throw new ReadonlyException();
+        }
+        tranlocal.right++;
+    }
+
+    @Override
+    public IntPairTranlocal ___loadUpdatable(long version) {
+        IntPairTranlocal origin = (IntPairTranlocal) ___load(version);
+        if (origin == null) {
+            return new IntPairTranlocal(this);
+        } else {
+            return new IntPairTranlocal(origin);
+        }
+    }
+}
+
+class IntPairTranlocal extends AlphaTranlocal {
+
+    final IntPair ___atomicObject;
+    IntPairTranlocal ___origin;
+    int left;
+    int right;
+
+    IntPairTranlocal(IntPair atomicObject) {
+        this.___atomicObject = atomicObject;
+    }
+
+    IntPairTranlocal(IntPairTranlocal origin) {
+        this.___atomicObject = origin.___atomicObject;
+        this.___origin = origin;
+        this.left = origin.left;
+        this.right = origin.right;
+    }
+
+    @Override
+    public AlphaAtomicObject getAtomicObject() {
+        return ___atomicObject;
+    }
+
+    @Override
+    public void prepareForCommit(long writeVersion) {
+        this.___writeVersion = writeVersion;
+        this.___origin = null;
+    }
+
+    @Override
+    public DirtinessStatus getDirtinessStatus() {
+        if (___writeVersion > 0) {
+            return DirtinessStatus.readonly;
+        } else if (___origin == null) {
+            return DirtinessStatus.fresh;
+        } else if (___origin.left != left || ___origin.right != right) {
+            return DirtinessStatus.dirty;
+        } else {
+            return DirtinessStatus.clean;
+        }
+    }
+
+    @Override
+    public boolean rebase(AlphaTranlocal newerTranlocal) {
+        IntPairTranlocal newer = (IntPairTranlocal) newerTranlocal;
+        IntPairTranlocal origin = ___origin;
+        if (origin == null) {
+            return false;
+        }
+
+        boolean leftWritten = left != origin.left;
+        if (leftWritten && newer.left != origin.left) {
+            return false;
+        }
+
+        boolean rightWritten = right != origin.right;
+        if (rightWritten && newer.right != origin.right) {
+            return false;
+        }
+
+        if (!leftWritten) {
+            left = newer.left;
+        }
+
+        if (!rightWritten) {
+            right = newer.right;
+        }
+
+        ___origin = newer;
+        return true;
+    }
+
+    @Override
+    public AlphaTranlocalSnapshot takeSnapshot() {
+        final int left = this.left;
+        final int right = this.right;
+        return new AlphaTranlocalSnapshot() {
+            @Override
+            public AlphaTranlocal getTranlocal() {
+                return IntPairTranlocal.this;
+            }
+
+            @Override
+            public void restore() {
+                IntPairTranlocal.this.left = left;
+                IntPairTranlocal.this.right = right;
+            }
+        };
+    }
+}
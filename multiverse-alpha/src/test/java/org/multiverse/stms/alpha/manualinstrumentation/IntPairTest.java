@@ -0,0 +1,79 @@
+package org.multiverse.stms.alpha.manualinstrumentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.exceptions.WriteConflictException;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaTransaction;
+
+public class IntPairTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void writesOnDifferentFieldGroupsDontConflict() {
+        IntPair pair = new IntPair(0, 0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntPairTranlocal tranlocal = (IntPairTranlocal) t.load(pair);
+        pair.incLeft(tranlocal);
+
+        //a concurrent write on the other field group.
+        pair.incRight();
+
+        t.commit();
+        assertEquals(1, pair.getLeft());
+        assertEquals(1, pair.getRight());
+    }
+
+    @Test
+    public void writesOnSameFieldGroupConflict() {
+        IntPair pair = new IntPair(0, 0);
+
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        IntPairTranlocal tranlocal = (IntPairTranlocal) t.load(pair);
+        pair.incLeft(tranlocal);
+
+        //a concurrent write on the same field group.
+        pair.incLeft();
+
+        try {
+            t.commit();
+            fail();
+        } catch (WriteConflictException ex) {
+        }
+
+        assertEquals(1, pair.getLeft());
+        assertEquals(0, pair.getRight());
+    }
+
+    @Test
+    public void rebasedTransactionCanBeRebasedAgain() {
+        IntPair pair = new IntPair(0, 0);
+
+        AlphaTransaction t1 = stm.startUpdateTransaction(null);
+        pair.incLeft((IntPairTranlocal) t1.load(pair));
+        pair.incRight();
+        t1.commit();
+
+        AlphaTransaction t2 = stm.startUpdateTransaction(null);
+        pair.incRight((IntPairTranlocal) t2.load(pair));
+        pair.incLeft();
+        pair.incLeft();
+        t2.commit();
+
+        assertEquals(3, pair.getLeft());
+        assertEquals(2, pair.getRight());
+    }
+}
@@ -12,6 +12,10 @@ import org.multiverse.api.exceptions.LoadTooOldVersionException;
 import org.multiverse.stms.alpha.*;
 import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
 import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+import org.multiverse.utils.clock.Clock;
+import org.multiverse.utils.clock.StrictClock;
+import org.multiverse.utils.latches.CheapLatch;
+import org.multiverse.utils.latches.Latch;
 
 public class FastAtomicObjectMixinTest {
 
@@ -206,6 +210,230 @@ public class FastAtomicObjectMixinTest {
         assertSame(otherOwner, object.___getLockOwner());
     }
 
+    // ======================= lock id ====================
+
+    @Test
+    public void lockIdIsUniqueAndStable() {
+        DummyFastAtomicObjectMixin object1 = new DummyFastAtomicObjectMixin();
+        DummyFastAtomicObjectMixin object2 = new DummyFastAtomicObjectMixin();
+
+        long id1 = object1.___getLockId();
+        long id2 = object2.___getLockId();
+
+        assertTrue(id1 > 0);
+        assertTrue(id2 > 0);
+        assertTrue(id1 != id2);
+        assertEquals(id1, object1.___getLockId());
+        assertEquals(id1, new DummyTranlocal(object1).getLockId());
+    }
+
+    // ======================= domain ====================
+
+    @Test
+    public void bindDomainClock() {
+        DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        assertNull(object.___getDomainClock());
+
+        Clock clock = new StrictClock();
+        object.___bindDomainClock(clock);
+        assertSame(clock, object.___getDomainClock());
+
+        //once bound, the domain never changes.
+        object.___bindDomainClock(new StrictClock());
+        assertSame(clock, object.___getDomainClock());
+    }
+
+    // ======================= publish pending ====================
+
+    @Test
+    public void tryPublishPending() {
+        DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal pending = new DummyTranlocal(object);
+
+        boolean result = object.___tryPublishPending(null, pending);
+        assertTrue(result);
+        assertNull(object.___getLockOwner());
+
+        object.___commitPending(pending, 10);
+        assertEquals(10, pending.___writeVersion);
+        assertSame(pending, object.___load());
+        assertSame(pending, object.___load(10));
+    }
+
+    @Test
+    public void tryPublishPendingFailsIfExpectedTranlocalIsNotCurrent() {
+        Transaction lockOwner = new DummyTransaction();
+        DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal committed = new DummyTranlocal(object);
+        object.___tryLock(lockOwner);
+        object.___storeAndReleaseLock(committed, 10);
+        object.___releaseLock(lockOwner);
+
+        DummyTranlocal pending = new DummyTranlocal(object);
+        boolean result = object.___tryPublishPending(null, pending);
+        assertFalse(result);
+        assertSame(committed, object.___load());
+    }
+
+    @Test
+    public void tryPublishPendingIsRevokedIfLocked() {
+        Transaction lockOwner = new DummyTransaction();
+        DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal committed = new DummyTranlocal(object);
+        object.___tryLock(lockOwner);
+        object.___storeAndReleaseLock(committed, 10);
+
+        DummyTranlocal pending = new DummyTranlocal(object);
+        boolean result = object.___tryPublishPending(committed, pending);
+        assertFalse(result);
+        assertSame(committed, object.___load());
+        assertSame(lockOwner, object.___getLockOwner());
+    }
+
+    @Test
+    public void loadFailsIfPendingTranlocalDoesNotComplete() {
+        DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal pending = new DummyTranlocal(object);
+        object.___tryPublishPending(null, pending);
+
+        try {
+            object.___load();
+            fail();
+        } catch (LoadLockedException expected) {
+        }
+
+        try {
+            object.___load(20);
+            fail();
+        } catch (LoadLockedException expected) {
+        }
+
+        object.___commitPending(pending, 10);
+        assertSame(pending, object.___load(20));
+    }
+
+    @Test
+    public void loadWhileLockedWaitsForPendingTranlocal() throws InterruptedException {
+        Transaction lockOwner = new DummyTransaction();
+        final DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal pending = new DummyTranlocal(object);
+        object.___tryPublishPending(null, pending);
+        object.___tryLock(lockOwner);
+
+        final AlphaTranlocal[] found = new AlphaTranlocal[]{pending};
+        Thread loadThread = new Thread() {
+            public void run() {
+                found[0] = object.___loadWhileLocked();
+            }
+        };
+        loadThread.start();
+        loadThread.join(100);
+        assertTrue(loadThread.isAlive());
+
+        object.___revokePending(null, pending);
+        loadThread.join();
+        assertNull(found[0]);
+    }
+
+    @Test
+    public void registerRetryListenerOnPendingTranlocalOpensLatch() {
+        DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal pending = new DummyTranlocal(object);
+        object.___tryPublishPending(null, pending);
+
+        Latch latch = new CheapLatch();
+        assertTrue(object.___registerRetryListener(latch, 1));
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void revokePending() {
+        Transaction lockOwner = new DummyTransaction();
+        DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal committed = new DummyTranlocal(object);
+        object.___tryLock(lockOwner);
+        object.___storeAndReleaseLock(committed, 10);
+        object.___releaseLock(lockOwner);
+
+        DummyTranlocal pending = new DummyTranlocal(object);
+        assertTrue(object.___tryPublishPending(committed, pending));
+
+        object.___revokePending(committed, pending);
+        assertSame(committed, object.___load());
+
+        //a second revoke is ignored.
+        object.___revokePending(committed, pending);
+        assertSame(committed, object.___load());
+    }
+
+    @Test
+    public void storeWaitsForRevokeOfPendingTranlocal() throws InterruptedException {
+        Transaction lockOwner = new DummyTransaction();
+        final DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal committed = new DummyTranlocal(object);
+        object.___tryLock(lockOwner);
+        object.___storeAndReleaseLock(committed, 10);
+        object.___releaseLock(lockOwner);
+
+        //the pending tranlocal is published before the lock is acquired.
+        DummyTranlocal pending = new DummyTranlocal(object);
+        assertTrue(object.___tryPublishPending(committed, pending));
+        object.___tryLock(lockOwner);
+
+        final DummyTranlocal stored = new DummyTranlocal(object);
+        Thread storeThread = new Thread() {
+            public void run() {
+                object.___storeAndReleaseLock(stored, 11);
+            }
+        };
+        storeThread.start();
+        storeThread.join(100);
+        assertTrue(storeThread.isAlive());
+
+        object.___revokePending(committed, pending);
+        storeThread.join();
+        assertSame(stored, object.___load());
+
+        //the revoked tranlocal can't overwrite the stored tranlocal anymore.
+        object.___commitPending(pending, 12);
+        assertSame(stored, object.___load());
+    }
+
+    @Test
+    public void storeWaitsForCommitOfPendingTranlocal() throws InterruptedException {
+        Transaction lockOwner = new DummyTransaction();
+        final DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        DummyTranlocal pending = new DummyTranlocal(object);
+        assertTrue(object.___tryPublishPending(null, pending));
+        object.___tryLock(lockOwner);
+
+        final DummyTranlocal stored = new DummyTranlocal(object);
+        Thread storeThread = new Thread() {
+            public void run() {
+                object.___storeAndReleaseLock(stored, 11);
+            }
+        };
+        storeThread.start();
+        storeThread.join(100);
+        assertTrue(storeThread.isAlive());
+
+        object.___commitPending(pending, 10);
+        storeThread.join();
+        assertSame(stored, object.___load());
+        assertEquals(11, stored.___writeVersion);
+    }
+
+    @Test
+    public void tryPublishPendingDoesNotPublishIfLocked() {
+        Transaction lockOwner = new DummyTransaction();
+        DummyFastAtomicObjectMixin object = new DummyFastAtomicObjectMixin();
+        object.___tryLock(lockOwner);
+
+        DummyTranlocal pending = new DummyTranlocal(object);
+        assertFalse(object.___tryPublishPending(null, pending));
+        assertNull(object.___load());
+    }
+
     // ==========================================
 
     static class DummyFastAtomicObjectMixin extends FastAtomicObjectMixin {
@@ -0,0 +1,120 @@
+package org.multiverse.templates;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.StmUtils.retry;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaStmConfig;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.utils.profiling.LatencyHistogram;
+import org.multiverse.utils.profiling.SimpleProfileRepository;
+import static org.multiverse.utils.profiling.TransactionHistograms.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AtomicTemplate_histogramsTest {
+
+    private AlphaStm stm;
+    private SimpleProfileRepository profiler;
+
+    @Before
+    public void setUp() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        profiler = new SimpleProfileRepository();
+        config.profiler = profiler;
+        stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void committedTransactionIsRecorded() {
+        final IntRef ref = new IntRef(0);
+
+        new AtomicTemplate(stm, "family", false, false, 10) {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                ref.inc();
+                return null;
+            }
+        }.execute();
+
+        LatencyHistogram duration = profiler.getHistogram(TRANSACTION_DURATION, "family");
+        assertEquals(1, duration.getCount());
+        assertTrue(duration.getMax() > 0);
+
+        LatencyHistogram attempts = profiler.getHistogram(ATTEMPTS, "family");
+        assertEquals(1, attempts.getCount());
+        assertEquals(1, attempts.getMax());
+    }
+
+    @Test
+    public void abortedTransactionIsNotRecorded() {
+        try {
+            new AtomicTemplate(stm, "family", false, false, 10) {
+                @Override
+                public Object execute(Transaction t) throws Exception {
+                    throw new IllegalStateException();
+                }
+            }.execute();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertEquals(0, profiler.getHistogram(TRANSACTION_DURATION, "family").getCount());
+        assertEquals(0, profiler.getHistogram(ATTEMPTS, "family").getCount());
+    }
+
+    @Test
+    public void retryBlockTimeIsRecorded() {
+        final IntRef ref = new IntRef(0);
+
+        new AtomicTemplate(stm, "family", false, false, 10) {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                if (ref.get() == 0) {
+                    retry(50, TimeUnit.MILLISECONDS);
+                }
+                return null;
+            }
+        }.execute();
+
+        LatencyHistogram blockTime = profiler.getHistogram(RETRY_BLOCK_TIME, "family");
+        assertEquals(1, blockTime.getCount());
+        assertTrue(blockTime.getMax() >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, profiler.getHistogram(TRANSACTION_DURATION, "family").getCount());
+    }
+
+    @Test
+    public void executesWithoutProfiler() {
+        AlphaStmConfig config = new AlphaStmConfig();
+        config.profiler = null;
+        AlphaStm stm = new AlphaStm(config);
+        setGlobalStmInstance(stm);
+        final IntRef ref = new IntRef(0);
+
+        Object result = new AtomicTemplate(stm, "family", false, false, 10) {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                ref.inc();
+                return 10;
+            }
+        }.execute();
+
+        assertEquals(10, result);
+        assertEquals(1, ref.get());
+    }
+}
@@ -0,0 +1,94 @@
+package org.multiverse.templates;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import org.multiverse.api.PropagationLevel;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AtomicTemplate_irrevocableTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readonlyAndIrrevocableFails() {
+        new AtomicTemplate(stm, null, false, true, 10, PropagationLevel.requires, true) {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void defaultIsNotIrrevocable() {
+        AtomicTemplate template = new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                return null;
+            }
+        };
+
+        assertFalse(template.isIrrevocable());
+    }
+
+    @Test
+    public void irrevocableTransactionOwnsGateWhileExecuting() {
+        final IntRef ref = new IntRef(0);
+
+        Transaction owner = new IrrevocableTemplate() {
+            @Override
+            public Transaction execute(Transaction t) throws Exception {
+                ref.inc();
+                assertTrue(stm.getIrrevocableCommitGate().isOwner(t));
+                return t;
+            }
+        }.execute();
+
+        assertNotNull(owner);
+        assertNull(stm.getIrrevocableCommitGate().getOwner());
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void failingIrrevocableTransactionReleasesGate() {
+        try {
+            new IrrevocableTemplate() {
+                @Override
+                public Transaction execute(Transaction t) throws Exception {
+                    throw new IllegalStateException();
+                }
+            }.execute();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertNull(stm.getIrrevocableCommitGate().getOwner());
+    }
+
+    abstract class IrrevocableTemplate extends AtomicTemplate<Transaction> {
+        IrrevocableTemplate() {
+            super(stm, null, false, false, 10, PropagationLevel.requires, true);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.multiverse.templates;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import org.multiverse.api.PropagationLevel;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.AlphaTransaction;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRefTranlocal;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AtomicTemplate_nestedTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructorWithNullPropagationLevelFails() {
+        new AtomicTemplate(stm, null, false, false, 10, null) {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void defaultPropagationLevelIsRequires() {
+        AtomicTemplate template = new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                return null;
+            }
+        };
+
+        assertEquals(PropagationLevel.requires, template.getPropagationLevel());
+    }
+
+    @Test
+    public void nestedWithoutRunningTransactionStartsNewTransaction() {
+        final IntRef ref = new IntRef(0);
+
+        new NestedTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                ref.inc();
+                return null;
+            }
+        }.execute();
+
+        assertEquals(1, ref.get());
+    }
+
+    @Test
+    public void successfulNestedChangesAreMerged() {
+        final IntRef ref1 = new IntRef(0);
+        final IntRef ref2 = new IntRef(0);
+
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                ref1.inc();
+                new NestedTemplate() {
+                    @Override
+                    public Object execute(Transaction t) throws Exception {
+                        ref2.inc();
+                        return null;
+                    }
+                }.execute();
+                return null;
+            }
+        }.execute();
+
+        assertEquals(1, ref1.get());
+        assertEquals(1, ref2.get());
+    }
+
+    @Test
+    public void failedNestedChangesAreDiscarded() {
+        final IntRef ref1 = new IntRef(0);
+        final IntRef ref2 = new IntRef(0);
+
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                ref1.inc();
+                try {
+                    new NestedTemplate() {
+                        @Override
+                        public Object execute(Transaction t) throws Exception {
+                            ref1.inc();
+                            ref2.inc();
+                            throw new MyException();
+                        }
+                    }.executeChecked();
+                    fail();
+                } catch (MyException expected) {
+                }
+                return null;
+            }
+        }.execute();
+
+        assertEquals(1, ref1.get());
+        assertEquals(0, ref2.get());
+    }
+
+    @Test
+    public void nestedConflictOnlyRetriesNestedTransaction() {
+        final IntRef ref1 = new IntRef(0);
+        final IntRef ref2 = new IntRef(0);
+        final int[] outerCount = new int[1];
+        final int[] nestedCount = new int[1];
+
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                outerCount[0]++;
+                ref1.inc();
+                //ref2 is changed after the outer transaction has started, so the first load fails.
+                if (outerCount[0] == 1) {
+                    incInOtherTransaction(ref2);
+                }
+
+                new NestedTemplate() {
+                    @Override
+                    public Object execute(Transaction t) throws Exception {
+                        nestedCount[0]++;
+                        ref2.inc();
+                        return null;
+                    }
+                }.execute();
+                return null;
+            }
+        }.execute();
+
+        assertEquals(1, outerCount[0]);
+        assertEquals(2, nestedCount[0]);
+        assertEquals(1, ref1.get());
+        assertEquals(2, ref2.get());
+    }
+
+    @Test
+    public void nestedConflictRestartsOuterTransactionIfItsReadsHaveChanged() {
+        final IntRef ref1 = new IntRef(0);
+        final IntRef ref2 = new IntRef(0);
+        final int[] outerCount = new int[1];
+        final int[] nestedCount = new int[1];
+
+        new AtomicTemplate() {
+            @Override
+            public Object execute(Transaction t) throws Exception {
+                outerCount[0]++;
+                ref1.get();
+                if (outerCount[0] == 1) {
+                    incInOtherTransaction(ref1);
+                    incInOtherTransaction(ref2);
+                }
+
+                new NestedTemplate() {
+                    @Override
+                    public Object execute(Transaction t) throws Exception {
+                        nestedCount[0]++;
+                        ref2.inc();
+                        return null;
+                    }
+                }.execute();
+                return null;
+            }
+        }.execute();
+
+        assertEquals(2, outerCount[0]);
+        assertEquals(2, nestedCount[0]);
+        assertEquals(2, ref2.get());
+    }
+
+    private void incInOtherTransaction(IntRef ref) {
+        AlphaTransaction t = stm.startUpdateTransaction(null);
+        ((IntRefTranlocal) t.load(ref)).value++;
+        t.commit();
+    }
+
+    abstract class NestedTemplate extends AtomicTemplate {
+        NestedTemplate() {
+            super(stm, null, false, false, 10, PropagationLevel.nested);
+        }
+    }
+
+    static class MyException extends Exception {
+    }
+}
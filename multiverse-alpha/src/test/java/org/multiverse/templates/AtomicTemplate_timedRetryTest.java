@@ -0,0 +1,177 @@
+package org.multiverse.templates;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import static org.multiverse.api.GlobalStmInstance.setGlobalStmInstance;
+import static org.multiverse.api.StmUtils.retry;
+import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
+import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.stms.alpha.AlphaStm;
+import org.multiverse.stms.alpha.manualinstrumentation.IntRef;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AtomicTemplate_timedRetryTest {
+
+    private AlphaStm stm;
+
+    @Before
+    public void setUp() {
+        stm = new AlphaStm();
+        setGlobalStmInstance(stm);
+        setThreadLocalTransaction(null);
+    }
+
+    @After
+    public void tearDown() {
+        setThreadLocalTransaction(null);
+    }
+
+    @Test
+    public void timedRetryReturnsWhenTimeoutExpires() {
+        final IntRef ref = new IntRef(0);
+
+        long startNs = System.nanoTime();
+        Integer result = new AtomicTemplate<Integer>() {
+            @Override
+            public Integer execute(Transaction t) throws Exception {
+                if (ref.get() == 0) {
+                    retry(100, TimeUnit.MILLISECONDS);
+                    return -1;
+                }
+                return ref.get();
+            }
+        }.execute();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+
+        assertEquals(-1, result.intValue());
+        assertTrue(elapsedMs >= 100);
+        assertNull(getThreadLocalTransaction());
+    }
+
+    @Test
+    public void timedRetryCompletesWhenChangedBeforeTimeout() {
+        IntRef ref = new IntRef(0);
+
+        TimedAwaitThread t = new TimedAwaitThread(ref, 10, TimeUnit.SECONDS);
+        startAll(t);
+        sleepMs(200);
+        assertTrue(t.isAlive());
+
+        ref.inc();
+        joinAll(t);
+        assertEquals(1, t.result);
+    }
+
+    @Test
+    public void timeoutIsNotRestartedByRetries() {
+        IntRef ref = new IntRef(0);
+
+        TimedAwaitThread t = new TimedAwaitThread(ref, 500, TimeUnit.MILLISECONDS);
+        startAll(t);
+
+        //the changes wake up the waiting transaction, but the value it waits for never appears.
+        for (int k = 0; k < 10; k++) {
+            sleepMs(100);
+            ref.set(-k);
+        }
+
+        joinAll(t);
+        assertEquals(-1, t.result);
+    }
+
+    @Test
+    public void retryTimeoutIsResetForNewTransaction() {
+        final IntRef ref = new IntRef(0);
+
+        for (int k = 0; k < 2; k++) {
+            long startNs = System.nanoTime();
+            new AtomicTemplate() {
+                @Override
+                public Object execute(Transaction t) throws Exception {
+                    if (ref.get() == 0) {
+                        retry(100, TimeUnit.MILLISECONDS);
+                    }
+                    return null;
+                }
+            }.execute();
+
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs) >= 100);
+        }
+    }
+
+    @Test
+    public void timedRetryIsInterruptible() throws InterruptedException {
+        final IntRef ref = new IntRef(0);
+        final Throwable[] found = new Throwable[1];
+        final Transaction[] transactionAfterwards = new Transaction[1];
+
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    new AtomicTemplate() {
+                        @Override
+                        public Object execute(Transaction t) throws Exception {
+                            if (ref.get() == 0) {
+                                retry(10, TimeUnit.SECONDS);
+                            }
+                            return null;
+                        }
+                    }.executeChecked();
+                } catch (Throwable ex) {
+                    found[0] = ex;
+                }
+                transactionAfterwards[0] = getThreadLocalTransaction();
+            }
+        };
+        thread.start();
+        sleepMs(200);
+        assertTrue(thread.isAlive());
+
+        long startNs = System.nanoTime();
+        thread.interrupt();
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs) < 5000);
+        assertTrue(found[0] instanceof InterruptedException);
+        assertNull(transactionAfterwards[0]);
+    }
+
+    class TimedAwaitThread extends TestThread {
+        private final IntRef ref;
+        private final long timeout;
+        private final TimeUnit unit;
+        private volatile int result;
+
+        TimedAwaitThread(IntRef ref, long timeout, TimeUnit unit) {
+            super("TimedAwaitThread");
+            this.ref = ref;
+            this.timeout = timeout;
+            this.unit = unit;
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            result = new AtomicTemplate<Integer>() {
+                @Override
+                public Integer execute(Transaction t) throws Exception {
+                    int value = ref.get();
+                    if (value <= 0) {
+                        retry(timeout, unit);
+                        return -1;
+                    }
+                    return value;
+                }
+            }.execute();
+        }
+    }
+}
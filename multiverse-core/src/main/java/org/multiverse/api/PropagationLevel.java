@@ -1,10 +1,28 @@
 package org.multiverse.api;
 
+/**
+ * Determines what happens with an atomic block if there already is a transaction running.
+ *
+ * @author Peter Veentjer.
+ */
 public enum PropagationLevel {
 
+    /**
+     * The atomic block joins the running transaction, or starts a new one if no transaction is running. A failure in
+     * the atomic block restarts the complete transaction.
+     */
     requires,
 
+    /**
+     * Not supported yet, behaves like {@link #requires}.
+     */
     requiresNew,
 
+    /**
+     * The atomic block is executed as a closed nested transaction of the running transaction (see {@link
+     * Transaction#startNested()}), or starts a new one if no transaction is running. If the atomic block fails, only
+     * the changes made inside of it are discarded. A failure it can't recover from by itself is propagated to the
+     * running transaction.
+     */
     nested
 }
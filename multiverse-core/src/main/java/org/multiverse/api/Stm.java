@@ -38,6 +38,21 @@ public interface Stm {
      */
     Transaction startUpdateTransaction(String familyName);
 
+    /**
+     * Starts an irrevocable Transaction that can be used for updates. An irrevocable transaction is guaranteed to
+     * commit, so it is allowed to do work that can't be undone (like I/O). At most one irrevocable transaction runs at
+     * any moment; this call blocks until the other irrevocable transaction has completed. Other transactions keep
+     * executing, but they can't commit changes while the irrevocable transaction is running.
+     * <p/>
+     * A retry aborts the irrevocable transaction, so work that can't be undone should only be done after the
+     * transaction has decided not to retry. The thread executing the irrevocable transaction should not commit other
+     * transactions, they would wait for the irrevocable transaction.
+     *
+     * @param familyName the familyName of the Transaction.
+     * @return the created irrevocable Transaction.
+     */
+    Transaction startIrrevocableTransaction(String familyName);
+
     /**
      * Starts Transaction that only can be used for readonly access. Updates are not allowed while using this
      * transaction and will cause a {@link org.multiverse.api.exceptions.ReadonlyException} to be thrown.
@@ -4,6 +4,8 @@ import org.multiverse.api.exceptions.NoTransactionFoundException;
 import org.multiverse.api.exceptions.RetryError;
 import static org.multiverse.api.ThreadLocalTransaction.getRequiredThreadLocalTransaction;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * A utility class with convenience methods to access the {@link org.multiverse.api.Stm} or
  * {@link Transaction}. These methods can be imported using the static import for a less
@@ -26,6 +28,47 @@ public final class StmUtils {
         throw RetryError.create();
     }
 
+    /**
+     * Does a retry that waits at most the given timeout.
+     * <p/>
+     * The first call starts the retry timeout of the transaction (see {@link Transaction#startRetryTimeout(long)}),
+     * and because the timeout is kept when the transaction is restarted, it bounds all the retries of the transaction
+     * together. As long as the timeout has not expired, a RetryError is thrown just like {@link #retry()}. Once it has
+     * expired, this method returns normally, so the transaction can decide what to do, e.g:
+     * <pre>
+     * if (isEmpty()) {
+     *     retry(timeout, unit);
+     *     return null;
+     * }
+     * </pre>
+     *
+     * <p/>
+     * Unlike {@link #retry()}, the wait is interruptible: if the thread is interrupted while it waits, the transaction
+     * is aborted and an InterruptedException is thrown by the atomic method (or the {@link
+     * org.multiverse.templates.AtomicTemplate}) instead of restarting the transaction.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit    the TimeUnit of the timeout.
+     * @throws NullPointerException        if unit is null.
+     * @throws NoTransactionFoundException if no transaction is found in the ThreadLocalTransaction.
+     * @throws InterruptedException        if the thread already is interrupted.
+     */
+    public static void retry(long timeout, TimeUnit unit) throws InterruptedException {
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+
+        Transaction t = getRequiredThreadLocalTransaction();
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        t.startRetryTimeout(unit.toNanos(timeout));
+        if (t.getRetryTimeoutNs() > 0) {
+            throw RetryError.create();
+        }
+    }
+
     /**
      * Schedules a tasks so that it executes when the transaction commits.
      *
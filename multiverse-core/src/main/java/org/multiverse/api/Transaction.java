@@ -111,6 +111,28 @@ public interface Transaction {
      */
     void abortAndRegisterRetryLatch(Latch latch);
 
+    /**
+     * Starts the retry timeout of this Transaction: the total time that blocking retries of this transaction are
+     * allowed to wait. The timeout is kept when the transaction is restarted, so it bounds all the retries of the
+     * transaction together. If the retry timeout already has been started, this call is ignored.
+     *
+     * @param timeoutNs the timeout in nanoseconds.
+     * @throws org.multiverse.api.exceptions.DeadTransactionException
+     *          if this transaction already is committed or aborted.
+     * @see #getRetryTimeoutNs()
+     * @see org.multiverse.api.StmUtils#retry(long, java.util.concurrent.TimeUnit)
+     */
+    void startRetryTimeout(long timeoutNs);
+
+    /**
+     * Returns the remaining time in nanoseconds that a blocking retry of this Transaction is allowed to wait.
+     *
+     * @return the remaining time, Long.MAX_VALUE if the retry timeout has not been started, or a value equal or smaller
+     *         than 0 if the retry timeout has expired.
+     * @see #startRetryTimeout(long)
+     */
+    long getRetryTimeoutNs();
+
     /**
      * Starts the 'or' from the 'orelse' block.
      * <p/>
@@ -146,6 +168,45 @@ public interface Transaction {
      */
     void endOrAndStartElse();
 
+    /**
+     * Starts a closed nested transaction. The changes made in the nested transaction are merged into this transaction
+     * by {@link #commitNested()}, or discarded by {@link #abortNested()} without touching the changes that were made
+     * before the nested transaction was started. Nested transactions can be nested themselves.
+     * <p/>
+     * An implementation that doesn't support partial rollback can ignore this call, the {@link #abortNested()} then
+     * indicates that the complete transaction needs to be restarted.
+     *
+     * @throws org.multiverse.api.exceptions.DeadTransactionException
+     *          if this transaction already is committed or aborted.
+     * @see PropagationLevel#nested
+     */
+    void startNested();
+
+    /**
+     * Commits the innermost nested transaction: its changes become part of the enclosing transaction. Nothing is
+     * written to the stm; that is done when the outermost transaction commits.
+     *
+     * @throws org.multiverse.api.exceptions.DeadTransactionException
+     *                               if this transaction already is committed or aborted.
+     * @throws IllegalStateException if no nested transaction has been started.
+     */
+    void commitNested();
+
+    /**
+     * Aborts the innermost nested transaction: the changes made in it are discarded and the state of the enclosing
+     * transaction is restored.
+     * <p/>
+     * After the rollback it is checked if the nested transaction can be retried on its own. That is only possible if
+     * nothing the enclosing transaction has read, has been changed by other transactions in the meantime. If so, the
+     * read version is moved forward so that a retry of the nested transaction is able to see the most recent state.
+     *
+     * @return true if the nested transaction can be retried, false if the complete transaction needs to be restarted.
+     * @throws org.multiverse.api.exceptions.DeadTransactionException
+     *                               if this transaction already is committed or aborted.
+     * @throws IllegalStateException if no nested transaction has been started.
+     */
+    boolean abortNested();
+
     /**
      * Schedules a task to be executed on the specified life-cycle.
      * <p/>
@@ -0,0 +1,25 @@
+package org.multiverse.api;
+
+/**
+ * An {@link Stm} that is able to reuse transaction objects can implement this interface. Once a transaction is
+ * completely finished (so committed or aborted and nobody is going to look at it anymore), it can be returned to the
+ * Stm so that a next call to {@link Stm#startUpdateTransaction(String)} or {@link Stm#startReadOnlyTransaction(String)}
+ * on the same thread doesn't need to create a new transaction object.
+ * <p/>
+ * Returning a transaction is an explicit action of the owner of the transaction (for example the {@link
+ * org.multiverse.templates.AtomicTemplate}) and not something that is done automatically on commit: after the commit
+ * the owner still could inspect the transaction. After the transaction has been returned, it should not be used
+ * anymore.
+ *
+ * @author Peter Veentjer.
+ */
+public interface TransactionPool {
+
+    /**
+     * Returns a transaction so that it can be reused. If the transaction can't be reused (e.g. it still is active or it
+     * was created by a different stm), the call is ignored.
+     *
+     * @param t the Transaction to return. If null, the call is ignored.
+     */
+    void returnTransaction(Transaction t);
+}
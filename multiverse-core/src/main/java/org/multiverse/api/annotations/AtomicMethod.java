@@ -1,5 +1,7 @@
 package org.multiverse.api.annotations;
 
+import org.multiverse.api.PropagationLevel;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -37,6 +39,15 @@ import java.lang.annotation.Target;
  * the next time they could succeed. An example of such a cause is optimistic locking the stm
  * might use. The default number of retries is Integer.MAX_VALUE, but in the future this
  * is likely going to change to prevent livelocking.
+ * <p/>
+ * With the propagationLevel an atomic method that is called while a transaction is running, can
+ * be executed as a closed nested transaction (see {@link PropagationLevel#nested}). A failure
+ * inside of it then only rolls back the work of the atomic method itself.
+ * <p/>
+ * When the irrevocable property is set to true, the transaction is guaranteed to commit, so the
+ * atomic method can do work that can't be undone (see {@link org.multiverse.api.Stm#startIrrevocableTransaction}).
+ * Commits of other transactions wait while it runs, so it should be short. It only applies when
+ * the atomic method starts its own transaction.
  *
  * @author Peter Veentjer
  */
@@ -50,5 +61,7 @@ public @interface AtomicMethod {
 
     int retryCount() default 1000;
 
-    //PropagationLevel propagationLevel() default PropagationLevel.requires;
+    PropagationLevel propagationLevel() default PropagationLevel.requires;
+
+    boolean irrevocable() default false;
 }
@@ -0,0 +1,40 @@
+package org.multiverse.api.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Can be placed on a field of an {@link AtomicObject} to place it in a named field group. If at least one field of an
+ * atomic object is placed in a field group, conflicts on that atomic object are detected per field group instead of
+ * per object: 2 transactions that write to different field groups of the same atomic object don't conflict. The
+ * managed fields without this annotation together form the default field group.
+ * <p/>
+ * Example:
+ * <pre>
+ * &#064;AtomicObject
+ * class Queue{
+ *     &#064;FieldGroup("head") Node head;
+ *     &#064;FieldGroup("tail") Node tail;
+ * }
+ * </pre>
+ * A transaction that only changes the head doesn't conflict with a transaction that only changes the tail.
+ * <p/>
+ * Be careful: only the field groups that are written are checked for conflicts, reads of other field groups of the same
+ * atomic object are not. So the isolation between the field groups of an atomic object is weaker than the isolation
+ * between atomic objects.
+ *
+ * @author Peter Veentjer
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+public @interface FieldGroup {
+
+    /**
+     * The name of the field group.
+     *
+     * @return the name of the field group.
+     */
+    String value();
+}
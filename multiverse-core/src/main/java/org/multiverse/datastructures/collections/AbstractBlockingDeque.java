@@ -15,13 +15,25 @@ public abstract class AbstractBlockingDeque<E> extends AbstractCollection<E> imp
     @Override
     @AtomicMethod
     public boolean offerFirst(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        if (hasNoStorageCapacity()) {
+            retry(timeout, unit);
+            return false;
+        }
+
+        doAddFirst(e);
+        return true;
     }
 
     @Override
     @AtomicMethod
     public boolean offerLast(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        if (hasNoStorageCapacity()) {
+            retry(timeout, unit);
+            return false;
+        }
+
+        doAddLast(e);
+        return true;
     }
 
     @Override
@@ -211,25 +223,35 @@ public abstract class AbstractBlockingDeque<E> extends AbstractCollection<E> imp
     @Override
     @AtomicMethod
     public E pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        if (isEmpty()) {
+            retry(timeout, unit);
+            return null;
+        }
+
+        return doRemoveFirst();
     }
 
     @Override
     @AtomicMethod
     public E pollLast(long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        if (isEmpty()) {
+            retry(timeout, unit);
+            return null;
+        }
+
+        return doRemoveLast();
     }
 
     @Override
     @AtomicMethod
     public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        return offerLast(e, timeout, unit);
     }
 
     @Override
     @AtomicMethod
     public E poll(long timeout, TimeUnit unit) throws InterruptedException {
-        throw new TodoException();
+        return pollFirst(timeout, unit);
     }
 
     @Override
@@ -6,6 +6,7 @@ import org.multiverse.api.Transaction;
 import org.multiverse.api.TransactionStatus;
 import org.multiverse.api.exceptions.DeadTransactionException;
 import org.multiverse.api.exceptions.PanicError;
+import org.multiverse.utils.contentionmanager.Contender;
 import org.multiverse.utils.latches.Latch;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
 
@@ -22,14 +23,18 @@ import static java.text.MessageFormat.format;
  * <p/>
  * AbstractTransaction requires the clock.time to be at least 1. It used the version field to encode the transaction
  * state. See the version field for more information.
+ * <p/>
+ * The AbstractTransaction is a {@link Contender}: the timestamp of the first start and the karma are kept when the
+ * transaction is restarted, and are reset when it is initialized for a new family. The same goes for the retry
+ * timeout (see {@link #startRetryTimeout(long)}).
  *
  * @author Peter Veentjer.
  */
 public abstract class AbstractTransaction<D extends AbstractTransactionDependencies>
-        implements Transaction, MultiverseConstants {
+        implements Transaction, Contender, MultiverseConstants {
 
     protected final D dependencies;
-    protected final String familyName;
+    protected String familyName;
 
     private TaskListNode scheduledTasks;
 
@@ -40,10 +45,17 @@ public abstract class AbstractTransaction<D extends AbstractTransactionDependenc
      */
     private long version;
 
+    private long contentionTimestamp;
+    private long karma;
+
+    private boolean retryTimeoutStarted;
+    private long retryDeadlineNs;
+
     public AbstractTransaction(D dependencies, String familyName) {
         assert dependencies != null;
         this.dependencies = dependencies;
         this.familyName = familyName;
+        this.contentionTimestamp = System.nanoTime();
 
         if (SANITY_CHECKS_ENABLED) {
             if (dependencies.clock.getTime() == 0) {
@@ -78,6 +90,41 @@ public abstract class AbstractTransaction<D extends AbstractTransactionDependenc
         return familyName;
     }
 
+    @Override
+    public long getContentionTimestamp() {
+        return contentionTimestamp;
+    }
+
+    @Override
+    public long getKarma() {
+        return karma;
+    }
+
+    /**
+     * Increases the karma of this transaction. Should be called by the subclass for every atomic object that is
+     * opened.
+     */
+    protected final void incKarma() {
+        karma++;
+    }
+
+    /**
+     * Asks the {@link org.multiverse.utils.contentionmanager.ContentionManager} what to do when an atomic object is
+     * locked by another transaction. If the contention manager decides that this transaction should try again, the
+     * waiting already has been done when this method returns.
+     *
+     * @param lockOwner the owner of the lock, could be null if the lock was released in the meantime.
+     * @param attempt   the number of times the contention for the same operation has been resolved, starting at 1.
+     * @return true if the operation should be tried again, false if the transaction should fail.
+     */
+    protected final boolean resolveContention(Transaction lockOwner, int attempt) {
+        if (dependencies.contentionManager == null || lockOwner == this) {
+            return false;
+        }
+
+        return dependencies.contentionManager.resolve(this, lockOwner, attempt);
+    }
+
 
     protected final void init() {
         this.scheduledTasks = null;
@@ -85,9 +132,45 @@ public abstract class AbstractTransaction<D extends AbstractTransactionDependenc
         doInit();
     }
 
+    /**
+     * Initializes the transaction for a (possibly different) familyName. This makes it possible to reuse a committed or
+     * aborted transaction object instead of creating a new one, see {@link org.multiverse.api.TransactionPool}.
+     *
+     * @param familyName the new familyName of the transaction.
+     */
+    protected final void init(String familyName) {
+        this.familyName = familyName;
+        this.contentionTimestamp = System.nanoTime();
+        this.karma = 0;
+        this.retryTimeoutStarted = false;
+        init();
+    }
+
     protected void doInit() {
     }
 
+    /**
+     * Moves the read version of this active transaction forward. The subclass is responsible for making sure that
+     * nothing that has been read, has been changed between the old and the new read version.
+     *
+     * @param newReadVersion the new read version.
+     */
+    protected final void extendReadVersion(long newReadVersion) {
+        if (SANITY_CHECKS_ENABLED) {
+            if (version <= 0) {
+                throw new PanicError("Can't extend the read version of a transaction that is not active");
+            }
+
+            if (newReadVersion < version) {
+                String msg = format("Can't extend the read version '{0}' to the older version '{1}'",
+                                    version, newReadVersion);
+                throw new PanicError(msg);
+            }
+        }
+
+        this.version = newReadVersion;
+    }
+
     @Override
     public void schedule(Runnable task, ScheduleType scheduleType) {
         switch (getStatus()) {
@@ -113,6 +196,31 @@ public abstract class AbstractTransaction<D extends AbstractTransactionDependenc
         }
     }
 
+    @Override
+    public void startRetryTimeout(long timeoutNs) {
+        switch (getStatus()) {
+            case active:
+                if (!retryTimeoutStarted) {
+                    retryTimeoutStarted = true;
+                    retryDeadlineNs = System.nanoTime() + timeoutNs;
+                }
+                break;
+            case committed:
+                throw new DeadTransactionException(
+                        format("Can''t start the retry timeout of already committed transaction ''{0}''", familyName));
+            case aborted:
+                throw new DeadTransactionException(
+                        format("Can''t start the retry timeout of already aborted transaction ''{0}''", familyName));
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    @Override
+    public long getRetryTimeoutNs() {
+        return retryTimeoutStarted ? retryDeadlineNs - System.nanoTime() : Long.MAX_VALUE;
+    }
+
     @Override
     public Transaction abortAndReturnRestarted() {
         switch (getStatus()) {
@@ -301,6 +409,74 @@ public abstract class AbstractTransaction<D extends AbstractTransactionDependenc
     protected void doEndOrAndStartElse() {
     }
 
+    @Override
+    public void startNested() {
+        switch (getStatus()) {
+            case active:
+                doStartNested();
+                break;
+            case committed:
+                throw new DeadTransactionException(
+                        format("Can''t call startNested on already committed transaction ''{0}''", familyName));
+            case aborted:
+                throw new DeadTransactionException(
+                        format("Can''t call startNested on already aborted transaction ''{0}''", familyName));
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    /**
+     * Default implementation doesn't support partial rollback, so it does nothing.
+     */
+    protected void doStartNested() {
+    }
+
+    @Override
+    public void commitNested() {
+        switch (getStatus()) {
+            case active:
+                doCommitNested();
+                break;
+            case committed:
+                throw new DeadTransactionException(
+                        format("Can''t call commitNested on already committed transaction ''{0}''", familyName));
+            case aborted:
+                throw new DeadTransactionException(
+                        format("Can''t call commitNested on already aborted transaction ''{0}''", familyName));
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    protected void doCommitNested() {
+    }
+
+    @Override
+    public boolean abortNested() {
+        switch (getStatus()) {
+            case active:
+                return doAbortNested();
+            case committed:
+                throw new DeadTransactionException(
+                        format("Can''t call abortNested on already committed transaction ''{0}''", familyName));
+            case aborted:
+                throw new DeadTransactionException(
+                        format("Can''t call abortNested on already aborted transaction ''{0}''", familyName));
+            default:
+                throw new RuntimeException();
+        }
+    }
+
+    /**
+     * Default implementation doesn't support partial rollback, so the complete transaction needs to be restarted.
+     *
+     * @return false.
+     */
+    protected boolean doAbortNested() {
+        return false;
+    }
+
     private static class TaskListNode {
 
         private final Runnable task;
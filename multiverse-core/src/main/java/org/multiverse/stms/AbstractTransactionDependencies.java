@@ -2,6 +2,7 @@ package org.multiverse.stms;
 
 import org.multiverse.utils.clock.Clock;
 import org.multiverse.utils.clock.StrictClock;
+import org.multiverse.utils.contentionmanager.ContentionManager;
 import org.multiverse.utils.restartbackoff.ExponentialRestartBackoffPolicy;
 import org.multiverse.utils.restartbackoff.RestartBackoffPolicy;
 
@@ -18,15 +19,23 @@ public class AbstractTransactionDependencies {
 
     public final Clock clock;
     public final RestartBackoffPolicy restartBackoffPolicy;
+    //could be null, in that case contention is not resolved and the transaction fails directly.
+    public final ContentionManager contentionManager;
 
     public AbstractTransactionDependencies() {
         this(new StrictClock(), ExponentialRestartBackoffPolicy.INSTANCE_10_MS_MAX);
     }
 
     public AbstractTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy) {
+        this(clock, restartBackoffPolicy, null);
+    }
+
+    public AbstractTransactionDependencies(Clock clock, RestartBackoffPolicy restartBackoffPolicy,
+                                           ContentionManager contentionManager) {
         assert clock != null;
         assert restartBackoffPolicy != null;
         this.clock = clock;
         this.restartBackoffPolicy = restartBackoffPolicy;
+        this.contentionManager = contentionManager;
     }
 }
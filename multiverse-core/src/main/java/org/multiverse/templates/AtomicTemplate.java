@@ -1,19 +1,24 @@
 package org.multiverse.templates;
 
 import static org.multiverse.api.GlobalStmInstance.getGlobalStmInstance;
+import org.multiverse.api.PropagationLevel;
 import org.multiverse.api.Stm;
 import static org.multiverse.api.ThreadLocalTransaction.getThreadLocalTransaction;
 import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
 import org.multiverse.api.Transaction;
+import org.multiverse.api.TransactionPool;
 import org.multiverse.api.TransactionStatus;
 import org.multiverse.api.exceptions.PanicError;
 import org.multiverse.api.exceptions.RecoverableThrowable;
 import org.multiverse.api.exceptions.RetryError;
 import org.multiverse.api.exceptions.TooManyRetriesException;
-import org.multiverse.utils.latches.CheapLatch;
 import org.multiverse.utils.latches.Latch;
+import org.multiverse.utils.latches.ParkingLatch;
+import org.multiverse.utils.profiling.ProfileRepository;
+import org.multiverse.utils.profiling.TransactionHistograms;
 
 import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -34,11 +39,19 @@ import java.util.logging.Logger;
  * for template. In the future this retry behavior will be customizable.
  * <p/>
  * If a transaction already is available on the ThreadLocalTransaction, no new transaction is started and essentially
- * the whole AtomicTemplate is ignored.
+ * the whole AtomicTemplate is ignored. Unless the {@link PropagationLevel} is nested, then it is executed as a closed
+ * nested transaction of the running transaction.
  * <p/>
  * If no transaction is available on the ThreadLocalTransaction, a new one will be created and used during the execution
  * of the AtomicTemplate and will be removed once the AtomicTemplate finishes.
  * <p/>
+ * An irrevocable AtomicTemplate starts an irrevocable transaction (see {@link Stm#startIrrevocableTransaction(String)})
+ * that is guaranteed to commit, so it can do work that can't be undone. This only applies if the template starts its
+ * own transaction; a running transaction can't become irrevocable.
+ * <p/>
+ * If the stm has a profiler, the duration and the number of attempts of the committed transactions, and the time
+ * blocked on a retry are recorded in the histograms of the family (see {@link TransactionHistograms}).
+ * <p/>
  * All uncaught throwable's lead to a rollback of the transaction.
  * <p/>
  * AtomicTemplates are not thread-safe to use.
@@ -58,6 +71,8 @@ public abstract class AtomicTemplate<E> {
     private final boolean readonly;
     private int attemptCount;
     private final String familyName;
+    private final PropagationLevel propagationLevel;
+    private final boolean irrevocable;
 
     /**
      * Creates a new AtomicTemplate that uses the STM stored in the GlobalStm and works the the {@link
@@ -98,17 +113,57 @@ public abstract class AtomicTemplate<E> {
      */
     public AtomicTemplate(Stm stm, String familyName, boolean ignoreThreadLocalTransaction, boolean readonly,
                           int retryCount) {
-        if (stm == null) {
+        this(stm, familyName, ignoreThreadLocalTransaction, readonly, retryCount, PropagationLevel.requires);
+    }
+
+    /**
+     * Creates a new AtomicTemplate that uses the provided STM and PropagationLevel.
+     * <p/>
+     * With {@link PropagationLevel#nested} the template executes as a closed nested transaction if a transaction
+     * already is running. If it fails, only its own changes are rolled back and it is retried on its own (at most
+     * retryCount times) if the running transaction still is consistent. Otherwise the failure is propagated so that the
+     * running transaction is restarted.
+     *
+     * @param stm                          the stm to use for transactions.
+     * @param ignoreThreadLocalTransaction true if this Template should completely ignore the ThreadLocalTransaction.
+     * @param propagationLevel             the PropagationLevel.
+     * @throws NullPointerException     if stm or propagationLevel is null.
+     * @throws IllegalArgumentException if retryCount smaller than 0.
+     */
+    public AtomicTemplate(Stm stm, String familyName, boolean ignoreThreadLocalTransaction, boolean readonly,
+                          int retryCount, PropagationLevel propagationLevel) {
+        this(stm, familyName, ignoreThreadLocalTransaction, readonly, retryCount, propagationLevel, false);
+    }
+
+    /**
+     * Creates a new AtomicTemplate that uses the provided STM and PropagationLevel, and that can execute irrevocable
+     * transactions.
+     *
+     * @param stm                          the stm to use for transactions.
+     * @param ignoreThreadLocalTransaction true if this Template should completely ignore the ThreadLocalTransaction.
+     * @param propagationLevel             the PropagationLevel.
+     * @param irrevocable                  true if the transactions started by this template should be irrevocable.
+     * @throws NullPointerException     if stm or propagationLevel is null.
+     * @throws IllegalArgumentException if retryCount smaller than 0, or if both readonly and irrevocable are set.
+     */
+    public AtomicTemplate(Stm stm, String familyName, boolean ignoreThreadLocalTransaction, boolean readonly,
+                          int retryCount, PropagationLevel propagationLevel, boolean irrevocable) {
+        if (stm == null || propagationLevel == null) {
             throw new NullPointerException();
         }
         if (retryCount < 0) {
             throw new IllegalArgumentException();
         }
+        if (readonly && irrevocable) {
+            throw new IllegalArgumentException("A readonly transaction can't be irrevocable");
+        }
         this.stm = stm;
         this.ignoreThreadLocalTransaction = ignoreThreadLocalTransaction;
         this.readonly = readonly;
         this.retryCount = retryCount;
         this.familyName = familyName;
+        this.propagationLevel = propagationLevel;
+        this.irrevocable = irrevocable;
     }
 
     public String getFamilyName() {
@@ -135,6 +190,15 @@ public abstract class AtomicTemplate<E> {
         return retryCount;
     }
 
+    /**
+     * Returns the {@link PropagationLevel} of this AtomicTemplate.
+     *
+     * @return the PropagationLevel.
+     */
+    public final PropagationLevel getPropagationLevel() {
+        return propagationLevel;
+    }
+
     /**
      * Returns the {@link Stm} used by this AtomicTemplate to execute transactions on.
      *
@@ -162,6 +226,15 @@ public abstract class AtomicTemplate<E> {
         return readonly;
     }
 
+    /**
+     * Checks if this AtomicTemplate executes irrevocable transactions.
+     *
+     * @return true if it executes irrevocable transactions, false otherwise.
+     */
+    public final boolean isIrrevocable() {
+        return irrevocable;
+    }
+
     /**
      * This is the method that needs to be implemented.
      *
@@ -280,12 +353,62 @@ public abstract class AtomicTemplate<E> {
         Transaction t = getTransaction();
         if (noActiveTransaction(t)) {
             return executeAtomic();
+        } else if (propagationLevel == PropagationLevel.nested) {
+            return executeNested(t);
         } else {
             return execute(t);
         }
     }
 
+    private E executeNested(Transaction t) throws Exception {
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            t.startNested();
+            try {
+                E result = execute(t);
+                t.commitNested();
+                return result;
+            } catch (Throwable throwable) {
+                if (!abortNested(t, throwable, attempt)) {
+                    rethrow(throwable);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rolls back the changes of a failed nested transaction, and decides if it can be retried on its own.
+     *
+     * @param t         the transaction the nested transaction is part of.
+     * @param throwable the cause of the failure.
+     * @param attempt   the attempt of the nested transaction that failed, starting at 1.
+     * @return true if the nested transaction should be retried, false if the throwable needs to be propagated.
+     */
+    private boolean abortNested(Transaction t, Throwable throwable, int attempt) {
+        if (t.getStatus() != TransactionStatus.active) {
+            return false;
+        }
+
+        if (throwable instanceof RetryError) {
+            //the changes are not rolled back; the reads of the nested transaction are needed to register the retry
+            //latch, and the running transaction is aborted anyway.
+            t.commitNested();
+            return false;
+        }
+
+        boolean retryPossible = t.abortNested();
+        if (!retryPossible || !(throwable instanceof RecoverableThrowable) || attempt > retryCount) {
+            return false;
+        }
+
+        t.getRestartBackoffPolicy().delayUninterruptible(t, attempt);
+        return true;
+    }
+
     private E executeAtomic() throws Exception {
+        ProfileRepository profiler = TransactionHistograms.getProfiler(stm);
+        long startNs = profiler == null ? 0 : System.nanoTime();
         onInit();
         Transaction t = startTransaction();
         setTransaction(t);
@@ -305,14 +428,19 @@ public abstract class AtomicTemplate<E> {
                     throw new AbortedException(msg);
                 }
                 long commitVersion = t.commit();
+                TransactionHistograms.recordCommitted(profiler, familyName, startNs, attemptCount);
                 postCommit(commitVersion);
                 return result;
             } catch (Throwable throwable) {
                 lastFailureCause = throwable;
                 if (throwable instanceof RetryError) {
-                    Latch latch = new CheapLatch();
-                    t.abortAndRegisterRetryLatch(latch);
-                    latch.awaitUninterruptible();
+                    try {
+                        awaitRetry(t, profiler);
+                    } catch (InterruptedException ex) {
+                        //the transaction already is aborted and is not going to be restarted.
+                        error = true;
+                        throw ex;
+                    }
                 } else if (throwable instanceof RecoverableThrowable) {
                     //ignore
                 } else {
@@ -321,6 +449,7 @@ public abstract class AtomicTemplate<E> {
                 }
             } finally {
                 if (t.getStatus() == TransactionStatus.committed) {
+                    returnTransaction(t);
                     t = null;
                 } else {
                     if (attemptCount - 1 >= retryCount || error) {
@@ -329,6 +458,7 @@ public abstract class AtomicTemplate<E> {
                             postAbort(t);
                         }
 
+                        returnTransaction(t);
                         t = null;
                     } else {
                         t = t.abortAndReturnRestarted();
@@ -343,6 +473,29 @@ public abstract class AtomicTemplate<E> {
 
     }
 
+    /**
+     * Aborts the transaction and waits until one of the atomic objects it has read, has been changed. If the retry
+     * timeout of the transaction has been started, it waits at most the remaining timeout. When that has expired, the
+     * transaction is not going to wait again because the timed retry then returns normally. A timed wait is
+     * interruptible.
+     *
+     * @param t        the transaction that did the retry.
+     * @param profiler the profiler the time blocked is recorded in, can be null.
+     * @throws InterruptedException if the thread is interrupted while doing a timed wait.
+     */
+    private static void awaitRetry(Transaction t, ProfileRepository profiler) throws InterruptedException {
+        long startNs = profiler == null ? 0 : System.nanoTime();
+        long timeoutNs = t.getRetryTimeoutNs();
+        Latch latch = new ParkingLatch();
+        t.abortAndRegisterRetryLatch(latch);
+        if (timeoutNs == Long.MAX_VALUE) {
+            latch.awaitUninterruptible();
+        } else {
+            latch.tryAwait(timeoutNs, TimeUnit.NANOSECONDS);
+        }
+        TransactionHistograms.recordRetryBlockTime(profiler, t.getFamilyName(), startNs);
+    }
+
     private static void rethrow(Throwable ex) throws Exception {
         if (ex instanceof Exception) {
             throw (Exception) ex;
@@ -354,9 +507,25 @@ public abstract class AtomicTemplate<E> {
     }
 
     private Transaction startTransaction() {
+        if (irrevocable) {
+            return stm.startIrrevocableTransaction(familyName);
+        }
+
         return readonly ? stm.startReadOnlyTransaction(familyName) : stm.startUpdateTransaction(familyName);
     }
 
+    /**
+     * Returns the finished transaction to the stm if the stm is a {@link TransactionPool}, so the transaction object
+     * can be reused by the next transaction on this thread.
+     *
+     * @param t the finished transaction.
+     */
+    private void returnTransaction(Transaction t) {
+        if (stm instanceof TransactionPool) {
+            ((TransactionPool) stm).returnTransaction(t);
+        }
+    }
+
     private boolean noActiveTransaction(Transaction t) {
         return t == null || t.getStatus() != TransactionStatus.active;
     }
@@ -15,6 +15,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * would be if the stm didn't rely on a shared clock. The experimental STM implementation for the .NET platform already
  * has realized this.
  * <p/>
+ * Sharing a tick is only correct if the stm locks the write set of a transaction before the tick is done, see the
+ * {@link SharedTickClock}. The SharedTickClock also reduces the number of compare and swaps under contention.
+ * <p/>
  * <h3>Warning</h3> A relaxed clock can not be used as a mechanism to find the total number of committed transactions.
  * Because concurrent executing transaction don't both have to increase the clock; as long as one of them does it
  * suffices as well.
@@ -39,7 +42,8 @@ public final class RelaxedClock implements Clock {
         //so just try to set it the oldTime is still set.
         clock.compareAndSet(oldTime, oldTime + 1);
 
-        //todo: could it be that time on the clock hasn't increased yet?
+        //if the cas failed, the clock already has been increased by another thread, so the time is at least
+        //oldTime+1. See the SharedTickClock for the requirements on the stm to make this correct.
         return oldTime + 1;
     }
 
@@ -0,0 +1,91 @@
+package org.multiverse.utils.clock;
+
+import static java.lang.String.format;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Clock} where concurrent committers share ticks, so that the cache line of the clock isn't written by every
+ * commit (similar to the GV4 clock of TL2).
+ * <p/>
+ * A tick reads the time, and if another thread has increased the clock since, the tick is shared with that thread and
+ * the clock isn't written at all. If not, a single compare and swap is done. If that compare and swap fails, some
+ * other thread has increased the clock, and the tick is shared as well. So a tick never retries, and under high
+ * contention most ticks only read the clock.
+ * <p/>
+ * Before a tick is shared, the clock is read a few more times, because under contention there is a good chance that
+ * one of the other committers increases the clock in the meantime. Reading a cache line that is shared is a lot cheaper
+ * than writing it.
+ * <p/>
+ * <h3>Requirements</h3>
+ * Sharing a tick is only correct if the stm complies to the following rules:
+ * <ol>
+ * <li>the write set of a transaction is locked (or otherwise made visible to readers) before the tick is done. Every
+ * transaction that sees a time equal or larger than the returned value, started after the write set was locked, so it
+ * can't have read the old state of the written objects unnoticed.</li>
+ * <li>transactions that share a tick have disjoint write sets. This is implied by the first rule; they hold their locks
+ * at the same time.</li>
+ * </ol>
+ * The update transactions of the alpha stm comply to these rules.
+ * <p/>
+ * <h3>Warning</h3> Just like the {@link RelaxedClock}, a SharedTickClock can't be used to find the total number of
+ * committed transactions.
+ *
+ * @author Peter Veentjer.
+ */
+public final class SharedTickClock implements Clock {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final int spinCount;
+
+    /**
+     * Creates a SharedTickClock that reads the clock 16 times before it is increased.
+     */
+    public SharedTickClock() {
+        this(16);
+    }
+
+    /**
+     * Creates a SharedTickClock.
+     *
+     * @param spinCount the number of times the clock is read again to see if another thread increased it, before the
+     *                  clock is increased. If the value is 0, the clock is increased directly.
+     * @throws IllegalArgumentException if spinCount smaller than 0.
+     */
+    public SharedTickClock(int spinCount) {
+        if (spinCount < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.spinCount = spinCount;
+    }
+
+    public int getSpinCount() {
+        return spinCount;
+    }
+
+    @Override
+    public long tick() {
+        long time = clock.get();
+
+        for (int k = 0; k < spinCount; k++) {
+            if (clock.get() != time) {
+                //another thread increased the clock after it was read, so time+1 was reached after the
+                //write set was locked.
+                return time + 1;
+            }
+        }
+
+        //if the cas fails, another thread increased the clock, so the tick is shared as well.
+        clock.compareAndSet(time, time + 1);
+        return time + 1;
+    }
+
+    @Override
+    public long getTime() {
+        return clock.get();
+    }
+
+    @Override
+    public String toString() {
+        return format("SharedTickClock(time=%s)", clock.get());
+    }
+}
@@ -38,4 +38,13 @@ public interface CommitLock {
      * @param expectedLockOwner the expected Transaction that owns the lock.
      */
     void releaseLock(Transaction expectedLockOwner);
+
+    /**
+     * Returns the id of this lock. The id is used by the {@link OrderedCommitLockPolicy} to acquire locks in a global
+     * order. It needs to be unique and it should never change. Different CommitLock instances that protect the same
+     * resource should return the same id. See {@link CommitLockUtils#nextLockId()}.
+     *
+     * @return the id of this lock.
+     */
+    long getLockId();
 }
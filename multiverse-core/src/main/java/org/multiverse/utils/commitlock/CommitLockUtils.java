@@ -2,6 +2,8 @@ package org.multiverse.utils.commitlock;
 
 import org.multiverse.api.Transaction;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Contains various functions for commit locks.
  *
@@ -9,6 +11,18 @@ import org.multiverse.api.Transaction;
  */
 public final class CommitLockUtils {
 
+    private final static AtomicLong lockIdGenerator = new AtomicLong();
+
+    /**
+     * Returns a new unique lock id, see {@link CommitLock#getLockId()}. The returned value will always be larger than
+     * 0, so 0 can be used to indicate that no id has been assigned yet.
+     *
+     * @return the new lock id.
+     */
+    public static long nextLockId() {
+        return lockIdGenerator.incrementAndGet();
+    }
+
     /**
      * Checks if there is nothing to lock. There is nothing to lock when the writeset
      * is null, or when the writeset has length 0 or when the first element is null
@@ -0,0 +1,191 @@
+package org.multiverse.utils.commitlock;
+
+import org.multiverse.api.Transaction;
+import org.multiverse.utils.latches.ParkingLatch;
+
+import static java.lang.String.format;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A gate that all committing transactions of an stm pass, and that can be closed by a single irrevocable transaction.
+ * It can be compared to a read write lock: a commit holds the gate shared, and the irrevocable transaction holds it
+ * exclusively from the moment it starts until it commits or aborts.
+ * <p/>
+ * Once the irrevocable transaction has acquired the gate, and all commits that were in progress have completed, no
+ * other transaction is able to commit anymore. So nothing the irrevocable transaction reads or writes can be changed
+ * by another transaction, and it is guaranteed to commit. Other transactions keep executing, only their commits wait
+ * until the gate has been released. Transactions that have nothing to write are not influenced.
+ * <p/>
+ * At most one transaction at a time can own the gate, other irrevocable transactions wait until it is released.
+ * <p/>
+ * Since all commits wait while the gate is closed, an irrevocable transaction should be short. The thread executing it
+ * can't commit other transactions, that would wait for the gate forever, so such a commit fails with an
+ * IllegalStateException instead.
+ * <p/>
+ * This class is thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class IrrevocableCommitGate {
+
+    private final AtomicReference<Transaction> owner = new AtomicReference<Transaction>();
+
+    private final AtomicInteger activeCommits = new AtomicInteger();
+
+    //the thread that acquired the gate, only used to detect a commit that would wait for its own thread.
+    private volatile Thread ownerThread;
+
+    //is opened when the current owner releases the gate. There is no need to create a latch for every waiting
+    //transaction.
+    private volatile ParkingLatch releaseLatch = new ParkingLatch(true);
+
+    //is opened when the last commit in progress exits, so that the owner doesn't need to spin while they drain.
+    private volatile ParkingLatch drainLatch = new ParkingLatch(true);
+
+    /**
+     * Acquires this IrrevocableCommitGate for the transaction. This call blocks until no other transaction owns the gate
+     * and all commits that are in progress have completed. The call can't be interrupted.
+     * <p/>
+     * If the transaction already owns the gate, the call is ignored.
+     *
+     * @param t the irrevocable transaction.
+     * @throws NullPointerException if t is null.
+     */
+    public void acquire(Transaction t) {
+        if (t == null) {
+            throw new NullPointerException();
+        }
+
+        if (owner.get() == t) {
+            return;
+        }
+
+        while (true) {
+            ParkingLatch latch = releaseLatch;
+            if (owner.compareAndSet(null, t)) {
+                break;
+            }
+            awaitRelease(latch);
+        }
+
+        ownerThread = Thread.currentThread();
+        releaseLatch = new ParkingLatch();
+
+        //new commits wait now, only the commits that already were in progress need to complete. They don't wait for
+        //anything this transaction holds, so they complete soon.
+        while (activeCommits.get() > 0) {
+            //the latch needs to be published before the activeCommits is checked again, so that the last exitCommit
+            //is guaranteed to see and open it.
+            ParkingLatch latch = new ParkingLatch();
+            drainLatch = latch;
+            if (activeCommits.get() == 0) {
+                break;
+            }
+            latch.awaitUninterruptible();
+        }
+    }
+
+    /**
+     * Releases this IrrevocableCommitGate if it is owned by the transaction, so that the waiting commits and
+     * irrevocable transactions can continue. If the transaction doesn't own the gate, the call is ignored.
+     *
+     * @param t the irrevocable transaction.
+     */
+    public void release(Transaction t) {
+        if (t == null || owner.get() != t) {
+            return;
+        }
+
+        ParkingLatch latch = releaseLatch;
+        ownerThread = null;
+        owner.set(null);
+        latch.open();
+    }
+
+    /**
+     * Checks if the transaction owns this IrrevocableCommitGate.
+     *
+     * @param t the transaction to check.
+     * @return true if the transaction owns the gate, false otherwise.
+     */
+    public boolean isOwner(Transaction t) {
+        return t != null && owner.get() == t;
+    }
+
+    /**
+     * Returns the irrevocable transaction that owns this IrrevocableCommitGate.
+     *
+     * @return the owner, or null if the gate is not owned.
+     */
+    public Transaction getOwner() {
+        return owner.get();
+    }
+
+    /**
+     * Enters a commit of the transaction. If another transaction owns this IrrevocableCommitGate, this call blocks until
+     * it has been released. The call can't be interrupted. Every call needs to be followed by a call to {@link
+     * #exitCommit()} when the commit has completed, also when it failed.
+     *
+     * @param t the committing transaction.
+     * @throws IllegalStateException if the thread that owns the gate commits another transaction, it would wait for
+     *                               itself forever.
+     */
+    public void enterCommit(Transaction t) {
+        while (true) {
+            ParkingLatch latch = releaseLatch;
+            Transaction currentOwner = owner.get();
+            if (currentOwner == null || currentOwner == t) {
+                activeCommits.incrementAndGet();
+
+                //the owner needs to be checked again after the commit has been registered, an irrevocable
+                //transaction that acquired the gate in the meantime could have missed it.
+                currentOwner = owner.get();
+                if (currentOwner == null || currentOwner == t) {
+                    return;
+                }
+
+                exitCommit();
+            }
+
+            if (ownerThread == Thread.currentThread()) {
+                String msg = format(
+                        "Can't commit transaction '%s' while the same thread executes irrevocable transaction '%s'",
+                        t, currentOwner);
+                throw new IllegalStateException(msg);
+            }
+
+            awaitRelease(latch);
+        }
+    }
+
+    /**
+     * Waits until the latch read before the owner was checked is opened. If the latch already is open, it belongs to
+     * the previous owner: the current owner has acquired the gate, but it has not published its own latch yet. It does
+     * that directly after acquiring, so the thread yields and the caller checks again, instead of spinning on the open
+     * latch.
+     *
+     * @param latch the release latch read before the owner was checked.
+     */
+    private static void awaitRelease(ParkingLatch latch) {
+        if (latch.isOpen()) {
+            Thread.yield();
+        } else {
+            latch.awaitUninterruptible();
+        }
+    }
+
+    /**
+     * Exits a commit that was entered with {@link #enterCommit(Transaction)}.
+     */
+    public void exitCommit() {
+        if (activeCommits.decrementAndGet() == 0) {
+            drainLatch.open();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IrrevocableCommitGate(owner=" + owner.get() + ", activeCommits=" + activeCommits.get() + ")";
+    }
+}
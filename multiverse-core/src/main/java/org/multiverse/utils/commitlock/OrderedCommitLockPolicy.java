@@ -0,0 +1,182 @@
+package org.multiverse.utils.commitlock;
+
+import org.multiverse.api.Transaction;
+import static org.multiverse.utils.commitlock.CommitLockUtils.nothingToLock;
+
+import static java.lang.String.format;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link CommitLockPolicy} that acquires the locks in the order of their {@link CommitLock#getLockId()} and waits
+ * for a lock that can't be acquired, instead of releasing all locks and trying again like the {@link
+ * GenericCommitLockPolicy}. Because all transactions that wait acquire their locks in the same global order, they
+ * can't deadlock. So under high contention a commit waits a little instead of failing and causing a restart of the
+ * transaction.
+ * <p/>
+ * Waiting is done by spinning first, and parking the thread when the lock still can't be acquired. A lock owner that
+ * never releases its lock (e.g. a different lock policy that doesn't complete) would block the waiting transaction
+ * forever, so the total time a single lock is waited for is limited. If the lock is not acquired in time, all acquired
+ * locks are released and failure is returned.
+ * <p/>
+ * The locks are sorted in place, so the caller should not depend on the order of the locks after this policy has been
+ * called.
+ * <p/>
+ * This OrderedCommitLockPolicy is immutable and thread-safe to use.
+ *
+ * @author Peter Veentjer
+ */
+public final class OrderedCommitLockPolicy implements CommitLockPolicy {
+
+    public static final CommitLockPolicy DEFAULT = new OrderedCommitLockPolicy(100, TimeUnit.SECONDS.toNanos(1));
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    //arrays up to this size are sorted with an insertion sort, so no comparator is needed and no litter is created.
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private static final Comparator<CommitLock> LOCK_ID_COMPARATOR = new Comparator<CommitLock>() {
+        @Override
+        public int compare(CommitLock lock1, CommitLock lock2) {
+            long id1 = lock1.getLockId();
+            long id2 = lock2.getLockId();
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    };
+
+    private final int spinAttemptsPerLockCount;
+    private final long maxWaitNanosPerLock;
+
+    /**
+     * Creates a new OrderedCommitLockPolicy.
+     *
+     * @param spinAttemptsPerLockCount the number of times a lock is tried again before the thread is parked.
+     * @param maxWaitNanosPerLock      the maximum time in nanoseconds to wait for a single lock.
+     * @throws IllegalArgumentException if spinAttemptsPerLockCount or maxWaitNanosPerLock is smaller than 0.
+     */
+    public OrderedCommitLockPolicy(int spinAttemptsPerLockCount, long maxWaitNanosPerLock) {
+        if (spinAttemptsPerLockCount < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        if (maxWaitNanosPerLock < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.spinAttemptsPerLockCount = spinAttemptsPerLockCount;
+        this.maxWaitNanosPerLock = maxWaitNanosPerLock;
+    }
+
+    public int getSpinAttemptsPerLockCount() {
+        return spinAttemptsPerLockCount;
+    }
+
+    public long getMaxWaitNanosPerLock() {
+        return maxWaitNanosPerLock;
+    }
+
+    @Override
+    public CommitLockResult tryLockAndDetectConflict(CommitLock lock, Transaction lockOwner) {
+        if (lockOwner == null) {
+            throw new NullPointerException();
+        } else if (lock == null) {
+            return CommitLockResult.success;
+        } else {
+            return acquire(lock, lockOwner);
+        }
+    }
+
+    @Override
+    public CommitLockResult tryLockAllAndDetectConflicts(CommitLock[] locks, Transaction lockOwner) {
+        if (lockOwner == null) {
+            throw new NullPointerException();
+        } else if (nothingToLock(locks)) {
+            return CommitLockResult.success;
+        }
+
+        int size = sort(locks);
+        for (int k = 0; k < size; k++) {
+            CommitLockResult result = acquire(locks[k], lockOwner);
+            if (result != CommitLockResult.success) {
+                //the lock that failed is not owned, so only the locks before it need to be released.
+                for (int l = 0; l < k; l++) {
+                    locks[l].releaseLock(lockOwner);
+                }
+                return result;
+            }
+        }
+
+        return CommitLockResult.success;
+    }
+
+    /**
+     * Sorts the locks on their lock id. Only the elements before the first null element are sorted.
+     *
+     * @param locks the locks to sort.
+     * @return the number of locks.
+     */
+    private static int sort(CommitLock[] locks) {
+        int size = 0;
+        while (size < locks.length && locks[size] != null) {
+            size++;
+        }
+
+        if (size > INSERTION_SORT_THRESHOLD) {
+            Arrays.sort(locks, 0, size, LOCK_ID_COMPARATOR);
+            return size;
+        }
+
+        for (int k = 1; k < size; k++) {
+            CommitLock lock = locks[k];
+            long id = lock.getLockId();
+            int l = k - 1;
+            while (l >= 0 && locks[l].getLockId() > id) {
+                locks[l + 1] = locks[l];
+                l--;
+            }
+            locks[l + 1] = lock;
+        }
+
+        return size;
+    }
+
+    /**
+     * Acquires a single lock. If the lock can't be acquired, it is tried again while spinning, and after that while
+     * parking with an increasing park time. A conflict is returned directly.
+     *
+     * @param lock      the CommitLock to acquire.
+     * @param lockOwner the Transaction that wants to own the lock.
+     * @return the result.
+     */
+    private CommitLockResult acquire(CommitLock lock, Transaction lockOwner) {
+        CommitLockResult result = lock.tryLockAndDetectConflicts(lockOwner);
+        for (int k = 0; k < spinAttemptsPerLockCount && result == CommitLockResult.failure; k++) {
+            result = lock.tryLockAndDetectConflicts(lockOwner);
+        }
+
+        if (result != CommitLockResult.failure || maxWaitNanosPerLock == 0) {
+            return result;
+        }
+
+        long deadline = System.nanoTime() + maxWaitNanosPerLock;
+        long parkNanos = 1000;
+        do {
+            LockSupport.parkNanos(parkNanos);
+            result = lock.tryLockAndDetectConflicts(lockOwner);
+            if (result != CommitLockResult.failure) {
+                return result;
+            }
+            parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+        } while (System.nanoTime() - deadline < 0);
+
+        return CommitLockResult.failure;
+    }
+
+    @Override
+    public String toString() {
+        return format("OrderedCommitLockPolicy(spinAttemptsPerLockCount=%s, maxWaitNanosPerLock=%s)",
+                      spinAttemptsPerLockCount, maxWaitNanosPerLock);
+    }
+}
@@ -0,0 +1,88 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.api.Transaction;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An abstract {@link ContentionManager} that contains the functionality needed by most ContentionManagers: a maximum
+ * number of attempts and access to the priority of a {@link Contender}.
+ *
+ * @author Peter Veentjer.
+ */
+public abstract class AbstractContentionManager implements ContentionManager {
+
+    protected final int maxAttempts;
+    protected final long delayNanos;
+
+    /**
+     * Creates a new AbstractContentionManager.
+     *
+     * @param maxAttempts the maximum number of times an attacker waits for the same lock.
+     * @param delayNanos  the time in nanoseconds to wait each attempt.
+     * @throws IllegalArgumentException if maxAttempts or delayNanos is smaller than 0.
+     */
+    public AbstractContentionManager(int maxAttempts, long delayNanos) {
+        if (maxAttempts < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        if (delayNanos < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.delayNanos = delayNanos;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * Waits the given time. The interrupt status of the thread is not cleared.
+     *
+     * @param nanos the time in nanoseconds to wait.
+     */
+    protected static void delay(long nanos) {
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    /**
+     * Returns the karma of a transaction. A transaction that is not a {@link Contender} has no karma.
+     *
+     * @param t the Transaction.
+     * @return the karma.
+     */
+    protected static long getKarma(Transaction t) {
+        return t instanceof Contender ? ((Contender) t).getKarma() : 0;
+    }
+
+    /**
+     * Checks if the attacker was started before the owner. A transaction that is not a {@link Contender} is always
+     * seen as the youngest.
+     *
+     * @param attacker the attacking Transaction.
+     * @param owner    the Transaction owning the lock. Could be null.
+     * @return true if the attacker is older than the owner.
+     */
+    protected static boolean isOlder(Transaction attacker, Transaction owner) {
+        if (!(owner instanceof Contender)) {
+            return true;
+        }
+
+        if (!(attacker instanceof Contender)) {
+            return false;
+        }
+
+        long attackerTimestamp = ((Contender) attacker).getContentionTimestamp();
+        long ownerTimestamp = ((Contender) owner).getContentionTimestamp();
+        return attackerTimestamp - ownerTimestamp < 0;
+    }
+}
@@ -0,0 +1,27 @@
+package org.multiverse.utils.contentionmanager;
+
+/**
+ * A Contender is a transaction that can be compared with another transaction by a {@link ContentionManager}. The
+ * priority information is kept when a transaction is restarted, so a transaction that has been restarted a few times
+ * gets a higher priority than a transaction that just started.
+ *
+ * @author Peter Veentjer.
+ */
+public interface Contender {
+
+    /**
+     * Returns the moment (in {@link System#nanoTime()}) the transaction was started for the first time. A restart
+     * doesn't change this timestamp. Timestamps should be compared with a subtraction, just like nanoTime values.
+     *
+     * @return the timestamp.
+     */
+    long getContentionTimestamp();
+
+    /**
+     * Returns the amount of work the transaction has done. The karma is accumulated over all restarts of the
+     * transaction.
+     *
+     * @return the karma.
+     */
+    long getKarma();
+}
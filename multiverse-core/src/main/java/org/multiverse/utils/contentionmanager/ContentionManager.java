@@ -0,0 +1,34 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.api.Transaction;
+
+/**
+ * A ContentionManager decides what a transaction (the attacker) should do when it encounters an atomic object that is
+ * locked by another transaction (the owner). Without a ContentionManager the attacker fails directly and needs to be
+ * restarted, even if it already did a lot of work.
+ * <p/>
+ * The owner of a lock is committing and can't be aborted by the attacker, so the only decision is if the attacker
+ * waits until the owner has completed and tries again, or gives up. The attacker doesn't own any locks while resolving
+ * the contention, so waiting can't cause a deadlock. A ContentionManager should limit the total time waited, because
+ * a lock owner could take a long time to complete.
+ * <p/>
+ * Transactions that implement {@link Contender} provide the information (age, karma) a ContentionManager can use to
+ * prioritize them. A transaction that doesn't implement Contender should be given the lowest priority.
+ * <p/>
+ * A ContentionManager should be thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public interface ContentionManager {
+
+    /**
+     * Resolves the contention between the attacker and the owner of the lock. If the attacker should try again, the
+     * waiting is done in this call.
+     *
+     * @param attacker the transaction that encountered the lock.
+     * @param owner    the transaction that owns the lock. Could be null if the lock was released in the meantime.
+     * @param attempt  the number of times the contention for the same operation has been resolved, starting at 1.
+     * @return true if the attacker should try again, false if it should give up.
+     */
+    boolean resolve(Transaction attacker, Transaction owner, int attempt);
+}
@@ -0,0 +1,54 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.api.Transaction;
+
+import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ContentionManager} that prefers the oldest transaction (see {@link Contender#getContentionTimestamp()}):
+ * an attacker that started before the owner waits for the owner to complete, a younger attacker gives up immediately.
+ * Because the timestamp of a transaction is kept when it is restarted, a transaction is only going to give up a
+ * limited number of times; it becomes the oldest transaction eventually.
+ * <p/>
+ * This GreedyContentionManager is immutable and thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class GreedyContentionManager extends AbstractContentionManager {
+
+    public static final GreedyContentionManager INSTANCE = new GreedyContentionManager();
+
+    /**
+     * Creates a GreedyContentionManager that waits at most 100 times 10 microseconds.
+     */
+    public GreedyContentionManager() {
+        this(100, TimeUnit.MICROSECONDS.toNanos(10));
+    }
+
+    /**
+     * Creates a GreedyContentionManager.
+     *
+     * @param maxAttempts the maximum number of times an older attacker waits for the same lock.
+     * @param delayNanos  the time in nanoseconds to wait each attempt.
+     * @throws IllegalArgumentException if maxAttempts or delayNanos is smaller than 0.
+     */
+    public GreedyContentionManager(int maxAttempts, long delayNanos) {
+        super(maxAttempts, delayNanos);
+    }
+
+    @Override
+    public boolean resolve(Transaction attacker, Transaction owner, int attempt) {
+        if (attempt > maxAttempts || !isOlder(attacker, owner)) {
+            return false;
+        }
+
+        delay(delayNanos);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return format("GreedyContentionManager(maxAttempts=%s, delayNanos=%s)", maxAttempts, delayNanos);
+    }
+}
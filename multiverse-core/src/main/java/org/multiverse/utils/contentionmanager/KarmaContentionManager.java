@@ -0,0 +1,61 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.api.Transaction;
+
+import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ContentionManager} based on the amount of work a transaction has done (the karma, see {@link
+ * Contender#getKarma()}). The priority of the attacker is its karma plus the number of attempts, so an attacker that
+ * has been waiting for some time increases its priority. If the priority of the attacker is higher than the karma of
+ * the owner, it waits a fixed delay and tries again. If not, it gives up.
+ * <p/>
+ * Because the karma of a transaction is kept when it is restarted, a transaction that gave up keeps gaining
+ * priority each time it is executed, and eventually is going to be preferred over smaller transactions.
+ * <p/>
+ * This KarmaContentionManager is immutable and thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class KarmaContentionManager extends AbstractContentionManager {
+
+    public static final KarmaContentionManager INSTANCE = new KarmaContentionManager();
+
+    /**
+     * Creates a KarmaContentionManager that waits at most 100 times 10 microseconds.
+     */
+    public KarmaContentionManager() {
+        this(100, TimeUnit.MICROSECONDS.toNanos(10));
+    }
+
+    /**
+     * Creates a KarmaContentionManager.
+     *
+     * @param maxAttempts the maximum number of times an attacker waits for the same lock.
+     * @param delayNanos  the time in nanoseconds to wait each attempt.
+     * @throws IllegalArgumentException if maxAttempts or delayNanos is smaller than 0.
+     */
+    public KarmaContentionManager(int maxAttempts, long delayNanos) {
+        super(maxAttempts, delayNanos);
+    }
+
+    @Override
+    public boolean resolve(Transaction attacker, Transaction owner, int attempt) {
+        if (attempt > maxAttempts) {
+            return false;
+        }
+
+        if (getKarma(attacker) + attempt <= getKarma(owner)) {
+            return false;
+        }
+
+        delay(delayNanos);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return format("KarmaContentionManager(maxAttempts=%s, delayNanos=%s)", maxAttempts, delayNanos);
+    }
+}
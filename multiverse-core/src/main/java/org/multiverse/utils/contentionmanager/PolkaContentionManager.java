@@ -0,0 +1,82 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.api.Transaction;
+
+import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ContentionManager} that combines the priorities of the {@link KarmaContentionManager} with an exponential
+ * backoff: an attacker with a higher priority than the owner waits, and each next attempt the delay is doubled until
+ * the maximum delay is reached. So a short commit of the owner is waited for cheaply, and a long one doesn't cause a
+ * lot of useless wakeups.
+ * <p/>
+ * This PolkaContentionManager is immutable and thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class PolkaContentionManager extends AbstractContentionManager {
+
+    public static final PolkaContentionManager INSTANCE = new PolkaContentionManager();
+
+    private final long maxDelayNanos;
+
+    /**
+     * Creates a PolkaContentionManager that waits at most 20 times, starting with 1 microsecond and a maximum delay of
+     * 1 millisecond.
+     */
+    public PolkaContentionManager() {
+        this(20, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Creates a PolkaContentionManager.
+     *
+     * @param maxAttempts   the maximum number of times an attacker waits for the same lock.
+     * @param delayNanos    the time in nanoseconds to wait the first attempt.
+     * @param maxDelayNanos the maximum time in nanoseconds to wait a single attempt.
+     * @throws IllegalArgumentException if maxAttempts or delayNanos is smaller than 0, or if maxDelayNanos is smaller
+     *                                  than delayNanos.
+     */
+    public PolkaContentionManager(int maxAttempts, long delayNanos, long maxDelayNanos) {
+        super(maxAttempts, delayNanos);
+
+        if (maxDelayNanos < delayNanos) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    public long getMaxDelayNanos() {
+        return maxDelayNanos;
+    }
+
+    @Override
+    public boolean resolve(Transaction attacker, Transaction owner, int attempt) {
+        if (attempt > maxAttempts) {
+            return false;
+        }
+
+        if (getKarma(attacker) + attempt <= getKarma(owner)) {
+            return false;
+        }
+
+        delay(calculateDelayNanos(attempt));
+        return true;
+    }
+
+    long calculateDelayNanos(int attempt) {
+        long delay = delayNanos;
+        for (int k = 1; k < attempt && delay < maxDelayNanos; k++) {
+            delay *= 2;
+        }
+        return Math.min(delay, maxDelayNanos);
+    }
+
+    @Override
+    public String toString() {
+        return format("PolkaContentionManager(maxAttempts=%s, delayNanos=%s, maxDelayNanos=%s)",
+                      maxAttempts, delayNanos, maxDelayNanos);
+    }
+}
@@ -0,0 +1,70 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.api.Transaction;
+
+import static java.lang.String.format;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ContentionManager} that prefers the oldest transaction (see {@link Contender#getContentionTimestamp()}),
+ * but is more patient than the {@link GreedyContentionManager}: a younger attacker doesn't give up immediately, but
+ * waits a limited number of attempts. An attacker that is older than the owner waits for the full number of
+ * attempts.
+ * <p/>
+ * This TimestampContentionManager is immutable and thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class TimestampContentionManager extends AbstractContentionManager {
+
+    public static final TimestampContentionManager INSTANCE = new TimestampContentionManager();
+
+    private final int maxYoungerAttempts;
+
+    /**
+     * Creates a TimestampContentionManager that waits 10 microseconds per attempt, at most 100 times for an older
+     * attacker and 4 times for a younger attacker.
+     */
+    public TimestampContentionManager() {
+        this(100, 4, TimeUnit.MICROSECONDS.toNanos(10));
+    }
+
+    /**
+     * Creates a TimestampContentionManager.
+     *
+     * @param maxAttempts        the maximum number of times an older attacker waits for the same lock.
+     * @param maxYoungerAttempts the maximum number of times a younger attacker waits for the same lock.
+     * @param delayNanos         the time in nanoseconds to wait each attempt.
+     * @throws IllegalArgumentException if maxAttempts, maxYoungerAttempts or delayNanos is smaller than 0.
+     */
+    public TimestampContentionManager(int maxAttempts, int maxYoungerAttempts, long delayNanos) {
+        super(maxAttempts, delayNanos);
+
+        if (maxYoungerAttempts < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxYoungerAttempts = maxYoungerAttempts;
+    }
+
+    public int getMaxYoungerAttempts() {
+        return maxYoungerAttempts;
+    }
+
+    @Override
+    public boolean resolve(Transaction attacker, Transaction owner, int attempt) {
+        int limit = isOlder(attacker, owner) ? maxAttempts : maxYoungerAttempts;
+        if (attempt > limit) {
+            return false;
+        }
+
+        delay(delayNanos);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return format("TimestampContentionManager(maxAttempts=%s, maxYoungerAttempts=%s, delayNanos=%s)",
+                      maxAttempts, maxYoungerAttempts, delayNanos);
+    }
+}
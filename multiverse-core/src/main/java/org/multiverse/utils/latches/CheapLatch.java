@@ -4,10 +4,7 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * A {@link Latch} based on the intrinsic lock and uses the minimal amount of resources. It uses the CheapLatch object
- * itself for the monitor lock. It can't do any timed waits.
- * <p/>
- * If bounded waits are needed, a new latch needs to be added. A simple implementation would be one
- * based on {@link java.util.concurrent.locks.Lock} because it supports timed waits.
+ * itself for the monitor lock. Timed waits are done with a {@link Object#wait(long, int)} loop on that monitor.
  *
  * @author Peter Veentjer.
  */
@@ -84,24 +81,79 @@ public final class CheapLatch implements Latch {
         }
     }
 
-    /**
-     * This operation is not supported on the CheapLatch.
-     *
-     * @throws UnsupportedOperationException because timed waits are not supported by this CheapLatch.
-     */
     @Override
     public boolean tryAwait(long timeout, TimeUnit unit) throws InterruptedException {
-        throw new UnsupportedOperationException();
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+
+        if (isOpen) {
+            return true;
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        long remainingNs = unit.toNanos(timeout);
+        if (remainingNs <= 0) {
+            return false;
+        }
+
+        long deadlineNs = System.nanoTime() + remainingNs;
+        synchronized (this) {
+            while (!isOpen) {
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNs);
+
+                remainingNs = deadlineNs - System.nanoTime();
+                if (remainingNs <= 0) {
+                    return isOpen;
+                }
+            }
+        }
+
+        return true;
     }
 
-    /**
-     * This operation is not supported on the CheapLatch.
-     *
-     * @throws UnsupportedOperationException because timed waits are not supported by this CheapLatch.
-     */
     @Override
     public boolean tryAwaitUninterruptible(long timeout, TimeUnit unit) {
-        throw new UnsupportedOperationException();
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+
+        if (isOpen) {
+            return true;
+        }
+
+        long remainingNs = unit.toNanos(timeout);
+        if (remainingNs <= 0) {
+            return false;
+        }
+
+        boolean restoreInterrupt = false;
+        try {
+            long deadlineNs = System.nanoTime() + remainingNs;
+            synchronized (this) {
+                while (!isOpen) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remainingNs);
+                    } catch (InterruptedException ex) {
+                        restoreInterrupt = true;
+                    }
+
+                    remainingNs = deadlineNs - System.nanoTime();
+                    if (remainingNs <= 0) {
+                        return isOpen;
+                    }
+                }
+            }
+
+            return true;
+        } finally {
+            if (restoreInterrupt) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,209 @@
+package org.multiverse.utils.latches;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Latch} based on {@link LockSupport#park(Object)} and {@link LockSupport#unpark(Thread)}. Waiting threads
+ * push themselves on a lock free stack, and opening the latch unparks exactly the threads on that stack. Since no
+ * monitor or lock is held while waiting, a waiting thread doesn't pin the carrier of a virtual thread. And unlike the
+ * {@link StandardLatch}, timed waits don't need a lock either.
+ * <p/>
+ * A waiter that is interrupted or timed out, stays on the stack until the latch is opened. Since a latch is a one
+ * shot structure, this is not a problem.
+ *
+ * @author Peter Veentjer.
+ */
+public final class ParkingLatch implements Latch {
+
+    private final static AtomicReferenceFieldUpdater<ParkingLatch, Waiter> waitersUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(ParkingLatch.class, Waiter.class, "waiters");
+
+    private volatile boolean isOpen;
+
+    private volatile Waiter waiters;
+
+    /**
+     * Creates a new closed ParkingLatch.
+     */
+    public ParkingLatch() {
+        this(false);
+    }
+
+    /**
+     * Creates a new ParkingLatch.
+     *
+     * @param isOpen true if the latch already is open, false if the latch is closed.
+     */
+    public ParkingLatch(boolean isOpen) {
+        this.isOpen = isOpen;
+    }
+
+    @Override
+    public void await() throws InterruptedException {
+        if (isOpen) {
+            return;
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        push();
+        while (!isOpen) {
+            LockSupport.park(this);
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public void awaitUninterruptible() {
+        if (isOpen) {
+            return;
+        }
+
+        boolean restoreInterrupt = false;
+
+        push();
+        while (!isOpen) {
+            LockSupport.park(this);
+
+            //the interrupt status needs to be cleared, else park returns immediately.
+            if (Thread.interrupted()) {
+                restoreInterrupt = true;
+            }
+        }
+
+        if (restoreInterrupt) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean tryAwait(long timeout, TimeUnit unit) throws InterruptedException {
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+
+        if (isOpen) {
+            return true;
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        long remainingNs = unit.toNanos(timeout);
+        if (remainingNs <= 0) {
+            return false;
+        }
+
+        long deadlineNs = System.nanoTime() + remainingNs;
+        push();
+        while (!isOpen) {
+            LockSupport.parkNanos(this, remainingNs);
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            remainingNs = deadlineNs - System.nanoTime();
+            if (remainingNs <= 0) {
+                return isOpen;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean tryAwaitUninterruptible(long timeout, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+
+        if (isOpen) {
+            return true;
+        }
+
+        long remainingNs = unit.toNanos(timeout);
+        if (remainingNs <= 0) {
+            return false;
+        }
+
+        boolean restoreInterrupt = false;
+        try {
+            long deadlineNs = System.nanoTime() + remainingNs;
+            push();
+            while (!isOpen) {
+                LockSupport.parkNanos(this, remainingNs);
+
+                if (Thread.interrupted()) {
+                    restoreInterrupt = true;
+                }
+
+                remainingNs = deadlineNs - System.nanoTime();
+                if (remainingNs <= 0) {
+                    return isOpen;
+                }
+            }
+
+            return true;
+        } finally {
+            if (restoreInterrupt) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Pushes the current thread on the waiter stack. The latch needs to be checked after pushing, because if the latch
+     * was opened just before, the waiter is not going to be unparked.
+     */
+    private void push() {
+        Waiter waiter = new Waiter(Thread.currentThread());
+        do {
+            waiter.next = waiters;
+        } while (!waitersUpdater.compareAndSet(this, waiter.next, waiter));
+    }
+
+    @Override
+    public void open() {
+        if (isOpen) {
+            return;
+        }
+
+        //the latch needs to be opened before the waiters are removed, else a thread that pushes itself after the
+        //removal, could miss the open.
+        isOpen = true;
+
+        Waiter waiter = waitersUpdater.getAndSet(this, null);
+        while (waiter != null) {
+            LockSupport.unpark(waiter.thread);
+            waiter = waiter.next;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return isOpen;
+    }
+
+    @Override
+    public String toString() {
+        return isOpen ? "ParkingLatch(open=true)" : "ParkingLatch(open=false)";
+    }
+
+    private static final class Waiter {
+        final Thread thread;
+        Waiter next;
+
+        Waiter(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
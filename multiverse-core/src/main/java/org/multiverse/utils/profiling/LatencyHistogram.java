@@ -0,0 +1,175 @@
+package org.multiverse.utils.profiling;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non negative long values, for example latencies in nanoseconds or the number of attempts of a
+ * transaction. Unlike a counter it shows the distribution of the values, so the tail (the 99th percentile for example)
+ * becomes visible.
+ * <p/>
+ * The histogram uses a log-linear bucket layout like a HdrHistogram: every power of two is split into 16 linear
+ * sub-buckets. So a value is recorded with a relative precision of 1/16 (6.25%) over the complete range of a long,
+ * using a fixed number of buckets, and recording a value only increments a single bucket; no objects are created and
+ * no locks are needed. The values 0 to 15 are recorded exactly.
+ * <p/>
+ * The mean and the max are derived from the buckets when they are read, instead of being maintained on every record;
+ * a shared sum and max would be a cache line that all recording threads contend on. So they have the same precision as
+ * the percentiles.
+ * <p/>
+ * The statistics that are read are not an atomic snapshot: values that are recorded concurrently may or may not be
+ * included. That is no problem for profiling information.
+ * <p/>
+ * LatencyHistogram is thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class LatencyHistogram {
+
+    //the number of bits of the sub-bucket index.
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    //the first SUB_BUCKET_COUNT buckets contain the exact values, every following power of two has SUB_BUCKET_COUNT
+    //buckets.
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Records a value. A negative value (e.g. caused by a clock that went back) is recorded as 0.
+     *
+     * @param value the value to record.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        buckets.incrementAndGet(bucketIndex(value));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestValueInBucket(int index) {
+        return index == 0 ? 0 : highestValueInBucket(index - 1) + 1;
+    }
+
+    static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        long lowest = subBucket << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values.
+     */
+    public long getCount() {
+        long result = 0;
+        for (int k = 0; k < BUCKET_COUNT; k++) {
+            result += buckets.get(k);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the largest recorded value. The returned value is the highest value of the bucket the largest value is
+     * found in, so it is at most 6.25% larger than the actual value.
+     *
+     * @return the largest recorded value, or 0 if nothing has been recorded.
+     */
+    public long getMax() {
+        for (int k = BUCKET_COUNT - 1; k >= 0; k--) {
+            if (buckets.get(k) > 0) {
+                return highestValueInBucket(k);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the mean of the recorded values. Every value is counted as the middle of its bucket, so the mean is
+     * within 6.25% of the actual mean.
+     *
+     * @return the mean, or 0 if nothing has been recorded.
+     */
+    public long getMean() {
+        long count = 0;
+        //a double because the sum of large values would overflow a long.
+        double sum = 0;
+        for (int k = 0; k < BUCKET_COUNT; k++) {
+            long bucketCount = buckets.get(k);
+            if (bucketCount > 0) {
+                count += bucketCount;
+                sum += bucketCount * (lowestValueInBucket(k) / 2.0 + highestValueInBucket(k) / 2.0);
+            }
+        }
+        return count == 0 ? 0 : Math.round(sum / count);
+    }
+
+    /**
+     * Returns the value below which the percentage of the recorded values falls. The returned value is the highest
+     * value of the bucket the percentile is found in, so it is at most 6.25% larger than the actual value.
+     *
+     * @param percentile the percentile, e.g. 99.9.
+     * @return the value at the percentile, or 0 if nothing has been recorded.
+     * @throws IllegalArgumentException if percentile is not between 0 and 100.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile should be between 0 and 100, found " + percentile);
+        }
+
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int k = 0; k < BUCKET_COUNT; k++) {
+            counts[k] = buckets.get(k);
+            total += counts[k];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int k = 0; k < BUCKET_COUNT; k++) {
+            seen += counts[k];
+            if (seen >= rank) {
+                return highestValueInBucket(k);
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Removes all recorded values. Values that are recorded concurrently could be partially lost.
+     */
+    public void reset() {
+        for (int k = 0; k < BUCKET_COUNT; k++) {
+            buckets.set(k, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram(count=" + getCount() + ", mean=" + getMean() + ", 50%=" +
+                getValueAtPercentile(50) + ", 99%=" + getValueAtPercentile(99) + ", max=" + getMax() + ")";
+    }
+}
@@ -0,0 +1,122 @@
+package org.multiverse.utils.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A counter of a {@link ProfileRepository} that has been resolved for a key once, so that it can be incremented
+ * without looking it up again. See {@link ProfileRepository#getCounter(String, String)}.
+ * <p/>
+ * A ProfileCounter starts as a single count. Only when an increment fails because of a concurrent increment, the
+ * counter becomes striped: the count is spread over a set of cells, and a thread only increments the cell selected by
+ * its id. So threads that increment the same counter at the same moment don't contend on the same cache line, and the
+ * count only is summed when it is read. Every cell is padded to its own cache line to prevent false sharing. Counters
+ * that are never contended, like most counters of a repository, don't pay for the cells.
+ * <p/>
+ * The sum that is read is not an atomic snapshot: increments that are done while the cells are summed may or may not
+ * be included. That is no problem for profiling information.
+ * <p/>
+ * ProfileCounter is thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class ProfileCounter {
+
+    //the number of longs between two cells, so that every cell is placed on a different 64 byte cache line.
+    private static final int PADDING = 8;
+
+    private static final int STRIPE_COUNT = stripeCount(Runtime.getRuntime().availableProcessors());
+
+    private static int stripeCount(int processors) {
+        //twice the number of processors, rounded to a power of two so the thread id can be masked.
+        int count = 1;
+        while (count < processors * 2 && count < 64) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    private static final AtomicReferenceFieldUpdater<ProfileCounter, AtomicLongArray> CELLS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ProfileCounter.class, AtomicLongArray.class, "cells");
+
+    private final AtomicLong base = new AtomicLong();
+
+    //is null as long as no contention has been seen on the base.
+    private volatile AtomicLongArray cells;
+
+    /**
+     * Increments this ProfileCounter by one.
+     */
+    public void inc() {
+        inc(1);
+    }
+
+    /**
+     * Increments this ProfileCounter by the amount. The amount can be negative.
+     *
+     * @param amount the amount to add.
+     */
+    public void inc(long amount) {
+        AtomicLongArray c = cells;
+        if (c == null) {
+            long value = base.get();
+            if (base.compareAndSet(value, value + amount)) {
+                return;
+            }
+
+            //another thread incremented concurrently, so from now on the cells are used.
+            c = new AtomicLongArray(STRIPE_COUNT * PADDING);
+            if (!CELLS_UPDATER.compareAndSet(this, null, c)) {
+                c = cells;
+            }
+        }
+
+        //thread ids are handed out sequentially, so consecutive threads use different cells.
+        int index = ((int) Thread.currentThread().getId() & (STRIPE_COUNT - 1)) * PADDING;
+        c.addAndGet(index, amount);
+    }
+
+    /**
+     * Returns the sum of all increments of this ProfileCounter.
+     *
+     * @return the count.
+     */
+    public long get() {
+        long result = base.get();
+        AtomicLongArray c = cells;
+        if (c != null) {
+            for (int k = 0; k < STRIPE_COUNT; k++) {
+                result += c.get(k * PADDING);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the count of this ProfileCounter back to zero. Increments that are done concurrently could be lost.
+     */
+    public void reset() {
+        base.set(0);
+        AtomicLongArray c = cells;
+        if (c != null) {
+            for (int k = 0; k < STRIPE_COUNT; k++) {
+                c.set(k * PADDING, 0);
+            }
+        }
+    }
+
+    /**
+     * Checks if this ProfileCounter has become striped because of contention.
+     *
+     * @return true if the cells have been allocated, false otherwise.
+     */
+    boolean isStriped() {
+        return cells != null;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,131 @@
+package org.multiverse.utils.profiling;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A ring buffer that contains the events recorded by a single thread. Events have a fixed size and are stored in a
+ * long array, so recording an event doesn't create objects.
+ * <p/>
+ * The buffer has a single producer (the thread it belongs to) and a single consumer (the thread that drains the
+ * {@link ProfileEventRecorder}). The producer publishes the events with an ordered store of the head, the consumer
+ * releases the slots with an ordered store of the tail. If the buffer is full, the event is dropped: the producer
+ * never waits for the consumer.
+ *
+ * @author Peter Veentjer.
+ */
+final class ProfileEventBuffer {
+
+    //an event consists of: the family id and the class id, the event type, and the timestamp.
+    static final int EVENT_SIZE = 3;
+
+    private static final AtomicLongFieldUpdater<ProfileEventBuffer> headUpdater =
+            AtomicLongFieldUpdater.newUpdater(ProfileEventBuffer.class, "head");
+
+    private static final AtomicLongFieldUpdater<ProfileEventBuffer> tailUpdater =
+            AtomicLongFieldUpdater.newUpdater(ProfileEventBuffer.class, "tail");
+
+    private final long[] events;
+    private final int capacity;
+    private final WeakReference<Thread> owner;
+
+    //the number of events written, is only written by the producer.
+    private volatile long head;
+
+    //the number of events read, is only written by the consumer.
+    private volatile long tail;
+
+    //a copy of the tail, so the producer only needs to read the volatile tail when the buffer looks full.
+    private long cachedTail;
+
+    //the number of dropped events, is only written by the producer.
+    private volatile long dropped;
+
+    //the number of dropped events that has been reported by the consumer.
+    private long reportedDropped;
+
+    /**
+     * Creates a ProfileEventBuffer for the current thread.
+     *
+     * @param capacity the maximum number of events, needs to be a power of two.
+     */
+    ProfileEventBuffer(int capacity) {
+        assert Integer.bitCount(capacity) == 1;
+        this.capacity = capacity;
+        this.events = new long[capacity * EVENT_SIZE];
+        this.owner = new WeakReference<Thread>(Thread.currentThread());
+    }
+
+    /**
+     * Writes an event. Can only be called by the thread that owns this buffer.
+     *
+     * @param type      the ordinal of the ProfileEventType.
+     * @param familyId  the id of the family.
+     * @param classId   the id of the atomic object class, 0 if none.
+     * @param timestamp the time of the event.
+     * @return true if the event was written, false if it was dropped because the buffer is full.
+     */
+    boolean write(int type, int familyId, int classId, long timestamp) {
+        long h = head;
+        if (h - cachedTail >= capacity) {
+            cachedTail = tail;
+            if (h - cachedTail >= capacity) {
+                dropped = dropped + 1;
+                return false;
+            }
+        }
+
+        int index = (int) (h & (capacity - 1)) * EVENT_SIZE;
+        events[index] = ((long) familyId << 32) | (classId & 0xffffffffL);
+        events[index + 1] = type;
+        events[index + 2] = timestamp;
+        headUpdater.lazySet(this, h + 1);
+        return true;
+    }
+
+    /**
+     * Reads all events that have been written and passes them to the recorder. Can only be called by a single thread at
+     * a time.
+     *
+     * @param recorder the ProfileEventRecorder that decodes the events.
+     * @param handler  the ProfileEventHandler to pass the events to.
+     * @return the number of events read.
+     */
+    int drain(ProfileEventRecorder recorder, ProfileEventHandler handler) {
+        long t = tail;
+        long h = head;
+        for (long k = t; k < h; k++) {
+            int index = (int) (k & (capacity - 1)) * EVENT_SIZE;
+            long ids = events[index];
+            recorder.dispatch(handler, (int) events[index + 1], (int) (ids >>> 32), (int) ids, events[index + 2]);
+        }
+        tailUpdater.lazySet(this, h);
+        return (int) (h - t);
+    }
+
+    /**
+     * Returns the number of events dropped since the previous call. Can only be called by the consumer.
+     *
+     * @return the number of newly dropped events.
+     */
+    long takeDropped() {
+        long d = dropped;
+        long result = d - reportedDropped;
+        reportedDropped = d;
+        return result;
+    }
+
+    long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Checks if the thread that owns this buffer has died, so no events are going to be written anymore.
+     *
+     * @return true if the owner has died.
+     */
+    boolean isOwnerDead() {
+        Thread thread = owner.get();
+        return thread == null || !thread.isAlive();
+    }
+}
@@ -0,0 +1,26 @@
+package org.multiverse.utils.profiling;
+
+/**
+ * Handles the events that are drained from a {@link ProfileEventRecorder}. By default the events are aggregated into
+ * the {@link ProfileRepository} of the recorder, but a custom ProfileEventHandler can be passed to
+ * {@link ProfileEventRecorder#drain(ProfileEventHandler)} to process the events in another way, for example to
+ * calculate the number of events per second.
+ * <p/>
+ * A ProfileEventHandler is called by a single thread at a time.
+ *
+ * @author Peter Veentjer.
+ */
+public interface ProfileEventHandler {
+
+    /**
+     * Handles a single event.
+     *
+     * @param type              the type of the event.
+     * @param source            the source of the event, e.g. 'updatetransaction'.
+     * @param familyName        the familyName of the transaction that recorded the event, can be null.
+     * @param atomicObjectClass the class of the atomic object the event was recorded for, or null if the event is not
+     *                          about an atomic object.
+     * @param timestamp         the value of System.nanoTime() when the event was recorded.
+     */
+    void handle(ProfileEventType type, String source, String familyName, Class<?> atomicObjectClass, long timestamp);
+}
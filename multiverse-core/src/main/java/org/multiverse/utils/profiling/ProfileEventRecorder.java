@@ -0,0 +1,316 @@
+package org.multiverse.utils.profiling;
+
+import org.multiverse.utils.profiling.SimpleProfileRepository.ComposedKey;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records profiling events in per-thread ring buffers, so that they can be aggregated into a {@link ProfileRepository}
+ * by a background thread. Compared to incrementing the counters of the ProfileRepository directly, recording an event
+ * only costs a few stores into a buffer owned by the current thread, and the recorded events contain a timestamp, so
+ * a {@link ProfileEventHandler} can build time-resolved information out of them.
+ * <p/>
+ * An event is fixed sized: the {@link ProfileEventType}, the id of the family (the source and familyName of the
+ * transaction), the id of the atomic object class and a timestamp. The ids are resolved by a {@link ProfileEventWriter}
+ * when it is created, so the hot path doesn't need to look up anything.
+ * <p/>
+ * The events are aggregated when the recorder is drained, either by calling {@link #drain()} or by the aggregator
+ * thread started with {@link #start(long)}. If a buffer is full because the events are not drained in time, new events
+ * of that thread are dropped; the thread never waits. The number of dropped events is counted in the
+ * 'profileevent.dropped.count' counter of the ProfileRepository.
+ * <p/>
+ * ProfileEventRecorder is thread-safe to use.
+ *
+ * @author Peter Veentjer.
+ */
+public final class ProfileEventRecorder {
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+    private static final ProfileEventType[] TYPES = ProfileEventType.values();
+
+    private final ProfileRepository repository;
+
+    private final int bufferCapacity;
+
+    private final ProfileEventHandler repositoryHandler;
+
+    private final CopyOnWriteArrayList<ProfileEventBuffer> buffers = new CopyOnWriteArrayList<ProfileEventBuffer>();
+
+    private final ThreadLocal<ProfileEventBuffer> bufferThreadLocal = new ThreadLocal<ProfileEventBuffer>() {
+        @Override
+        protected ProfileEventBuffer initialValue() {
+            ProfileEventBuffer buffer = new ProfileEventBuffer(bufferCapacity);
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+
+    //the id of a family is its index in the families list.
+    private final ConcurrentMap<ComposedKey, Integer> familyIds = new ConcurrentHashMap<ComposedKey, Integer>();
+    private final List<ComposedKey> families = new CopyOnWriteArrayList<ComposedKey>();
+
+    //the id of a class is its index in the classes list plus one, 0 is used for events without a class.
+    private final ConcurrentMap<Class<?>, Integer> classIds = new ConcurrentHashMap<Class<?>, Integer>();
+    private final List<Class<?>> classes = new CopyOnWriteArrayList<Class<?>>();
+
+    //is guarded by this.
+    private Thread aggregator;
+
+    /**
+     * Creates a ProfileEventRecorder with the {@link #DEFAULT_BUFFER_CAPACITY}.
+     *
+     * @param repository the ProfileRepository the events are aggregated into.
+     * @throws NullPointerException if repository is null.
+     */
+    public ProfileEventRecorder(ProfileRepository repository) {
+        this(repository, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * Creates a ProfileEventRecorder.
+     *
+     * @param repository     the ProfileRepository the events are aggregated into.
+     * @param bufferCapacity the maximum number of events a thread can record before the buffer is drained. It is
+     *                       rounded up to a power of two.
+     * @throws NullPointerException     if repository is null.
+     * @throws IllegalArgumentException if bufferCapacity is smaller than 1.
+     */
+    public ProfileEventRecorder(final ProfileRepository repository, int bufferCapacity) {
+        if (repository == null) {
+            throw new NullPointerException();
+        }
+
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("bufferCapacity can't be smaller than 1");
+        }
+
+        this.repository = repository;
+        int capacity = 1;
+        while (capacity < bufferCapacity) {
+            capacity <<= 1;
+        }
+        this.bufferCapacity = capacity;
+        this.repositoryHandler = new ProfileEventHandler() {
+            @Override
+            public void handle(ProfileEventType type, String source, String familyName, Class<?> atomicObjectClass,
+                               long timestamp) {
+                repository.incCounter(source + "." + type.getCounterName(), familyName);
+                if (atomicObjectClass != null && type.getAtomicObjectCounterName() != null) {
+                    repository.incCounter(type.getAtomicObjectCounterName(), atomicObjectClass.getName());
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the ProfileRepository the events are aggregated into.
+     *
+     * @return the ProfileRepository.
+     */
+    public ProfileRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Returns the maximum number of events a thread can record before the buffer is drained.
+     *
+     * @return the buffer capacity.
+     */
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    /**
+     * Creates a ProfileEventWriter that records the events of a family.
+     *
+     * @param source     the source of the events, e.g. 'updatetransaction'.
+     * @param familyName the familyName of the transaction, can be null.
+     * @return the created ProfileEventWriter.
+     * @throws NullPointerException if source is null.
+     */
+    public ProfileEventWriter createWriter(String source, String familyName) {
+        if (source == null) {
+            throw new NullPointerException();
+        }
+
+        return new ProfileEventWriter(this, source, familyName, getFamilyId(source, familyName));
+    }
+
+    private int getFamilyId(String source, String familyName) {
+        ComposedKey key = new ComposedKey(source, familyName);
+        Integer id = familyIds.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (families) {
+            id = familyIds.get(key);
+            if (id == null) {
+                //the family is added before the id is published, so a recorded id can always be resolved.
+                families.add(key);
+                id = families.size() - 1;
+                familyIds.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    int getClassId(Class<?> clazz) {
+        Integer id = classIds.get(clazz);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (classes) {
+            id = classIds.get(clazz);
+            if (id == null) {
+                classes.add(clazz);
+                id = classes.size();
+                classIds.put(clazz, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Records an event in the buffer of the current thread.
+     *
+     * @param type     the type of the event.
+     * @param familyId the id of the family.
+     * @param classId  the id of the atomic object class, 0 if none.
+     */
+    void record(ProfileEventType type, int familyId, int classId) {
+        bufferThreadLocal.get().write(type.ordinal(), familyId, classId, System.nanoTime());
+    }
+
+    void dispatch(ProfileEventHandler handler, int type, int familyId, int classId, long timestamp) {
+        ComposedKey family = families.get(familyId);
+        Class<?> clazz = classId == 0 ? null : classes.get(classId - 1);
+        handler.handle(TYPES[type], family.key1, family.key2, clazz, timestamp);
+    }
+
+    /**
+     * Aggregates all recorded events into the ProfileRepository.
+     *
+     * @return the number of aggregated events.
+     */
+    public int drain() {
+        return drain(repositoryHandler);
+    }
+
+    /**
+     * Drains all recorded events into the handler instead of into the ProfileRepository. The buffers of threads that
+     * have died are removed once they have been drained.
+     *
+     * @param handler the ProfileEventHandler that handles the events.
+     * @return the number of drained events.
+     * @throws NullPointerException if handler is null.
+     */
+    public synchronized int drain(ProfileEventHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException();
+        }
+
+        int result = 0;
+        for (ProfileEventBuffer buffer : buffers) {
+            //the owner is checked before the buffer is drained, so the events it wrote before it died are not lost.
+            boolean ownerDead = buffer.isOwnerDead();
+            result += buffer.drain(this, handler);
+
+            long dropped = buffer.takeDropped();
+            if (dropped > 0) {
+                repository.incCounter("profileevent.dropped.count", (int) dropped);
+            }
+
+            if (ownerDead) {
+                buffers.remove(buffer);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total number of events that have been dropped because a buffer was full.
+     *
+     * @return the number of dropped events.
+     */
+    public long getDroppedCount() {
+        long result = 0;
+        for (ProfileEventBuffer buffer : buffers) {
+            result += buffer.getDropped();
+        }
+        return result;
+    }
+
+    /**
+     * Starts a daemon thread that drains the recorded events into the ProfileRepository.
+     *
+     * @param intervalMs the time in milliseconds between two drains.
+     * @throws IllegalArgumentException if intervalMs is smaller than 1.
+     * @throws IllegalStateException    if the aggregator already has been started.
+     */
+    public synchronized void start(final long intervalMs) {
+        if (intervalMs < 1) {
+            throw new IllegalArgumentException("intervalMs can't be smaller than 1");
+        }
+
+        if (aggregator != null) {
+            throw new IllegalStateException("The ProfileEventRecorder aggregator already has been started");
+        }
+
+        aggregator = new Thread("ProfileEventAggregator") {
+            @Override
+            public void run() {
+                try {
+                    while (!isInterrupted()) {
+                        drain();
+                        Thread.sleep(intervalMs);
+                    }
+                } catch (InterruptedException ignore) {
+                }
+            }
+        };
+        aggregator.setDaemon(true);
+        aggregator.start();
+    }
+
+    /**
+     * Stops the aggregator thread started with {@link #start(long)} and drains the remaining events. If the aggregator
+     * is not running, the call is ignored.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the aggregator to stop.
+     */
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = aggregator;
+            aggregator = null;
+        }
+
+        if (thread == null) {
+            return;
+        }
+
+        thread.interrupt();
+        thread.join();
+        drain();
+    }
+
+    /**
+     * Checks if the aggregator thread is running.
+     *
+     * @return true if the aggregator has been started and not stopped.
+     */
+    public synchronized boolean isStarted() {
+        return aggregator != null;
+    }
+
+    @Override
+    public String toString() {
+        return "ProfileEventRecorder(bufferCapacity=" + bufferCapacity + ", threads=" + buffers.size() + ")";
+    }
+}
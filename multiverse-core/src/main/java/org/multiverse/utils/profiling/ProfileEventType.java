@@ -0,0 +1,66 @@
+package org.multiverse.utils.profiling;
+
+/**
+ * The type of an event that is recorded by the {@link ProfileEventRecorder}. Every type is mapped to the name of the
+ * counter in the {@link ProfileRepository} that is incremented when the event is aggregated.
+ *
+ * @author Peter Veentjer.
+ */
+public enum ProfileEventType {
+
+    /**
+     * A transaction has been started (or restarted).
+     */
+    started("started.count", null),
+
+    /**
+     * An atomic object has been loaded by a transaction.
+     */
+    load("load.count", "atomicobject.load.count"),
+
+    /**
+     * A transaction failed to commit because of a write conflict.
+     */
+    conflict("writeconflict.count", "atomicobject.conflict.count"),
+
+    /**
+     * A transaction failed to acquire the locks needed for its commit.
+     */
+    failedtolock("failedtoacquirelocks.count", null),
+
+    /**
+     * A transaction has committed.
+     */
+    committed("committed.count", null),
+
+    /**
+     * A transaction has aborted.
+     */
+    aborted("aborted.count", null);
+
+    private final String counterName;
+    private final String atomicObjectCounterName;
+
+    ProfileEventType(String counterName, String atomicObjectCounterName) {
+        this.counterName = counterName;
+        this.atomicObjectCounterName = atomicObjectCounterName;
+    }
+
+    /**
+     * Returns the name of the counter of the family, without the source prefix (e.g. 'updatetransaction').
+     *
+     * @return the name of the counter.
+     */
+    public String getCounterName() {
+        return counterName;
+    }
+
+    /**
+     * Returns the name of the counter of the atomic object class the event was recorded for.
+     *
+     * @return the name of the counter, or null if the event is not counted per atomic object class.
+     */
+    public String getAtomicObjectCounterName() {
+        return atomicObjectCounterName;
+    }
+}
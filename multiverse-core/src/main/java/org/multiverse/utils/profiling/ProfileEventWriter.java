@@ -0,0 +1,73 @@
+package org.multiverse.utils.profiling;
+
+/**
+ * Records the events of a single family in a {@link ProfileEventRecorder}. The id of the family is resolved when the
+ * writer is created, and the id of the atomic object class is resolved for the last class an event was recorded for,
+ * so recording an event doesn't need a lookup in the common case.
+ * <p/>
+ * A ProfileEventWriter is not thread-safe; it is meant to be owned by a single transaction. The events are written to
+ * the buffer of the thread that records them.
+ *
+ * @author Peter Veentjer.
+ */
+public final class ProfileEventWriter {
+
+    private final ProfileEventRecorder recorder;
+    private final String source;
+    private final String familyName;
+    private final int familyId;
+
+    private Class<?> atomicObjectClass;
+    private int atomicObjectClassId;
+
+    ProfileEventWriter(ProfileEventRecorder recorder, String source, String familyName, int familyId) {
+        this.recorder = recorder;
+        this.source = source;
+        this.familyName = familyName;
+        this.familyId = familyId;
+    }
+
+    /**
+     * Checks if this ProfileEventWriter records the events of the family in the recorder.
+     *
+     * @param recorder   the ProfileEventRecorder.
+     * @param familyName the familyName, can be null.
+     * @return true if this writer can be used for the family, false otherwise.
+     */
+    public boolean isResolvedFor(ProfileEventRecorder recorder, String familyName) {
+        return this.recorder == recorder &&
+                (this.familyName == null ? familyName == null : this.familyName.equals(familyName));
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getFamilyName() {
+        return familyName;
+    }
+
+    /**
+     * Records an event that is not about a specific atomic object.
+     *
+     * @param type the type of the event.
+     */
+    public void record(ProfileEventType type) {
+        recorder.record(type, familyId, 0);
+    }
+
+    /**
+     * Records an event about an atomic object.
+     *
+     * @param type              the type of the event.
+     * @param atomicObjectClass the class of the atomic object.
+     */
+    public void record(ProfileEventType type, Class<?> atomicObjectClass) {
+        if (atomicObjectClass != this.atomicObjectClass) {
+            this.atomicObjectClassId = recorder.getClassId(atomicObjectClass);
+            this.atomicObjectClass = atomicObjectClass;
+        }
+
+        recorder.record(type, familyId, atomicObjectClassId);
+    }
+}
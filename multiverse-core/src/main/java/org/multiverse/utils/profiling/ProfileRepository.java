@@ -29,6 +29,31 @@ public interface ProfileRepository {
 
     void incCounter(String key1, String key2, long count);
 
+    /**
+     * Returns the counter for key1 and key2, so that it can be incremented without looking it up on every
+     * increment. If no counter exists, it is created. The returned counter is the same counter that is incremented
+     * by {@link #incCounter(String, String)}, and it remains valid when this repository is reset.
+     * <p/>
+     * This is the cheapest way to increment a counter: resolve it once and keep a reference to it.
+     *
+     * @param key1 the first key.
+     * @param key2 the second key.
+     * @return the ProfileCounter. The returned value will never be null.
+     */
+    ProfileCounter getCounter(String key1, String key2);
+
+    /**
+     * Returns the histogram for the histogramName and familyName, so that values can be recorded in it. If no
+     * histogram exists, it is created. The histogram remains valid when this repository is reset. See
+     * {@link TransactionHistograms} for the names of the histograms recorded by the transactions.
+     *
+     * @param histogramName the name of the histogram.
+     * @param familyName    the familyName of the transaction, can be null.
+     * @return the LatencyHistogram. The returned value will never be null.
+     * @throws NullPointerException if histogramName is null.
+     */
+    LatencyHistogram getHistogram(String histogramName, String familyName);
+
     Iterator<String> getKey1Iterator();
 
     long getCount(String key1, String key2);
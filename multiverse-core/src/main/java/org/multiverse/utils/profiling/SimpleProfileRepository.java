@@ -9,10 +9,14 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * A simple {@link ProfileRepository} implementation.
  * <p/>
+ * The counters for 2 keys are {@link ProfileCounter}s. Callers on a hot path should resolve
+ * them once with {@link #getCounter(String, String)} instead of calling
+ * {@link #incCounter(String, String)} for every increment.
+ * <p/>
  * Improvements needed:
  * <ol>
  * <li>composedkey is created even for lookup. Object creation is slow so this unwanted
- * object creation should be removed</li>
+ * object creation should be removed (a resolved ProfileCounter doesn't have this problem)</li>
  * <li>The ConcurrentHashMap still needs locking (even though it used striped locks), so
  * perhaps a non blocking version could improve performance</li>
  * </ol>
@@ -21,9 +25,11 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public final class SimpleProfileRepository implements ProfileRepository {
 
-    private final ConcurrentMap<ComposedKey, AtomicLong> map = new ConcurrentHashMap<ComposedKey, AtomicLong>();
+    private final ConcurrentMap<ComposedKey, ProfileCounter> map = new ConcurrentHashMap<ComposedKey, ProfileCounter>();
     private final ConcurrentMap<String, AtomicLong> singleKeyMap = new ConcurrentHashMap<String, AtomicLong>();
-    private final ProfileCollator collator = new SimpleProfileRepositoryCollator(map);
+    private final ConcurrentMap<ComposedKey, LatencyHistogram> histograms =
+            new ConcurrentHashMap<ComposedKey, LatencyHistogram>();
+    private final ProfileCollator collator = new SimpleProfileRepositoryCollator(map, histograms);
 
     @Override
     public void incCounter(String key) {
@@ -64,7 +70,13 @@ public final class SimpleProfileRepository implements ProfileRepository {
 
     @Override
     public void reset() {
-        map.clear();
+        //the counters are kept, because they could have been resolved by a getCounter.
+        for (ProfileCounter counter : map.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
         singleKeyMap.clear();
     }
 
@@ -75,8 +87,7 @@ public final class SimpleProfileRepository implements ProfileRepository {
 
     @Override
     public void incCounter(String key1, String key2, long count) {
-        AtomicLong counter = getOrCreateCounter(key1, key2);
-        counter.addAndGet(count);
+        getCounter(key1, key2).inc(count);
     }
 
     @Override
@@ -90,7 +101,7 @@ public final class SimpleProfileRepository implements ProfileRepository {
             throw new NullPointerException();
         }
 
-        AtomicLong counter = getOrCreateCounter(key1, key2);
+        ProfileCounter counter = getCounter(key1, key2);
         return counter == null ? -1 : counter.get();
     }
 
@@ -103,7 +114,7 @@ public final class SimpleProfileRepository implements ProfileRepository {
     public long sumKey2(String key2) {
         long result = 0;
 
-        for (Map.Entry<ComposedKey, AtomicLong> entry : map.entrySet()) {
+        for (Map.Entry<ComposedKey, ProfileCounter> entry : map.entrySet()) {
             if (entry.getKey().key2.equals(key2)) {
                 result += entry.getValue().get();
             }
@@ -116,7 +127,7 @@ public final class SimpleProfileRepository implements ProfileRepository {
     public long sumKey1(String key1) {
         long result = 0;
 
-        for (Map.Entry<ComposedKey, AtomicLong> entry : map.entrySet()) {
+        for (Map.Entry<ComposedKey, ProfileCounter> entry : map.entrySet()) {
             if (entry.getKey().key1.equals(key1)) {
                 result += entry.getValue().get();
             }
@@ -125,6 +136,25 @@ public final class SimpleProfileRepository implements ProfileRepository {
         return result;
     }
 
+    @Override
+    public LatencyHistogram getHistogram(String histogramName, String familyName) {
+        if (histogramName == null) {
+            throw new NullPointerException();
+        }
+
+        ComposedKey key = new ComposedKey(histogramName, familyName);
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram found = histograms.putIfAbsent(key, histogram);
+            if (found != null) {
+                histogram = found;
+            }
+        }
+
+        return histogram;
+    }
+
     /* (non-Javadoc)
      * @see org.multiverse.utils.profiling.ProfileRepository#getCollator()
      */
@@ -138,12 +168,13 @@ public final class SimpleProfileRepository implements ProfileRepository {
         return map.toString() + ", " + singleKeyMap.toString();
     }
     
-    private AtomicLong getOrCreateCounter(String key1, String key2) {
+    @Override
+    public ProfileCounter getCounter(String key1, String key2) {
         ComposedKey key = new ComposedKey(key1, key2);
-        AtomicLong counter = map.get(key);
+        ProfileCounter counter = map.get(key);
         if (counter == null) {
-            counter = new AtomicLong();
-            AtomicLong found = map.putIfAbsent(key, counter);
+            counter = new ProfileCounter();
+            ProfileCounter found = map.putIfAbsent(key, counter);
             if (found != null) {
                 counter = found;
             }
@@ -153,7 +184,7 @@ public final class SimpleProfileRepository implements ProfileRepository {
     }
 
     //todo: this composed key is very expensive because an extra object is created everytime
-    //the clock needs to be increased.
+    //the clock needs to be increased. Use a ProfileCounter resolved by getCounter on a hot path.
     static class ComposedKey {
         final String key1;
         final String key2;
@@ -1,6 +1,7 @@
 package org.multiverse.utils.profiling;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -11,8 +12,8 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.multiverse.utils.monitoring.ProfilePublisher.KeyedProfilePage;
 import org.multiverse.utils.profiling.SimpleProfileRepository.ComposedKey;
@@ -34,11 +35,19 @@ class SimpleProfileRepositoryCollator implements ProfileCollator {
      * to collect the type of information required here, so making this code
      * nicer isn't really a priority.
      */
-    private final ConcurrentMap<ComposedKey, AtomicLong> repositoryStats;
+    private final ConcurrentMap<ComposedKey, ProfileCounter> repositoryStats;
+    private final ConcurrentMap<ComposedKey, LatencyHistogram> repositoryHistograms;
     
     public SimpleProfileRepositoryCollator(
-            ConcurrentMap<ComposedKey, AtomicLong> repositoryStats) {
+            ConcurrentMap<ComposedKey, ProfileCounter> repositoryStats) {
+        this(repositoryStats, new ConcurrentHashMap<ComposedKey, LatencyHistogram>());
+    }
+
+    public SimpleProfileRepositoryCollator(
+            ConcurrentMap<ComposedKey, ProfileCounter> repositoryStats,
+            ConcurrentMap<ComposedKey, LatencyHistogram> repositoryHistograms) {
         this.repositoryStats = repositoryStats;
+        this.repositoryHistograms = repositoryHistograms;
     }
 
     @Override
@@ -59,6 +68,11 @@ class SimpleProfileRepositoryCollator implements ProfileCollator {
                         + getAOTransactionKey(candidateKey));
             }
         }
+        
+        // one page with the histograms of every transaction family
+        for (ComposedKey key : repositoryHistograms.keySet()) {
+            profileNames.add(HistogramProfilePage.PROFILE_PREFIX + key.key2);
+        }
         return profileNames;
     }
     
@@ -78,7 +92,10 @@ class SimpleProfileRepositoryCollator implements ProfileCollator {
 
     @Override
     public ProfilePage getProfilePage(String profileName) {
-        if (isAtomicObjectKey(profileName)) {
+        // checked first, a family name could look like an atomic object key
+        if (profileName.startsWith(HistogramProfilePage.PROFILE_PREFIX)) {
+            return getHistogramPage(profileName);
+        } else if (isAtomicObjectKey(profileName)) {
             return getAtomicObjectPage(profileName);
         } else if (isAOTransactionKey(profileName)) {
             return getAOTransactionPage(profileName);
@@ -93,10 +110,10 @@ class SimpleProfileRepositoryCollator implements ProfileCollator {
         SortedMap<String, Long> atomicObjectStats = new TreeMap<String, Long>();
         
         // collect the key1's, i.e. stats, for entries for this atomic object
-        for (Entry<ComposedKey, AtomicLong> entry : repositoryStats.entrySet()) {
+        for (Entry<ComposedKey, ProfileCounter> entry : repositoryStats.entrySet()) {
             ComposedKey key = entry.getKey();
             if (key.key2.equals(atomicObjectKey)) {
-                atomicObjectStats.put(key.key1, entry.getValue().longValue());
+                atomicObjectStats.put(key.key1, entry.getValue().get());
             }
         }
         
@@ -116,14 +133,14 @@ class SimpleProfileRepositoryCollator implements ProfileCollator {
         Map<String, Map<String, Long>> aoTransactionsStats = 
             new HashMap<String, Map<String, Long>>();
         
-        for (Entry<ComposedKey, AtomicLong> entry : repositoryStats.entrySet()) {
+        for (Entry<ComposedKey, ProfileCounter> entry : repositoryStats.entrySet()) {
             ComposedKey key = entry.getKey();
             String candidateKey = key.key2;
             if (candidateKey.startsWith(aoTransactionsKey)) {
                 String label = key.key1;
                 statLabels.add(label);
                 addStatistic(aoTransactionsStats, getMethodKey(candidateKey), label, 
-                        entry.getValue().longValue());
+                        entry.getValue().get());
             }
         }
         
@@ -133,6 +150,24 @@ class SimpleProfileRepositoryCollator implements ProfileCollator {
                 : null);
     }
 
+    private ProfilePage getHistogramPage(String profileName) {
+        String familyName = profileName.substring(HistogramProfilePage.PROFILE_PREFIX.length());
+        // sorted on histogram name
+        SortedMap<String, List<Long>> histogramStats = new TreeMap<String, List<Long>>();
+        
+        for (Entry<ComposedKey, LatencyHistogram> entry : repositoryHistograms.entrySet()) {
+            ComposedKey key = entry.getKey();
+            // a null family name is shown as 'null'
+            if (String.valueOf(key.key2).equals(familyName)) {
+                histogramStats.put(key.key1, HistogramProfilePage.toStatValues(entry.getValue()));
+            }
+        }
+        
+        return (!histogramStats.isEmpty() 
+                ? new HistogramProfilePage(profileName, histogramStats)
+                : null);
+    }
+
     private static String getMethodKey(String key) {
         return key.substring(key.lastIndexOf('.') + 1);
     }
@@ -209,6 +244,39 @@ class SimpleProfileRepositoryCollator implements ProfileCollator {
         }
     }
     
+    /**
+     * A profile page whose keys are the histograms of a transaction family.
+     */
+    private static class HistogramProfilePage extends KeyedProfilePage<String> {
+        private static final String PROFILE_PREFIX = "histograms=";
+        private static final String HISTOGRAM_LABEL = "Histogram";
+        private static final List<String> STAT_LABELS = Arrays.asList(
+                "count", "mean", "50%", "90%", "99%", "99.9%", "max");
+        // histogram names and values are wider than the counters of the other pages
+        private static final int VALUE_COLUMN_WIDTH = 12;
+        
+        private HistogramProfilePage(String name, Map<String, List<Long>> statistics) {
+            super(name, STAT_LABELS, statistics, VALUE_COLUMN_WIDTH);
+        }
+        
+        private static List<Long> toStatValues(LatencyHistogram histogram) {
+            return Arrays.asList(histogram.getCount(), histogram.getMean(),
+                    histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                    histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9),
+                    histogram.getMax());
+        }
+
+        @Override
+        protected String getFormattedKeyLabels() {
+            return HISTOGRAM_LABEL;
+        }
+
+        @Override
+        protected String toFormattedString(String key) {
+            return key;
+        }
+    }
+    
     /**
      * A profile page whose keys are methods of an atomic object.
      */
@@ -0,0 +1,128 @@
+package org.multiverse.utils.profiling;
+
+import org.multiverse.api.Stm;
+
+/**
+ * Contains the names of the {@link LatencyHistogram}s that are recorded per transaction family, and the recording
+ * logic that is shared by the {@link org.multiverse.templates.AtomicTemplate} and the instrumented atomic methods.
+ * <p/>
+ * The histograms are only recorded if the stm is {@link ProfilerAware} and has a profiler. The histograms of a family
+ * are resolved once and cached per thread for the last family that has been recorded, so a thread that keeps executing
+ * transactions of the same family doesn't need to look them up in the {@link ProfileRepository} on every commit.
+ *
+ * @author Peter Veentjer.
+ */
+public final class TransactionHistograms {
+
+    /**
+     * The time in nanoseconds from the start of the first attempt until the transaction has committed, so including
+     * the failed attempts, the backoffs and the time blocked on a retry.
+     */
+    public static final String TRANSACTION_DURATION = "transaction.duration.ns";
+
+    /**
+     * The number of attempts a transaction needed to commit.
+     */
+    public static final String ATTEMPTS = "transaction.attempts";
+
+    /**
+     * The time in nanoseconds a transaction was blocked on a retry, until one of the atomic objects it read was
+     * changed (or the retry timed out).
+     */
+    public static final String RETRY_BLOCK_TIME = "retry.blocktime.ns";
+
+    /**
+     * The time in nanoseconds a successful commit of an update transaction took.
+     */
+    public static final String COMMIT_DURATION = "commit.duration.ns";
+
+    /**
+     * The time in nanoseconds an update transaction needed to acquire the locks of its write set, including the time
+     * spent waiting on contended locks.
+     */
+    public static final String LOCK_ACQUISITION_TIME = "commit.lockacquisition.ns";
+
+    private static final ThreadLocal<FamilyHistograms> resolvedHistograms = new ThreadLocal<FamilyHistograms>();
+
+    /**
+     * Returns the profiler of the stm.
+     *
+     * @param stm the stm.
+     * @return the ProfileRepository, or null if the stm doesn't have a profiler.
+     */
+    public static ProfileRepository getProfiler(Stm stm) {
+        return stm instanceof ProfilerAware ? ((ProfilerAware) stm).getProfiler() : null;
+    }
+
+    /**
+     * Records the duration and the number of attempts of a committed transaction.
+     *
+     * @param profiler   the ProfileRepository, if null the call is ignored.
+     * @param familyName the familyName of the transaction.
+     * @param startNs    the value of System.nanoTime() when the first attempt started.
+     * @param attempts   the number of attempts needed.
+     */
+    public static void recordCommitted(ProfileRepository profiler, String familyName, long startNs, int attempts) {
+        if (profiler == null) {
+            return;
+        }
+
+        FamilyHistograms histograms = resolve(profiler, familyName);
+        histograms.duration.record(System.nanoTime() - startNs);
+        histograms.attempts.record(attempts);
+    }
+
+    /**
+     * Records the time a transaction was blocked on a retry.
+     *
+     * @param profiler   the ProfileRepository, if null the call is ignored.
+     * @param familyName the familyName of the transaction.
+     * @param startNs    the value of System.nanoTime() when the transaction started to wait.
+     */
+    public static void recordRetryBlockTime(ProfileRepository profiler, String familyName, long startNs) {
+        if (profiler == null) {
+            return;
+        }
+
+        resolve(profiler, familyName).retryBlockTime.record(System.nanoTime() - startNs);
+    }
+
+    private static FamilyHistograms resolve(ProfileRepository profiler, String familyName) {
+        FamilyHistograms histograms = resolvedHistograms.get();
+        if (histograms == null || !histograms.isResolvedFor(profiler, familyName)) {
+            histograms = new FamilyHistograms(profiler, familyName);
+            resolvedHistograms.set(histograms);
+        }
+        return histograms;
+    }
+
+    /**
+     * The histograms of a single family, resolved in a ProfileRepository.
+     */
+    private static final class FamilyHistograms {
+
+        private final ProfileRepository profiler;
+        private final String familyName;
+
+        private final LatencyHistogram duration;
+        private final LatencyHistogram attempts;
+        private final LatencyHistogram retryBlockTime;
+
+        FamilyHistograms(ProfileRepository profiler, String familyName) {
+            this.profiler = profiler;
+            this.familyName = familyName;
+            this.duration = profiler.getHistogram(TRANSACTION_DURATION, familyName);
+            this.attempts = profiler.getHistogram(ATTEMPTS, familyName);
+            this.retryBlockTime = profiler.getHistogram(RETRY_BLOCK_TIME, familyName);
+        }
+
+        boolean isResolvedFor(ProfileRepository profiler, String familyName) {
+            return this.profiler == profiler &&
+                    (this.familyName == null ? familyName == null : this.familyName.equals(familyName));
+        }
+    }
+
+    //we don't want instances
+    private TransactionHistograms() {
+    }
+}
@@ -0,0 +1,298 @@
+package org.multiverse.utils.restartbackoff;
+
+import org.multiverse.api.Transaction;
+
+import static java.lang.String.format;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link RestartBackoffPolicy} for low latency. The {@link ExponentialRestartBackoffPolicy} uses a {@link
+ * Thread#sleep(long, int)}, and on most operating systems even a delay of a few microseconds is rounded up to the
+ * granularity of the scheduler (often in the millisecond range). This policy waits in tiers instead:
+ * <ol>
+ * <li>short delays are done by spinning</li>
+ * <li>medium delays are done by yielding the thread</li>
+ * <li>long delays are done by parking the thread ({@link LockSupport#parkNanos(long)})</li>
+ * </ol>
+ * <p/>
+ * The delay is randomly chosen between half the window and the full window, so transactions that conflicted with each
+ * other don't restart at the same moment again. The window grows exponentially with the attempt, and also with the
+ * contention level of the transaction family. The contention level of a family increases when its transactions are
+ * restarted in quick succession, and decreases again when the restarts become rare. So a family that suffers from a
+ * lot of aborts backs off longer on its first restart already.
+ * <p/>
+ * This AdaptiveRestartBackoffPolicy is thread-safe to use. The contention level of a family is maintained without
+ * locking, so under concurrent restarts it is an approximation.
+ *
+ * @author Peter Veentjer.
+ */
+public final class AdaptiveRestartBackoffPolicy implements RestartBackoffPolicy {
+
+    public final static AdaptiveRestartBackoffPolicy INSTANCE = new AdaptiveRestartBackoffPolicy();
+
+    private final long minDelayNs;
+    private final long maxDelayNs;
+    private final long spinThresholdNs;
+    private final long yieldThresholdNs;
+    private final long adaptIntervalNs;
+    private final int maxContentionLevel;
+
+    private final ConcurrentMap<String, ContentionLevel> contentionLevels =
+            new ConcurrentHashMap<String, ContentionLevel>();
+    //is used for transactions without a familyName.
+    private final ContentionLevel anonymousContentionLevel;
+
+    /**
+     * Creates an AdaptiveRestartBackoffPolicy with a minimum delay of 100 nanoseconds and a maximum delay of 10
+     * milliseconds. Delays up to 2 microseconds are spinned, delays up to 50 microseconds are yielded. The contention
+     * level of a family is increased if restarts are less than 1 millisecond apart.
+     */
+    public AdaptiveRestartBackoffPolicy() {
+        this(100, TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MICROSECONDS.toNanos(2),
+             TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(1), 10);
+    }
+
+    /**
+     * Creates an AdaptiveRestartBackoffPolicy.
+     *
+     * @param minDelayNs         the minimum size of the window in nanoseconds.
+     * @param maxDelayNs         the maximum size of the window in nanoseconds.
+     * @param spinThresholdNs    delays up to this number of nanoseconds are done by spinning.
+     * @param yieldThresholdNs   delays up to this number of nanoseconds are done by yielding.
+     * @param adaptIntervalNs    restarts of the same family that are closer together than this number of nanoseconds
+     *                           increase the contention level. Each interval without a restart decreases it.
+     * @param maxContentionLevel the maximum contention level of a family. With a level of n the window is 2^n times
+     *                           as large.
+     * @throws IllegalArgumentException if minDelayNs is smaller than 1, maxDelayNs is smaller than minDelayNs,
+     *                                  spinThresholdNs is smaller than 0, yieldThresholdNs is smaller than
+     *                                  spinThresholdNs, adaptIntervalNs is smaller than 1 or maxContentionLevel is
+     *                                  smaller than 0.
+     */
+    public AdaptiveRestartBackoffPolicy(long minDelayNs, long maxDelayNs, long spinThresholdNs,
+                                        long yieldThresholdNs, long adaptIntervalNs, int maxContentionLevel) {
+        if (minDelayNs < 1) {
+            throw new IllegalArgumentException("minimum delay can't be smaller than 1");
+        }
+
+        if (maxDelayNs < minDelayNs) {
+            throw new IllegalArgumentException("minimum delay can't be larger than maximum delay");
+        }
+
+        if (spinThresholdNs < 0) {
+            throw new IllegalArgumentException("spin threshold can't be smaller than 0");
+        }
+
+        if (yieldThresholdNs < spinThresholdNs) {
+            throw new IllegalArgumentException("spin threshold can't be larger than yield threshold");
+        }
+
+        if (adaptIntervalNs < 1) {
+            throw new IllegalArgumentException("adapt interval can't be smaller than 1");
+        }
+
+        if (maxContentionLevel < 0) {
+            throw new IllegalArgumentException("maximum contention level can't be smaller than 0");
+        }
+
+        this.minDelayNs = minDelayNs;
+        this.maxDelayNs = maxDelayNs;
+        this.spinThresholdNs = spinThresholdNs;
+        this.yieldThresholdNs = yieldThresholdNs;
+        this.adaptIntervalNs = adaptIntervalNs;
+        this.maxContentionLevel = maxContentionLevel;
+        this.anonymousContentionLevel = new ContentionLevel(System.nanoTime() - adaptIntervalNs);
+    }
+
+    public long getMinDelayNs() {
+        return minDelayNs;
+    }
+
+    public long getMaxDelayNs() {
+        return maxDelayNs;
+    }
+
+    public long getSpinThresholdNs() {
+        return spinThresholdNs;
+    }
+
+    public long getYieldThresholdNs() {
+        return yieldThresholdNs;
+    }
+
+    public long getAdaptIntervalNs() {
+        return adaptIntervalNs;
+    }
+
+    public int getMaxContentionLevel() {
+        return maxContentionLevel;
+    }
+
+    /**
+     * Returns the current contention level of a transaction family.
+     *
+     * @param familyName the familyName of the transaction. Can be null.
+     * @return the contention level.
+     */
+    public int getContentionLevel(String familyName) {
+        return findContentionLevel(familyName).level;
+    }
+
+    @Override
+    public void delay(Transaction t, int attempt) throws InterruptedException {
+        long delayNs = calcDelayNs(t, attempt);
+        doDelay(delayNs, true);
+    }
+
+    @Override
+    public void delayUninterruptible(Transaction t, int attempt) {
+        long delayNs = calcDelayNs(t, attempt);
+
+        try {
+            doDelay(delayNs, false);
+        } catch (InterruptedException e) {
+            //can't happen, the delay is not interruptible.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long calcDelayNs(Transaction t, int attempt) {
+        if (attempt <= 0) {
+            return 0;
+        }
+
+        int level = updateContentionLevel(t.getFamilyName(), System.nanoTime());
+        return jitter(calcWindowNs(level, attempt));
+    }
+
+    /**
+     * Registers a restart of a transaction of the family, and returns the updated contention level of the family.
+     *
+     * @param familyName the familyName of the restarted transaction. Can be null.
+     * @param nowNs      the current time in nanoseconds.
+     * @return the updated contention level.
+     */
+    int updateContentionLevel(String familyName, long nowNs) {
+        return findContentionLevel(familyName).update(nowNs, adaptIntervalNs, maxContentionLevel);
+    }
+
+    private ContentionLevel findContentionLevel(String familyName) {
+        if (familyName == null) {
+            return anonymousContentionLevel;
+        }
+
+        ContentionLevel contentionLevel = contentionLevels.get(familyName);
+        if (contentionLevel == null) {
+            ContentionLevel newContentionLevel = new ContentionLevel(System.nanoTime() - adaptIntervalNs);
+            ContentionLevel found = contentionLevels.putIfAbsent(familyName, newContentionLevel);
+            contentionLevel = found == null ? newContentionLevel : found;
+        }
+        return contentionLevel;
+    }
+
+    /**
+     * Calculates the size of the window: the minimum delay doubled for every attempt after the first and for every
+     * contention level, truncated to the maximum delay.
+     *
+     * @param contentionLevel the contention level of the family.
+     * @param attempt         the attempt, should be equal or larger than 1.
+     * @return the window in nanoseconds.
+     */
+    long calcWindowNs(int contentionLevel, int attempt) {
+        int shift = attempt - 1 + contentionLevel;
+        if (shift >= 63 || (maxDelayNs >> shift) < minDelayNs) {
+            return maxDelayNs;
+        }
+        return minDelayNs << shift;
+    }
+
+    /**
+     * Randomly selects a delay between half the window and the full window. A thread local random is not available
+     * (and a shared random would be a contention point itself), so a xorshift on the current time and thread id is
+     * used. This is good enough to spread the restarts.
+     *
+     * @param windowNs the window in nanoseconds.
+     * @return the delay in nanoseconds.
+     */
+    static long jitter(long windowNs) {
+        long x = System.nanoTime() ^ (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L);
+        x ^= x << 21;
+        x ^= x >>> 35;
+        x ^= x << 4;
+        long half = windowNs >> 1;
+        return windowNs - half + ((x >>> 1) % (half + 1));
+    }
+
+    private void doDelay(long delayNs, boolean interruptible) throws InterruptedException {
+        if (delayNs <= 0) {
+            return;
+        }
+
+        long deadlineNs = System.nanoTime() + delayNs;
+        if (delayNs <= spinThresholdNs) {
+            while (System.nanoTime() - deadlineNs < 0) {
+                //spin
+            }
+        } else if (delayNs <= yieldThresholdNs) {
+            do {
+                Thread.yield();
+            } while (System.nanoTime() - deadlineNs < 0);
+        } else {
+            boolean interrupted = false;
+            long remainingNs = delayNs;
+            do {
+                LockSupport.parkNanos(remainingNs);
+                if (Thread.interrupted()) {
+                    if (interruptible) {
+                        throw new InterruptedException();
+                    }
+                    //a park returns immediately while the interrupt flag is set.
+                    interrupted = true;
+                }
+                remainingNs = deadlineNs - System.nanoTime();
+            } while (remainingNs > 0);
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return format("AdaptiveRestartBackoffPolicy(minDelayNs=%s, maxDelayNs=%s, spinThresholdNs=%s, " +
+                "yieldThresholdNs=%s, adaptIntervalNs=%s, maxContentionLevel=%s)",
+                      minDelayNs, maxDelayNs, spinThresholdNs, yieldThresholdNs, adaptIntervalNs,
+                      maxContentionLevel);
+    }
+
+    static final class ContentionLevel {
+
+        private volatile long lastRestartNs;
+        private volatile int level;
+
+        ContentionLevel(long lastRestartNs) {
+            this.lastRestartNs = lastRestartNs;
+        }
+
+        int update(long nowNs, long adaptIntervalNs, int maxLevel) {
+            long gapNs = nowNs - lastRestartNs;
+            lastRestartNs = nowNs;
+
+            int newLevel = level;
+            if (gapNs < adaptIntervalNs) {
+                if (newLevel < maxLevel) {
+                    newLevel++;
+                }
+            } else {
+                long decrease = gapNs / adaptIntervalNs;
+                newLevel = decrease >= newLevel ? 0 : (int) (newLevel - decrease);
+            }
+
+            level = newLevel;
+            return newLevel;
+        }
+    }
+}
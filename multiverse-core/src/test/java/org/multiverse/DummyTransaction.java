@@ -67,6 +67,31 @@ public class DummyTransaction implements Transaction {
         throw new RuntimeException();
     }
 
+    @Override
+    public void startRetryTimeout(long timeoutNs) {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public long getRetryTimeoutNs() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public void startNested() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public void commitNested() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public boolean abortNested() {
+        throw new RuntimeException();
+    }
+
     @Override
     public void schedule(Runnable task, ScheduleType scheduleType) {
         throw new RuntimeException();
@@ -3,14 +3,19 @@ package org.multiverse.api;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.multiverse.api.StmUtils.*;
 import org.multiverse.api.exceptions.NoTransactionFoundException;
 import org.multiverse.api.exceptions.RetryError;
 import static org.multiverse.api.ThreadLocalTransaction.clearThreadLocalTransaction;
 import static org.multiverse.api.ThreadLocalTransaction.setThreadLocalTransaction;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Peter Veentjer
  */
@@ -39,6 +44,64 @@ public class StmUtilsTest {
         retry();
     }
 
+    @Test
+    public void timedRetryThrowsRetryErrorIfTimeoutNotExpired() throws InterruptedException {
+        Transaction t = mock(Transaction.class);
+        when(t.getRetryTimeoutNs()).thenReturn(10L);
+        setThreadLocalTransaction(t);
+
+        try {
+            retry(1, TimeUnit.SECONDS);
+            fail();
+        } catch (RetryError expected) {
+        }
+
+        verify(t).startRetryTimeout(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void timedRetryReturnsIfTimeoutExpired() throws InterruptedException {
+        Transaction t = mock(Transaction.class);
+        when(t.getRetryTimeoutNs()).thenReturn(0L);
+        setThreadLocalTransaction(t);
+
+        retry(1, TimeUnit.SECONDS);
+
+        verify(t).startRetryTimeout(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void timedRetryWithNullUnitFails() throws InterruptedException {
+        Transaction t = mock(Transaction.class);
+        setThreadLocalTransaction(t);
+
+        retry(1, null);
+    }
+
+    @Test(expected = NoTransactionFoundException.class)
+    public void timedRetryWithoutTransactionFails() throws InterruptedException {
+        retry(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void timedRetryFailsIfInterrupted() {
+        Transaction t = mock(Transaction.class);
+        setThreadLocalTransaction(t);
+
+        Thread.currentThread().interrupt();
+        boolean stillInterrupted;
+        try {
+            retry(1, TimeUnit.SECONDS);
+            fail();
+        } catch (InterruptedException expected) {
+        } finally {
+            //the interrupt status is cleared, so it doesn't leak into other tests.
+            stillInterrupted = Thread.interrupted();
+        }
+
+        assertFalse(stillInterrupted);
+    }
+
     @Test
     public void deferredExecuteIsForwardedToTransactionThreadLocal() {
         Runnable task = mock(Runnable.class);
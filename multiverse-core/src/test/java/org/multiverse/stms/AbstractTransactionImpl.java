@@ -21,6 +21,11 @@ public class AbstractTransactionImpl extends AbstractTransaction {
         init();
     }
 
+    public AbstractTransactionImpl(AbstractTransactionDependencies dependencies) {
+        super(dependencies, null);
+        init();
+    }
+
     public AbstractTransactionImpl(String familyName, Clock clock) {
         super(new AbstractTransactionDependencies(
                 clock, ExponentialRestartBackoffPolicy.INSTANCE_10_MS_MAX), familyName);
@@ -0,0 +1,69 @@
+package org.multiverse.stms;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+import org.multiverse.api.Transaction;
+import org.multiverse.utils.clock.StrictClock;
+import org.multiverse.utils.contentionmanager.ContentionManager;
+import org.multiverse.utils.restartbackoff.ExponentialRestartBackoffPolicy;
+
+/**
+ * @author Peter Veentjer
+ */
+public class AbstractTransaction_contentionTest {
+
+    @Test
+    public void karmaAndTimestampAreKeptOnRestart() {
+        AbstractTransactionImpl t = new AbstractTransactionImpl();
+        long timestamp = t.getContentionTimestamp();
+        t.incKarma();
+        t.incKarma();
+
+        t.abortAndReturnRestarted();
+
+        assertEquals(2, t.getKarma());
+        assertEquals(timestamp, t.getContentionTimestamp());
+    }
+
+    @Test
+    public void karmaAndTimestampAreResetOnReuse() throws InterruptedException {
+        AbstractTransactionImpl t = new AbstractTransactionImpl();
+        long timestamp = t.getContentionTimestamp();
+        t.incKarma();
+        t.commit();
+
+        Thread.sleep(1);
+        t.init("other");
+
+        assertEquals(0, t.getKarma());
+        assertTrue(t.getContentionTimestamp() - timestamp > 0);
+    }
+
+    @Test
+    public void resolveContentionWithoutContentionManagerFails() {
+        AbstractTransactionImpl t = new AbstractTransactionImpl();
+        assertFalse(t.resolveContention(new DummyTransaction(), 1));
+    }
+
+    @Test
+    public void resolveContentionIsDelegatedToContentionManager() {
+        final Transaction owner = new DummyTransaction();
+        final Transaction[] attacker = new Transaction[1];
+        ContentionManager contentionManager = new ContentionManager() {
+            @Override
+            public boolean resolve(Transaction a, Transaction o, int attempt) {
+                attacker[0] = a;
+                return o == owner && attempt == 3;
+            }
+        };
+
+        AbstractTransactionImpl t = new AbstractTransactionImpl(new AbstractTransactionDependencies(
+                new StrictClock(1), ExponentialRestartBackoffPolicy.INSTANCE_10_MS_MAX, contentionManager));
+
+        assertTrue(t.resolveContention(owner, 3));
+        assertSame(t, attacker[0]);
+        assertFalse(t.resolveContention(owner, 2));
+        assertFalse(t.resolveContention(t, 3));
+    }
+}
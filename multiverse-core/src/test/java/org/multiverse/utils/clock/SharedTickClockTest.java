@@ -0,0 +1,47 @@
+package org.multiverse.utils.clock;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @author Peter Veentjer
+ */
+public class SharedTickClockTest {
+
+    @Test
+    public void testConstructor() {
+        SharedTickClock clock = new SharedTickClock();
+        assertEquals(0, clock.getTime());
+        assertEquals(16, clock.getSpinCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithNegativeSpinCount() {
+        new SharedTickClock(-1);
+    }
+
+    @Test
+    public void testTick() {
+        SharedTickClock clock = new SharedTickClock();
+        long old = clock.getTime();
+        long returned = clock.tick();
+        assertEquals(old + 1, clock.getTime());
+        assertEquals(returned, clock.getTime());
+    }
+
+    @Test
+    public void tickWithoutSpinning() {
+        SharedTickClock clock = new SharedTickClock(0);
+        clock.tick();
+        assertEquals(2, clock.tick());
+        assertEquals(2, clock.getTime());
+    }
+
+    @Test
+    public void testToString() {
+        SharedTickClock clock = new SharedTickClock();
+        clock.tick();
+
+        assertEquals("SharedTickClock(time=1)", clock.toString());
+    }
+}
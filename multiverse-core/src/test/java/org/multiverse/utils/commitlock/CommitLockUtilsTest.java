@@ -49,5 +49,10 @@ public class CommitLockUtilsTest {
         public CommitLockResult tryLockAndDetectConflicts(Transaction lockOwner) {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        public long getLockId() {
+            throw new UnsupportedOperationException();
+        }
     }
 }
@@ -0,0 +1,199 @@
+package org.multiverse.utils.commitlock;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.*;
+import org.multiverse.api.Transaction;
+
+/**
+ * @author Peter Veentjer
+ */
+public class IrrevocableCommitGateTest {
+
+    private IrrevocableCommitGate gate;
+
+    @Before
+    public void setUp() {
+        gate = new IrrevocableCommitGate();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void acquireWithNullTransactionFails() {
+        gate.acquire(null);
+    }
+
+    @Test
+    public void acquire() {
+        Transaction t = new DummyTransaction();
+        gate.acquire(t);
+
+        assertTrue(gate.isOwner(t));
+        assertSame(t, gate.getOwner());
+    }
+
+    @Test
+    public void acquireIsReentrant() {
+        Transaction t = new DummyTransaction();
+        gate.acquire(t);
+        gate.acquire(t);
+
+        assertSame(t, gate.getOwner());
+    }
+
+    @Test
+    public void releaseByNonOwnerIsIgnored() {
+        Transaction t = new DummyTransaction();
+        gate.acquire(t);
+
+        gate.release(new DummyTransaction());
+        gate.release(null);
+
+        assertSame(t, gate.getOwner());
+    }
+
+    @Test
+    public void release() {
+        Transaction t = new DummyTransaction();
+        gate.acquire(t);
+        gate.release(t);
+
+        assertNull(gate.getOwner());
+        assertFalse(gate.isOwner(t));
+    }
+
+    @Test
+    public void ownerCanCommit() {
+        Transaction t = new DummyTransaction();
+        gate.acquire(t);
+
+        gate.enterCommit(t);
+        gate.exitCommit();
+    }
+
+    @Test
+    public void ownerThreadCantCommitOtherTransaction() {
+        Transaction t = new DummyTransaction();
+        gate.acquire(t);
+
+        try {
+            gate.enterCommit(new DummyTransaction());
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertSame(t, gate.getOwner());
+        gate.release(t);
+
+        //the failed commit should not be left behind as a commit in progress.
+        AcquireThread thread = new AcquireThread();
+        thread.start();
+        joinAll(thread);
+        assertTrue(thread.acquired);
+    }
+
+    @Test
+    public void commitWaitsWhileGateIsOwned() {
+        Transaction t = new DummyTransaction();
+        gate.acquire(t);
+
+        CommitThread thread = new CommitThread();
+        thread.start();
+
+        sleepMs(300);
+        assertTrue(thread.isAlive());
+        assertFalse(thread.committed);
+
+        gate.release(t);
+        joinAll(thread);
+        assertTrue(thread.committed);
+    }
+
+    @Test
+    public void acquireWaitsForCommitsInProgress() {
+        Transaction committer = new DummyTransaction();
+        gate.enterCommit(committer);
+
+        AcquireThread thread = new AcquireThread();
+        thread.start();
+
+        sleepMs(300);
+        assertTrue(thread.isAlive());
+        assertFalse(thread.acquired);
+
+        gate.exitCommit();
+        joinAll(thread);
+        assertTrue(thread.acquired);
+    }
+
+    @Test
+    public void acquireWaitsForAllCommitsInProgress() {
+        gate.enterCommit(new DummyTransaction());
+        gate.enterCommit(new DummyTransaction());
+
+        AcquireThread thread = new AcquireThread();
+        thread.start();
+
+        sleepMs(300);
+        gate.exitCommit();
+
+        sleepMs(300);
+        assertTrue(thread.isAlive());
+        assertFalse(thread.acquired);
+
+        gate.exitCommit();
+        joinAll(thread);
+        assertTrue(thread.acquired);
+    }
+
+    @Test
+    public void acquireWaitsForOtherOwner() {
+        Transaction t = new DummyTransaction();
+        gate.acquire(t);
+
+        AcquireThread thread = new AcquireThread();
+        thread.start();
+
+        sleepMs(300);
+        assertTrue(thread.isAlive());
+
+        gate.release(t);
+        joinAll(thread);
+        assertTrue(thread.acquired);
+    }
+
+    class CommitThread extends TestThread {
+
+        volatile boolean committed;
+
+        CommitThread() {
+            super("CommitThread");
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            gate.enterCommit(new DummyTransaction());
+            committed = true;
+            gate.exitCommit();
+        }
+    }
+
+    class AcquireThread extends TestThread {
+
+        volatile boolean acquired;
+
+        AcquireThread() {
+            super("AcquireThread");
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            Transaction t = new DummyTransaction();
+            gate.acquire(t);
+            acquired = true;
+            gate.release(t);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.multiverse.utils.commitlock;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+import org.multiverse.api.Transaction;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class OrderedCommitLockPolicyTest {
+
+    private OrderedCommitLockPolicy policy;
+    private List<Long> lockOrder;
+
+    @Before
+    public void setUp() {
+        policy = new OrderedCommitLockPolicy(10, TimeUnit.SECONDS.toNanos(10));
+        lockOrder = new LinkedList<Long>();
+    }
+
+    @Test
+    public void construction() {
+        OrderedCommitLockPolicy policy = new OrderedCommitLockPolicy(10, 20);
+        assertEquals(10, policy.getSpinAttemptsPerLockCount());
+        assertEquals(20, policy.getMaxWaitNanosPerLock());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithTooSmallSpinAttemptsPerLock() {
+        new OrderedCommitLockPolicy(-1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithTooSmallMaxWait() {
+        new OrderedCommitLockPolicy(0, -1);
+    }
+
+    // =================== tryLockAll =======================
+
+    @Test(expected = NullPointerException.class)
+    public void tryLockAll_nullTransactionFails() {
+        policy.tryLockAllAndDetectConflicts(new CommitLock[]{}, null);
+    }
+
+    @Test
+    public void tryLockAll_nullLocksSucceeds() {
+        CommitLockResult result = policy.tryLockAllAndDetectConflicts(null, new DummyTransaction());
+        assertEquals(CommitLockResult.success, result);
+    }
+
+    @Test
+    public void tryLockAll_locksAreAcquiredInIdOrder() {
+        Transaction owner = new DummyTransaction();
+        TestCommitLock lock1 = new TestCommitLock(1);
+        TestCommitLock lock2 = new TestCommitLock(2);
+        TestCommitLock lock3 = new TestCommitLock(3);
+
+        CommitLock[] locks = new CommitLock[]{lock3, lock1, lock2, null, lock1};
+        CommitLockResult result = policy.tryLockAllAndDetectConflicts(locks, owner);
+
+        assertEquals(CommitLockResult.success, result);
+        assertEquals(3, lockOrder.size());
+        assertEquals(Long.valueOf(1), lockOrder.get(0));
+        assertEquals(Long.valueOf(2), lockOrder.get(1));
+        assertEquals(Long.valueOf(3), lockOrder.get(2));
+        assertSame(owner, lock1.owner);
+        assertSame(owner, lock2.owner);
+        assertSame(owner, lock3.owner);
+    }
+
+    @Test
+    public void tryLockAll_largeWriteSetIsSorted() {
+        Transaction owner = new DummyTransaction();
+        CommitLock[] locks = new CommitLock[100];
+        for (int k = 0; k < locks.length; k++) {
+            locks[k] = new TestCommitLock(locks.length - k);
+        }
+
+        CommitLockResult result = policy.tryLockAllAndDetectConflicts(locks, owner);
+
+        assertEquals(CommitLockResult.success, result);
+        for (int k = 0; k < locks.length; k++) {
+            assertEquals(Long.valueOf(k + 1), lockOrder.get(k));
+        }
+    }
+
+    @Test
+    public void tryLockAll_conflictReleasesAcquiredLocks() {
+        Transaction owner = new DummyTransaction();
+        TestCommitLock lock1 = new TestCommitLock(1);
+        TestCommitLock lock2 = new TestCommitLock(2);
+        lock2.conflict = true;
+
+        CommitLockResult result = policy.tryLockAllAndDetectConflicts(new CommitLock[]{lock2, lock1}, owner);
+
+        assertEquals(CommitLockResult.conflict, result);
+        assertNull(lock1.owner);
+        assertNull(lock2.owner);
+    }
+
+    @Test
+    public void tryLockAll_waitsForLockedLock() throws InterruptedException {
+        final Transaction otherOwner = new DummyTransaction();
+        final TestCommitLock lock1 = new TestCommitLock(1);
+        TestCommitLock lock2 = new TestCommitLock(2);
+        lock1.owner = otherOwner;
+
+        Thread releaseThread = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignore) {
+                }
+                lock1.releaseLock(otherOwner);
+            }
+        };
+        releaseThread.start();
+
+        Transaction owner = new DummyTransaction();
+        CommitLockResult result = policy.tryLockAllAndDetectConflicts(new CommitLock[]{lock2, lock1}, owner);
+        releaseThread.join();
+
+        assertEquals(CommitLockResult.success, result);
+        assertSame(owner, lock1.owner);
+        assertSame(owner, lock2.owner);
+    }
+
+    @Test
+    public void tryLockAll_failsIfLockIsNotReleasedInTime() {
+        OrderedCommitLockPolicy policy = new OrderedCommitLockPolicy(0, TimeUnit.MILLISECONDS.toNanos(10));
+        Transaction otherOwner = new DummyTransaction();
+        TestCommitLock lock1 = new TestCommitLock(1);
+        TestCommitLock lock2 = new TestCommitLock(2);
+        lock2.owner = otherOwner;
+
+        Transaction owner = new DummyTransaction();
+        CommitLockResult result = policy.tryLockAllAndDetectConflicts(new CommitLock[]{lock2, lock1}, owner);
+
+        assertEquals(CommitLockResult.failure, result);
+        assertNull(lock1.owner);
+        assertSame(otherOwner, lock2.owner);
+    }
+
+    @Test
+    public void testToString() {
+        OrderedCommitLockPolicy policy = new OrderedCommitLockPolicy(10, 20);
+        assertEquals("OrderedCommitLockPolicy(spinAttemptsPerLockCount=10, maxWaitNanosPerLock=20)",
+                     policy.toString());
+    }
+
+    class TestCommitLock implements CommitLock {
+
+        final long id;
+        volatile Transaction owner;
+        boolean conflict;
+
+        TestCommitLock(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public synchronized CommitLockResult tryLockAndDetectConflicts(Transaction lockOwner) {
+            if (owner != null) {
+                return CommitLockResult.failure;
+            }
+
+            if (conflict) {
+                return CommitLockResult.conflict;
+            }
+
+            owner = lockOwner;
+            lockOrder.add(id);
+            return CommitLockResult.success;
+        }
+
+        @Override
+        public synchronized void releaseLock(Transaction expectedLockOwner) {
+            if (owner == expectedLockOwner) {
+                owner = null;
+            }
+        }
+
+        @Override
+        public long getLockId() {
+            return id;
+        }
+    }
+}
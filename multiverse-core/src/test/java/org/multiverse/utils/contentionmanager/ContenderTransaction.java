@@ -0,0 +1,29 @@
+package org.multiverse.utils.contentionmanager;
+
+import org.multiverse.DummyTransaction;
+
+/**
+ * A {@link DummyTransaction} with a fixed contention timestamp and karma.
+ *
+ * @author Peter Veentjer
+ */
+class ContenderTransaction extends DummyTransaction implements Contender {
+
+    private final long timestamp;
+    private final long karma;
+
+    ContenderTransaction(long timestamp, long karma) {
+        this.timestamp = timestamp;
+        this.karma = karma;
+    }
+
+    @Override
+    public long getContentionTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public long getKarma() {
+        return karma;
+    }
+}
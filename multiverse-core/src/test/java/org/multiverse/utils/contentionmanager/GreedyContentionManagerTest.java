@@ -0,0 +1,40 @@
+package org.multiverse.utils.contentionmanager;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+
+/**
+ * @author Peter Veentjer
+ */
+public class GreedyContentionManagerTest {
+
+    private final GreedyContentionManager manager = new GreedyContentionManager(10, 0);
+
+    @Test
+    public void olderAttackerWaits() {
+        assertTrue(manager.resolve(new ContenderTransaction(1, 0), new ContenderTransaction(2, 100), 1));
+    }
+
+    @Test
+    public void youngerAttackerGivesUp() {
+        assertFalse(manager.resolve(new ContenderTransaction(2, 100), new ContenderTransaction(1, 0), 1));
+    }
+
+    @Test
+    public void timestampsAreComparedLikeNanoTime() {
+        assertTrue(manager.resolve(new ContenderTransaction(Long.MAX_VALUE, 0),
+                                   new ContenderTransaction(Long.MIN_VALUE, 0), 1));
+    }
+
+    @Test
+    public void givesUpWhenMaxAttemptsReached() {
+        assertFalse(manager.resolve(new ContenderTransaction(1, 0), new ContenderTransaction(2, 0), 11));
+    }
+
+    @Test
+    public void transactionThatIsNotAContenderIsYoungest() {
+        assertTrue(manager.resolve(new ContenderTransaction(1, 0), new DummyTransaction(), 1));
+        assertFalse(manager.resolve(new DummyTransaction(), new ContenderTransaction(1, 0), 1));
+    }
+}
@@ -0,0 +1,58 @@
+package org.multiverse.utils.contentionmanager;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.multiverse.DummyTransaction;
+
+/**
+ * @author Peter Veentjer
+ */
+public class KarmaContentionManagerTest {
+
+    private final KarmaContentionManager manager = new KarmaContentionManager(10, 0);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithTooSmallMaxAttempts() {
+        new KarmaContentionManager(-1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithTooSmallDelay() {
+        new KarmaContentionManager(0, -1);
+    }
+
+    @Test
+    public void attackerWithMoreKarmaWaits() {
+        assertTrue(manager.resolve(new ContenderTransaction(0, 10), new ContenderTransaction(0, 5), 1));
+    }
+
+    @Test
+    public void attackerWithLessKarmaGivesUp() {
+        assertFalse(manager.resolve(new ContenderTransaction(0, 5), new ContenderTransaction(0, 10), 1));
+    }
+
+    @Test
+    public void attemptsIncreasePriority() {
+        ContenderTransaction attacker = new ContenderTransaction(0, 5);
+        ContenderTransaction owner = new ContenderTransaction(0, 8);
+
+        assertFalse(manager.resolve(attacker, owner, 3));
+        assertTrue(manager.resolve(attacker, owner, 4));
+    }
+
+    @Test
+    public void givesUpWhenMaxAttemptsReached() {
+        assertFalse(manager.resolve(new ContenderTransaction(0, 10), new ContenderTransaction(0, 5), 11));
+    }
+
+    @Test
+    public void ownerThatIsNotAContenderHasNoKarma() {
+        assertTrue(manager.resolve(new ContenderTransaction(0, 0), new DummyTransaction(), 1));
+        assertTrue(manager.resolve(new ContenderTransaction(0, 0), null, 1));
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("KarmaContentionManager(maxAttempts=10, delayNanos=0)", manager.toString());
+    }
+}
@@ -0,0 +1,38 @@
+package org.multiverse.utils.contentionmanager;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * @author Peter Veentjer
+ */
+public class PolkaContentionManagerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithMaxDelaySmallerThanDelay() {
+        new PolkaContentionManager(10, 10, 9);
+    }
+
+    @Test
+    public void delayIsDoubledUntilMaxDelay() {
+        PolkaContentionManager manager = new PolkaContentionManager(10, 10, 50);
+        assertEquals(10, manager.calculateDelayNanos(1));
+        assertEquals(20, manager.calculateDelayNanos(2));
+        assertEquals(40, manager.calculateDelayNanos(3));
+        assertEquals(50, manager.calculateDelayNanos(4));
+        assertEquals(50, manager.calculateDelayNanos(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void attackerWithMoreKarmaWaits() {
+        PolkaContentionManager manager = new PolkaContentionManager(10, 1, 1);
+        assertTrue(manager.resolve(new ContenderTransaction(0, 10), new ContenderTransaction(0, 5), 1));
+        assertFalse(manager.resolve(new ContenderTransaction(0, 10), new ContenderTransaction(0, 5), 11));
+    }
+
+    @Test
+    public void attackerWithLessKarmaGivesUp() {
+        PolkaContentionManager manager = new PolkaContentionManager(10, 1, 1);
+        assertFalse(manager.resolve(new ContenderTransaction(0, 5), new ContenderTransaction(0, 10), 1));
+    }
+}
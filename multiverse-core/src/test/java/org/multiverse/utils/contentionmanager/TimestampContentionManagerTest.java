@@ -0,0 +1,35 @@
+package org.multiverse.utils.contentionmanager;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * @author Peter Veentjer
+ */
+public class TimestampContentionManagerTest {
+
+    private final TimestampContentionManager manager = new TimestampContentionManager(10, 2, 0);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithTooSmallMaxYoungerAttempts() {
+        new TimestampContentionManager(10, -1, 0);
+    }
+
+    @Test
+    public void olderAttackerWaitsMaxAttempts() {
+        ContenderTransaction attacker = new ContenderTransaction(1, 0);
+        ContenderTransaction owner = new ContenderTransaction(2, 0);
+
+        assertTrue(manager.resolve(attacker, owner, 10));
+        assertFalse(manager.resolve(attacker, owner, 11));
+    }
+
+    @Test
+    public void youngerAttackerWaitsMaxYoungerAttempts() {
+        ContenderTransaction attacker = new ContenderTransaction(2, 0);
+        ContenderTransaction owner = new ContenderTransaction(1, 0);
+
+        assertTrue(manager.resolve(attacker, owner, 2));
+        assertFalse(manager.resolve(attacker, owner, 3));
+    }
+}
@@ -111,32 +111,92 @@ public class CheapLatchTest {
         assertTrue(awaitThread2.hasEndedWithInterruptStatus());
     }
 
+    // ============================ tryAwait ========================
+
+    @Test(expected = NullPointerException.class)
+    public void tryAwaitFailsWithNullUnit() throws InterruptedException {
+        CheapLatch latch = new CheapLatch();
+        latch.tryAwait(1, null);
+    }
+
+    @Test
+    public void tryAwaitOnOpenLatch() throws InterruptedException {
+        CheapLatch latch = new CheapLatch(true);
+
+        boolean result = latch.tryAwait(1, TimeUnit.MILLISECONDS);
+        assertTrue(result);
+    }
+
     @Test
-    public void tryAwaitWithTimeoutFails() throws InterruptedException {
+    public void tryAwaitOnClosedLatchAndTimeout() throws InterruptedException {
         CheapLatch latch = new CheapLatch(false);
 
+        boolean result = latch.tryAwait(1, TimeUnit.MILLISECONDS);
+        assertFalse(result);
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void tryAwaitWithInterruptStatusFails() {
+        CheapLatch latch = new CheapLatch(false);
+        Thread.currentThread().interrupt();
+
         try {
             latch.tryAwait(10, TimeUnit.SECONDS);
             fail();
-        } catch (UnsupportedOperationException expected) {
+        } catch (InterruptedException expected) {
         }
 
         assertFalse(latch.isOpen());
     }
 
     @Test
-    public void tryAwaitUninterruptibleFails(){
-        CheapLatch latch = new CheapLatch(false);
+    public void tryAwaitCompletesWhenLatchIsOpened() {
+        CheapLatch latch = new CheapLatch();
+
+        TryAwaitThread t = new TryAwaitThread(latch, 10, TimeUnit.SECONDS);
+        startAll(t);
+        sleepMs(100);
+        assertTrue(t.isAlive());
 
+        latch.open();
+        joinAll(t);
+        assertTrue(t.isResult());
+    }
+
+    // ============================ tryAwaitUninterruptible ========================
+
+    @Test
+    public void tryAwaitUninterruptibleWithNullUnit() {
+        CheapLatch latch = new CheapLatch();
         try {
-            latch.tryAwaitUninterruptible(10, TimeUnit.SECONDS);
+            latch.tryAwaitUninterruptible(1, null);
             fail();
-        } catch (UnsupportedOperationException expected) {
+        } catch (NullPointerException expected) {
         }
 
         assertFalse(latch.isOpen());
     }
 
+    @Test
+    public void tryAwaitUninterruptibleWithTimeout() {
+        CheapLatch latch = new CheapLatch();
+        boolean result = latch.tryAwaitUninterruptible(100, TimeUnit.MILLISECONDS);
+        assertFalse(result);
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void tryAwaitUninterruptibleWithInterruptStatus() {
+        CheapLatch latch = new CheapLatch();
+        Thread.currentThread().interrupt();
+
+        boolean result = latch.tryAwaitUninterruptible(100, TimeUnit.MILLISECONDS);
+        assertFalse(result);
+        assertFalse(latch.isOpen());
+        assertIsInterrupted(Thread.currentThread());
+    }
+
     @Test
     public void testToString() {
         CheapLatch latch = new CheapLatch();
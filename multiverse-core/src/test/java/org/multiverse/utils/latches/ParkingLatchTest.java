@@ -0,0 +1,215 @@
+package org.multiverse.utils.latches;
+
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.multiverse.TestUtils.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Peter Veentjer
+ */
+public class ParkingLatchTest {
+
+    @After
+    public void tearDown() {
+        Thread.interrupted();//clear the interrupt status
+    }
+
+    @Test
+    public void constructorWithOpenLatch() {
+        ParkingLatch latch = new ParkingLatch(true);
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void constructorWithNoArgs() {
+        ParkingLatch latch = new ParkingLatch();
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void openAlreadyOpenLatch() {
+        ParkingLatch latch = new ParkingLatch(true);
+        latch.open();
+        assertTrue(latch.isOpen());
+    }
+
+    // ============================ await ========================
+
+    @Test
+    public void awaitOpenLatchCompletes() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch(true);
+        latch.await();
+
+        assertTrue(latch.isOpen());
+    }
+
+    @Test
+    public void awaitClosedLatchIsInterruptedIfStartingWithInterruptedFlag() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitThread awaitThread = new AwaitThread(latch, true);
+        awaitThread.start();
+
+        awaitThread.join();
+        assertTrue(awaitThread.getThrowable() instanceof InterruptedException);
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void awaitClosedLatchIsInterruptedWhileWaiting() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitThread awaitThread = new AwaitThread(latch);
+        startAll(awaitThread);
+        sleepMs(100);
+        assertTrue(awaitThread.isAlive());
+
+        awaitThread.interrupt();
+        awaitThread.join();
+        assertTrue(awaitThread.getThrowable() instanceof InterruptedException);
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void awaitClosedLatchCompletesWhenLatchIsOpened() {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitThread awaitThread1 = new AwaitThread(latch);
+        AwaitThread awaitThread2 = new AwaitThread(latch);
+
+        startAll(awaitThread1, awaitThread2);
+        sleepMs(500);
+        assertTrue(awaitThread1.isAlive());
+        assertTrue(awaitThread2.isAlive());
+
+        latch.open();
+        joinAll(awaitThread1, awaitThread2);
+    }
+
+    @Test
+    public void openWakesUpManyWaiters() {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitThread[] threads = new AwaitThread[50];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new AwaitThread(latch);
+        }
+
+        startAll(threads);
+        sleepMs(200);
+        latch.open();
+        joinAll(threads);
+    }
+
+    // ============================ awaitUninterruptible ========================
+
+    @Test
+    public void awaitUninterruptibleCompletesWhenLatchIsOpen() {
+        ParkingLatch latch = new ParkingLatch(true);
+        AwaitUninterruptibleThread awaitThread = new AwaitUninterruptibleThread(latch, false);
+        startAll(awaitThread);
+        joinAll(awaitThread);
+    }
+
+    @Test
+    public void awaitUninterruptibleCompletesIsOpened() {
+        ParkingLatch latch = new ParkingLatch();
+
+        AwaitUninterruptibleThread awaitThread1 = new AwaitUninterruptibleThread(latch, false);
+        AwaitUninterruptibleThread awaitThread2 = new AwaitUninterruptibleThread(latch, true);
+
+        startAll(awaitThread1, awaitThread2);
+        sleepMs(500);
+        assertTrue(awaitThread1.isAlive());
+        assertTrue(awaitThread2.isAlive());
+
+        latch.open();
+        joinAll(awaitThread1, awaitThread2);
+
+        assertFalse(awaitThread1.hasEndedWithInterruptStatus());
+        assertTrue(awaitThread2.hasEndedWithInterruptStatus());
+    }
+
+    // ============================ tryAwait ========================
+
+    @Test(expected = NullPointerException.class)
+    public void tryAwaitFailsWithNullUnit() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch();
+        latch.tryAwait(1, null);
+    }
+
+    @Test
+    public void tryAwaitOnOpenLatch() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch(true);
+
+        boolean result = latch.tryAwait(1, TimeUnit.MILLISECONDS);
+        assertTrue(result);
+    }
+
+    @Test
+    public void tryAwaitOnClosedLatchAndTimeout() throws InterruptedException {
+        ParkingLatch latch = new ParkingLatch(false);
+
+        boolean result = latch.tryAwait(1, TimeUnit.MILLISECONDS);
+        assertFalse(result);
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void tryAwaitCompletesWhenLatchIsOpened() {
+        ParkingLatch latch = new ParkingLatch();
+
+        TryAwaitThread t = new TryAwaitThread(latch, 10, TimeUnit.SECONDS);
+        startAll(t);
+        sleepMs(100);
+        assertTrue(t.isAlive());
+
+        latch.open();
+        joinAll(t);
+        assertTrue(t.isResult());
+    }
+
+    // ============================ tryAwaitUninterruptible ========================
+
+    @Test
+    public void tryAwaitUninterruptibleWithNullUnit() {
+        ParkingLatch latch = new ParkingLatch();
+        try {
+            latch.tryAwaitUninterruptible(1, null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void tryAwaitUninterruptibleWithTimeout() {
+        ParkingLatch latch = new ParkingLatch();
+        boolean result = latch.tryAwaitUninterruptible(100, TimeUnit.MILLISECONDS);
+        assertFalse(result);
+        assertFalse(latch.isOpen());
+    }
+
+    @Test
+    public void tryAwaitUninterruptibleWithInterruptStatus() {
+        ParkingLatch latch = new ParkingLatch();
+        Thread.currentThread().interrupt();
+
+        boolean result = latch.tryAwaitUninterruptible(100, TimeUnit.MILLISECONDS);
+        assertFalse(result);
+        assertFalse(latch.isOpen());
+        assertIsInterrupted(Thread.currentThread());
+    }
+
+    @Test
+    public void testToString() {
+        ParkingLatch latch = new ParkingLatch();
+        assertEquals("ParkingLatch(open=false)", latch.toString());
+        latch.open();
+        assertEquals("ParkingLatch(open=true)", latch.toString());
+    }
+}
@@ -0,0 +1,181 @@
+package org.multiverse.utils.profiling;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+
+/**
+ * @author Peter Veentjer
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void emptyHistogram() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void smallValuesAreRecordedExactly() {
+        for (int k = 0; k < 16; k++) {
+            assertEquals(k, LatencyHistogram.bucketIndex(k));
+            assertEquals(k, LatencyHistogram.highestValueInBucket(k));
+        }
+    }
+
+    @Test
+    public void bucketContainsValueWithinPrecision() {
+        long[] values = new long[]{16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestValueInBucket(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 16);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.highestValueInBucket(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (int index = 1; index < 900; index++) {
+            long lowest = LatencyHistogram.highestValueInBucket(index - 1) + 1;
+            assertEquals(index, LatencyHistogram.bucketIndex(lowest));
+            assertEquals(index, LatencyHistogram.bucketIndex(LatencyHistogram.highestValueInBucket(index)));
+        }
+    }
+
+    @Test
+    public void lowestValueInBucket() {
+        assertEquals(0, LatencyHistogram.lowestValueInBucket(0));
+        for (int index = 1; index < 900; index++) {
+            long lowest = LatencyHistogram.lowestValueInBucket(index);
+            assertEquals(index, LatencyHistogram.bucketIndex(lowest));
+            assertEquals(index - 1, LatencyHistogram.bucketIndex(lowest - 1));
+        }
+    }
+
+    @Test
+    public void smallValuesHaveExactStatistics() {
+        histogram.record(3);
+        histogram.record(5);
+        histogram.record(10);
+
+        assertEquals(6, histogram.getMean());
+        assertEquals(10, histogram.getMax());
+    }
+
+    @Test
+    public void meanOfLargeValuesDoesNotOverflow() {
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(Long.MAX_VALUE);
+
+        assertCloseTo(Long.MAX_VALUE, histogram.getMean());
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void negativeValueIsRecordedAsZero() {
+        histogram.record(-10);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void statistics() {
+        for (int k = 1; k <= 100; k++) {
+            histogram.record(k * 1000);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertCloseTo(50500, histogram.getMean());
+        assertWithinPrecision(100000, histogram.getMax());
+        assertWithinPrecision(50000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(90000, histogram.getValueAtPercentile(90));
+        assertWithinPrecision(99000, histogram.getValueAtPercentile(99));
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+        assertWithinPrecision(1000, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void tailIsVisible() {
+        for (int k = 0; k < 999; k++) {
+            histogram.record(10);
+        }
+        histogram.record(1000000);
+
+        assertEquals(10, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(1000000, histogram.getValueAtPercentile(99.95));
+        assertWithinPrecision(1000000, histogram.getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLargePercentileFails() {
+        histogram.getValueAtPercentile(100.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePercentileFails() {
+        histogram.getValueAtPercentile(-1);
+    }
+
+    @Test
+    public void reset() {
+        histogram.record(100);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() {
+        RecordThread[] threads = new RecordThread[4];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new RecordThread(k);
+        }
+
+        for (RecordThread thread : threads) {
+            thread.start();
+        }
+
+        joinAll(threads);
+        assertEquals(4 * 10000, histogram.getCount());
+        assertWithinPrecision(9999, histogram.getMax());
+    }
+
+    private static void assertWithinPrecision(long expected, long found) {
+        assertTrue("expected " + expected + " found " + found, found >= expected && found - expected <= expected / 16);
+    }
+
+    private static void assertCloseTo(long expected, long found) {
+        assertTrue("expected " + expected + " found " + found, Math.abs(found - expected) <= expected / 16);
+    }
+
+    class RecordThread extends TestThread {
+
+        RecordThread(int id) {
+            super("RecordThread-" + id);
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            for (int k = 0; k < 10000; k++) {
+                histogram.record(k);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.multiverse.utils.profiling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+
+/**
+ * @author Peter Veentjer
+ */
+public class ProfileCounterTest {
+
+    private ProfileCounter counter;
+
+    @Before
+    public void setUp() {
+        counter = new ProfileCounter();
+    }
+
+    @Test
+    public void newCounterIsZero() {
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void inc() {
+        counter.inc();
+        counter.inc();
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void uncontendedCounterIsNotStriped() {
+        for (int k = 0; k < 1000; k++) {
+            counter.inc();
+        }
+
+        assertFalse(counter.isStriped());
+        assertEquals(1000, counter.get());
+    }
+
+    @Test
+    public void incWithAmount() {
+        counter.inc(10);
+        counter.inc(-3);
+        assertEquals(7, counter.get());
+    }
+
+    @Test
+    public void reset() {
+        counter.inc(10);
+        counter.reset();
+        assertEquals(0, counter.get());
+
+        counter.inc();
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testToString() {
+        counter.inc(5);
+        assertEquals("5", counter.toString());
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() {
+        IncThread[] threads = new IncThread[8];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new IncThread(k, 10000);
+        }
+
+        for (IncThread thread : threads) {
+            thread.start();
+        }
+
+        joinAll(threads);
+        assertEquals(threads.length * 10000, counter.get());
+    }
+
+    @Test
+    public void resetOfStripedCounter() {
+        IncThread[] threads = new IncThread[8];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new IncThread(k, 10000);
+        }
+
+        for (IncThread thread : threads) {
+            thread.start();
+        }
+
+        joinAll(threads);
+        counter.reset();
+        assertEquals(0, counter.get());
+
+        counter.inc(3);
+        assertEquals(3, counter.get());
+    }
+
+    class IncThread extends TestThread {
+
+        private final int count;
+
+        IncThread(int id, int count) {
+            super("IncThread-" + id);
+            this.count = count;
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            for (int k = 0; k < count; k++) {
+                counter.inc();
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.multiverse.utils.profiling;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.multiverse.TestThread;
+import static org.multiverse.TestUtils.joinAll;
+import static org.multiverse.TestUtils.sleepMs;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * @author Peter Veentjer
+ */
+public class ProfileEventRecorderTest {
+
+    private SimpleProfileRepository repository;
+    private ProfileEventRecorder recorder;
+
+    @Before
+    public void setUp() {
+        repository = new SimpleProfileRepository();
+        recorder = new ProfileEventRecorder(repository);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructWithNullRepositoryFails() {
+        new ProfileEventRecorder(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructWithTooSmallBufferCapacityFails() {
+        new ProfileEventRecorder(repository, 0);
+    }
+
+    @Test
+    public void bufferCapacityIsRoundedToPowerOfTwo() {
+        assertEquals(16, new ProfileEventRecorder(repository, 10).getBufferCapacity());
+        assertEquals(ProfileEventRecorder.DEFAULT_BUFFER_CAPACITY, recorder.getBufferCapacity());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void createWriterWithNullSourceFails() {
+        recorder.createWriter(null, "family");
+    }
+
+    @Test
+    public void eventsAreOnlyAggregatedWhenDrained() {
+        ProfileEventWriter writer = recorder.createWriter("updatetransaction", "family");
+        writer.record(ProfileEventType.started);
+        writer.record(ProfileEventType.load, String.class);
+        writer.record(ProfileEventType.load, Integer.class);
+        writer.record(ProfileEventType.load, String.class);
+        writer.record(ProfileEventType.committed);
+
+        assertEquals(0, repository.getCount("updatetransaction.load.count", "family"));
+
+        assertEquals(5, recorder.drain());
+        assertEquals(1, repository.getCount("updatetransaction.started.count", "family"));
+        assertEquals(3, repository.getCount("updatetransaction.load.count", "family"));
+        assertEquals(1, repository.getCount("updatetransaction.committed.count", "family"));
+        assertEquals(2, repository.getCount("atomicobject.load.count", String.class.getName()));
+        assertEquals(1, repository.getCount("atomicobject.load.count", Integer.class.getName()));
+
+        assertEquals(0, recorder.drain());
+        assertEquals(3, repository.getCount("updatetransaction.load.count", "family"));
+    }
+
+    @Test
+    public void familiesAreKeptApart() {
+        recorder.createWriter("updatetransaction", "family1").record(ProfileEventType.aborted);
+        recorder.createWriter("updatetransaction", null).record(ProfileEventType.aborted);
+        recorder.createWriter("readonlytransaction", "family1").record(ProfileEventType.aborted);
+        recorder.createWriter("updatetransaction", "family1").record(ProfileEventType.aborted);
+        recorder.drain();
+
+        assertEquals(2, repository.getCount("updatetransaction.aborted.count", "family1"));
+        assertEquals(3, repository.sumKey1("updatetransaction.aborted.count"));
+        assertEquals(1, repository.getCount("readonlytransaction.aborted.count", "family1"));
+    }
+
+    @Test
+    public void drainIntoHandler() {
+        ProfileEventWriter writer = recorder.createWriter("updatetransaction", "family");
+        long before = System.nanoTime();
+        writer.record(ProfileEventType.conflict, String.class);
+        writer.record(ProfileEventType.failedtolock);
+        long after = System.nanoTime();
+
+        CollectingHandler handler = new CollectingHandler();
+        assertEquals(2, recorder.drain(handler));
+
+        assertEquals(2, handler.events.size());
+        Event first = handler.events.get(0);
+        assertEquals(ProfileEventType.conflict, first.type);
+        assertEquals("updatetransaction", first.source);
+        assertEquals("family", first.familyName);
+        assertSame(String.class, first.atomicObjectClass);
+        assertTrue(first.timestamp >= before && first.timestamp <= after);
+
+        Event second = handler.events.get(1);
+        assertEquals(ProfileEventType.failedtolock, second.type);
+        assertNull(second.atomicObjectClass);
+        assertTrue(second.timestamp >= first.timestamp);
+
+        //the events are consumed by the handler, so they are not aggregated into the repository.
+        assertEquals(0, recorder.drain());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void drainWithNullHandlerFails() {
+        recorder.drain(null);
+    }
+
+    @Test
+    public void eventsAreDroppedWhenBufferIsFull() {
+        recorder = new ProfileEventRecorder(repository, 4);
+        ProfileEventWriter writer = recorder.createWriter("updatetransaction", "family");
+        for (int k = 0; k < 10; k++) {
+            writer.record(ProfileEventType.started);
+        }
+
+        assertEquals(6, recorder.getDroppedCount());
+        assertEquals(4, recorder.drain());
+        assertEquals(4, repository.getCount("updatetransaction.started.count", "family"));
+        assertEquals(6, repository.getCount("profileevent.dropped.count"));
+
+        //after the drain the buffer can be used again.
+        writer.record(ProfileEventType.started);
+        assertEquals(1, recorder.drain());
+        assertEquals(6, repository.getCount("profileevent.dropped.count"));
+    }
+
+    @Test
+    public void bufferWrapsAround() {
+        recorder = new ProfileEventRecorder(repository, 4);
+        ProfileEventWriter writer = recorder.createWriter("updatetransaction", "family");
+        for (int k = 0; k < 10; k++) {
+            writer.record(ProfileEventType.load, k % 2 == 0 ? String.class : Integer.class);
+            writer.record(ProfileEventType.committed);
+            assertEquals(2, recorder.drain());
+        }
+
+        assertEquals(10, repository.getCount("updatetransaction.load.count", "family"));
+        assertEquals(5, repository.getCount("atomicobject.load.count", String.class.getName()));
+        assertEquals(5, repository.getCount("atomicobject.load.count", Integer.class.getName()));
+        assertEquals(0, recorder.getDroppedCount());
+    }
+
+    @Test
+    public void eventsOfMultipleThreads() {
+        RecordThread[] threads = new RecordThread[4];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new RecordThread(k, 100);
+        }
+
+        for (RecordThread thread : threads) {
+            thread.start();
+        }
+
+        joinAll(threads);
+        assertEquals(400, recorder.drain());
+        assertEquals(400, repository.getCount("updatetransaction.committed.count", "family"));
+    }
+
+    @Test
+    public void aggregator() throws InterruptedException {
+        ProfileEventWriter writer = recorder.createWriter("updatetransaction", "family");
+        recorder.start(10);
+        assertTrue(recorder.isStarted());
+
+        writer.record(ProfileEventType.started);
+        sleepMs(200);
+        assertEquals(1, repository.getCount("updatetransaction.started.count", "family"));
+
+        writer.record(ProfileEventType.committed);
+        recorder.stop();
+        assertFalse(recorder.isStarted());
+        assertEquals(1, repository.getCount("updatetransaction.committed.count", "family"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startTwiceFails() throws InterruptedException {
+        recorder.start(10);
+        try {
+            recorder.start(10);
+        } finally {
+            recorder.stop();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void startWithTooSmallIntervalFails() {
+        recorder.start(0);
+    }
+
+    @Test
+    public void stopWhenNotStartedIsIgnored() throws InterruptedException {
+        recorder.stop();
+        assertFalse(recorder.isStarted());
+    }
+
+    class RecordThread extends TestThread {
+
+        private final int count;
+
+        RecordThread(int id, int count) {
+            super("RecordThread-" + id);
+            this.count = count;
+        }
+
+        @Override
+        public void doRun() throws Exception {
+            ProfileEventWriter writer = recorder.createWriter("updatetransaction", "family");
+            for (int k = 0; k < count; k++) {
+                writer.record(ProfileEventType.committed);
+            }
+        }
+    }
+
+    static class Event {
+        ProfileEventType type;
+        String source;
+        String familyName;
+        Class<?> atomicObjectClass;
+        long timestamp;
+    }
+
+    static class CollectingHandler implements ProfileEventHandler {
+
+        final List<Event> events = new LinkedList<Event>();
+
+        @Override
+        public void handle(ProfileEventType type, String source, String familyName, Class<?> atomicObjectClass,
+                           long timestamp) {
+            Event event = new Event();
+            event.type = type;
+            event.source = source;
+            event.familyName = familyName;
+            event.atomicObjectClass = atomicObjectClass;
+            event.timestamp = timestamp;
+            events.add(event);
+        }
+    }
+}
@@ -99,5 +99,46 @@ public class SimpleProfileRepositoryCollatorTest {
         }
         assertEquals(asSet("atomicObject=uk.gov.mi6.Agents", "aoTransactions=uk/gov/mi6/Agents"), 
                      pageNames);
-    }    
+    }
+
+    @Test
+    public void profileNamesContainHistogramsPerFamily() {
+        repository.getHistogram("transaction.duration.ns", "uk.gov.mi6.Agents.meet()").record(10);
+        repository.getHistogram("transaction.attempts", "uk.gov.mi6.Agents.meet()").record(1);
+        repository.getHistogram("transaction.attempts", null).record(1);
+        
+        assertEquals(asSet("histograms=uk.gov.mi6.Agents.meet()", "histograms=null"), 
+                     repository.getCollator().getProfileNames());
+    }
+    
+    @Test
+    public void profilePageForHistogramsListsStatistics() {
+        LatencyHistogram duration = repository.getHistogram("transaction.duration.ns", "mission");
+        for (int i = 1; i <= 100; i++) {
+            duration.record(i);
+        }
+        repository.getHistogram("transaction.attempts", "mission").record(3);
+        repository.getHistogram("transaction.attempts", "other").record(5);
+        
+        ProfilePage page = repository.getCollator().getProfilePage("histograms=mission");
+        assertEquals("histograms=mission", page.getName());
+        assertEquals(Arrays.asList("count", "mean", "50%", "90%", "99%", "99.9%", "max"), 
+                     page.getStatLabels());
+        
+        Map<Object, List<Long>> statistics = page.getStatistics();
+        assertEquals(asSet("transaction.attempts", "transaction.duration.ns"), statistics.keySet());
+        assertEquals(Arrays.asList(1L, 3L, 3L, 3L, 3L, 3L, 3L), statistics.get("transaction.attempts"));
+        List<Long> durationStats = statistics.get("transaction.duration.ns");
+        assertEquals(Long.valueOf(100), durationStats.get(0));
+        assertEquals(Long.valueOf(duration.getMax()), durationStats.get(6));
+        
+        // the page can be printed
+        assertTrue(page.toString().contains("transaction.duration.ns"));
+    }
+    
+    @Test
+    public void profilePageForFamilyWithoutHistogramsIsNull() {
+        repository.getHistogram("transaction.attempts", "mission").record(3);
+        assertNull(repository.getCollator().getProfilePage("histograms=other"));
+    }
 }
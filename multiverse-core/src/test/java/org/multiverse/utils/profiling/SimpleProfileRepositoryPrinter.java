@@ -24,11 +24,11 @@ public class SimpleProfileRepositoryPrinter {
                     }
                 };        
         appendPrettyString(pretty, getSingleKeys(repository), sortOnKey, "Single keys");
-        Comparator<Entry<ComposedKey, AtomicLong>> sortOnKey2ThenKey1 = 
-            new Comparator<Entry<ComposedKey,AtomicLong>>() {
+        Comparator<Entry<ComposedKey, ProfileCounter>> sortOnKey2ThenKey1 = 
+            new Comparator<Entry<ComposedKey,ProfileCounter>>() {
                 @Override
-                public int compare(Entry<ComposedKey, AtomicLong> o1,
-                        Entry<ComposedKey, AtomicLong> o2) {
+                public int compare(Entry<ComposedKey, ProfileCounter> o1,
+                        Entry<ComposedKey, ProfileCounter> o2) {
                         int compareKey2s = o1.getKey().key2.compareTo(o2.getKey().key2);
                         return (compareKey2s != 0) ? compareKey2s 
                                                    : o1.getKey().key1.compareTo(o2.getKey().key1);
@@ -79,7 +79,7 @@ public class SimpleProfileRepositoryPrinter {
         return getFieldValue(repository, "singleKeyMap");
     }
     
-    private static Map<ComposedKey, AtomicLong> getComposedKeys(SimpleProfileRepository repository) {
+    private static Map<ComposedKey, ProfileCounter> getComposedKeys(SimpleProfileRepository repository) {
         return getFieldValue(repository, "map");
     }
     
@@ -1,6 +1,7 @@
 package org.multiverse.utils.profiling;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -95,4 +96,79 @@ public class SimpleProfileRepositoryTest {
         assertEquals(1, repository.getCount("foo1", "bar2"));
         assertEquals(1, repository.getCount("foo2", "bar1"));
     }
+
+    // ===================== getCounter(key1,key2)===================
+
+    @Test
+    public void getCounter_key1_key2_returnsSameCounter() {
+        ProfileCounter counter = repository.getCounter("foo", "bar");
+        assertSame(counter, repository.getCounter("foo", "bar"));
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void getCounter_key1_key2_isIncrementedByIncCounter() {
+        ProfileCounter counter = repository.getCounter("foo", "bar");
+        repository.incCounter("foo", "bar");
+        repository.incCounter("foo", "bar", 10);
+        assertEquals(11, counter.get());
+    }
+
+    @Test
+    public void getCounter_key1_key2_incrementIsVisibleInRepository() {
+        repository.getCounter("foo", "bar").inc();
+        repository.getCounter("foo", "bar").inc();
+
+        assertEquals(2, repository.getCount("foo", "bar"));
+        assertEquals(2, repository.sumKey1("foo"));
+        assertEquals(2, repository.sumKey2("bar"));
+    }
+
+    // ===================== reset ===================
+
+    @Test
+    public void reset() {
+        repository.incCounter("foo");
+        repository.incCounter("foo", "bar");
+        repository.reset();
+
+        assertEquals(-1, repository.getCount("foo"));
+        assertEquals(0, repository.getCount("foo", "bar"));
+    }
+
+    @Test
+    public void resetKeepsResolvedCounters() {
+        ProfileCounter counter = repository.getCounter("foo", "bar");
+        counter.inc(10);
+        repository.reset();
+
+        assertEquals(0, counter.get());
+        counter.inc();
+        assertEquals(1, repository.getCount("foo", "bar"));
+    }
+
+    // ===================== getHistogram ===================
+
+    @Test(expected = NullPointerException.class)
+    public void getHistogram_nullHistogramNameFails() {
+        repository.getHistogram(null, "family");
+    }
+
+    @Test
+    public void getHistogram_returnsSameHistogram() {
+        LatencyHistogram histogram = repository.getHistogram("duration", "family");
+        assertSame(histogram, repository.getHistogram("duration", "family"));
+        assertSame(repository.getHistogram("duration", null), repository.getHistogram("duration", null));
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void resetKeepsHistograms() {
+        LatencyHistogram histogram = repository.getHistogram("duration", "family");
+        histogram.record(10);
+        repository.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertSame(histogram, repository.getHistogram("duration", "family"));
+    }
 }
@@ -0,0 +1,66 @@
+package org.multiverse.utils.profiling;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import static org.multiverse.utils.profiling.TransactionHistograms.*;
+
+/**
+ * @author Peter Veentjer
+ */
+public class TransactionHistogramsTest {
+
+    private SimpleProfileRepository profiler;
+
+    @Before
+    public void setUp() {
+        profiler = new SimpleProfileRepository();
+    }
+
+    @Test
+    public void recordWithoutProfilerIsIgnored() {
+        recordCommitted(null, "family", System.nanoTime(), 1);
+        recordRetryBlockTime(null, "family", System.nanoTime());
+    }
+
+    @Test
+    public void committedTransactionIsRecorded() {
+        recordCommitted(profiler, "family", System.nanoTime(), 3);
+        recordCommitted(profiler, "family", System.nanoTime(), 3);
+
+        assertEquals(2, profiler.getHistogram(TRANSACTION_DURATION, "family").getCount());
+        assertEquals(2, profiler.getHistogram(ATTEMPTS, "family").getCount());
+        assertEquals(3, profiler.getHistogram(ATTEMPTS, "family").getMax());
+    }
+
+    @Test
+    public void retryBlockTimeIsRecorded() {
+        recordRetryBlockTime(profiler, "family", System.nanoTime());
+
+        assertEquals(1, profiler.getHistogram(RETRY_BLOCK_TIME, "family").getCount());
+    }
+
+    @Test
+    public void differentFamiliesAreRecordedSeparately() {
+        recordCommitted(profiler, "family1", System.nanoTime(), 1);
+        recordCommitted(profiler, "family2", System.nanoTime(), 2);
+        recordCommitted(profiler, null, System.nanoTime(), 3);
+        recordCommitted(profiler, "family1", System.nanoTime(), 1);
+
+        assertEquals(2, profiler.getHistogram(ATTEMPTS, "family1").getCount());
+        assertEquals(1, profiler.getHistogram(ATTEMPTS, "family2").getCount());
+        assertEquals(2, profiler.getHistogram(ATTEMPTS, "family2").getMax());
+        assertEquals(1, profiler.getHistogram(ATTEMPTS, null).getCount());
+    }
+
+    @Test
+    public void differentProfilersAreRecordedSeparately() {
+        SimpleProfileRepository otherProfiler = new SimpleProfileRepository();
+
+        recordCommitted(profiler, "family", System.nanoTime(), 1);
+        recordCommitted(otherProfiler, "family", System.nanoTime(), 1);
+
+        assertEquals(1, profiler.getHistogram(ATTEMPTS, "family").getCount());
+        assertEquals(1, otherProfiler.getHistogram(ATTEMPTS, "family").getCount());
+    }
+}
@@ -0,0 +1,139 @@
+package org.multiverse.utils.restartbackoff;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Test;
+import org.multiverse.stms.AbstractTransactionImpl;
+
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveRestartBackoffPolicyTest {
+
+    @After
+    public void tearDown() {
+        Thread.interrupted();
+    }
+
+    @Test
+    public void construction_INSTANCE() {
+        AdaptiveRestartBackoffPolicy policy = AdaptiveRestartBackoffPolicy.INSTANCE;
+        assertEquals(100, policy.getMinDelayNs());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.getMaxDelayNs());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(2), policy.getSpinThresholdNs());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50), policy.getYieldThresholdNs());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), policy.getAdaptIntervalNs());
+        assertEquals(10, policy.getMaxContentionLevel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minimumDelayCantBeLargerThanMaximumDelay() {
+        new AdaptiveRestartBackoffPolicy(10, 9, 0, 0, 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void spinThresholdCantBeLargerThanYieldThreshold() {
+        new AdaptiveRestartBackoffPolicy(1, 10, 10, 9, 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void adaptIntervalCantBeZero() {
+        new AdaptiveRestartBackoffPolicy(1, 10, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void windowGrowsWithAttemptAndContentionLevel() {
+        AdaptiveRestartBackoffPolicy policy = new AdaptiveRestartBackoffPolicy(100, 1000, 0, 0, 1, 10);
+
+        assertEquals(100, policy.calcWindowNs(0, 1));
+        assertEquals(200, policy.calcWindowNs(0, 2));
+        assertEquals(400, policy.calcWindowNs(1, 2));
+        assertEquals(800, policy.calcWindowNs(3, 1));
+        assertEquals(1000, policy.calcWindowNs(4, 1));
+        assertEquals(1000, policy.calcWindowNs(10, Integer.MAX_VALUE - 10));
+    }
+
+    @Test
+    public void jitterStaysInsideWindow() {
+        for (int k = 0; k < 1000; k++) {
+            long delayNs = AdaptiveRestartBackoffPolicy.jitter(1000);
+            assertTrue(delayNs >= 500);
+            assertTrue(delayNs <= 1000);
+        }
+
+        assertEquals(1, AdaptiveRestartBackoffPolicy.jitter(1));
+    }
+
+    @Test
+    public void contentionLevelIncreasesOnFrequentRestarts() {
+        AdaptiveRestartBackoffPolicy policy = new AdaptiveRestartBackoffPolicy(
+                1, 1000, 0, 0, TimeUnit.SECONDS.toNanos(1), 2);
+        long nowNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+
+        //a single restart doesn't increase the contention level.
+        assertEquals(0, policy.updateContentionLevel("foo", nowNs));
+        assertEquals(1, policy.updateContentionLevel("foo", nowNs + 1));
+        assertEquals(2, policy.updateContentionLevel("foo", nowNs + 2));
+        assertEquals(2, policy.updateContentionLevel("foo", nowNs + 3));
+        assertEquals(2, policy.getContentionLevel("foo"));
+        assertEquals(0, policy.getContentionLevel("bar"));
+        assertEquals(0, policy.getContentionLevel(null));
+    }
+
+    @Test
+    public void contentionLevelDecreasesOnRareRestarts() {
+        long intervalNs = TimeUnit.SECONDS.toNanos(1);
+        AdaptiveRestartBackoffPolicy policy = new AdaptiveRestartBackoffPolicy(1, 1000, 0, 0, intervalNs, 10);
+        long nowNs = System.nanoTime() + 2 * intervalNs;
+        for (int k = 0; k < 6; k++) {
+            policy.updateContentionLevel(null, nowNs);
+        }
+        assertEquals(5, policy.getContentionLevel(null));
+
+        assertEquals(3, policy.updateContentionLevel(null, nowNs + 2 * intervalNs));
+        assertEquals(0, policy.updateContentionLevel(null, nowNs + 100 * intervalNs));
+    }
+
+    @Test
+    public void delayIsDoneInTiers() throws InterruptedException {
+        AdaptiveRestartBackoffPolicy policy = new AdaptiveRestartBackoffPolicy(
+                1000, TimeUnit.MILLISECONDS.toNanos(10), 2000, 50000, 1, 0);
+        AbstractTransactionImpl t = new AbstractTransactionImpl();
+
+        //spin, yield and park
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long startNs = System.nanoTime();
+            policy.delay(t, attempt);
+            long elapsedNs = System.nanoTime() - startNs;
+            assertTrue(elapsedNs >= policy.calcWindowNs(0, attempt) / 2);
+        }
+    }
+
+    @Test
+    public void delayIsInterruptible() {
+        AdaptiveRestartBackoffPolicy policy = new AdaptiveRestartBackoffPolicy(
+                TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(10), 0, 0, 1, 0);
+
+        Thread.currentThread().interrupt();
+        long startNs = System.nanoTime();
+        try {
+            policy.delay(new AbstractTransactionImpl(), 1);
+            fail();
+        } catch (InterruptedException expected) {
+        }
+
+        assertTrue(System.nanoTime() - startNs < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void delayUninterruptibleRestoresInterrupt() {
+        AdaptiveRestartBackoffPolicy policy = new AdaptiveRestartBackoffPolicy(
+                TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(10), 0, 0, 1, 0);
+
+        Thread.currentThread().interrupt();
+        long startNs = System.nanoTime();
+        policy.delayUninterruptible(new AbstractTransactionImpl(), 1);
+
+        assertTrue(System.nanoTime() - startNs >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(Thread.interrupted());
+    }
+}